@@ -1,16 +1,30 @@
 package io.github.mikesaelim.arxivoaiharvester;
 
-import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.CountingInputStream;
 import io.github.mikesaelim.arxivoaiharvester.exception.*;
+import io.github.mikesaelim.arxivoaiharvester.flowcontrol.FixedPacingStrategy;
+import io.github.mikesaelim.arxivoaiharvester.flowcontrol.PacingStatistics;
+import io.github.mikesaelim.arxivoaiharvester.flowcontrol.PacingStrategy;
+import io.github.mikesaelim.arxivoaiharvester.flowcontrol.RateLimiter;
 import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata;
 import io.github.mikesaelim.arxivoaiharvester.model.request.ArxivRequest;
 import io.github.mikesaelim.arxivoaiharvester.model.request.GetRecordRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.IdentifyRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListIdentifiersRequest;
 import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListSetsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListIdentifiersRequest;
 import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListSetsRequest;
 import io.github.mikesaelim.arxivoaiharvester.model.response.ArxivResponse;
 import io.github.mikesaelim.arxivoaiharvester.model.response.GetRecordResponse;
+import io.github.mikesaelim.arxivoaiharvester.model.response.IdentifyResponse;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListIdentifiersResponse;
 import io.github.mikesaelim.arxivoaiharvester.model.response.ListRecordsResponse;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListSetsResponse;
+import io.github.mikesaelim.arxivoaiharvester.model.response.TransferStatistics;
+import io.github.mikesaelim.arxivoaiharvester.xml.ParseOptions;
 import io.github.mikesaelim.arxivoaiharvester.xml.ParsedXmlResponse;
 import io.github.mikesaelim.arxivoaiharvester.xml.XMLParser;
 import lombok.Getter;
@@ -18,19 +32,27 @@ import lombok.NonNull;
 import lombok.Setter;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.entity.DeflateInputStream;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.net.URI;
 import java.time.Duration;
-import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
 
 /**
  * This is the central harvester class.
@@ -39,7 +61,7 @@ import java.time.Instant;
  * to retrieve and parse the results from the arXiv OAI repository, and receive an {@link ArxivResponse} containing the
  * records returned.  This wait generally takes at least seconds, and possibly as much as minutes, as the arXiv OAI
  * repository throttles requests and forces the harvester to retry at a later time.  If any problems are encountered,
- * the harvester throws one of many exceptions detailed in the javadoc for {@link #harvest(URI)}.
+ * the harvester throws one of many exceptions detailed in the javadoc for {@link #harvest(URI, Function)}.
  *
  * See the README.md for general information, especially information on using the harvester.
  *
@@ -70,20 +92,29 @@ import java.time.Instant;
  * </ul>
  * The process will also timeout if it ends up going through more retries than the maximum number of retries.
  *
+ * That is the default {@link FixedPacingStrategy}.  The waits can instead be decided by another {@link PacingStrategy},
+ * such as {@link io.github.mikesaelim.arxivoaiharvester.flowcontrol.AimdPacingStrategy}, which learns from the
+ * responses how fast the repository lets the harvester go; the maximum wait and the maximum number of retries still
+ * apply.  The requests sent so far, and the effective request rate, are reported by {@link #getPacingStatistics()}.
+ *
  * Under the OAI protocol, the repository can also send back 302 Redirect responses, but the harvester doesn't currently
  * have a way to deal with that.
  *
  * The current implementation of the harvester is not intended to be used in a multithreaded environment.  Multiple
  * threads using a harvester, or even several harvesters, should be avoided anyway because the repository throttles
  * requests from the same machine/IP, so requests from multiple threads will create a lot of 503 Retry-After responses
- * and timeouts.  The OAI protocol was designed for bulk data update access anyway, not on-demand access.
+ * and timeouts.  The OAI protocol was designed for bulk data update access anyway, not on-demand access.  If several
+ * harvesters must run at once, give them all the same {@link RateLimiter}, such as the
+ * {@link io.github.mikesaelim.arxivoaiharvester.flowcontrol.SharedRateLimiter} for the repository's host, so that their
+ * requests are spaced out as if they came from one harvester, and a 503 Retry-After response to any of them holds all
+ * of them back.
  *
  * The current implementation of the harvester is blocking.  The thread invoking the harvest() method will be forced to
  * wait while the harvester sends the request, retrieves a (possibly lengthy) response, parses that response, and
  * complies with 503 Retry-After throttling.  This wait could last as much as
  *      minWaitBetweenRequests + (maxNumRetries - 1) * maxWaitBetweenRequests + local processing time.
- * A future update may change the implementation to be non-blocking, by resolving requests asynchronously with a request
- * queue and a single thread devoted to executing them.
+ * For a non-blocking alternative, see {@link AsyncArxivOAIHarvester}, which resolves requests asynchronously with a
+ * request queue and a single thread devoted to executing them.
  */
 @Slf4j
 public class ArxivOAIHarvester {
@@ -98,10 +129,40 @@ public class ArxivOAIHarvester {
     @Getter @Setter private String userAgentHeader;
     @Getter @Setter private String fromHeader;
 
-    // Scale multiplier for retry wait times, to ensure we don't run afoul of the repository's throttling
-    private static final double WAIT_PADDING = 1.1;
+    /**
+     * If true, which is the default, the harvester asks the repository for gzip- or deflate-compressed responses, and
+     * decompresses them as they are parsed.
+     */
+    @Getter @Setter private boolean compressionEnabled = true;
+
+    /**
+     * Decides the waits between requests.  By default, a {@link FixedPacingStrategy} with the minimum wait between
+     * requests.
+     */
+    @Getter private PacingStrategy pacingStrategy;
+
+    /**
+     * Spaces out the requests of this harvester together with those of the other harvesters sharing it.  By default,
+     * null, and the harvester is paced by its pacing strategy alone.
+     */
+    @Getter private RateLimiter rateLimiter;
+
+    /**
+     * Scheme, host, optional port, and path of the repository endpoint that requests are sent to.  By default,
+     * {@link ArxivRequest#DEFAULT_BASE_URI}, the public arXiv OAI repository; set it to send requests to a mirror.
+     */
+    @Getter private URI baseUri = ArxivRequest.DEFAULT_BASE_URI;
+
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    // System.nanoTime() when the last response was received, which is monotonic and finer than Instant.now()
+    private Long lastResponseReceived;
 
-    private Instant lastResponseReceived;
+    // System.nanoTime() when the first request was sent, and the counts of requests since then
+    private Long firstRequestSent;
+    private long requestsSent;
+    private long requestsThrottled;
+    private long requestsServed;
 
     /**
      * Construct a harvester with the default settings:
@@ -125,7 +186,11 @@ public class ArxivOAIHarvester {
         this(httpClient, new XMLParser(), maxNumRetries, minWaitBetweenRequests, maxWaitBetweenRequests);
     }
 
-    @VisibleForTesting ArxivOAIHarvester(@NonNull CloseableHttpClient httpClient,
+    /**
+     * Construct a harvester with user-specified settings and a custom {@link XMLParser}, for example one built in
+     * streaming mode.
+     */
+    public ArxivOAIHarvester(@NonNull CloseableHttpClient httpClient,
                              @NonNull XMLParser xmlParser,
                              int maxNumRetries,
                              @NonNull Duration minWaitBetweenRequests,
@@ -142,30 +207,250 @@ public class ArxivOAIHarvester {
         this.maxNumRetries = maxNumRetries;
         this.minWaitBetweenRequests = minWaitBetweenRequests;
         this.maxWaitBetweenRequests = maxWaitBetweenRequests;
+        this.pacingStrategy = new FixedPacingStrategy(minWaitBetweenRequests);
+    }
+
+    /**
+     * Replace the pacing strategy.  Not thread-safe.
+     */
+    public void setPacingStrategy(@NonNull PacingStrategy pacingStrategy) {
+        this.pacingStrategy = pacingStrategy;
+    }
+
+    /**
+     * Share a rate limiter with other harvesters, or stop sharing one if null.  Not thread-safe.
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Send requests to another endpoint than the public arXiv OAI repository.  Not thread-safe.
+     *
+     * @throws IllegalArgumentException if baseUri is not an absolute http or https URI with a host
+     */
+    public void setBaseUri(@NonNull URI baseUri) {
+        if (!"http".equalsIgnoreCase(baseUri.getScheme()) && !"https".equalsIgnoreCase(baseUri.getScheme())) {
+            throw new IllegalArgumentException("Base URI must be an http or https URI: " + baseUri);
+        }
+        if (baseUri.getHost() == null) {
+            throw new IllegalArgumentException("Base URI must have a host: " + baseUri);
+        }
+        this.baseUri = baseUri;
+    }
+
+    /**
+     * @return how long until this harvester could send its next request, going by its pacing strategy and its rate
+     *         limiter, if any; zero if it could send right away.  Unlike sending a request, this does not reserve a
+     *         slot with the rate limiter.  Not thread-safe.
+     */
+    public Duration getTimeUntilReady() {
+        Duration wait = pacingWait();
+        if (rateLimiter != null) {
+            Duration limiterWait = rateLimiter.timeUntilFree();
+            if (limiterWait.compareTo(wait) > 0) {
+                wait = limiterWait;
+            }
+        }
+        return wait;
+    }
 
-        lastResponseReceived = Instant.MIN;
+    /**
+     * @return the requests sent so far, how many of them were throttled and how many served, and the effective request
+     *         rate.  Not thread-safe.
+     */
+    public PacingStatistics getPacingStatistics() {
+        Duration elapsed = firstRequestSent != null ?
+                Duration.ofNanos(System.nanoTime() - firstRequestSent) : Duration.ZERO;
+
+        return PacingStatistics.builder()
+                .requests(requestsSent)
+                .throttledRequests(requestsThrottled)
+                .servedRequests(requestsServed)
+                .elapsed(elapsed)
+                .interval(pacingStrategy.interval())
+                .build();
     }
 
     /**
-     * See {@link #harvest(URI)} for exceptions.  Not thread-safe.
+     * See {@link #harvest(URI, Function)} for exceptions.  Not thread-safe.
      */
     public GetRecordResponse harvest(@NonNull GetRecordRequest request) {
-        ParsedXmlResponse xmlResponse = harvest(request.getUri());
-        ArticleMetadata record = !xmlResponse.getRecords().isEmpty() ? xmlResponse.getRecords().get(0) : null;
+        return execute(call(request));
+    }
+
+    /**
+     * See {@link #harvest(URI, Function)} for exceptions.  Not thread-safe.
+     */
+    public ListRecordsResponse harvest(@NonNull ListRecordsRequest request) {
+        return execute(call(request));
+    }
+
+    /**
+     * Harvest a page of records, handing each record to recordHandler as soon as it has been parsed instead of
+     * collecting the page into the response.  This lets the caller process records while the rest of the page is still
+     * being downloaded, and with a streaming {@link XMLParser}, keeps the memory used per page flat no matter how large
+     * the page is.
+     *
+     * The returned response carries the response date and the resumption information, which are only known once the
+     * whole page has been read, but its list of records is always empty.  Any exception thrown by recordHandler stops
+     * the harvest and is propagated to the caller.
+     *
+     * See {@link #harvest(URI, Function)} for exceptions.  Not thread-safe.
+     */
+    public ListRecordsResponse harvest(@NonNull ListRecordsRequest request,
+                                       @NonNull Consumer<ArticleMetadata> recordHandler) {
+        return execute(call(request, recordHandler));
+    }
+
+    /**
+     * Prepare a GetRecord request to be sent by this harvester or by an {@link AsyncArxivOAIHarvester}.
+     */
+    HarvestCall<GetRecordResponse> call(GetRecordRequest request) {
+        return new HarvestCall<>(request.getUri(baseUri),
+                inputStream -> xmlParser.parse(inputStream, parseOptions(request)),
+                response -> {
+                    ParsedXmlResponse xmlResponse = response.getParsedXmlResponse();
+                    ArticleMetadata record = !xmlResponse.getRecords().isEmpty() ? xmlResponse.getRecords().get(0) : null;
+
+                    return GetRecordResponse.builder()
+                            .responseDate(xmlResponse.getResponseDate())
+                            .request(request)
+                            .record(record)
+                            .transferStatistics(response.getTransferStatistics())
+                            .build();
+                });
+    }
+
+    /**
+     * Prepare a ListRecords request to be sent by this harvester or by an {@link AsyncArxivOAIHarvester}.
+     */
+    HarvestCall<ListRecordsResponse> call(ListRecordsRequest request) {
+        return new HarvestCall<>(request.getUri(baseUri),
+                inputStream -> xmlParser.parse(inputStream, parseOptions(request)),
+                response -> toListRecordsResponse(request, response));
+    }
+
+    /**
+     * Prepare a ListRecords request, whose records are handed to recordHandler, to be sent by this harvester or by an
+     * {@link AsyncArxivOAIHarvester}.
+     */
+    HarvestCall<ListRecordsResponse> call(ListRecordsRequest request, Consumer<ArticleMetadata> recordHandler) {
+        return new HarvestCall<>(request.getUri(baseUri),
+                inputStream -> xmlParser.parse(inputStream, parseOptions(request), recordHandler),
+                response -> toListRecordsResponse(request, response));
+    }
+
+    private <T extends ArxivResponse> T execute(HarvestCall<T> call) {
+        return call.getConverter().apply(harvest(call.getUri(), call.getParser()));
+    }
+
+    /**
+     * Harvest a page of record headers, without their metadata.  This is much cheaper, both for the repository and for
+     * the harvester, than a ListRecords request over the same range, so it is a good way to find out which records
+     * have changed before retrieving them.
+     *
+     * See {@link #harvest(URI, Function)} for exceptions.  Not thread-safe.
+     */
+    public ListIdentifiersResponse harvest(@NonNull ListIdentifiersRequest request) {
+        ParseOptions parseOptions = ParseOptions.builder()
+                .resumption(request instanceof ResumeListIdentifiersRequest)
+                .build();
+        RepositoryResponse repositoryResponse = harvest(request.getUri(baseUri),
+                inputStream -> xmlParser.parse(inputStream, parseOptions));
+        ParsedXmlResponse xmlResponse = repositoryResponse.getParsedXmlResponse();
+
+        ListIdentifiersResponse.ListIdentifiersResponseBuilder response = ListIdentifiersResponse.builder()
+                .responseDate(xmlResponse.getResponseDate());
+
+        if (request instanceof ResumeListIdentifiersRequest) {
+            response = response.request(((ResumeListIdentifiersRequest) request).getOriginalRequest());
+        } else {
+            response = response.request(request);
+        }
+
+        // A NoRecordsMatch error is parsed into a response without any headers
+        return response.headers(xmlResponse.getHeaders() != null ?
+                        ImmutableList.copyOf(xmlResponse.getHeaders()) : ImmutableList.of())
+                .resumptionToken(xmlResponse.getResumptionToken())
+                .cursor(xmlResponse.getCursor())
+                .completeListSize(xmlResponse.getCompleteListSize())
+                .expirationDate(xmlResponse.getExpirationDate())
+                .transferStatistics(repositoryResponse.getTransferStatistics())
+                .build();
+    }
+
+    /**
+     * Retrieve the description of the repository.  See {@link RepositoryProfileCache} for a way to avoid doing this on
+     * every start.
+     *
+     * See {@link #harvest(URI, Function)} for exceptions.  Not thread-safe.
+     */
+    public IdentifyResponse harvest(@NonNull IdentifyRequest request) {
+        RepositoryResponse repositoryResponse = harvest(request.getUri(baseUri),
+                inputStream -> xmlParser.parse(inputStream, ParseOptions.DEFAULT));
+        ParsedXmlResponse xmlResponse = repositoryResponse.getParsedXmlResponse();
+
+        if (xmlResponse.getRepositoryDescription() == null) {
+            throw new RepositoryError("Response from repository for request " + request.getUri(baseUri) +
+                    " was not an Identify response");
+        }
 
-        return GetRecordResponse.builder()
+        return IdentifyResponse.builder()
                 .responseDate(xmlResponse.getResponseDate())
                 .request(request)
-                .record(record)
+                .description(xmlResponse.getRepositoryDescription())
+                .transferStatistics(repositoryResponse.getTransferStatistics())
                 .build();
     }
 
     /**
-     * See {@link #harvest(URI)} for exceptions.  Not thread-safe.
+     * Harvest a page of the repository's set hierarchy.
+     *
+     * See {@link #harvest(URI, Function)} for exceptions.  Not thread-safe.
      */
-    public ListRecordsResponse harvest(@NonNull ListRecordsRequest request) {
-        ParsedXmlResponse xmlResponse = harvest(request.getUri());
+    public ListSetsResponse harvest(@NonNull ListSetsRequest request) {
+        ParseOptions parseOptions = ParseOptions.builder()
+                .resumption(request instanceof ResumeListSetsRequest)
+                .build();
+        RepositoryResponse repositoryResponse = harvest(request.getUri(baseUri),
+                inputStream -> xmlParser.parse(inputStream, parseOptions));
+        ParsedXmlResponse xmlResponse = repositoryResponse.getParsedXmlResponse();
+
+        ListSetsResponse.ListSetsResponseBuilder response = ListSetsResponse.builder()
+                .responseDate(xmlResponse.getResponseDate());
+
+        if (request instanceof ResumeListSetsRequest) {
+            response = response.request(((ResumeListSetsRequest) request).getOriginalRequest());
+        } else {
+            response = response.request(request);
+        }
+
+        return response.sets(xmlResponse.getSets() != null ?
+                        ImmutableList.copyOf(xmlResponse.getSets()) : ImmutableList.of())
+                .resumptionToken(xmlResponse.getResumptionToken())
+                .cursor(xmlResponse.getCursor())
+                .completeListSize(xmlResponse.getCompleteListSize())
+                .expirationDate(xmlResponse.getExpirationDate())
+                .transferStatistics(repositoryResponse.getTransferStatistics())
+                .build();
+    }
+
+    private ParseOptions parseOptions(GetRecordRequest request) {
+        return ParseOptions.builder()
+                .fields(request.getFields())
+                .build();
+    }
+
+    private ParseOptions parseOptions(ListRecordsRequest request) {
+        return ParseOptions.builder()
+                .resumption(request instanceof ResumeListRecordsRequest)
+                .fields(request.getFields())
+                .build();
+    }
 
+    private ListRecordsResponse toListRecordsResponse(ListRecordsRequest request, RepositoryResponse repositoryResponse) {
+        ParsedXmlResponse xmlResponse = repositoryResponse.getParsedXmlResponse();
         ListRecordsResponse.ListRecordsResponseBuilder response =  ListRecordsResponse.builder()
                 .responseDate(xmlResponse.getResponseDate());
 
@@ -179,6 +464,8 @@ public class ArxivOAIHarvester {
                 .resumptionToken(xmlResponse.getResumptionToken())
                 .cursor(xmlResponse.getCursor())
                 .completeListSize(xmlResponse.getCompleteListSize())
+                .expirationDate(xmlResponse.getExpirationDate())
+                .transferStatistics(repositoryResponse.getTransferStatistics())
                 .build();
     }
 
@@ -187,7 +474,8 @@ public class ArxivOAIHarvester {
      * amount of time before retrying.  It is definitely not thread-safe.
      *
      * @param requestUri URI to be sent to the repository
-     * @return parsed content of the response from the repository
+     * @param parser parses the body of a 200 OK response from the repository
+     * @return parsed content of the response from the repository, with its transfer statistics
      *
      * @throws NullPointerException if requestUri is null
      * @throws HttpException if there is a problem communicating with the repository
@@ -198,71 +486,123 @@ public class ArxivOAIHarvester {
      * @throws BadArgumentException if the repository's response contains a BadArgument error
      * @throws BadResumptionTokenException if the repository's response contains a BadResumptionToken error
      */
-    private ParsedXmlResponse harvest(@NonNull URI requestUri) {
-        HttpGet httpRequest = new HttpGet(requestUri);
-        if (userAgentHeader != null) {
-            httpRequest.addHeader("User-Agent", userAgentHeader);
-        }
-        if (fromHeader != null) {
-            httpRequest.addHeader("From", fromHeader);
-        }
+    private RepositoryResponse harvest(@NonNull URI requestUri, Function<InputStream, ParsedXmlResponse> parser) {
+        HttpGet httpRequest = httpRequest(requestUri);
 
         // Before the first attempt, check if we are requesting too soon after the last request, and delay if necessary.
-        Duration durationSinceLastResponseReceived = Duration.between(lastResponseReceived, Instant.now());
-        if (durationSinceLastResponseReceived.compareTo(minWaitBetweenRequests) < 0) {
-            Duration durationToWait = minWaitBetweenRequests.minus(durationSinceLastResponseReceived);
-            log.info("Too soon since sending last request - waiting " + formatDurationSeconds(durationToWait) + " seconds...");
+        Duration initialWait = initialWait();
+        if (!initialWait.isZero()) {
+            log.info("Too soon since sending last request - waiting " + formatDurationSeconds(initialWait) + " seconds...");
             try {
-                Thread.sleep(durationToWait.toMillis());
+                sleep(initialWait);
             } catch (InterruptedException e) {
                 log.error("Initial wait interrupted", e);
                 throw new InterruptedError(e);
             }
         }
 
-        RepositoryResponse response = tryHarvest(httpRequest);
+        RepositoryResponse response = tryHarvest(httpRequest, parser);
         if (response.getParsedXmlResponse() != null) {
-            return response.getParsedXmlResponse();
+            return response;
         }
 
         int numRetries = 1;
-        Duration wait = response.getWait();
         while (numRetries <= maxNumRetries) {
-            if (wait.compareTo(maxWaitBetweenRequests) > 0) {
-                String errorString = "Repository-suggested wait time of " + formatDurationSeconds(wait) +
-                        " exceeds maximum allowed wait time of " + formatDurationSeconds(maxWaitBetweenRequests) +
-                        "; aborting request " + requestUri;
-                log.warn(errorString);
-                throw new TimeoutException(errorString);
-            } else if (wait.compareTo(minWaitBetweenRequests) < 0) {
-                wait = minWaitBetweenRequests;
-            } else {
-                // Padding to help ensure that we don't retry too early and run afoul of the repository's throttling logic
-                double paddedWaitSeconds = WAIT_PADDING * wait.getSeconds();
-                long paddedWaitMillis = (long) (paddedWaitSeconds * 1000);
-                wait = Duration.ofMillis(paddedWaitMillis);
-            }
+            Duration wait = retryWait(response.getWait(), requestUri);
 
             log.info("Waiting " + formatDurationSeconds(wait) + " seconds...");
             try {
-                Thread.sleep(wait.toMillis());
+                sleep(wait);
             } catch (InterruptedException e) {
                 log.error("Retry loop interrupted", e);
                 throw new InterruptedError(e);
             }
 
-            response = tryHarvest(httpRequest);
+            response = tryHarvest(httpRequest, parser);
             if (response.getParsedXmlResponse() != null) {
-                return response.getParsedXmlResponse();
+                return response;
             }
 
             numRetries++;
-            wait = response.getWait();
         }
 
+        throw tooManyRetries(requestUri);
+    }
+
+    /**
+     * Build the HTTP request for the URI, with the headers set on this harvester.
+     */
+    HttpGet httpRequest(URI requestUri) {
+        HttpGet httpRequest = new HttpGet(requestUri);
+        if (compressionEnabled) {
+            httpRequest.addHeader(HttpHeaders.ACCEPT_ENCODING, ACCEPT_ENCODING);
+        }
+        if (userAgentHeader != null) {
+            httpRequest.addHeader("User-Agent", userAgentHeader);
+        }
+        if (fromHeader != null) {
+            httpRequest.addHeader("From", fromHeader);
+        }
+
+        return httpRequest;
+    }
+
+    /**
+     * @return how long to wait before sending the next request, so that it is not sent sooner than the pacing
+     *         strategy's interval after the last response was received, nor before the slot reserved for it by the
+     *         rate limiter, if there is one; zero if it can be sent right away
+     */
+    Duration initialWait() {
+        Duration wait = pacingWait();
+        return rateLimiter != null ? rateLimiter.reserve(wait) : wait;
+    }
+
+    /**
+     * @return how long until the pacing strategy's interval since the last response received has passed
+     */
+    private Duration pacingWait() {
+        if (lastResponseReceived == null) {
+            return Duration.ZERO;
+        }
+
+        Duration interval = pacingStrategy.interval();
+        Duration durationSinceLastResponseReceived = Duration.ofNanos(System.nanoTime() - lastResponseReceived);
+        if (durationSinceLastResponseReceived.compareTo(interval) < 0) {
+            return interval.minus(durationSinceLastResponseReceived);
+        }
+        return Duration.ZERO;
+    }
+
+    /**
+     * Decide how long to actually wait before retrying, given the wait suggested by a 503 Retry-After response.
+     *
+     * @throws TimeoutException if the suggested wait is longer than the maximum wait between requests
+     */
+    Duration retryWait(Duration suggestedWait, URI requestUri) {
+        if (suggestedWait.compareTo(maxWaitBetweenRequests) > 0) {
+            String errorString = "Repository-suggested wait time of " + formatDurationSeconds(suggestedWait) +
+                    " exceeds maximum allowed wait time of " + formatDurationSeconds(maxWaitBetweenRequests) +
+                    "; aborting request " + requestUri;
+            log.warn(errorString);
+            throw new TimeoutException(errorString);
+        }
+
+        Duration wait = pacingStrategy.retryWait(suggestedWait);
+        return rateLimiter != null ? rateLimiter.reserve(wait) : wait;
+    }
+
+    TimeoutException tooManyRetries(URI requestUri) {
         String errorString = "Too many retries; aborting request " + requestUri;
         log.warn(errorString);
-        throw new TimeoutException(errorString);
+        return new TimeoutException(errorString);
+    }
+
+    /**
+     * Sleep for at least the whole duration; {@link Thread#sleep(long)} alone would cut off the fraction of a
+     * millisecond.
+     */
+    private static void sleep(Duration duration) throws InterruptedException {
+        TimeUnit.NANOSECONDS.sleep(duration.toNanos());
     }
 
 
@@ -276,59 +616,87 @@ public class ArxivOAIHarvester {
      *     <li>a runtime exception if there is a problem.</li>
      * </ul>
      *
-     * The list of runtime exceptions that can be thrown is basically covered in {@link #harvest(URI)}.
+     * The list of runtime exceptions that can be thrown is basically covered in {@link #harvest(URI, Function)}.
      */
-    private RepositoryResponse tryHarvest(HttpGet httpRequest) {
+    RepositoryResponse tryHarvest(HttpGet httpRequest, Function<InputStream, ParsedXmlResponse> parser) {
         log.info("Sending request to arXiv OAI repository: {}", httpRequest.getURI());
+        if (firstRequestSent == null) {
+            firstRequestSent = System.nanoTime();
+        }
+        requestsSent++;
 
         try (CloseableHttpResponse httpResponse = httpClient.execute(httpRequest)) {
-            lastResponseReceived = Instant.now();
-            int httpStatusCode = httpResponse.getStatusLine().getStatusCode();
-
-            switch (httpStatusCode) {
-                case HttpStatus.SC_OK:
-                    log.info("Parsing response from arXiv OAI repository for request {}", httpRequest.getURI());
-
-                    ParsedXmlResponse parsedXmlResponse;
-                    try {
-                        parsedXmlResponse = xmlParser.parse(httpResponse.getEntity().getContent());
-                    } catch (BadArgumentException | BadResumptionTokenException e) {
-                        log.error("Repository complained about input for request " + httpRequest.getURI(), e);
-                        throw e;
-                    } catch (ParseException | RepositoryError e) {
-                        log.error("Error parsing response for request " + httpRequest.getURI(), e);
-                        throw e;
-                    }
-
-                    log.info("Response parsed for request {}", httpRequest.getURI());
-
-                    return new RepositoryResponse(parsedXmlResponse, null);
-
-                case HttpStatus.SC_MOVED_TEMPORARILY:
-                    // Handling this is not currently supported
-                    String movedErrorString = "Redirect received for request " + httpRequest.getURI();
-                    log.error(movedErrorString);
-                    throw new UnsupportedRedirectException(movedErrorString);
-
-                case HttpStatus.SC_NOT_FOUND:
-                    String notFoundErrorString = "Received 404 for request " + httpRequest.getURI();
-                    log.error(notFoundErrorString);
-                    throw new RepositoryError(notFoundErrorString);
-
-                case HttpStatus.SC_SERVICE_UNAVAILABLE:
-                    Long secondsToWait = Long.parseLong(httpResponse.getFirstHeader(HttpHeaders.RETRY_AFTER).getValue());
-                    log.info("Received 503 Retry After; told to wait " + secondsToWait + " seconds");
-                    return new RepositoryResponse(null, Duration.ofSeconds(secondsToWait));
-
-                default:
-                    // Unfortunately, we currently aren't prepared to handle other HTTP status codes.  The OAI specs
-                    // don't really say what to do for most of them.  So we log and return an error response.
-                    String defaultErrorString = "Request to arXiv OAI repository " + httpRequest.getURI() +
-                            " returned status code " + httpStatusCode + ": " +
-                            httpResponse.getStatusLine().getReasonPhrase() + ": " +
-                            EntityUtils.toString(httpResponse.getEntity());
-                    log.error(defaultErrorString);
-                    throw new RepositoryError(defaultErrorString);
+            // The wait before the next request counts from when this response has been read in full
+            try {
+                int httpStatusCode = httpResponse.getStatusLine().getStatusCode();
+
+                switch (httpStatusCode) {
+                    case HttpStatus.SC_OK:
+                        pacingStrategy.onServed();
+                        log.info("Parsing response from arXiv OAI repository for request {}", httpRequest.getURI());
+
+                        HttpEntity entity = httpResponse.getEntity();
+                        String contentEncoding = contentEncoding(entity);
+                        CountingInputStream compressedContent = new CountingInputStream(entity.getContent());
+                        CountingInputStream uncompressedContent =
+                                new CountingInputStream(decode(compressedContent, contentEncoding));
+
+                        ParsedXmlResponse parsedXmlResponse;
+                        try {
+                            parsedXmlResponse = parser.apply(uncompressedContent);
+                        } catch (BadArgumentException | BadResumptionTokenException e) {
+                            log.error("Repository complained about input for request " + httpRequest.getURI(), e);
+                            throw e;
+                        } catch (ParseException | RepositoryError e) {
+                            log.error("Error parsing response for request " + httpRequest.getURI(), e);
+                            throw e;
+                        }
+
+                        TransferStatistics transferStatistics = TransferStatistics.builder()
+                                .contentEncoding(contentEncoding)
+                                .compressedBytes(compressedContent.getCount())
+                                .uncompressedBytes(uncompressedContent.getCount())
+                                .build();
+                        log.info("Response parsed for request {}; read {} bytes, {} uncompressed", httpRequest.getURI(),
+                                transferStatistics.getCompressedBytes(), transferStatistics.getUncompressedBytes());
+                        requestsServed++;
+
+                        return new RepositoryResponse(parsedXmlResponse, null, transferStatistics);
+
+                    case HttpStatus.SC_MOVED_TEMPORARILY:
+                        // Handling this is not currently supported
+                        String movedErrorString = "Redirect received for request " + httpRequest.getURI();
+                        log.error(movedErrorString);
+                        throw new UnsupportedRedirectException(movedErrorString);
+
+                    case HttpStatus.SC_NOT_FOUND:
+                        String notFoundErrorString = "Received 404 for request " + httpRequest.getURI();
+                        log.error(notFoundErrorString);
+                        throw new RepositoryError(notFoundErrorString);
+
+                    case HttpStatus.SC_SERVICE_UNAVAILABLE:
+                        Long secondsToWait =
+                                Long.parseLong(httpResponse.getFirstHeader(HttpHeaders.RETRY_AFTER).getValue());
+                        log.info("Received 503 Retry After; told to wait " + secondsToWait + " seconds");
+                        if (rateLimiter != null) {
+                            rateLimiter.pauseFor(Duration.ofSeconds(secondsToWait));
+                        }
+                        requestsThrottled++;
+                        pacingStrategy.onThrottled(Duration.ofSeconds(secondsToWait));
+                        return new RepositoryResponse(null, Duration.ofSeconds(secondsToWait), null);
+
+                    default:
+                        // Unfortunately, we currently aren't prepared to handle other HTTP status codes.  The OAI specs
+                        // don't really say what to do for most of them.  So we log and return an error response.
+                        String defaultErrorString = "Request to arXiv OAI repository " + httpRequest.getURI() +
+                                " returned status code " + httpStatusCode + ": " +
+                                httpResponse.getStatusLine().getReasonPhrase() + ": " +
+                                EntityUtils.toString(httpResponse.getEntity());
+                        log.error(defaultErrorString);
+                        throw new RepositoryError(defaultErrorString);
+                }
+            } finally {
+                lastResponseReceived = System.nanoTime();
             }
         } catch (IOException | IllegalStateException e) {
             log.error("Error retrieving response from arXiv OAI repository for request " + httpRequest.getURI(), e);
@@ -337,6 +705,41 @@ public class ArxivOAIHarvester {
 
     }
 
+    /**
+     * @return the content encoding of the entity, in lower case, or null if it is not encoded
+     */
+    private static String contentEncoding(HttpEntity entity) {
+        Header header = entity.getContentEncoding();
+        if (header == null || header.getValue() == null) {
+            return null;
+        }
+
+        String contentEncoding = header.getValue().trim().toLowerCase(Locale.ROOT);
+        return contentEncoding.isEmpty() || contentEncoding.equals("identity") ? null : contentEncoding;
+    }
+
+    /**
+     * Wrap the body of a response in a stream that decompresses it as it is read.
+     *
+     * @throws HttpException if the content encoding is not one that the harvester asked for
+     * @throws IOException if the start of the compressed stream cannot be read
+     */
+    private static InputStream decode(InputStream content, String contentEncoding) throws IOException {
+        if (contentEncoding == null) {
+            return content;
+        }
+
+        switch (contentEncoding) {
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(content);
+            case "deflate":
+                return new DeflateInputStream(content);
+            default:
+                throw new HttpException("Unsupported content encoding '" + contentEncoding + "' in response");
+        }
+    }
+
     /**
      * Nicely formats the number of seconds in a Duration.
      */
@@ -348,12 +751,25 @@ public class ArxivOAIHarvester {
 
     /**
      * POJO to hold responses from the arXiv OAI repository that we can do something with: either a parsed XML response
-     * or a number of seconds to wait.  Immutable.
+     * with its transfer statistics, or a number of seconds to wait.  Immutable.
      */
     @Value
-    private static class RepositoryResponse {
+    static class RepositoryResponse {
         ParsedXmlResponse parsedXmlResponse;
         Duration wait;
+        TransferStatistics transferStatistics;
+    }
+
+    /**
+     * Everything needed to send a request to the arXiv OAI repository and turn the result into a response for the user:
+     * the URI to send, the parser for the body of a 200 OK response, and the conversion of the parsed response.
+     * Immutable.
+     */
+    @Value
+    static class HarvestCall<T extends ArxivResponse> {
+        URI uri;
+        Function<InputStream, ParsedXmlResponse> parser;
+        Function<RepositoryResponse, T> converter;
     }
 
 }
@@ -0,0 +1,249 @@
+package io.github.mikesaelim.arxivoaiharvester;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata;
+import io.github.mikesaelim.arxivoaiharvester.model.request.GetRecordRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ArxivResponse;
+import io.github.mikesaelim.arxivoaiharvester.model.response.GetRecordResponse;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListRecordsResponse;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.methods.HttpGet;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking counterpart to {@link ArxivOAIHarvester}.
+ *
+ * Any thread can pass a request in to one of the harvest() methods, which return right away with a
+ * {@link CompletableFuture} of the response.  The requests are queued, and sent to the arXiv OAI repository one at a
+ * time, in the order they were submitted, by a single dispatcher thread.  The flow control is the same as that of
+ * {@link ArxivOAIHarvester}: the minimum wait between requests, the maximum wait, and the maximum number of retries all
+ * come from the wrapped harvester.  But instead of sleeping through the waits, the dispatcher schedules the next attempt
+ * on a {@link java.util.concurrent.ScheduledExecutorService} and is free in the meantime, so no thread ever blocks on
+ * them.
+ *
+ * If a request fails, its future is completed exceptionally with the same exception that {@link ArxivOAIHarvester}
+ * would have thrown; see the javadoc there.  Cancelling a future takes its request out of the queue, or, if the
+ * dispatcher is waiting to send it or to retry it, stops the wait, so that the next request in the queue goes ahead.  A
+ * request that is being sent when its future is cancelled is allowed to finish first.  Callbacks attached to the futures
+ * run on the dispatcher thread unless an executor is given, so they should not block.
+ *
+ * The wrapped harvester is only ever used by the dispatcher thread, and must not be used directly by anything else
+ * while this harvester is open.  Close this harvester to stop the dispatcher; requests still waiting are cancelled.
+ */
+@Slf4j
+public class AsyncArxivOAIHarvester implements AutoCloseable {
+
+    private final ArxivOAIHarvester harvester;
+    private final ScheduledThreadPoolExecutor dispatcher;
+
+    // The following are only touched by the dispatcher thread
+    private final Queue<PendingCall<?>> queue = new ArrayDeque<>();
+    private PendingCall<?> current;
+
+    /**
+     * Construct an asynchronous harvester that sends its requests through the given harvester, with its settings.
+     */
+    public AsyncArxivOAIHarvester(@NonNull ArxivOAIHarvester harvester) {
+        this.harvester = harvester;
+
+        dispatcher = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+                .setNameFormat("arxiv-oai-dispatcher-%d")
+                .setDaemon(true)
+                .build());
+        dispatcher.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * See {@link ArxivOAIHarvester#harvest(GetRecordRequest)}.  Thread-safe.
+     */
+    public CompletableFuture<GetRecordResponse> harvest(@NonNull GetRecordRequest request) {
+        return submit(harvester.call(request));
+    }
+
+    /**
+     * See {@link ArxivOAIHarvester#harvest(ListRecordsRequest)}.  Thread-safe.
+     */
+    public CompletableFuture<ListRecordsResponse> harvest(@NonNull ListRecordsRequest request) {
+        return submit(harvester.call(request));
+    }
+
+    /**
+     * See {@link ArxivOAIHarvester#harvest(ListRecordsRequest, Consumer)}.  The records are handed to recordHandler on
+     * the dispatcher thread.  Thread-safe.
+     */
+    public CompletableFuture<ListRecordsResponse> harvest(@NonNull ListRecordsRequest request,
+                                                          @NonNull Consumer<ArticleMetadata> recordHandler) {
+        return submit(harvester.call(request, recordHandler));
+    }
+
+    /**
+     * Stop the dispatcher.  The request being sent, if any, is allowed to finish, but the futures of the requests still
+     * waiting, including one waiting to be retried, are cancelled.
+     */
+    @Override
+    public void close() {
+        try {
+            dispatcher.execute(this::cancelAll);
+        } catch (RejectedExecutionException e) {
+            // Already closed
+        }
+        dispatcher.shutdown();
+    }
+
+
+
+    private <T extends ArxivResponse> CompletableFuture<T> submit(ArxivOAIHarvester.HarvestCall<T> call) {
+        PendingCall<T> pendingCall = new PendingCall<>(call);
+        pendingCall.future.whenComplete((response, e) -> {
+            if (pendingCall.future.isCancelled()) {
+                try {
+                    dispatcher.execute(() -> release(pendingCall));
+                } catch (RejectedExecutionException rejected) {
+                    // Closed; nothing more is dispatched
+                }
+            }
+        });
+        try {
+            dispatcher.execute(() -> {
+                if (dispatcher.isShutdown()) {
+                    pendingCall.future.cancel(false);
+                    return;
+                }
+                queue.add(pendingCall);
+                dispatchNext();
+            });
+        } catch (RejectedExecutionException e) {
+            pendingCall.future.completeExceptionally(e);
+        }
+        return pendingCall.future;
+    }
+
+    /**
+     * Start on the next request in the queue, unless a request is already underway.  Runs on the dispatcher thread.
+     */
+    private void dispatchNext() {
+        while (current == null && !queue.isEmpty()) {
+            PendingCall<?> next = queue.poll();
+            if (next.future.isDone()) {
+                continue;
+            }
+
+            current = next;
+            next.httpRequest = harvester.httpRequest(next.call.getUri());
+            Duration initialWait = harvester.initialWait();
+            if (!initialWait.isZero()) {
+                log.info("Too soon since sending last request - scheduling request {} in {} ms",
+                        next.call.getUri(), initialWait.toMillis());
+            }
+            schedule(next, initialWait);
+        }
+    }
+
+    /**
+     * Send the request once, and then either finish it or schedule the next attempt.  Runs on the dispatcher thread.
+     */
+    private void attempt(PendingCall<?> pendingCall) {
+        if (pendingCall != current) {
+            // Cancelled and superseded while waiting
+            return;
+        }
+
+        try {
+            if (!pendingCall.future.isDone()) {
+                ArxivOAIHarvester.RepositoryResponse response =
+                        harvester.tryHarvest(pendingCall.httpRequest, pendingCall.call.getParser());
+
+                if (response.getParsedXmlResponse() == null) {
+                    if (pendingCall.numRetries >= harvester.getMaxNumRetries()) {
+                        throw harvester.tooManyRetries(pendingCall.call.getUri());
+                    }
+
+                    pendingCall.numRetries++;
+                    Duration wait = harvester.retryWait(response.getWait(), pendingCall.call.getUri());
+                    log.info("Scheduling retry of request {} in {} ms", pendingCall.call.getUri(), wait.toMillis());
+                    schedule(pendingCall, wait);
+                    return;
+                }
+
+                pendingCall.complete(response);
+            }
+        } catch (RuntimeException | Error e) {
+            pendingCall.future.completeExceptionally(e);
+        }
+
+        current = null;
+        try {
+            dispatcher.execute(this::dispatchNext);
+        } catch (RejectedExecutionException e) {
+            // Closed; the rest of the queue is cancelled
+        }
+    }
+
+    /**
+     * Stop waiting for a cancelled request, if it is the current one, and go on to the next.  Runs on the dispatcher
+     * thread.
+     */
+    private void release(PendingCall<?> pendingCall) {
+        if (pendingCall != current) {
+            return;
+        }
+
+        if (pendingCall.nextAttempt != null) {
+            pendingCall.nextAttempt.cancel(false);
+        }
+        current = null;
+        dispatchNext();
+    }
+
+    private void schedule(PendingCall<?> pendingCall, Duration wait) {
+        try {
+            pendingCall.nextAttempt = dispatcher.schedule(() -> attempt(pendingCall), wait.toNanos(),
+                    TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closed; the request is cancelled
+        }
+    }
+
+    private void cancelAll() {
+        if (current != null) {
+            if (current.nextAttempt != null) {
+                current.nextAttempt.cancel(false);
+            }
+            current.future.cancel(false);
+            current = null;
+        }
+        queue.forEach(pendingCall -> pendingCall.future.cancel(false));
+        queue.clear();
+    }
+
+    /**
+     * A request waiting to be sent, or being sent, with its future and the number of retries so far.
+     */
+    private static class PendingCall<T extends ArxivResponse> {
+        final ArxivOAIHarvester.HarvestCall<T> call;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        HttpGet httpRequest;
+        ScheduledFuture<?> nextAttempt;
+        int numRetries;
+
+        PendingCall(ArxivOAIHarvester.HarvestCall<T> call) {
+            this.call = call;
+        }
+
+        void complete(ArxivOAIHarvester.RepositoryResponse response) {
+            future.complete(call.getConverter().apply(response));
+        }
+    }
+
+}
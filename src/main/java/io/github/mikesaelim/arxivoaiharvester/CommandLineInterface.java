@@ -23,7 +23,8 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
 public class CommandLineInterface {
 
     public static void main(String[] args) throws InterruptedException {
-        CloseableHttpClient httpClient = HttpClients.createDefault();
+        // The harvester decompresses responses itself, so that it can count the bytes transferred
+        CloseableHttpClient httpClient = HttpClients.custom().disableContentCompression().build();
         ArxivOAIHarvester harvester = new ArxivOAIHarvester(httpClient);
         Scanner scanner = new Scanner(System.in);
 
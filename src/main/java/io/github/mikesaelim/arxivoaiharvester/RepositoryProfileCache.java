@@ -0,0 +1,236 @@
+package io.github.mikesaelim.arxivoaiharvester;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import io.github.mikesaelim.arxivoaiharvester.exception.HarvesterError;
+import io.github.mikesaelim.arxivoaiharvester.internal.AtomicPropertiesFile;
+import io.github.mikesaelim.arxivoaiharvester.model.data.DatestampGranularity;
+import io.github.mikesaelim.arxivoaiharvester.model.data.DeletedRecordPolicy;
+import io.github.mikesaelim.arxivoaiharvester.model.data.RepositoryDescription;
+import io.github.mikesaelim.arxivoaiharvester.model.data.RepositoryProfile;
+import io.github.mikesaelim.arxivoaiharvester.model.data.SetDescription;
+import io.github.mikesaelim.arxivoaiharvester.model.request.IdentifyRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListSetsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListSetsResponse;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Properties;
+
+import static io.github.mikesaelim.arxivoaiharvester.internal.AtomicPropertiesFile.checkFormatVersion;
+import static io.github.mikesaelim.arxivoaiharvester.internal.AtomicPropertiesFile.joinList;
+import static io.github.mikesaelim.arxivoaiharvester.internal.AtomicPropertiesFile.required;
+import static io.github.mikesaelim.arxivoaiharvester.internal.AtomicPropertiesFile.setFormatVersion;
+import static io.github.mikesaelim.arxivoaiharvester.internal.AtomicPropertiesFile.setIfNotNull;
+import static io.github.mikesaelim.arxivoaiharvester.internal.AtomicPropertiesFile.splitList;
+
+/**
+ * Keeps the {@link RepositoryProfile} of the arXiv OAI repository, so that a harvest can look up the repository's
+ * earliest datestamp, granularity, and set hierarchy without sending Identify and ListSets requests every time the
+ * process starts.
+ *
+ * The profile is kept in memory and, optionally, in a properties file on local disk.  When it is asked for, the cache
+ * returns the profile in memory, or failing that the one on disk, as long as it is younger than the time-to-live.
+ * Otherwise, it retrieves a fresh profile with the harvester it was given, and writes it to disk.  The file is replaced
+ * atomically where the file system allows it, so a reader never sees a half-written profile.  A file that cannot be
+ * read or written is logged and otherwise ignored; the profile is then simply retrieved again.
+ *
+ * Retrieving a profile goes through the harvester, so it is subject to the same flow control as any other request, and
+ * the same exceptions.  This class is thread-safe, but the harvester is not, so do not retrieve a profile while another
+ * thread is using the same harvester.
+ */
+@Slf4j
+public class RepositoryProfileCache {
+
+    private static final String FORMAT_VERSION = "1";
+
+    private final ArxivOAIHarvester harvester;
+    private final AtomicPropertiesFile file;
+    @Getter private final Duration timeToLive;
+    private final Clock clock;
+
+    private RepositoryProfile profile;
+
+    /**
+     * Construct a cache that only keeps the profile in memory.
+     */
+    public RepositoryProfileCache(ArxivOAIHarvester harvester, Duration timeToLive) {
+        this(harvester, null, timeToLive, Clock.systemUTC());
+    }
+
+    /**
+     * Construct a cache that keeps the profile in memory and in the given file.
+     */
+    public RepositoryProfileCache(ArxivOAIHarvester harvester, Path file, Duration timeToLive) {
+        this(harvester, file, timeToLive, Clock.systemUTC());
+    }
+
+    @VisibleForTesting RepositoryProfileCache(@NonNull ArxivOAIHarvester harvester, Path file,
+                                              @NonNull Duration timeToLive, @NonNull Clock clock) {
+        if (timeToLive.isNegative()) {
+            throw new IllegalArgumentException("Time-to-live of repository profile must not be negative");
+        }
+
+        this.harvester = harvester;
+        this.file = file != null ? new AtomicPropertiesFile(file, "arXiv OAI repository profile") : null;
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+    }
+
+    /**
+     * Get the repository profile, retrieving it from the repository only if there is no cached profile younger than the
+     * time-to-live.  See {@link ArxivOAIHarvester} for exceptions.
+     */
+    public synchronized RepositoryProfile get() {
+        Instant now = clock.instant();
+
+        if (profile == null && file != null) {
+            profile = load();
+        }
+        if (profile == null || profile.isExpired(timeToLive, now)) {
+            profile = retrieve(now);
+        }
+
+        return profile;
+    }
+
+    /**
+     * Retrieve the repository profile from the repository, whether or not the cached one has expired.  See
+     * {@link ArxivOAIHarvester} for exceptions.
+     */
+    public synchronized RepositoryProfile refresh() {
+        profile = retrieve(clock.instant());
+        return profile;
+    }
+
+    private RepositoryProfile retrieve(Instant now) {
+        log.info("Retrieving repository profile");
+
+        RepositoryProfile retrievedProfile;
+        try {
+            RepositoryDescription description = harvester.harvest(new IdentifyRequest()).getDescription();
+
+            ImmutableList.Builder<SetDescription> sets = ImmutableList.builder();
+            ListSetsRequest request = new ListSetsRequest();
+            while (request != ListSetsRequest.NONE) {
+                ListSetsResponse response = harvester.harvest(request);
+                sets.addAll(response.getSets());
+                request = response.resumption();
+            }
+
+            retrievedProfile = RepositoryProfile.builder()
+                    .description(description)
+                    .sets(sets.build())
+                    .retrievedAt(now)
+                    .build();
+        } catch (URISyntaxException e) {
+            throw new HarvesterError("Error creating request for repository profile", e);
+        }
+
+        if (file != null) {
+            save(retrievedProfile);
+        }
+        return retrievedProfile;
+    }
+
+    /**
+     * @return the profile stored in the file, or null if there is none or it cannot be read
+     */
+    private RepositoryProfile load() {
+        Properties properties;
+        try {
+            properties = file.load();
+        } catch (IOException e) {
+            log.warn("Could not read repository profile from " + file.getFile(), e);
+            return null;
+        }
+        if (properties == null) {
+            return null;
+        }
+
+        try {
+            return fromProperties(properties);
+        } catch (RuntimeException e) {
+            log.warn("Ignoring unreadable repository profile in " + file.getFile(), e);
+            return null;
+        }
+    }
+
+    private void save(RepositoryProfile profileToSave) {
+        try {
+            file.save(toProperties(profileToSave));
+        } catch (IOException e) {
+            log.warn("Could not write repository profile to " + file.getFile(), e);
+        }
+    }
+
+    @VisibleForTesting static Properties toProperties(RepositoryProfile profile) {
+        RepositoryDescription description = profile.getDescription();
+
+        Properties properties = new Properties();
+        setFormatVersion(properties, FORMAT_VERSION);
+        properties.setProperty("retrievedAt", profile.getRetrievedAt().toString());
+
+        setIfNotNull(properties, "repositoryName", description.getRepositoryName());
+        setIfNotNull(properties, "baseUrl", description.getBaseUrl());
+        setIfNotNull(properties, "protocolVersion", description.getProtocolVersion());
+        properties.setProperty("adminEmails", joinList(description.getAdminEmails()));
+        properties.setProperty("earliestDatestamp", description.getEarliestDatestamp().toString());
+        properties.setProperty("deletedRecord", description.getDeletedRecord().name());
+        properties.setProperty("granularity", description.getGranularity().name());
+        properties.setProperty("compressions", joinList(description.getCompressions()));
+
+        properties.setProperty("sets", String.valueOf(profile.getSets().size()));
+        for (int i = 0; i < profile.getSets().size(); i++) {
+            SetDescription set = profile.getSets().get(i);
+            properties.setProperty("set." + i + ".spec", set.getSetSpec());
+            setIfNotNull(properties, "set." + i + ".name", set.getSetName());
+        }
+
+        return properties;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the properties do not hold a profile in the current format
+     * @throws DateTimeException if a date cannot be parsed
+     */
+    @VisibleForTesting static RepositoryProfile fromProperties(Properties properties) {
+        checkFormatVersion(properties, FORMAT_VERSION);
+
+        RepositoryDescription description = RepositoryDescription.builder()
+                .repositoryName(properties.getProperty("repositoryName"))
+                .baseUrl(properties.getProperty("baseUrl"))
+                .protocolVersion(properties.getProperty("protocolVersion"))
+                .adminEmails(splitList(required(properties, "adminEmails")))
+                .earliestDatestamp(LocalDate.parse(required(properties, "earliestDatestamp")))
+                .deletedRecord(DeletedRecordPolicy.valueOf(required(properties, "deletedRecord")))
+                .granularity(DatestampGranularity.valueOf(required(properties, "granularity")))
+                .compressions(splitList(required(properties, "compressions")))
+                .build();
+
+        ImmutableList.Builder<SetDescription> sets = ImmutableList.builder();
+        int numSets = Integer.parseInt(required(properties, "sets"));
+        for (int i = 0; i < numSets; i++) {
+            sets.add(SetDescription.builder()
+                    .setSpec(required(properties, "set." + i + ".spec"))
+                    .setName(properties.getProperty("set." + i + ".name"))
+                    .build());
+        }
+
+        return RepositoryProfile.builder()
+                .description(description)
+                .sets(sets.build())
+                .retrievedAt(Instant.parse(required(properties, "retrievedAt")))
+                .build();
+    }
+
+}
@@ -0,0 +1,26 @@
+package io.github.mikesaelim.arxivoaiharvester.exception;
+
+/**
+ * Error thrown when the repository answers a request with the "badVerb", "cannotDisseminateFormat",
+ * "noMetadataFormats", or "noSetHierarchy" error condition.  Unlike other {@link RepositoryError}s, this is about the
+ * request itself, so any endpoint of the repository would answer the same.
+ */
+public class RequestRejectedError extends RepositoryError {
+
+    public RequestRejectedError() {
+        super();
+    }
+
+    public RequestRejectedError(String message) {
+        super(message);
+    }
+
+    public RequestRejectedError(Throwable cause) {
+        super(cause);
+    }
+
+    public RequestRejectedError(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
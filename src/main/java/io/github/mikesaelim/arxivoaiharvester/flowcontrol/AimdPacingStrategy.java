@@ -0,0 +1,149 @@
+package io.github.mikesaelim.arxivoaiharvester.flowcontrol;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+
+/**
+ * Pacing that learns how fast the repository lets it go, by additive-increase/multiplicative-decrease of the request
+ * rate.
+ *
+ * While the repository serves every request, the interval between requests shrinks by a fixed step, down to the
+ * minimum interval.  When the repository throttles a request, the interval is multiplied by the backoff factor, or set
+ * to the suggested wait if that is longer, up to the maximum interval, and throttled requests are retried after the
+ * longer of the two.  The strategy also remembers the longest interval at which it has been throttled, and from then on
+ * does not let the interval shrink below that times the safety margin, so it settles just above the repository's limit
+ * instead of running into it over and over.  The repository's limit can change, so after every 100 requests served in a
+ * row at the remembered interval, the strategy forgets one step of it, and probes a little closer, but never below the
+ * minimum interval.
+ *
+ * There is no default minimum interval: it should be the minimum wait between requests that the harvester was
+ * configured with, such as {@link io.github.mikesaelim.arxivoaiharvester.ArxivOAIHarvester#getMinWaitBetweenRequests()},
+ * since the strategy replaces the harvester's own pacing.
+ *
+ * Not thread-safe; see {@link PacingStrategy}.
+ */
+@Slf4j
+public class AimdPacingStrategy implements PacingStrategy {
+
+    private static final Duration DEFAULT_MAX_INTERVAL = Duration.ofMinutes(5);
+    private static final Duration DEFAULT_INITIAL_INTERVAL = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_DECREASE_STEP = Duration.ofMillis(500);
+    private static final double DEFAULT_BACKOFF_FACTOR = 2.0;
+    private static final double DEFAULT_SAFETY_MARGIN = 1.1;
+    private static final int PROBE_AFTER = 100;
+
+    @Getter private final Duration minInterval;
+    @Getter private final Duration maxInterval;
+    private final Duration decreaseStep;
+    private final double backoffFactor;
+    private final double safetyMargin;
+
+    private Duration interval;
+    private Duration throttledInterval;
+    private int servedInARow;
+
+    /**
+     * Constructs a strategy with the default settings, that never paces requests closer together than minInterval.
+     *
+     * @param minInterval the shortest interval between requests, usually the harvester's minimum wait between requests
+     */
+    public AimdPacingStrategy(Duration minInterval) {
+        this(minInterval, null, null, null, 0, 0);
+    }
+
+    /**
+     * Constructs a new strategy.  Use {@link #builder()} to set the options.
+     *
+     * @param minInterval the shortest interval between requests, usually the harvester's minimum wait between
+     *                    requests; required
+     * @param maxInterval the longest interval between requests; if null, 5 minutes
+     * @param initialInterval the interval to start from; if null, 10 seconds or the minimum interval, whichever is
+     *                        longer
+     * @param decreaseStep how much to shrink the interval by after each request served; if null, 500 milliseconds
+     * @param backoffFactor how much to multiply the interval by after a request is throttled; if not greater than 1,
+     *                      2.0
+     * @param safetyMargin how far above the longest throttled interval to stay; if not greater than 1, 1.1
+     * @throws IllegalArgumentException if the intervals are out of order
+     */
+    @Builder
+    private AimdPacingStrategy(@NonNull Duration minInterval, Duration maxInterval, Duration initialInterval,
+                               Duration decreaseStep, double backoffFactor, double safetyMargin) {
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval != null ? maxInterval : DEFAULT_MAX_INTERVAL;
+        this.interval = initialInterval != null ? initialInterval : max(DEFAULT_INITIAL_INTERVAL, minInterval);
+        this.decreaseStep = decreaseStep != null ? decreaseStep : DEFAULT_DECREASE_STEP;
+        this.backoffFactor = backoffFactor > 1 ? backoffFactor : DEFAULT_BACKOFF_FACTOR;
+        this.safetyMargin = safetyMargin > 1 ? safetyMargin : DEFAULT_SAFETY_MARGIN;
+
+        if (this.minInterval.isNegative() || this.minInterval.compareTo(this.maxInterval) > 0) {
+            throw new IllegalArgumentException("Minimum interval must be between zero and the maximum interval");
+        }
+        if (interval.compareTo(this.minInterval) < 0 || interval.compareTo(this.maxInterval) > 0) {
+            throw new IllegalArgumentException("Initial interval must be between the minimum and maximum intervals");
+        }
+        if (this.decreaseStep.isNegative()) {
+            throw new IllegalArgumentException("Decrease step must not be negative");
+        }
+    }
+
+    @Override
+    public Duration interval() {
+        return interval;
+    }
+
+    @Override
+    public void onServed() {
+        if (throttledInterval != null && ++servedInARow >= PROBE_AFTER) {
+            servedInARow = 0;
+            throttledInterval = max(throttledInterval.minus(decreaseStep), Duration.ZERO);
+        }
+
+        interval = max(interval.minus(decreaseStep), floor());
+    }
+
+    @Override
+    public void onThrottled(Duration retryAfter) {
+        servedInARow = 0;
+        throttledInterval = throttledInterval != null ? max(throttledInterval, interval) : interval;
+
+        interval = min(max(scale(interval, backoffFactor), retryAfter), maxInterval);
+        log.info("Throttled by repository; backing off to an interval of {} ms", interval.toMillis());
+    }
+
+    @Override
+    public Duration retryWait(Duration retryAfter) {
+        return max(interval, scale(retryAfter, safetyMargin));
+    }
+
+    /**
+     * @return the longest interval at which a request has been throttled, as far as the strategy still remembers, or
+     * null if none has been
+     */
+    public Duration getThrottledInterval() {
+        return throttledInterval;
+    }
+
+    private Duration floor() {
+        if (throttledInterval == null) {
+            return minInterval;
+        }
+        return min(max(scale(throttledInterval, safetyMargin), minInterval), maxInterval);
+    }
+
+    private static Duration scale(Duration duration, double factor) {
+        return Duration.ofNanos((long) (duration.toNanos() * factor));
+    }
+
+    private static Duration max(Duration a, Duration b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+}
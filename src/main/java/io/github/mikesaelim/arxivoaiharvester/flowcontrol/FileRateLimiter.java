@@ -0,0 +1,176 @@
+package io.github.mikesaelim.arxivoaiharvester.flowcontrol;
+
+import io.github.mikesaelim.arxivoaiharvester.exception.HarvesterError;
+import io.github.mikesaelim.arxivoaiharvester.exception.InterruptedError;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.FileLockInterruptionException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongFunction;
+
+/**
+ * A {@link RateLimiter} for the harvesters in all the processes on one machine, which share it through a small
+ * memory-mapped file.
+ *
+ * The file holds the instant of the last send slot handed out and the instant until which the repository has asked
+ * everyone to wait, and every reservation and pause reads and updates them while holding an exclusive lock on the
+ * file.  So the processes space out their requests as if they were one client, and a 503 Retry-After response to any of
+ * them holds all of them back.  The instants are wall-clock time, since that is the only clock processes share, so the
+ * machine's clock should not be stepped while harvesting.
+ *
+ * The file is created if it does not exist, and stays open and mapped for the life of the JVM.  A thread interrupted
+ * while waiting for the lock closes the file, so it is opened again for the next call.  Use
+ * {@link #forFile(Path, Duration)} to get the limiter for a file, which is shared by everything in the JVM; every
+ * process using the file should give it the same minimum interval.
+ *
+ * Thread-safe.
+ */
+public class FileRateLimiter implements RateLimiter {
+
+    private static final ConcurrentMap<Path, FileRateLimiter> LIMITERS_BY_FILE = new ConcurrentHashMap<>();
+
+    // Layout of the file: epoch nanoseconds of the last slot, and of the end of the pause; zero if there is none
+    private static final int LAST_SLOT = 0;
+    private static final int PAUSED_UNTIL = 8;
+    private static final int FILE_SIZE = 16;
+
+    @Getter private final Path file;
+    @Getter private final Duration minInterval;
+    private final long minIntervalNanos;
+
+    // Guarded by this
+    private FileChannel channel;
+    private MappedByteBuffer state;
+
+    private FileRateLimiter(Path file, Duration minInterval) throws IOException {
+        this.file = file;
+        this.minInterval = minInterval;
+        this.minIntervalNanos = minInterval.toNanos();
+
+        open();
+    }
+
+    private synchronized void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Mapping past the end of a new file grows it, with zeros
+        state = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+    }
+
+    /**
+     * Get the limiter for the given file, creating the file if necessary.  If this JVM has a limiter for the file
+     * already, it is returned as it is, with the minimum interval it was created with.
+     *
+     * @param file file shared by the processes to be paced together
+     * @param minInterval minimum interval between the send slots
+     * @throws HarvesterError if the file cannot be opened
+     */
+    public static FileRateLimiter forFile(@NonNull Path file, @NonNull Duration minInterval) {
+        if (minInterval.isNegative()) {
+            throw new IllegalArgumentException("Minimum interval must not be negative");
+        }
+
+        // A JVM can only hold one lock on a file at a time, so every limiter for the file must be the same
+        return LIMITERS_BY_FILE.computeIfAbsent(file.toAbsolutePath().normalize(), key -> {
+            try {
+                return new FileRateLimiter(key, minInterval);
+            } catch (IOException e) {
+                throw new HarvesterError("Could not open rate limiter file " + key, e);
+            }
+        });
+    }
+
+    /**
+     * @throws HarvesterError if the file cannot be locked
+     * @throws InterruptedError if interrupted while waiting for the lock
+     */
+    @Override
+    public Duration reserve(@NonNull Duration notBefore) {
+        return update(false, now -> {
+            long slot = firstFreeSlot(now + notBefore.toNanos());
+            state.putLong(LAST_SLOT, slot);
+            return Duration.ofNanos(slot - now);
+        });
+    }
+
+    /**
+     * @throws HarvesterError if the file cannot be locked
+     * @throws InterruptedError if interrupted while waiting for the lock
+     */
+    @Override
+    public Duration timeUntilFree() {
+        return update(true, now -> Duration.ofNanos(firstFreeSlot(now) - now));
+    }
+
+    /**
+     * @throws HarvesterError if the file cannot be locked
+     * @throws InterruptedError if interrupted while waiting for the lock
+     */
+    @Override
+    public void pauseFor(@NonNull Duration wait) {
+        update(false, now -> {
+            long pausedUntil = now + wait.toNanos();
+            if (pausedUntil > state.getLong(PAUSED_UNTIL)) {
+                state.putLong(PAUSED_UNTIL, pausedUntil);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * @return the first free slot no earlier than the given epoch nanoseconds; must be called while holding the lock
+     */
+    private long firstFreeSlot(long earliest) {
+        long slot = earliest;
+
+        long lastSlot = state.getLong(LAST_SLOT);
+        if (lastSlot != 0 && lastSlot + minIntervalNanos > slot) {
+            slot = lastSlot + minIntervalNanos;
+        }
+        long pausedUntil = state.getLong(PAUSED_UNTIL);
+        if (pausedUntil > slot) {
+            slot = pausedUntil;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Read and update the shared state while holding the file lock, with the current time in epoch nanoseconds.
+     *
+     * @param shared whether the action only reads the state, so that other processes may read it at the same time
+     */
+    private synchronized <T> T update(boolean shared, LongFunction<T> action) {
+        try {
+            if (!channel.isOpen()) {
+                open();
+            }
+
+            FileLock lock = channel.lock(0, FILE_SIZE, shared);
+            try {
+                return action.apply(epochNanos(Instant.now()));
+            } finally {
+                lock.release();
+            }
+        } catch (ClosedByInterruptException | FileLockInterruptionException e) {
+            throw new InterruptedError("Interrupted while waiting for rate limiter file " + file, e);
+        } catch (IOException e) {
+            throw new HarvesterError("Could not lock rate limiter file " + file, e);
+        }
+    }
+
+    private static long epochNanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+}
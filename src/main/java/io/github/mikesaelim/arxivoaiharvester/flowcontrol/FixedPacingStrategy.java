@@ -0,0 +1,57 @@
+package io.github.mikesaelim.arxivoaiharvester.flowcontrol;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.time.Duration;
+
+/**
+ * The harvester's default pacing: a fixed minimum wait between requests, and retries after the wait the repository
+ * suggests, padded by a small amount because the cost of retrying just a little too early is waiting even longer.  It
+ * does not learn anything from the responses.
+ */
+public class FixedPacingStrategy implements PacingStrategy {
+
+    // Scale multiplier for retry wait times, to ensure we don't run afoul of the repository's throttling
+    private static final double WAIT_PADDING = 1.1;
+
+    @Getter private final Duration minWaitBetweenRequests;
+
+    public FixedPacingStrategy(@NonNull Duration minWaitBetweenRequests) {
+        if (minWaitBetweenRequests.isNegative()) {
+            throw new IllegalArgumentException("Minimum wait time between requests must not be negative");
+        }
+
+        this.minWaitBetweenRequests = minWaitBetweenRequests;
+    }
+
+    @Override
+    public Duration interval() {
+        return minWaitBetweenRequests;
+    }
+
+    @Override
+    public void onServed() {
+    }
+
+    @Override
+    public void onThrottled(Duration retryAfter) {
+    }
+
+    /**
+     * @return the minimum wait between requests if the suggested wait is less than that, or else the suggested wait
+     * padded by 10%
+     */
+    @Override
+    public Duration retryWait(Duration retryAfter) {
+        if (retryAfter.compareTo(minWaitBetweenRequests) < 0) {
+            return minWaitBetweenRequests;
+        }
+
+        // Padding to help ensure that we don't retry too early and run afoul of the repository's throttling logic
+        double paddedWaitSeconds = WAIT_PADDING * retryAfter.getSeconds();
+        long paddedWaitMillis = (long) (paddedWaitSeconds * 1000);
+        return Duration.ofMillis(paddedWaitMillis);
+    }
+
+}
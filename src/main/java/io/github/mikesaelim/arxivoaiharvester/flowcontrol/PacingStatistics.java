@@ -0,0 +1,51 @@
+package io.github.mikesaelim.arxivoaiharvester.flowcontrol;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * Counts of the requests a harvester has sent so far, and how the repository answered them.  Immutable.
+ */
+@Value
+@Builder
+public class PacingStatistics {
+
+    /**
+     * Number of requests sent to the repository, including retries.
+     */
+    private long requests;
+
+    /**
+     * Number of requests that the repository throttled with a 503 Retry-After response.
+     */
+    private long throttledRequests;
+
+    /**
+     * Number of requests that the repository answered with a page that was read and parsed in full.  Requests that
+     * failed, or whose responses were errors or could not be parsed, are neither throttled nor served.
+     */
+    private long servedRequests;
+
+    /**
+     * Time since the first request was sent.
+     */
+    private Duration elapsed;
+
+    /**
+     * Current interval between requests of the pacing strategy.
+     */
+    private Duration interval;
+
+    /**
+     * @return the effective rate, in pages served per hour, or 0 if no time has passed
+     */
+    public double getServedRequestsPerHour() {
+        if (elapsed.isZero()) {
+            return 0.0;
+        }
+        return getServedRequests() * (double) Duration.ofHours(1).toNanos() / elapsed.toNanos();
+    }
+
+}
@@ -0,0 +1,43 @@
+package io.github.mikesaelim.arxivoaiharvester.flowcontrol;
+
+import java.time.Duration;
+
+/**
+ * Decides how far apart the harvester sends its requests to the repository.
+ *
+ * The arXiv OAI repository throttles clients that send requests too quickly, with a 503 Retry-After response.  The
+ * harvester tells the strategy how each request went, and asks it how long to wait after a response before sending the
+ * next request, and how long to wait before retrying a request that was throttled.  The harvester still enforces its
+ * maximum wait and maximum number of retries on top of whatever the strategy decides.
+ *
+ * A strategy is used by one harvester, and only ever called by one thread at a time, so it need not be thread-safe.
+ * Strategies that learn from the responses should not be shared between harvesters.
+ */
+public interface PacingStrategy {
+
+    /**
+     * @return how long to wait after receiving a response before sending the next request
+     */
+    Duration interval();
+
+    /**
+     * Called when the repository has served a request, rather than throttling it.
+     */
+    void onServed();
+
+    /**
+     * Called when the repository has throttled a request.
+     *
+     * @param retryAfter wait suggested by the repository's Retry-After header
+     */
+    void onThrottled(Duration retryAfter);
+
+    /**
+     * Decide how long to actually wait before retrying a throttled request.  This is called after
+     * {@link #onThrottled(Duration)}, and only if the suggested wait is within the harvester's maximum wait.
+     *
+     * @param retryAfter wait suggested by the repository's Retry-After header
+     */
+    Duration retryWait(Duration retryAfter);
+
+}
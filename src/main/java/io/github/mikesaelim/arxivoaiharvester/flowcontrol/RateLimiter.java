@@ -0,0 +1,35 @@
+package io.github.mikesaelim.arxivoaiharvester.flowcontrol;
+
+import java.time.Duration;
+
+/**
+ * Paces the requests of several harvesters that target the same repository as if they were one client.
+ *
+ * Each harvester keeps its own {@link PacingStrategy}, which only knows about its own requests.  A rate limiter shared
+ * by the harvesters hands out send slots, so that requests from all of them are spaced at least a minimum interval
+ * apart, and holds all of them back when any one of them is told by the repository to wait.  Implementations must be
+ * thread-safe.
+ */
+public interface RateLimiter {
+
+    /**
+     * Reserve the next free send slot that is at least notBefore from now.  The slot is taken whether or not the
+     * caller ends up sending a request in it.
+     *
+     * @param notBefore the earliest the caller could send, from now, as decided by its own pacing
+     * @return how long to wait from now until the slot; at least notBefore
+     */
+    Duration reserve(Duration notBefore);
+
+    /**
+     * @return how long from now until the next free send slot, without reserving it; zero if it is free now
+     */
+    Duration timeUntilFree();
+
+    /**
+     * Hold back every slot until at least wait from now, because the repository has asked for it with a 503
+     * Retry-After response.
+     */
+    void pauseFor(Duration wait);
+
+}
@@ -0,0 +1,88 @@
+package io.github.mikesaelim.arxivoaiharvester.flowcontrol;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link RateLimiter} for the harvesters within one JVM.
+ *
+ * The limiter keeps a single number, the {@link System#nanoTime()} of the next free send slot, and every reservation
+ * and pause is a compare-and-set on it, so it never blocks and never holds a lock.  Use {@link #forHost(String,
+ * Duration)} to get the limiter that every harvester in the JVM targeting a given host shares.
+ *
+ * Thread-safe.
+ */
+public class SharedRateLimiter implements RateLimiter {
+
+    private static final ConcurrentMap<String, SharedRateLimiter> LIMITERS_BY_HOST = new ConcurrentHashMap<>();
+
+    @Getter private final Duration minInterval;
+    private final long minIntervalNanos;
+
+    // System.nanoTime() of the next free slot, or of a past instant if the limiter has been idle
+    private final AtomicLong nextSlot;
+
+    /**
+     * Construct a limiter that is not shared with anything yet.
+     *
+     * @param minInterval minimum interval between the send slots
+     */
+    public SharedRateLimiter(@NonNull Duration minInterval) {
+        if (minInterval.isNegative()) {
+            throw new IllegalArgumentException("Minimum interval must not be negative");
+        }
+
+        this.minInterval = minInterval;
+        this.minIntervalNanos = minInterval.toNanos();
+        this.nextSlot = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Get the limiter shared by everything in this JVM that sends requests to the given host, creating it with the
+     * given minimum interval if there is none yet.  If there is one already, it is returned as it is, with the minimum
+     * interval it was created with.
+     */
+    public static SharedRateLimiter forHost(@NonNull String host, @NonNull Duration minInterval) {
+        return LIMITERS_BY_HOST.computeIfAbsent(host.toLowerCase(Locale.ROOT),
+                key -> new SharedRateLimiter(minInterval));
+    }
+
+    @Override
+    public Duration reserve(@NonNull Duration notBefore) {
+        while (true) {
+            long now = System.nanoTime();
+            long earliest = now + notBefore.toNanos();
+            long next = nextSlot.get();
+
+            long slot = next - earliest > 0 ? next : earliest;
+            if (nextSlot.compareAndSet(next, slot + minIntervalNanos)) {
+                return Duration.ofNanos(slot - now);
+            }
+        }
+    }
+
+    @Override
+    public Duration timeUntilFree() {
+        long untilFree = nextSlot.get() - System.nanoTime();
+        return untilFree > 0 ? Duration.ofNanos(untilFree) : Duration.ZERO;
+    }
+
+    @Override
+    public void pauseFor(@NonNull Duration wait) {
+        while (true) {
+            long pausedUntil = System.nanoTime() + wait.toNanos();
+            long next = nextSlot.get();
+
+            if (next - pausedUntil >= 0 || nextSlot.compareAndSet(next, pausedUntil)) {
+                return;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,216 @@
+package io.github.mikesaelim.arxivoaiharvester.harvest;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.github.mikesaelim.arxivoaiharvester.ArxivOAIHarvester;
+import io.github.mikesaelim.arxivoaiharvester.exception.BadResumptionTokenException;
+import io.github.mikesaelim.arxivoaiharvester.exception.HarvesterError;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListRecordsResponse;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URISyntaxException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A ListRecords harvest that records a {@link HarvestCheckpoint} after every page, so that it can be resumed after the
+ * process dies, and that recovers from resumption tokens that can no longer be used.
+ *
+ * {@link #run(Consumer)} hands every record of every page to the consumer, and after each page, saves the resumption
+ * token of the next page, its position, its expiration date, the identifier of the last record handed over, and the
+ * highest datestamp handed over.  If the store already holds a checkpoint for the same request when the harvest is run,
+ * it carries on from the page after the checkpoint instead of starting over.  Once the last page has been handed over,
+ * the checkpoint is deleted.
+ *
+ * A resumption token stops working once it expires.  If the repository rejects a token, or the token is known to have
+ * expired before it is sent, the harvest is re-planned: it sends a new request for the rest of the original datestamp
+ * range, and drops the records it has already handed over.  Since the repository does not promise to return records
+ * in order of datestamp, the new request starts from the highest datestamp handed over only if the records have come
+ * in that order so far, and from the start of the original range otherwise.  If a re-planned harvest loses its token
+ * again before handing over any new records, the {@link BadResumptionTokenException} is thrown.
+ *
+ * To drop those duplicates, the identifiers of the records that a re-planned request could send again are kept in
+ * memory: while the datestamps are in order, those of the records with the highest datestamp, and once they are not,
+ * those of every record handed over since.  They are not part of the checkpoint.  So records are handed over at least
+ * once, and never dropped unless the very same identifier has been handed over already: a harvest resumed from a
+ * checkpoint may hand over again the page that was being processed when the process died, and a re-planned harvest
+ * may hand over again records from before its datestamps went out of order.
+ *
+ * The harvester is used for the duration of {@link #run(Consumer)}, and is subject to its flow control and exceptions.
+ */
+@Slf4j
+public class CheckpointedHarvest {
+
+    private final ArxivOAIHarvester harvester;
+    private final HarvestCheckpointStore store;
+    private final ListRecordsRequest request;
+    private final Clock clock;
+
+    /**
+     * @param harvester harvester that sends the requests
+     * @param store store of the checkpoints of this harvest
+     * @param request the original request of the harvest
+     * @throws IllegalArgumentException if the request is a resumption of another request
+     */
+    public CheckpointedHarvest(ArxivOAIHarvester harvester, HarvestCheckpointStore store, ListRecordsRequest request) {
+        this(harvester, store, request, Clock.systemUTC());
+    }
+
+    @VisibleForTesting CheckpointedHarvest(@NonNull ArxivOAIHarvester harvester, @NonNull HarvestCheckpointStore store,
+                                           @NonNull ListRecordsRequest request, @NonNull Clock clock) {
+        if (request instanceof ResumeListRecordsRequest || request == ListRecordsRequest.NONE) {
+            throw new IllegalArgumentException("Checkpointed harvest must start from an original request");
+        }
+
+        this.harvester = harvester;
+        this.store = store;
+        this.request = request;
+        this.clock = clock;
+    }
+
+    /**
+     * Harvest all the records that are left, handing them to recordHandler in order, and checkpointing after each page.
+     *
+     * @throws IllegalStateException if the store holds a checkpoint for a different request
+     * @throws HarvesterError if the checkpoint cannot be read or written
+     * @throws BadResumptionTokenException if the harvest could not recover from a rejected resumption token
+     * See {@link ArxivOAIHarvester} for other exceptions.
+     */
+    public void run(@NonNull Consumer<ArticleMetadata> recordHandler) {
+        HarvestCheckpoint checkpoint = store.load();
+        Progress progress = new Progress(checkpoint);
+
+        ListRecordsRequest nextRequest = request;
+        ZonedDateTime expirationDate = null;
+        if (checkpoint != null) {
+            if (!request.equals(checkpoint.getRequest())) {
+                throw new IllegalStateException("Checkpoint in " + store.getFile() + " is for a different request: " +
+                        checkpoint.getRequest());
+            }
+
+            log.info("Resuming harvest of {} at cursor {} of {}", request, checkpoint.getCursor(),
+                    checkpoint.getCompleteListSize());
+            nextRequest = checkpoint.resumption();
+            expirationDate = checkpoint.getExpirationDate();
+        }
+
+        while (nextRequest != ListRecordsRequest.NONE) {
+            if (nextRequest instanceof ResumeListRecordsRequest &&
+                    HarvestCheckpoint.isExpired(expirationDate, clock.instant())) {
+                nextRequest = replan(progress, "Resumption token expired at " + expirationDate, null);
+                expirationDate = null;
+                continue;
+            }
+
+            ListRecordsResponse response;
+            try {
+                response = harvester.harvest(nextRequest);
+            } catch (BadResumptionTokenException e) {
+                if (!(nextRequest instanceof ResumeListRecordsRequest)) {
+                    throw e;
+                }
+                nextRequest = replan(progress, "Resumption token rejected", e);
+                expirationDate = null;
+                continue;
+            }
+
+            response.getRecords().forEach(record -> progress.deliver(record, recordHandler));
+
+            if (!response.hasResumption()) {
+                store.clear();
+                log.info("Harvest of {} complete", request);
+                return;
+            }
+
+            expirationDate = response.getExpirationDate();
+            store.save(HarvestCheckpoint.builder()
+                    .request(request)
+                    .resumptionToken(response.getResumptionToken())
+                    .cursor(response.getCursor())
+                    .completeListSize(response.getCompleteListSize())
+                    .expirationDate(expirationDate)
+                    .lastIdentifier(progress.lastIdentifier)
+                    .highestDatestamp(progress.highestDatestamp)
+                    .datestampsAscending(progress.datestampsAscending)
+                    .savedAt(clock.instant())
+                    .build());
+            nextRequest = response.resumption();
+        }
+    }
+
+    /**
+     * Create a request for the rest of the original datestamp range, to replace a resumption token that can no longer
+     * be used.
+     *
+     * @throws BadResumptionTokenException if no new records have been handed over since the last re-plan
+     */
+    private ListRecordsRequest replan(Progress progress, String reason, BadResumptionTokenException cause) {
+        if (!progress.deliveredSinceReplan) {
+            throw cause != null ? cause :
+                    new BadResumptionTokenException(reason + " before any new records were harvested");
+        }
+        progress.deliveredSinceReplan = false;
+
+        LocalDate fromDate = progress.datestampsAscending && progress.highestDatestamp != null ?
+                progress.highestDatestamp : request.getFromDate();
+        log.warn("{}; re-planning harvest of {} from datestamp {}", reason, request, fromDate);
+
+        try {
+            return new ListRecordsRequest(fromDate, request.getUntilDate(), request.getSetSpec(), request.getFields());
+        } catch (URISyntaxException e) {
+            throw new HarvesterError("Error creating re-planned request for " + request, e);
+        }
+    }
+
+    /**
+     * What has been handed to the consumer so far in this run.
+     */
+    private static class Progress {
+        // Identifiers of the records that a re-planned request could send again
+        final Set<String> delivered = new HashSet<>();
+        String lastIdentifier;
+        LocalDate highestDatestamp;
+        boolean datestampsAscending = true;
+        boolean deliveredSinceReplan = true;
+
+        Progress(HarvestCheckpoint checkpoint) {
+            if (checkpoint != null) {
+                lastIdentifier = checkpoint.getLastIdentifier();
+                highestDatestamp = checkpoint.getHighestDatestamp();
+                datestampsAscending = checkpoint.isDatestampsAscending();
+            }
+        }
+
+        void deliver(ArticleMetadata record, Consumer<ArticleMetadata> recordHandler) {
+            if (delivered.contains(record.getIdentifier())) {
+                return;
+            }
+
+            recordHandler.accept(record);
+            deliveredSinceReplan = true;
+            lastIdentifier = record.getIdentifier();
+
+            LocalDate datestamp = record.getDatestamp();
+            if (datestamp != null) {
+                if (highestDatestamp == null || datestamp.isAfter(highestDatestamp)) {
+                    highestDatestamp = datestamp;
+                    // A re-planned request would start from this datestamp, so the records before it are not sent again
+                    if (datestampsAscending) {
+                        delivered.clear();
+                    }
+                } else if (datestamp.isBefore(highestDatestamp)) {
+                    datestampsAscending = false;
+                }
+            }
+            delivered.add(record.getIdentifier());
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package io.github.mikesaelim.arxivoaiharvester.harvest;
+
+import io.github.mikesaelim.arxivoaiharvester.exception.BadResumptionTokenException;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListRecordsRequest;
+import lombok.Builder;
+import lombok.Value;
+
+import java.math.BigInteger;
+import java.net.URISyntaxException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+
+/**
+ * How far a ListRecords harvest had got after its last completed page.  Immutable.
+ */
+@Value
+@Builder
+public class HarvestCheckpoint {
+
+    /**
+     * The original request of the harvest.
+     */
+    private ListRecordsRequest request;
+
+    /**
+     * Resumption token for the next page.
+     */
+    private String resumptionToken;
+
+    /**
+     * Position information that came with the resumption token.  Either may be null.
+     */
+    private BigInteger cursor;
+    private BigInteger completeListSize;
+
+    /**
+     * Time at which the resumption token expires, or null if the repository did not say.
+     */
+    private ZonedDateTime expirationDate;
+
+    /**
+     * Identifier of the last record handed to the consumer, or null if no records have been handed over yet.
+     */
+    private String lastIdentifier;
+
+    /**
+     * Highest datestamp of the records handed to the consumer, or null if no records have been handed over yet.
+     */
+    private LocalDate highestDatestamp;
+
+    /**
+     * Whether the records were handed over in order of datestamp.  Only then is it safe to go back to the highest
+     * datestamp, rather than the start, when the resumption token can no longer be used.
+     */
+    private boolean datestampsAscending;
+
+    /**
+     * When the checkpoint was taken.
+     */
+    private Instant savedAt;
+
+    /**
+     * @return whether the resumption token has expired at the given instant; a token without an expiration date never
+     * expires
+     */
+    public boolean isExpired(Instant now) {
+        return isExpired(expirationDate, now);
+    }
+
+    /**
+     * @return whether a resumption token with the given expiration date has expired at the given instant; a token
+     * without an expiration date never expires
+     */
+    static boolean isExpired(ZonedDateTime expirationDate, Instant now) {
+        return expirationDate != null && !now.isBefore(expirationDate.toInstant());
+    }
+
+    /**
+     * Create the request that continues the harvest from this checkpoint.
+     */
+    public ListRecordsRequest resumption() {
+        try {
+            return new ResumeListRecordsRequest(resumptionToken, request);
+        } catch (URISyntaxException e) {
+            throw new BadResumptionTokenException(e);
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+package io.github.mikesaelim.arxivoaiharvester.harvest;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.github.mikesaelim.arxivoaiharvester.exception.HarvesterError;
+import io.github.mikesaelim.arxivoaiharvester.internal.AtomicPropertiesFile;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleField;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.EnumSet;
+import java.util.Properties;
+import java.util.Set;
+
+import static io.github.mikesaelim.arxivoaiharvester.internal.AtomicPropertiesFile.checkFormatVersion;
+import static io.github.mikesaelim.arxivoaiharvester.internal.AtomicPropertiesFile.joinList;
+import static io.github.mikesaelim.arxivoaiharvester.internal.AtomicPropertiesFile.parseIfNotNull;
+import static io.github.mikesaelim.arxivoaiharvester.internal.AtomicPropertiesFile.required;
+import static io.github.mikesaelim.arxivoaiharvester.internal.AtomicPropertiesFile.setFormatVersion;
+import static io.github.mikesaelim.arxivoaiharvester.internal.AtomicPropertiesFile.setIfNotNull;
+import static io.github.mikesaelim.arxivoaiharvester.internal.AtomicPropertiesFile.splitList;
+
+/**
+ * Keeps the {@link HarvestCheckpoint} of a single harvest in a properties file on local disk, so that the harvest can
+ * pick up where it left off after the process dies.
+ *
+ * Each checkpoint replaces the last one as a whole, through an {@link AtomicPropertiesFile}, so that after a crash the
+ * file holds either the old checkpoint or the new one, and never a half-written one.  Unlike {@link
+ * io.github.mikesaelim.arxivoaiharvester.RepositoryProfileCache}, a checkpoint that cannot be read or written is not
+ * ignored: carrying on would silently throw away hours of progress, so a {@link HarvesterError} is thrown instead.
+ *
+ * Use one file per harvest.  This class is thread-safe, but does not guard against several processes sharing a file.
+ */
+public class HarvestCheckpointStore {
+
+    private static final String FORMAT_VERSION = "1";
+
+    @Getter private final Path file;
+    private final AtomicPropertiesFile propertiesFile;
+
+    public HarvestCheckpointStore(@NonNull Path file) {
+        this.file = file;
+        this.propertiesFile = new AtomicPropertiesFile(file, "arXiv OAI harvest checkpoint");
+    }
+
+    /**
+     * @return the checkpoint in the file, or null if there is none
+     * @throws HarvesterError if the file exists but cannot be read
+     */
+    public synchronized HarvestCheckpoint load() {
+        Properties properties;
+        try {
+            properties = propertiesFile.load();
+        } catch (IOException e) {
+            throw new HarvesterError("Could not read harvest checkpoint from " + file, e);
+        }
+        if (properties == null) {
+            return null;
+        }
+
+        try {
+            return fromProperties(properties);
+        } catch (RuntimeException | URISyntaxException e) {
+            throw new HarvesterError("Unreadable harvest checkpoint in " + file, e);
+        }
+    }
+
+    /**
+     * Replace the checkpoint in the file.  When this returns, the checkpoint has been flushed to the disk.
+     *
+     * @throws HarvesterError if the file cannot be written
+     */
+    public synchronized void save(@NonNull HarvestCheckpoint checkpoint) {
+        try {
+            propertiesFile.save(toProperties(checkpoint));
+        } catch (IOException e) {
+            throw new HarvesterError("Could not write harvest checkpoint to " + file, e);
+        }
+    }
+
+    /**
+     * Delete the checkpoint, if there is one.
+     *
+     * @throws HarvesterError if the file cannot be deleted
+     */
+    public synchronized void clear() {
+        try {
+            propertiesFile.delete();
+        } catch (IOException e) {
+            throw new HarvesterError("Could not delete harvest checkpoint " + file, e);
+        }
+    }
+
+
+
+    @VisibleForTesting static Properties toProperties(HarvestCheckpoint checkpoint) {
+        ListRecordsRequest request = checkpoint.getRequest();
+
+        Properties properties = new Properties();
+        setFormatVersion(properties, FORMAT_VERSION);
+        properties.setProperty("savedAt", checkpoint.getSavedAt().toString());
+
+        setIfNotNull(properties, "request.from", request.getFromDate());
+        setIfNotNull(properties, "request.until", request.getUntilDate());
+        setIfNotNull(properties, "request.set", request.getSetSpec());
+        if (request.getFields() != null) {
+            properties.setProperty("request.fields", joinList(request.getFields()));
+        }
+
+        properties.setProperty("resumptionToken", checkpoint.getResumptionToken());
+        setIfNotNull(properties, "cursor", checkpoint.getCursor());
+        setIfNotNull(properties, "completeListSize", checkpoint.getCompleteListSize());
+        setIfNotNull(properties, "expirationDate", checkpoint.getExpirationDate());
+        setIfNotNull(properties, "lastIdentifier", checkpoint.getLastIdentifier());
+        setIfNotNull(properties, "highestDatestamp", checkpoint.getHighestDatestamp());
+        properties.setProperty("datestampsAscending", String.valueOf(checkpoint.isDatestampsAscending()));
+
+        return properties;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the properties do not hold a checkpoint in the current format
+     * @throws DateTimeException if a date cannot be parsed
+     * @throws URISyntaxException if the request cannot be recreated
+     */
+    @VisibleForTesting static HarvestCheckpoint fromProperties(Properties properties) throws URISyntaxException {
+        checkFormatVersion(properties, FORMAT_VERSION);
+
+        Set<ArticleField> fields = null;
+        if (properties.getProperty("request.fields") != null) {
+            fields = EnumSet.noneOf(ArticleField.class);
+            for (String field : splitList(properties.getProperty("request.fields"))) {
+                fields.add(ArticleField.valueOf(field));
+            }
+        }
+        ListRecordsRequest request = new ListRecordsRequest(
+                parseIfNotNull(properties, "request.from", LocalDate::parse),
+                parseIfNotNull(properties, "request.until", LocalDate::parse),
+                properties.getProperty("request.set"),
+                fields);
+
+        return HarvestCheckpoint.builder()
+                .request(request)
+                .resumptionToken(required(properties, "resumptionToken"))
+                .cursor(parseIfNotNull(properties, "cursor", BigInteger::new))
+                .completeListSize(parseIfNotNull(properties, "completeListSize", BigInteger::new))
+                .expirationDate(parseIfNotNull(properties, "expirationDate", ZonedDateTime::parse))
+                .lastIdentifier(properties.getProperty("lastIdentifier"))
+                .highestDatestamp(parseIfNotNull(properties, "highestDatestamp", LocalDate::parse))
+                .datestampsAscending(Boolean.parseBoolean(properties.getProperty("datestampsAscending")))
+                .savedAt(Instant.parse(required(properties, "savedAt")))
+                .build();
+    }
+
+}
@@ -0,0 +1,26 @@
+package io.github.mikesaelim.arxivoaiharvester.harvest;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * How far the incremental harvests of a set had got after the last one that completed.  Immutable.
+ */
+@Value
+@Builder
+public class HighWaterMark {
+
+    /**
+     * Highest datestamp of the records handed over so far, or null if no records have been handed over yet.
+     */
+    private LocalDate datestamp;
+
+    /**
+     * When the last harvest that completed was started.
+     */
+    private Instant lastRunAt;
+
+}
@@ -0,0 +1,122 @@
+package io.github.mikesaelim.arxivoaiharvester.harvest;
+
+import io.github.mikesaelim.arxivoaiharvester.exception.HarvesterError;
+import io.github.mikesaelim.arxivoaiharvester.internal.AtomicPropertiesFile;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Properties;
+
+import static io.github.mikesaelim.arxivoaiharvester.internal.AtomicPropertiesFile.checkFormatVersion;
+import static io.github.mikesaelim.arxivoaiharvester.internal.AtomicPropertiesFile.parseIfNotNull;
+import static io.github.mikesaelim.arxivoaiharvester.internal.AtomicPropertiesFile.setFormatVersion;
+
+/**
+ * Keeps the {@link HighWaterMark} of each set harvested by an {@link IncrementalHarvestScheduler} in a properties file
+ * on local disk, so that the harvests carry on from where they left off after the process restarts.
+ *
+ * The file is rewritten as a whole whenever a mark changes, through an {@link AtomicPropertiesFile}, so that after a
+ * crash it holds either the old marks or the new ones.  A mark that cannot be read or written is not ignored, since
+ * carrying on from the wrong datestamp would either miss records or harvest everything again, so a
+ * {@link HarvesterError} is thrown instead.
+ *
+ * This class is thread-safe, but does not guard against several processes sharing a file.
+ */
+public class HighWaterMarkStore {
+
+    private static final String FORMAT_VERSION = "1";
+    // Key of the mark of a harvest that is not restricted to a set
+    private static final String ALL_SETS = "*";
+
+    @Getter private final Path file;
+    private final AtomicPropertiesFile propertiesFile;
+
+    public HighWaterMarkStore(@NonNull Path file) {
+        this.file = file;
+        this.propertiesFile = new AtomicPropertiesFile(file, "arXiv OAI high-water marks");
+    }
+
+    /**
+     * @param setSpec the set, or null for the whole repository
+     * @return the mark of the set, or null if it has never been harvested
+     * @throws HarvesterError if the file exists but cannot be read
+     */
+    public synchronized HighWaterMark get(String setSpec) {
+        Properties properties = load();
+        String prefix = prefix(setSpec);
+        if (properties.getProperty(prefix + "lastRunAt") == null) {
+            return null;
+        }
+
+        try {
+            return HighWaterMark.builder()
+                    .datestamp(parseIfNotNull(properties, prefix + "datestamp", LocalDate::parse))
+                    .lastRunAt(Instant.parse(properties.getProperty(prefix + "lastRunAt")))
+                    .build();
+        } catch (DateTimeException e) {
+            throw new HarvesterError("Unreadable high-water mark for " + key(setSpec) + " in " + file, e);
+        }
+    }
+
+    /**
+     * Replace the mark of a set, keeping those of the other sets.  When this returns, the marks have been flushed to
+     * the disk.
+     *
+     * @param setSpec the set, or null for the whole repository
+     * @throws HarvesterError if the file cannot be read or written
+     */
+    public synchronized void put(String setSpec, @NonNull HighWaterMark mark) {
+        Properties properties = load();
+        setFormatVersion(properties, FORMAT_VERSION);
+
+        String prefix = prefix(setSpec);
+        if (mark.getDatestamp() != null) {
+            properties.setProperty(prefix + "datestamp", mark.getDatestamp().toString());
+        } else {
+            properties.remove(prefix + "datestamp");
+        }
+        properties.setProperty(prefix + "lastRunAt", mark.getLastRunAt().toString());
+
+        try {
+            propertiesFile.save(properties);
+        } catch (IOException e) {
+            throw new HarvesterError("Could not write high-water marks to " + file, e);
+        }
+    }
+
+    /**
+     * @return the marks in the file, or no properties if there is no file
+     */
+    private Properties load() {
+        Properties properties;
+        try {
+            properties = propertiesFile.load();
+        } catch (IOException e) {
+            throw new HarvesterError("Could not read high-water marks from " + file, e);
+        }
+        if (properties == null) {
+            return new Properties();
+        }
+
+        try {
+            checkFormatVersion(properties, FORMAT_VERSION);
+        } catch (IllegalArgumentException e) {
+            throw new HarvesterError("Unreadable high-water marks in " + file, e);
+        }
+        return properties;
+    }
+
+    private static String key(String setSpec) {
+        return setSpec != null ? setSpec : ALL_SETS;
+    }
+
+    private static String prefix(String setSpec) {
+        return "mark." + key(setSpec) + ".";
+    }
+
+}
@@ -0,0 +1,339 @@
+package io.github.mikesaelim.arxivoaiharvester.harvest;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.github.mikesaelim.arxivoaiharvester.ArxivOAIHarvester;
+import io.github.mikesaelim.arxivoaiharvester.exception.HarvesterError;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleField;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListRecordsResponse;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URISyntaxException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Harvests everything that has changed since the last run, for each of a list of sets, on a schedule.
+ *
+ * For each set, a {@link HighWaterMarkStore} keeps the highest datestamp handed over so far.  Each run sends a
+ * ListRecords request from that datestamp onwards, with no untilDate, and once all of its pages have been handed over,
+ * moves the mark up to the highest datestamp of the run.  Since ListRecords requests only go down to the day, the
+ * records of the day of the mark are harvested again, in case more of them were added after the last run; that one
+ * day is the only overlap, so the handler should tolerate records it has already seen.  A set that has never been
+ * harvested starts from initialFromDate, or from the earliest datestamp of the repository if there is none.  The mark
+ * is only moved once the run is complete, since the repository does not promise to return records in order of
+ * datestamp, so a run that fails is harvested again in full on the next one.
+ *
+ * A set is due once interval has passed since its last run was started.  If that run failed, the set is due again
+ * sooner, after retryBackoff, which is doubled after each further failure in a row, but never more than half the
+ * interval.  The time of the last completed run is kept with the mark, so that a restarted process does not harvest
+ * again a set that is not due yet.  {@link #runDue()} harvests the sets that are due, one after the other, and skips
+ * the rest; {@link #start()} calls it on a background thread whenever the next set falls due, until {@link #stop()} is
+ * called.  That thread is a daemon thread, so it does not keep the JVM running.
+ *
+ * The harvester is subject to its flow control and exceptions.
+ */
+@Slf4j
+public class IncrementalHarvestScheduler {
+
+    private static final Duration DEFAULT_INTERVAL = Duration.ofDays(1);
+    private static final Duration DEFAULT_RETRY_BACKOFF = Duration.ofMinutes(5);
+
+    private final ArxivOAIHarvester harvester;
+    private final HighWaterMarkStore store;
+    private final Consumer<ArticleMetadata> recordHandler;
+    private final List<String> setSpecs;
+    private final LocalDate initialFromDate;
+    private final Set<ArticleField> fields;
+    private final Duration interval;
+    private final Duration retryBackoff;
+    private final Clock clock;
+
+    // Held for the duration of runDue(), so that runs never overlap
+    private final Object runLock = new Object();
+
+    // When each set's last run was started, including failed ones, and how many runs in a row have failed since the
+    // last completed one; by set, with null for the whole repository
+    private final Map<String, Instant> lastAttempts = new HashMap<>();
+    private final Map<String, Integer> failures = new HashMap<>();
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * Constructs a new scheduler.  Use {@link #builder()} to set the options.
+     *
+     * @param harvester harvester that sends the requests
+     * @param store store of the high-water marks of the sets
+     * @param recordHandler handler of the records harvested; it is called from one thread at a time
+     * @param setSpecs sets to harvest; if null or empty, the whole repository
+     * @param initialFromDate datestamp to start from for a set that has never been harvested; if null, the earliest
+     *                        datestamp of the repository
+     * @param fields fields of the records to harvest; if null, all of them
+     * @param interval time between the runs of each set; if null or not positive, one day
+     * @param retryBackoff time before a set whose run failed is tried again, doubled after each further failure, but
+     *                     never more than half the interval; if null or not positive, 5 minutes
+     */
+    @Builder
+    private IncrementalHarvestScheduler(ArxivOAIHarvester harvester, HighWaterMarkStore store,
+                                        Consumer<ArticleMetadata> recordHandler, Collection<String> setSpecs,
+                                        LocalDate initialFromDate, Set<ArticleField> fields, Duration interval,
+                                        Duration retryBackoff) {
+        this(harvester, store, recordHandler, setSpecs, initialFromDate, fields, interval, retryBackoff,
+                Clock.systemUTC());
+    }
+
+    @VisibleForTesting IncrementalHarvestScheduler(@NonNull ArxivOAIHarvester harvester,
+                                                   @NonNull HighWaterMarkStore store,
+                                                   @NonNull Consumer<ArticleMetadata> recordHandler,
+                                                   Collection<String> setSpecs, LocalDate initialFromDate,
+                                                   Set<ArticleField> fields, Duration interval,
+                                                   Duration retryBackoff, @NonNull Clock clock) {
+        this.harvester = harvester;
+        this.store = store;
+        this.recordHandler = recordHandler;
+        this.setSpecs = setSpecs != null && !setSpecs.isEmpty() ?
+                ImmutableList.copyOf(ImmutableSet.copyOf(setSpecs)) : Collections.singletonList(null);
+        this.initialFromDate = initialFromDate;
+        this.fields = fields;
+        this.interval = interval != null && !interval.isNegative() && !interval.isZero() ? interval : DEFAULT_INTERVAL;
+        this.retryBackoff = retryBackoff != null && !retryBackoff.isNegative() && !retryBackoff.isZero() ?
+                retryBackoff : DEFAULT_RETRY_BACKOFF;
+        this.clock = clock;
+    }
+
+    /**
+     * Start calling {@link #runDue()} on a background thread whenever a set falls due, starting with the sets that are
+     * due now.  A run that fails is logged, and the set is tried again after the retry backoff.
+     *
+     * @throws IllegalStateException if already started
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            throw new IllegalStateException("Incremental harvest scheduler already started");
+        }
+
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("arxiv-oai-incremental-%d")
+                .setDaemon(true)
+                .build());
+        this.executor = executor;
+        executor.execute(() -> tick(executor));
+    }
+
+    /**
+     * Stop the background thread, interrupting the run in progress, if any.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Harvest each set that is due, and skip the rest.  If a run fails, the other sets that are due are still
+     * harvested before its exception is thrown.  Runs never overlap: a call waits for the one in progress, if any, to
+     * finish, including one on the background thread.
+     *
+     * @return the number of sets harvested
+     * @throws HarvesterError if a high-water mark cannot be read or written
+     * See {@link ArxivOAIHarvester} for other exceptions.
+     */
+    public int runDue() {
+        synchronized (runLock) {
+            int runs = 0;
+            RuntimeException failure = null;
+
+            for (String setSpec : setSpecs) {
+                try {
+                    HighWaterMark mark = store.get(setSpec);
+                    if (timeUntilDue(setSpec, mark).compareTo(Duration.ZERO) > 0) {
+                        log.debug("Incremental harvest of {} is not due yet", setName(setSpec));
+                        continue;
+                    }
+
+                    run(setSpec, mark);
+                    runs++;
+                } catch (RuntimeException e) {
+                    log.warn("Incremental harvest of {} failed", setName(setSpec), e);
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+
+            if (failure != null) {
+                throw failure;
+            }
+            return runs;
+        }
+    }
+
+    /**
+     * @return how long until the next set falls due; zero if one is due now
+     * @throws HarvesterError if a high-water mark cannot be read
+     */
+    public Duration getTimeUntilDue() {
+        Duration timeUntilDue = null;
+        for (String setSpec : setSpecs) {
+            Duration wait = timeUntilDue(setSpec, store.get(setSpec));
+            if (timeUntilDue == null || wait.compareTo(timeUntilDue) < 0) {
+                timeUntilDue = wait;
+            }
+        }
+        return timeUntilDue;
+    }
+
+    private Duration timeUntilDue(String setSpec, HighWaterMark mark) {
+        Instant lastRunAt = mark != null ? mark.getLastRunAt() : null;
+        Instant lastAttempt;
+        Integer failuresInARow;
+        synchronized (lastAttempts) {
+            lastAttempt = lastAttempts.get(setSpec);
+            failuresInARow = failures.get(setSpec);
+        }
+
+        Instant due;
+        if (failuresInARow != null) {
+            due = lastAttempt.plus(retryWait(failuresInARow));
+        } else {
+            if (lastAttempt != null && (lastRunAt == null || lastAttempt.isAfter(lastRunAt))) {
+                lastRunAt = lastAttempt;
+            }
+            if (lastRunAt == null) {
+                return Duration.ZERO;
+            }
+            due = lastRunAt.plus(interval);
+        }
+
+        Duration wait = Duration.between(clock.instant(), due);
+        return wait.isNegative() ? Duration.ZERO : wait;
+    }
+
+    /**
+     * @return the retry backoff, doubled for each failure in a row after the first, but at most half the interval
+     */
+    private Duration retryWait(int failuresInARow) {
+        Duration maxWait = interval.dividedBy(2);
+        Duration wait = retryBackoff;
+        for (int i = 1; i < failuresInARow && wait.compareTo(maxWait) < 0; i++) {
+            wait = wait.multipliedBy(2);
+        }
+        return wait.compareTo(maxWait) < 0 ? wait : maxWait;
+    }
+
+    /**
+     * Harvest everything in the set from its high-water mark, and move the mark up.  Counts the failures in a row.
+     */
+    private void run(String setSpec, HighWaterMark mark) {
+        Instant startedAt = clock.instant();
+        synchronized (lastAttempts) {
+            lastAttempts.put(setSpec, startedAt);
+        }
+
+        try {
+            harvestFrom(setSpec, mark, startedAt);
+        } catch (RuntimeException e) {
+            synchronized (lastAttempts) {
+                failures.merge(setSpec, 1, Integer::sum);
+            }
+            throw e;
+        }
+        synchronized (lastAttempts) {
+            failures.remove(setSpec);
+        }
+    }
+
+    private void harvestFrom(String setSpec, HighWaterMark mark, Instant startedAt) {
+
+        // The day of the mark is harvested again, but never a day later than today, which the repository would reject
+        LocalDate fromDate = mark != null && mark.getDatestamp() != null ? mark.getDatestamp() : initialFromDate;
+        LocalDate today = LocalDate.now(clock);
+        if (fromDate != null && fromDate.isAfter(today)) {
+            fromDate = today;
+        }
+
+        ListRecordsRequest request;
+        try {
+            request = new ListRecordsRequest(fromDate, null, setSpec, fields);
+        } catch (URISyntaxException e) {
+            throw new HarvesterError("Error creating incremental request for " + setName(setSpec), e);
+        }
+        log.info("Incremental harvest of {} from datestamp {}", setName(setSpec), fromDate);
+
+        LocalDate highestDatestamp = mark != null ? mark.getDatestamp() : null;
+        int records = 0;
+        while (request != ListRecordsRequest.NONE) {
+            ListRecordsResponse response = harvester.harvest(request);
+            for (ArticleMetadata record : response.getRecords()) {
+                recordHandler.accept(record);
+                records++;
+                if (record.getDatestamp() != null &&
+                        (highestDatestamp == null || record.getDatestamp().isAfter(highestDatestamp))) {
+                    highestDatestamp = record.getDatestamp();
+                }
+            }
+            request = response.resumption();
+        }
+
+        store.put(setSpec, HighWaterMark.builder()
+                .datestamp(highestDatestamp)
+                .lastRunAt(startedAt)
+                .build());
+        log.info("Incremental harvest of {} complete: {} records, high-water mark {}", setName(setSpec), records,
+                highestDatestamp);
+    }
+
+    /**
+     * Run the sets that are due, and schedule the next tick on the same executor for when the next set falls due.
+     */
+    private void tick(ScheduledExecutorService tickExecutor) {
+        try {
+            runDue();
+        } catch (RuntimeException e) {
+            // Already logged; the failed sets are tried again after the retry backoff
+        }
+
+        Duration wait;
+        try {
+            wait = getTimeUntilDue();
+        } catch (RuntimeException e) {
+            log.warn("Could not read high-water marks; trying again in {}", interval, e);
+            wait = interval;
+        }
+
+        synchronized (this) {
+            // Stopped, and maybe started again with a new executor, which has its own ticks
+            if (executor != tickExecutor || tickExecutor.isShutdown()) {
+                return;
+            }
+            // Never sooner than a second, so that a clock that is off cannot make this spin
+            tickExecutor.schedule(() -> tick(tickExecutor), Math.max(wait.toMillis(), 1000L), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static String setName(String setSpec) {
+        return setSpec != null ? "set " + setSpec : "the whole repository";
+    }
+
+}
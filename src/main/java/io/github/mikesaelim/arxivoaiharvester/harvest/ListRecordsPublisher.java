@@ -0,0 +1,174 @@
+package io.github.mikesaelim.arxivoaiharvester.harvest;
+
+import io.github.mikesaelim.arxivoaiharvester.ArxivOAIHarvester;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListRecordsResponse;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A reactive-streams {@link Publisher} of all the records returned for a {@link ListRecordsRequest}, across all of its
+ * pages.  It follows {@link ListRecordsResponse#resumption()} until there are no pages left, and then completes.
+ *
+ * The next page is only requested from the repository once the subscriber has asked for more records than are left of
+ * the current page, so a slow subscriber holds back the harvest instead of letting records pile up: no more than one
+ * page of records is ever held at a time.  If a request fails, the subscriber receives the exception thrown by
+ * {@link ArxivOAIHarvester} through onError; see the javadoc there for the list.
+ *
+ * Each subscription starts the harvest over from the original request.  All signals to a subscriber, and all requests
+ * to the repository, happen on the given executor, one task at a time; the requests block the executor's thread for as
+ * long as the harvester waits.  Since the harvester is not thread-safe, do not let subscriptions to several publishers
+ * sharing a harvester run at the same time, and do not use the harvester elsewhere in the meantime.
+ */
+@Slf4j
+public class ListRecordsPublisher implements Publisher<ArticleMetadata> {
+
+    private final ArxivOAIHarvester harvester;
+    private final ListRecordsRequest request;
+    private final Executor executor;
+
+    /**
+     * @param harvester harvester that sends the requests
+     * @param request the initial request
+     * @param executor executor on which requests are sent and subscribers are signalled
+     */
+    public ListRecordsPublisher(@NonNull ArxivOAIHarvester harvester, @NonNull ListRecordsRequest request,
+                                @NonNull Executor executor) {
+        this.harvester = harvester;
+        this.request = request;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super ArticleMetadata> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber is null");
+        }
+
+        new HarvestSubscription(subscriber).signal();
+    }
+
+    /**
+     * Subscription that runs its work in a drain loop: every call to {@link #request(long)} or {@link #cancel()} only
+     * records the call and makes sure that one task is running on the executor to act on it.
+     */
+    private class HarvestSubscription implements Subscription {
+
+        private final Subscriber<? super ArticleMetadata> subscriber;
+
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingSignals = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile IllegalArgumentException invalidRequest;
+
+        // The following are only touched by the drain loop
+        private final Queue<ArticleMetadata> records = new ArrayDeque<>();
+        private ListRecordsRequest nextRequest = request;
+        private boolean subscribed;
+        private boolean terminated;
+
+        HarvestSubscription(Subscriber<? super ArticleMetadata> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested " + n + " records; must request at least 1");
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            signal();
+        }
+
+        private void signal() {
+            if (pendingSignals.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                drainOnce();
+                missed = pendingSignals.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drainOnce() {
+            if (terminated) {
+                return;
+            }
+            if (!subscribed) {
+                subscribed = true;
+                subscriber.onSubscribe(this);
+            }
+
+            while (!cancelled) {
+                if (invalidRequest != null) {
+                    terminate(invalidRequest);
+                    return;
+                }
+
+                if (records.isEmpty()) {
+                    if (nextRequest == ListRecordsRequest.NONE) {
+                        terminate(null);
+                        return;
+                    }
+                    if (demand.get() == 0) {
+                        return;
+                    }
+
+                    try {
+                        ListRecordsResponse response = harvester.harvest(nextRequest);
+                        records.addAll(response.getRecords());
+                        nextRequest = response.resumption();
+                    } catch (RuntimeException e) {
+                        log.warn("Harvest of " + request + " failed; passing the failure to the subscriber", e);
+                        terminate(e);
+                        return;
+                    }
+                    continue;
+                }
+
+                if (demand.get() == 0) {
+                    return;
+                }
+                subscriber.onNext(records.poll());
+                if (demand.get() != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+            }
+
+            terminated = true;
+            records.clear();
+        }
+
+        private void terminate(Throwable error) {
+            terminated = true;
+            records.clear();
+            if (error == null) {
+                subscriber.onComplete();
+            } else {
+                subscriber.onError(error);
+            }
+        }
+    }
+
+}
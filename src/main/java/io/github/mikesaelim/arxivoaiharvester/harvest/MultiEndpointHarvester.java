@@ -0,0 +1,262 @@
+package io.github.mikesaelim.arxivoaiharvester.harvest;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import io.github.mikesaelim.arxivoaiharvester.ArxivOAIHarvester;
+import io.github.mikesaelim.arxivoaiharvester.exception.HttpException;
+import io.github.mikesaelim.arxivoaiharvester.exception.InterruptedError;
+import io.github.mikesaelim.arxivoaiharvester.exception.ParseException;
+import io.github.mikesaelim.arxivoaiharvester.exception.RepositoryError;
+import io.github.mikesaelim.arxivoaiharvester.exception.RequestRejectedError;
+import io.github.mikesaelim.arxivoaiharvester.exception.TimeoutException;
+import io.github.mikesaelim.arxivoaiharvester.model.request.GetRecordRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListIdentifiersRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListIdentifiersRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.response.GetRecordResponse;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListIdentifiersResponse;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListRecordsResponse;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads requests over several endpoints serving the same repository, such as the public arXiv OAI repository and an
+ * internal mirror of it.
+ *
+ * Each endpoint is an {@link ArxivOAIHarvester} with its own base URI, and usually its own rate limiter, such as the
+ * {@link io.github.mikesaelim.arxivoaiharvester.flowcontrol.SharedRateLimiter} for its host.  Each request goes to the
+ * endpoint that could send it soonest.  If an endpoint fails a request, because it cannot be reached, keeps answering
+ * with 503 Retry-After responses, or sends back something other than a valid response, the request fails over to the
+ * next endpoint, and the failed endpoint is only used again before its cooldown is over if no other endpoint is left.
+ * If every endpoint fails the request, the last failure is thrown.  Errors about the request itself, such as a
+ * {@link io.github.mikesaelim.arxivoaiharvester.exception.BadArgumentException} or a {@link RequestRejectedError}, are
+ * thrown right away.
+ *
+ * A resumption token is only good at the endpoint that issued it, so a resumption of a ListRecords or ListIdentifiers
+ * request goes to the endpoint that answered the previous page, and does not fail over.  If that endpoint fails, the
+ * token is still known, so the resumption can be tried there again.  A resumption whose endpoint is not known, for
+ * example one restored from a {@link HarvestCheckpoint}, is routed like any other request.
+ *
+ * Thread-safe: each endpoint's harvester is used by one thread at a time, so up to as many threads as there are
+ * endpoints can harvest at once, and the others wait for an endpoint to come free.  The harvesters must not be used
+ * directly while they belong to this.  Anything else that sends requests to the repository, such as the
+ * {@link io.github.mikesaelim.arxivoaiharvester.RepositoryProfileCache} of a {@link WindowedHarvest}, needs a harvester
+ * of its own; give it the same rate limiter as the endpoint it sends to, so that its requests are paced with theirs.
+ */
+@Slf4j
+public class MultiEndpointHarvester {
+
+    private static final Duration DEFAULT_COOLDOWN = Duration.ofMinutes(5);
+    private static final int MAX_REMEMBERED_TOKENS = 1000;
+
+    private final List<Endpoint> endpoints;
+    private final long cooldownNanos;
+
+    // Endpoint that issued each resumption token that has not been used yet; the oldest are forgotten first
+    private final Cache<String, Endpoint> endpointsByToken = CacheBuilder.newBuilder()
+            .maximumSize(MAX_REMEMBERED_TOKENS)
+            .build();
+
+    /**
+     * Construct a harvester over the given endpoints, which fails over from an endpoint for 5 minutes.
+     */
+    public MultiEndpointHarvester(List<ArxivOAIHarvester> harvesters) {
+        this(harvesters, DEFAULT_COOLDOWN);
+    }
+
+    /**
+     * @param harvesters one harvester per endpoint
+     * @param cooldown how long to prefer other endpoints after an endpoint fails a request
+     * @throws IllegalArgumentException if there are no harvesters
+     */
+    public MultiEndpointHarvester(@NonNull List<ArxivOAIHarvester> harvesters, @NonNull Duration cooldown) {
+        if (harvesters.isEmpty()) {
+            throw new IllegalArgumentException("Need at least one endpoint");
+        }
+
+        this.endpoints = ImmutableList.copyOf(harvesters.stream().map(Endpoint::new).collect(Collectors.toList()));
+        this.cooldownNanos = cooldown.toNanos();
+    }
+
+    /**
+     * @return the number of endpoints, which is also the number of threads that can harvest at once
+     */
+    public int getEndpointCount() {
+        return endpoints.size();
+    }
+
+    /**
+     * See {@link ArxivOAIHarvester#harvest(GetRecordRequest)} and the class javadoc for exceptions.
+     */
+    public GetRecordResponse harvest(@NonNull GetRecordRequest request) {
+        return route(null, harvester -> harvester.harvest(request));
+    }
+
+    /**
+     * See {@link ArxivOAIHarvester#harvest(ListRecordsRequest)} and the class javadoc for exceptions.
+     */
+    public ListRecordsResponse harvest(@NonNull ListRecordsRequest request) {
+        String token = request instanceof ResumeListRecordsRequest ?
+                ((ResumeListRecordsRequest) request).getResumptionToken() : null;
+
+        return route(issuer(token), harvester -> {
+            ListRecordsResponse response = harvester.harvest(request);
+            forget(token);
+            remember(response.getResumptionToken(), harvester);
+            return response;
+        });
+    }
+
+    /**
+     * See {@link ArxivOAIHarvester#harvest(ListIdentifiersRequest)} and the class javadoc for exceptions.
+     */
+    public ListIdentifiersResponse harvest(@NonNull ListIdentifiersRequest request) {
+        String token = request instanceof ResumeListIdentifiersRequest ?
+                ((ResumeListIdentifiersRequest) request).getResumptionToken() : null;
+
+        return route(issuer(token), harvester -> {
+            ListIdentifiersResponse response = harvester.harvest(request);
+            forget(token);
+            remember(response.getResumptionToken(), harvester);
+            return response;
+        });
+    }
+
+    /**
+     * Send the request through the endpoint that issued its resumption token, if given, or else through the readiest
+     * endpoint, failing over to the others.
+     */
+    private <T> T route(Endpoint issuer, Function<ArxivOAIHarvester, T> send) {
+        Set<Endpoint> tried = new HashSet<>();
+        RuntimeException lastFailure = null;
+
+        while (true) {
+            Endpoint endpoint = issuer != null ? checkOut(issuer) : checkOutReadiest(tried);
+            if (endpoint == null) {
+                throw lastFailure;
+            }
+            tried.add(endpoint);
+
+            try {
+                T response = send.apply(endpoint.harvester);
+                endpoint.failedAt = null;
+                return response;
+            } catch (RequestRejectedError e) {
+                // Every endpoint would reject the request the same way
+                throw e;
+            } catch (HttpException | TimeoutException | ParseException | RepositoryError e) {
+                endpoint.failedAt = System.nanoTime();
+                if (issuer != null) {
+                    throw e;
+                }
+                log.warn("Endpoint " + endpoint.harvester.getBaseUri() + " failed; failing over", e);
+                lastFailure = e;
+            } finally {
+                checkIn(endpoint);
+            }
+        }
+    }
+
+    private Endpoint issuer(String token) {
+        return token != null ? endpointsByToken.getIfPresent(token) : null;
+    }
+
+    private void remember(String token, ArxivOAIHarvester harvester) {
+        if (token != null) {
+            endpoints.stream()
+                    .filter(endpoint -> endpoint.harvester == harvester)
+                    .forEach(endpoint -> endpointsByToken.put(token, endpoint));
+        }
+    }
+
+    /**
+     * Forget the endpoint of a resumption token once it has been used successfully.
+     */
+    private void forget(String token) {
+        if (token != null) {
+            endpointsByToken.invalidate(token);
+        }
+    }
+
+    /**
+     * Wait for the endpoint to come free, and take it.
+     */
+    private synchronized Endpoint checkOut(Endpoint endpoint) {
+        while (endpoint.busy) {
+            waitForCheckIn();
+        }
+        endpoint.busy = true;
+        return endpoint;
+    }
+
+    /**
+     * Wait for an endpoint that has not been tried yet to come free, and take the one that could send soonest,
+     * preferring those that have not failed recently.
+     *
+     * @return the endpoint, or null if all of them have been tried
+     */
+    private synchronized Endpoint checkOutReadiest(Set<Endpoint> tried) {
+        while (true) {
+            List<Endpoint> untried = endpoints.stream()
+                    .filter(endpoint -> !tried.contains(endpoint))
+                    .collect(Collectors.toList());
+            if (untried.isEmpty()) {
+                return null;
+            }
+
+            long now = System.nanoTime();
+            Optional<Endpoint> readiest = untried.stream()
+                    .filter(endpoint -> !endpoint.busy)
+                    .min(Comparator.<Endpoint, Boolean>comparing(endpoint -> endpoint.isCoolingDown(now))
+                            .thenComparing(endpoint -> endpoint.harvester.getTimeUntilReady()));
+            if (readiest.isPresent()) {
+                readiest.get().busy = true;
+                return readiest.get();
+            }
+
+            waitForCheckIn();
+        }
+    }
+
+    private synchronized void checkIn(Endpoint endpoint) {
+        endpoint.busy = false;
+        notifyAll();
+    }
+
+    private void waitForCheckIn() {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            throw new InterruptedError("Interrupted while waiting for an endpoint", e);
+        }
+    }
+
+    private class Endpoint {
+        private final ArxivOAIHarvester harvester;
+
+        // busy is guarded by the MultiEndpointHarvester; failedAt, System.nanoTime() of the last failure, is not
+        private boolean busy;
+        private volatile Long failedAt;
+
+        private Endpoint(ArxivOAIHarvester harvester) {
+            this.harvester = harvester;
+        }
+
+        private boolean isCoolingDown(long now) {
+            Long failedAt = this.failedAt;
+            return failedAt != null && now - failedAt < cooldownNanos;
+        }
+    }
+
+}
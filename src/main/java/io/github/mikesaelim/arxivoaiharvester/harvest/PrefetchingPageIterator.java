@@ -0,0 +1,180 @@
+package io.github.mikesaelim.arxivoaiharvester.harvest;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.github.mikesaelim.arxivoaiharvester.ArxivOAIHarvester;
+import io.github.mikesaelim.arxivoaiharvester.exception.InterruptedError;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListRecordsResponse;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Iterates over the pages of a {@link ListRecordsRequest}, fetching the pages ahead of the consumer.
+ *
+ * Without this, the consumer only sends the request for the next page once it is done with the current one, and then
+ * has to sit through the minimum wait between requests, the download, and the parse before it can carry on.  This
+ * iterator instead hands the requests to a background thread, which starts on the next page as soon as the consumer has
+ * taken the current one.  While the consumer is processing page N, the background thread waits out the minimum wait,
+ * and then fetches and parses page N+1, so that it is ready, or nearly so, by the time the consumer asks for it.  The
+ * requests are still sent one at a time, through the harvester's usual flow control.
+ *
+ * At most bufferedPages pages are fetched ahead of the consumer, so a slow consumer holds back the harvest instead of
+ * letting pages pile up in memory.  If a request fails, the exception thrown by {@link ArxivOAIHarvester} is rethrown
+ * by {@link #next()} in place of the page, and no more pages are fetched; see the javadoc there for the list.
+ *
+ * The iterator should be used by a single thread.  The harvester is used by the background thread from the moment the
+ * iterator is constructed until it runs out of pages, fails, or is closed, and must not be used by anything else in
+ * the meantime.  Close the iterator to stop the background thread early.
+ */
+@Slf4j
+public class PrefetchingPageIterator implements Iterator<ListRecordsResponse>, AutoCloseable {
+
+    private static final Page END = new Page(null, null);
+
+    private final ArxivOAIHarvester harvester;
+    private final ExecutorService fetcher;
+    private final BlockingQueue<Page> pages = new LinkedBlockingQueue<>();
+    private final Semaphore freeSlots;
+
+    private volatile boolean closed;
+    private Page nextPage;
+
+    /**
+     * Construct an iterator that fetches one page ahead of the consumer.
+     */
+    public PrefetchingPageIterator(ArxivOAIHarvester harvester, ListRecordsRequest request) {
+        this(harvester, request, 1);
+    }
+
+    /**
+     * @param harvester harvester that sends the requests
+     * @param request the initial request
+     * @param bufferedPages maximum number of pages fetched ahead of the consumer
+     * @throws IllegalArgumentException if bufferedPages is less than 1
+     */
+    public PrefetchingPageIterator(@NonNull ArxivOAIHarvester harvester, @NonNull ListRecordsRequest request,
+                                   int bufferedPages) {
+        if (bufferedPages < 1) {
+            throw new IllegalArgumentException("Must buffer at least 1 page");
+        }
+
+        this.harvester = harvester;
+        this.freeSlots = new Semaphore(bufferedPages);
+
+        fetcher = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("arxiv-oai-prefetcher-%d")
+                .setDaemon(true)
+                .build());
+        fetcher.execute(() -> fetchAll(request));
+        fetcher.shutdown();
+    }
+
+    /**
+     * Blocks until the next page has been fetched, or it is known that there are none left.
+     *
+     * @throws InterruptedError if the calling thread is interrupted while waiting
+     */
+    @Override
+    public boolean hasNext() {
+        if (nextPage == null) {
+            if (closed) {
+                return false;
+            }
+
+            try {
+                nextPage = pages.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedError("Interrupted while waiting for the next page", e);
+            }
+        }
+
+        return nextPage != END;
+    }
+
+    /**
+     * Blocks until the next page has been fetched, and lets the background thread start on the one after it.
+     *
+     * @throws NoSuchElementException if there are no pages left
+     * @throws InterruptedError if the calling thread is interrupted while waiting
+     * See {@link ArxivOAIHarvester} for other exceptions.
+     */
+    @Override
+    public ListRecordsResponse next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No pages left");
+        }
+
+        Page page = nextPage;
+        if (page.failure != null) {
+            nextPage = END;
+            throw page.failure;
+        }
+
+        nextPage = null;
+        freeSlots.release();
+        return page.response;
+    }
+
+    /**
+     * Stop fetching pages.  A request being sent is interrupted.  Pages already fetched are dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        nextPage = null;
+        fetcher.shutdownNow();
+        pages.clear();
+    }
+
+
+
+    /**
+     * Runs on the background thread.
+     */
+    private void fetchAll(ListRecordsRequest request) {
+        try {
+            while (request != ListRecordsRequest.NONE) {
+                freeSlots.acquire();
+                if (closed) {
+                    return;
+                }
+
+                ListRecordsResponse response = harvester.harvest(request);
+                pages.add(new Page(response, null));
+                request = response.resumption();
+            }
+            pages.add(END);
+        } catch (InterruptedException e) {
+            // Closed
+        } catch (RuntimeException e) {
+            if (closed) {
+                return;
+            }
+            log.warn("Prefetch of " + request + " failed; passing the failure to the consumer", e);
+            pages.add(new Page(null, e));
+        }
+    }
+
+    /**
+     * Either a page or the exception thrown while fetching it.
+     */
+    private static class Page {
+        final ListRecordsResponse response;
+        final RuntimeException failure;
+
+        Page(ListRecordsResponse response, RuntimeException failure) {
+            this.response = response;
+            this.failure = failure;
+        }
+    }
+
+}
@@ -0,0 +1,214 @@
+package io.github.mikesaelim.arxivoaiharvester.harvest;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.github.mikesaelim.arxivoaiharvester.exception.HarvesterError;
+import io.github.mikesaelim.arxivoaiharvester.exception.InterruptedError;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListRecordsResponse;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * A ListRecords harvest of several sets at once, merged into one stream of records.
+ *
+ * The datestamp range of the request is split into consecutive windows of windowDays days, and each window is
+ * harvested for every set in parallel, with as many requests at once as the {@link MultiEndpointHarvester} has
+ * endpoints.  A record that is cross-listed in several sets comes back once for each of them, with only that set in its
+ * list of sets (see {@link ArticleMetadata#getSets()}).  Since the datestamp belongs to the record, all of its copies
+ * come back in the same window, where they are merged into one record, by identifier, with the union of their sets.
+ * This is not quite what an unrestricted harvest would return: the merged record only lists the sets that were
+ * harvested, and not any others it belongs to.  The records of each window are handed over in order of datestamp, and
+ * within a datestamp, grouped by the first of the sets they came back in; the windows are handed over in order, so
+ * {@link #run(Consumer)} hands over the records of the whole range in order of datestamp.
+ *
+ * A record that is updated while the harvest is running may come back with its old datestamp from some sets and its
+ * new one from others.  Within a window, the copy with the newest datestamp is kept; if the new datestamp falls in a
+ * later window, the record is handed over again from that window, so that the update is not lost.
+ *
+ * The records of a window are held in memory, for all sets, until the window is handed over, and at most two windows
+ * are harvested at a time.  If any request fails, the harvest stops and its exception is rethrown; see
+ * {@link MultiEndpointHarvester} for the list.
+ */
+@Slf4j
+public class SetPartitionedHarvest {
+
+    private static final int DEFAULT_WINDOW_DAYS = 30;
+    private static final int WINDOWS_AHEAD = 2;
+
+    private final MultiEndpointHarvester harvester;
+    private final ListRecordsRequest request;
+    private final List<String> setSpecs;
+    private final LocalDate fromDate;
+    private final LocalDate untilDate;
+    private final int windowDays;
+
+    /**
+     * Constructs a harvest with windows of 30 days.
+     *
+     * @throws IllegalArgumentException if the request has no fromDate, has a set, or is a resumption of another
+     *                                  request, or if there are no sets
+     */
+    public SetPartitionedHarvest(MultiEndpointHarvester harvester, ListRecordsRequest request,
+                                 Collection<String> setSpecs) {
+        this(harvester, request, setSpecs, 0);
+    }
+
+    /**
+     * Constructs a new harvest.  Use {@link #builder()} to set the options.
+     *
+     * @param harvester harvester that sends the requests
+     * @param request the datestamp range and fields to harvest; it must have a fromDate and no set, and if it has no
+     *                untilDate, the range ends today
+     * @param setSpecs sets to harvest
+     * @param windowDays length of the windows; if not positive, 30 days
+     * @throws IllegalArgumentException if the request has no fromDate, has a set, or is a resumption of another
+     *                                  request, or if there are no sets
+     */
+    @Builder
+    private SetPartitionedHarvest(@NonNull MultiEndpointHarvester harvester, @NonNull ListRecordsRequest request,
+                                  @NonNull Collection<String> setSpecs, int windowDays) {
+        if (request instanceof ResumeListRecordsRequest || request == ListRecordsRequest.NONE) {
+            throw new IllegalArgumentException("Set-partitioned harvest must start from an original request");
+        }
+        if (request.getFromDate() == null) {
+            throw new IllegalArgumentException("Set-partitioned harvest needs a fromDate");
+        }
+        if (request.getSetSpec() != null) {
+            throw new IllegalArgumentException("Set-partitioned harvest takes its sets separately from the request");
+        }
+        if (setSpecs.isEmpty()) {
+            throw new IllegalArgumentException("Set-partitioned harvest needs at least one set");
+        }
+
+        this.harvester = harvester;
+        this.request = request;
+        this.setSpecs = ImmutableList.copyOf(ImmutableSet.copyOf(setSpecs));
+        this.fromDate = request.getFromDate();
+        this.untilDate = request.getUntilDate() != null ? request.getUntilDate() : LocalDate.now(ZoneOffset.UTC);
+        this.windowDays = windowDays > 0 ? windowDays : DEFAULT_WINDOW_DAYS;
+    }
+
+    /**
+     * Harvest all the records in the range and the sets, handing each of them to recordHandler once, in order of
+     * datestamp.  The handler is only called from the thread calling this.
+     *
+     * @throws InterruptedError if interrupted while waiting for a window
+     * See {@link MultiEndpointHarvester} for other exceptions.
+     */
+    public void run(@NonNull Consumer<ArticleMetadata> recordHandler) {
+        ExecutorService executor = Executors.newFixedThreadPool(harvester.getEndpointCount(), new ThreadFactoryBuilder()
+                .setNameFormat("arxiv-oai-set-%d")
+                .setDaemon(true)
+                .build());
+
+        // Harvests of the windows in flight, one per set, oldest first
+        Deque<List<Future<List<ArticleMetadata>>>> windows = new ArrayDeque<>();
+        LocalDate nextFrom = fromDate;
+
+        try {
+            while (true) {
+                while (windows.size() < WINDOWS_AHEAD && !nextFrom.isAfter(untilDate)) {
+                    LocalDate until = nextFrom.plusDays(windowDays - 1);
+                    if (until.isAfter(untilDate)) {
+                        until = untilDate;
+                    }
+                    windows.add(submit(executor, nextFrom, until));
+                    nextFrom = until.plusDays(1);
+                }
+                if (windows.isEmpty()) {
+                    return;
+                }
+
+                merge(windows.poll()).forEach(recordHandler);
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedError("Interrupted while waiting for a window", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new HarvesterError(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Future<List<ArticleMetadata>>> submit(ExecutorService executor, LocalDate from, LocalDate until) {
+        List<Future<List<ArticleMetadata>>> window = new ArrayList<>();
+        for (String setSpec : setSpecs) {
+            window.add(executor.submit(() -> {
+                log.info("Harvesting set {} from {} to {}", setSpec, from, until);
+
+                List<ArticleMetadata> records = new ArrayList<>();
+                ListRecordsRequest nextRequest = new ListRecordsRequest(from, until, setSpec, request.getFields());
+                while (nextRequest != ListRecordsRequest.NONE) {
+                    ListRecordsResponse response = harvester.harvest(nextRequest);
+                    records.addAll(response.getRecords());
+                    nextRequest = response.resumption();
+                }
+                return records;
+            }));
+        }
+        return window;
+    }
+
+    /**
+     * Wait for the harvests of a window, and merge the copies of each record into its newest copy with the union of
+     * their sets.
+     *
+     * @return the records of the window, in order of datestamp
+     */
+    private List<ArticleMetadata> merge(List<Future<List<ArticleMetadata>>> window)
+            throws InterruptedException, ExecutionException {
+        Map<String, ArticleMetadata> records = new LinkedHashMap<>();
+        for (Future<List<ArticleMetadata>> set : window) {
+            for (ArticleMetadata record : set.get()) {
+                records.merge(record.getIdentifier(), record, SetPartitionedHarvest::mergeCopies);
+            }
+        }
+
+        // Stable, so records with the same datestamp stay in the order they came in
+        List<ArticleMetadata> merged = new ArrayList<>(records.values());
+        merged.sort(Comparator.comparing(ArticleMetadata::getDatestamp,
+                Comparator.nullsFirst(Comparator.naturalOrder())));
+        return merged;
+    }
+
+    private static ArticleMetadata mergeCopies(ArticleMetadata first, ArticleMetadata second) {
+        boolean secondIsNewer = second.getDatestamp() != null &&
+                (first.getDatestamp() == null || second.getDatestamp().isAfter(first.getDatestamp()));
+        ArticleMetadata record = secondIsNewer ? second : first;
+        ArticleMetadata copy = secondIsNewer ? first : second;
+
+        Set<String> sets = record.getSets() != null ? record.getSets() : ImmutableSet.of();
+        Set<String> copySets = copy.getSets() != null ? copy.getSets() : ImmutableSet.of();
+        if (sets.containsAll(copySets)) {
+            return record;
+        }
+
+        return record.withSets(ImmutableSet.<String>builder().addAll(sets).addAll(copySets).build());
+    }
+
+}
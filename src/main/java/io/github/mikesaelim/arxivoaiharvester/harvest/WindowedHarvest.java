@@ -0,0 +1,318 @@
+package io.github.mikesaelim.arxivoaiharvester.harvest;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.github.mikesaelim.arxivoaiharvester.RepositoryProfileCache;
+import io.github.mikesaelim.arxivoaiharvester.exception.BadResumptionTokenException;
+import io.github.mikesaelim.arxivoaiharvester.exception.HarvesterError;
+import io.github.mikesaelim.arxivoaiharvester.exception.InterruptedError;
+import io.github.mikesaelim.arxivoaiharvester.exception.RepositoryError;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata;
+import io.github.mikesaelim.arxivoaiharvester.model.data.RepositoryDescription;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListRecordsResponse;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URISyntaxException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * A ListRecords harvest of a datestamp range that is split into windows, which are harvested in parallel.
+ *
+ * A ListRecords request is one chain of resumption tokens, so it can only be harvested one page at a time.  This
+ * splits the range of the request into consecutive windows of days, each of which is a ListRecords request of its own,
+ * with the same set and fields, and harvests as many windows at once as the {@link MultiEndpointHarvester} has
+ * endpoints.  The records of each window are sorted by datestamp, and the windows are handed over in order, so
+ * {@link #run(Consumer)} hands over the records of the whole range in order of datestamp.
+ *
+ * The windows adapt to the repository.  The first window is initialWindowDays long; after that, every window is sized
+ * so that it is expected to hold about half of maxRecordsPerWindow records, going by the number of records per day in
+ * the windows harvested so far, as reported by the completeListSize of their first page.  A window that turns out to
+ * hold more than maxRecordsPerWindow records, or whose resumption token expires before it has been harvested, is split
+ * in two and harvested again, so that no window takes too long to get through before its token expires.  A single day
+ * is never split, whatever the repository's datestamp granularity, since requests only go down to days.
+ *
+ * Given a {@link RepositoryProfileCache}, the harvest looks up the repository's profile before it starts.  A request
+ * without a fromDate then starts at the repository's earliest datestamp, and a request from before that date skips the
+ * days before it, on which there can be no records.  Without a cache, the request must have a fromDate.
+ *
+ * Each window is held in memory from when it is harvested until it is handed over, and at most twice as many windows
+ * as there are endpoints are harvested ahead of the one being handed over.  If any window fails, the harvest stops and
+ * its exception is rethrown; see {@link MultiEndpointHarvester} for the list.
+ */
+@Slf4j
+public class WindowedHarvest {
+
+    private static final int DEFAULT_INITIAL_WINDOW_DAYS = 7;
+    private static final int DEFAULT_MAX_WINDOW_DAYS = 366;
+    private static final int DEFAULT_MAX_RECORDS_PER_WINDOW = 20_000;
+
+    private final MultiEndpointHarvester harvester;
+    private final ListRecordsRequest request;
+    private final RepositoryProfileCache profileCache;
+    private final LocalDate untilDate;
+    private final int initialWindowDays;
+    private final int maxWindowDays;
+    private final int maxRecordsPerWindow;
+
+    /**
+     * Constructs a harvest with the default window settings.
+     *
+     * @throws IllegalArgumentException if the request has no fromDate, or is a resumption of another request
+     */
+    public WindowedHarvest(MultiEndpointHarvester harvester, ListRecordsRequest request) {
+        this(harvester, request, null, 0, 0, 0);
+    }
+
+    /**
+     * Constructs a new harvest.  Use {@link #builder()} to set the options.
+     *
+     * @param harvester harvester that sends the requests
+     * @param request the request to split; it must have a fromDate unless there is a profileCache, and if it has no
+     *                untilDate, the range ends today
+     * @param profileCache cache of the repository's profile; optional.  Its harvester must not be one of the
+     *                     endpoints of the harvester; see {@link MultiEndpointHarvester}.
+     * @param initialWindowDays length of the first window; if not positive, 7 days
+     * @param maxWindowDays longest window; if not positive, 366 days
+     * @param maxRecordsPerWindow most records that a window longer than one day may hold before it is split; if not
+     *                            positive, 20000
+     * @throws IllegalArgumentException if the request has no fromDate and there is no profileCache, or is a
+     *                                  resumption of another request
+     */
+    @Builder
+    private WindowedHarvest(@NonNull MultiEndpointHarvester harvester, @NonNull ListRecordsRequest request,
+                            RepositoryProfileCache profileCache, int initialWindowDays, int maxWindowDays,
+                            int maxRecordsPerWindow) {
+        if (request instanceof ResumeListRecordsRequest || request == ListRecordsRequest.NONE) {
+            throw new IllegalArgumentException("Windowed harvest must start from an original request");
+        }
+        if (request.getFromDate() == null && profileCache == null) {
+            throw new IllegalArgumentException("Windowed harvest needs a fromDate or a repository profile");
+        }
+
+        this.harvester = harvester;
+        this.request = request;
+        this.profileCache = profileCache;
+        this.untilDate = request.getUntilDate() != null ? request.getUntilDate() : LocalDate.now(ZoneOffset.UTC);
+        this.maxWindowDays = maxWindowDays > 0 ? maxWindowDays : DEFAULT_MAX_WINDOW_DAYS;
+        this.initialWindowDays = Math.min(
+                initialWindowDays > 0 ? initialWindowDays : DEFAULT_INITIAL_WINDOW_DAYS, this.maxWindowDays);
+        this.maxRecordsPerWindow = maxRecordsPerWindow > 0 ? maxRecordsPerWindow : DEFAULT_MAX_RECORDS_PER_WINDOW;
+    }
+
+    /**
+     * Harvest all the records in the range, handing them to recordHandler in order of datestamp.  The handler is only
+     * called from the thread calling this.
+     *
+     * @throws InterruptedError if interrupted while waiting for a window
+     * @throws RepositoryError if the repository's profile has no earliest datestamp and the request has no fromDate
+     * See {@link MultiEndpointHarvester} for other exceptions, and {@link RepositoryProfileCache} for those of looking
+     * up the profile.
+     */
+    public void run(@NonNull Consumer<ArticleMetadata> recordHandler) {
+        RepositoryDescription description = profileCache != null ? profileCache.get().getDescription() : null;
+        LocalDate fromDate = startDate(description);
+
+        int numThreads = harvester.getEndpointCount();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads, new ThreadFactoryBuilder()
+                .setNameFormat("arxiv-oai-window-%d")
+                .setDaemon(true)
+                .build());
+        CompletionService<Window> completedWindows = new ExecutorCompletionService<>(executor);
+
+        Planner planner = new Planner(fromDate);
+        // Harvested windows waiting for the windows before them, by fromDate
+        TreeMap<LocalDate, Window> harvested = new TreeMap<>();
+        LocalDate nextToHandOver = fromDate;
+        int running = 0;
+
+        try {
+            while (true) {
+                // Always start on the window to be handed over next, so that the harvest cannot stall behind it
+                while (running < numThreads && planner.hasNext() &&
+                        (running + harvested.size() < 2 * numThreads || planner.nextFrom().equals(nextToHandOver))) {
+                    Window window = planner.next();
+                    completedWindows.submit(() -> harvest(window));
+                    running++;
+                }
+                if (running == 0) {
+                    return;
+                }
+
+                Window window = completedWindows.take().get();
+                running--;
+                planner.observe(window);
+
+                if (window.records == null) {
+                    planner.split(window);
+                    continue;
+                }
+
+                harvested.put(window.from, window);
+                while (!harvested.isEmpty() && harvested.firstKey().equals(nextToHandOver)) {
+                    Window next = harvested.pollFirstEntry().getValue();
+                    next.records.forEach(recordHandler);
+                    nextToHandOver = next.until.plusDays(1);
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedError("Interrupted while waiting for a window", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new HarvesterError(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @param description the repository's description, or null if there is no profile
+     * @return the fromDate of the request, moved up to the repository's earliest datestamp if that is later
+     */
+    private LocalDate startDate(RepositoryDescription description) {
+        LocalDate fromDate = request.getFromDate();
+        LocalDate earliestDatestamp = description != null ? description.getEarliestDatestamp() : null;
+        if (earliestDatestamp != null && (fromDate == null || fromDate.isBefore(earliestDatestamp))) {
+            return earliestDatestamp;
+        }
+        if (fromDate == null) {
+            throw new RepositoryError("Repository profile has no earliest datestamp to start the harvest from");
+        }
+        return fromDate;
+    }
+
+    /**
+     * Harvest all the pages of a window, unless it turns out to need splitting.
+     */
+    private Window harvest(Window window) throws URISyntaxException {
+        ListRecordsRequest windowRequest = new ListRecordsRequest(window.from, window.until, request.getSetSpec(),
+                request.getFields());
+        log.info("Harvesting window {} to {}", window.from, window.until);
+
+        List<ArticleMetadata> records = new ArrayList<>();
+        ListRecordsRequest nextRequest = windowRequest;
+        while (nextRequest != ListRecordsRequest.NONE) {
+            ListRecordsResponse response;
+            try {
+                response = harvester.harvest(nextRequest);
+            } catch (BadResumptionTokenException e) {
+                if (nextRequest instanceof ResumeListRecordsRequest && window.days() > 1) {
+                    log.info("Resumption token for window {} to {} rejected; splitting it", window.from, window.until);
+                    window.expectedRecords = Math.max(window.expectedRecords, maxRecordsPerWindow + 1L);
+                    return window;
+                }
+                throw e;
+            }
+
+            if (nextRequest == windowRequest) {
+                window.expectedRecords = response.getCompleteListSize() != null ?
+                        response.getCompleteListSize().longValue() : response.getRecords().size();
+                if (window.expectedRecords > maxRecordsPerWindow) {
+                    if (window.days() > 1) {
+                        log.info("Window {} to {} holds {} records; splitting it", window.from, window.until,
+                                window.expectedRecords);
+                        return window;
+                    }
+                    log.warn("Day {} holds {} records, but cannot be split, since requests only go down to days",
+                            window.from, window.expectedRecords);
+                }
+            }
+
+            records.addAll(response.getRecords());
+            nextRequest = response.resumption();
+        }
+
+        // Stable, so records with the same datestamp stay in the order the repository sent them
+        records.sort(Comparator.comparing(ArticleMetadata::getDatestamp,
+                Comparator.nullsFirst(Comparator.naturalOrder())));
+        window.records = records;
+        return window;
+    }
+
+    /**
+     * Hands out the windows, in order of fromDate.  Only used by the thread running the harvest.
+     */
+    private class Planner {
+        private final PriorityQueue<Window> splitWindows = new PriorityQueue<>(Comparator.comparing((Window w) -> w.from));
+        private LocalDate nextFrom;
+        private int windowDays = initialWindowDays;
+
+        Planner(LocalDate fromDate) {
+            this.nextFrom = fromDate;
+        }
+
+        boolean hasNext() {
+            return !splitWindows.isEmpty() || !nextFrom.isAfter(untilDate);
+        }
+
+        LocalDate nextFrom() {
+            return !splitWindows.isEmpty() ? splitWindows.peek().from : nextFrom;
+        }
+
+        Window next() {
+            if (!splitWindows.isEmpty()) {
+                return splitWindows.poll();
+            }
+
+            LocalDate until = nextFrom.plusDays(windowDays - 1);
+            Window window = new Window(nextFrom, until.isAfter(untilDate) ? untilDate : until);
+            nextFrom = window.until.plusDays(1);
+            return window;
+        }
+
+        /**
+         * Resize the windows not handed out yet to the number of records per day in this one.
+         */
+        void observe(Window window) {
+            if (window.expectedRecords < 0) {
+                return;
+            }
+
+            double recordsPerDay = Math.max((double) window.expectedRecords / window.days(), 1.0);
+            windowDays = (int) Math.max(1, Math.min(maxWindowDays, maxRecordsPerWindow / 2 / recordsPerDay));
+        }
+
+        void split(Window window) {
+            LocalDate middle = window.from.plusDays(window.days() / 2 - 1);
+            splitWindows.add(new Window(window.from, middle));
+            splitWindows.add(new Window(middle.plusDays(1), window.until));
+        }
+    }
+
+    private static class Window {
+        private final LocalDate from;
+        private final LocalDate until;
+
+        // Number of records as reported by the first page, or -1 if not known yet
+        private long expectedRecords = -1;
+        // Records sorted by datestamp, or null if the window is to be split
+        private List<ArticleMetadata> records;
+
+        private Window(LocalDate from, LocalDate until) {
+            this.from = from;
+            this.until = until;
+        }
+
+        private long days() {
+            return ChronoUnit.DAYS.between(from, until) + 1;
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+package io.github.mikesaelim.arxivoaiharvester.internal;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Function;
+
+/**
+ * A properties file on local disk that is always replaced as a whole, so that it never holds a half-written state.
+ * This is how {@link io.github.mikesaelim.arxivoaiharvester.RepositoryProfileCache} and the harvest stores keep their
+ * state between runs.  Internal to this library, and not part of its API.
+ *
+ * {@link #save(Properties)} writes to a temporary file in the same directory, flushes it to the disk, moves it over the
+ * old file, atomically where the file system allows it, and then flushes the directory, where the platform allows it.
+ * So after a crash, the file holds either the old properties or the new ones.  The static helpers read and write the
+ * values that these files hold.
+ *
+ * This class does not synchronize access to the file; its users do.
+ */
+public class AtomicPropertiesFile {
+
+    private static final String FORMAT_VERSION_KEY = "formatVersion";
+    private static final Joiner LIST_JOINER = Joiner.on(' ');
+    private static final Splitter LIST_SPLITTER = Splitter.on(' ').omitEmptyStrings();
+
+    @Getter private final Path file;
+    private final String comment;
+
+    /**
+     * @param file the properties file
+     * @param comment comment written at the top of the file
+     */
+    public AtomicPropertiesFile(@NonNull Path file, String comment) {
+        this.file = file;
+        this.comment = comment;
+    }
+
+    /**
+     * @return the properties in the file, or null if there is no file
+     * @throws IOException if the file exists but cannot be read
+     */
+    public Properties load() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            properties.load(inputStream);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        return properties;
+    }
+
+    /**
+     * Replace the file with the given properties.  When this returns, they have been flushed to the disk, and so has
+     * the replacement of the file, unless the platform cannot flush a directory, as on Windows.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void save(@NonNull Properties properties) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileOutputStream outputStream = new FileOutputStream(tempFile.toFile())) {
+                properties.store(outputStream, comment);
+                outputStream.getFD().sync();
+            }
+
+            try {
+                Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+
+        syncDirectory(directory);
+    }
+
+    /**
+     * Delete the file, if there is one.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Flush the directory to the disk, so that the moves and deletions of its files survive a crash.
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Some platforms, such as Windows, cannot open a directory; the file system then decides when to flush it
+        }
+    }
+
+    /**
+     * Mark the properties as being in the given format, for {@link #checkFormatVersion(Properties, String)}.
+     */
+    public static void setFormatVersion(Properties properties, String formatVersion) {
+        properties.setProperty(FORMAT_VERSION_KEY, formatVersion);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the properties are not in the given format
+     */
+    public static void checkFormatVersion(Properties properties, String formatVersion) {
+        if (!formatVersion.equals(properties.getProperty(FORMAT_VERSION_KEY))) {
+            throw new IllegalArgumentException("Unsupported format " + properties.getProperty(FORMAT_VERSION_KEY));
+        }
+    }
+
+    /**
+     * Set the property to the value's string form, unless the value is null.
+     */
+    public static void setIfNotNull(Properties properties, String key, Object value) {
+        if (value != null) {
+            properties.setProperty(key, value.toString());
+        }
+    }
+
+    /**
+     * @return the property parsed with the given parser, or null if it is not set
+     */
+    public static <T> T parseIfNotNull(Properties properties, String key, Function<String, T> parser) {
+        String value = properties.getProperty(key);
+        return value != null ? parser.apply(value) : null;
+    }
+
+    /**
+     * @return the property
+     * @throws IllegalArgumentException if there is no value for the key
+     */
+    public static String required(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + key);
+        }
+        return value;
+    }
+
+    /**
+     * @return the values joined into one property value; none of them may contain spaces
+     */
+    public static String joinList(Iterable<?> values) {
+        return LIST_JOINER.join(values);
+    }
+
+    /**
+     * @return the values joined by {@link #joinList(Iterable)}
+     */
+    public static List<String> splitList(String value) {
+        return LIST_SPLITTER.splitToList(value);
+    }
+
+}
@@ -0,0 +1,24 @@
+package io.github.mikesaelim.arxivoaiharvester.model.data;
+
+/**
+ * The article metadata fields of {@link ArticleMetadata}, that is, all of its fields except for the header data, which
+ * is always included.  Requests can name a subset of these fields to retrieve, and the fields that are left out are
+ * not parsed, and are null in the resulting ArticleMetadata.
+ */
+public enum ArticleField {
+    ID,
+    SUBMITTER,
+    VERSIONS,
+    TITLE,
+    AUTHORS,
+    CATEGORIES,
+    COMMENTS,
+    PROXY,
+    REPORT_NO,
+    ACM_CLASS,
+    MSC_CLASS,
+    JOURNAL_REF,
+    DOI,
+    LICENSE,
+    ABSTRACT
+}
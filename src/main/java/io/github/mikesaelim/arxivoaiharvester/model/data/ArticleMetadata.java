@@ -1,19 +1,31 @@
 package io.github.mikesaelim.arxivoaiharvester.model.data;
 
+import lombok.AccessLevel;
 import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.Value;
+import lombok.experimental.Wither;
 
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Set;
+import java.util.function.UnaryOperator;
 
 /**
  * Metadata for an article, based on all the data returned in the OAI record.  If a field was not included in the OAI
  * response for this record, it is null.  Immutable.
+ *
+ * The large text fields, {@link #getAuthors() authors}, {@link #getComments() comments}, and
+ * {@link #getArticleAbstract() articleAbstract}, can be materialized lazily: if a {@code textNormalizer} is given to the
+ * builder, those fields hold the raw text, which is normalized on first access and cached.  This makes no difference
+ * to the values returned by the getters, or to {@code equals}, {@code hashCode}, and {@code toString}, all of which go
+ * through the getters.
  */
 @Value
 @Builder
+@ToString(exclude = {"textNormalizer", "normalizedText"})
 public class ArticleMetadata {
 
     /**
@@ -38,8 +50,10 @@ public class ArticleMetadata {
 
     /**
      * Sets that this record belongs to.  Because of arXiv's OAI peculiarities, this may be an incomplete list if this
-     * ArticleMetadata was retrieved with a request that restricted the results to a single set.
+     * ArticleMetadata was retrieved with a request that restricted the results to a single set.  Use
+     * {@link #withSets(Set)} to get a copy with the complete list, once it is known.
      */
+    @Wither
     private Set<String> sets;
 
     /**
@@ -134,4 +148,68 @@ public class ArticleMetadata {
      */
     private String articleAbstract;
 
+
+
+
+    /////// LAZY MATERIALIZATION ///////
+
+    /**
+     * If not null, authors, comments, and articleAbstract hold raw text, and this function is applied to each of them
+     * on first access.
+     */
+    @Getter(AccessLevel.NONE)
+    private transient UnaryOperator<String> textNormalizer;
+
+    @Getter(AccessLevel.NONE)
+    private final transient NormalizedText normalizedText = new NormalizedText();
+
+    /**
+     * Author string of the article.  Unfortunately, this is not really in any sort of fixed format.
+     */
+    public String getAuthors() {
+        if (textNormalizer == null || authors == null) {
+            return authors;
+        }
+        if (normalizedText.authors == null) {
+            normalizedText.authors = textNormalizer.apply(authors);
+        }
+        return normalizedText.authors;
+    }
+
+    /**
+     * Comments string of the article.
+     */
+    public String getComments() {
+        if (textNormalizer == null || comments == null) {
+            return comments;
+        }
+        if (normalizedText.comments == null) {
+            normalizedText.comments = textNormalizer.apply(comments);
+        }
+        return normalizedText.comments;
+    }
+
+    /**
+     * Abstract of the article.
+     */
+    public String getArticleAbstract() {
+        if (textNormalizer == null || articleAbstract == null) {
+            return articleAbstract;
+        }
+        if (normalizedText.articleAbstract == null) {
+            normalizedText.articleAbstract = textNormalizer.apply(articleAbstract);
+        }
+        return normalizedText.articleAbstract;
+    }
+
+    /**
+     * Cache of the normalized large text fields.  Normalizing is idempotent, so if two threads race to fill in a
+     * value, both get an equal result.
+     */
+    private static class NormalizedText {
+        private volatile String authors;
+        private volatile String comments;
+        private volatile String articleAbstract;
+    }
+
 }
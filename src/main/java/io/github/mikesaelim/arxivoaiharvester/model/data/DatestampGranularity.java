@@ -0,0 +1,17 @@
+package io.github.mikesaelim.arxivoaiharvester.model.data;
+
+/**
+ * The finest granularity of the datestamps a repository supports in selective harvesting, as declared in its Identify
+ * response.
+ */
+public enum DatestampGranularity {
+    /**
+     * Datestamps are days, in the format "YYYY-MM-DD".
+     */
+    DAY,
+
+    /**
+     * Datestamps are seconds, in the format "YYYY-MM-DDThh:mm:ssZ".
+     */
+    SECOND
+}
@@ -0,0 +1,21 @@
+package io.github.mikesaelim.arxivoaiharvester.model.data;
+
+/**
+ * How a repository keeps track of deleted records, as declared in its Identify response.
+ */
+public enum DeletedRecordPolicy {
+    /**
+     * The repository does not keep track of deletions.
+     */
+    NO,
+
+    /**
+     * The repository keeps track of deletions indefinitely.
+     */
+    PERSISTENT,
+
+    /**
+     * The repository keeps track of deletions, but not necessarily indefinitely.
+     */
+    TRANSIENT
+}
@@ -0,0 +1,44 @@
+package io.github.mikesaelim.arxivoaiharvester.model.data;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.Set;
+
+/**
+ * The header of an OAI record, without the article metadata, as returned by a ListIdentifiers request.  It has the same
+ * header data as {@link ArticleMetadata}.  Immutable.
+ */
+@Value
+@Builder
+public class RecordHeader {
+
+    /**
+     * Time when this header was retrieved from the arXiv OAI repository.
+     */
+    private ZonedDateTime retrievalDateTime;
+
+    /**
+     * Unique identifier string of this record.
+     */
+    private String identifier;
+
+    /**
+     * Datestamp of when this record was last updated in the repository.
+     */
+    private LocalDate datestamp;
+
+    /**
+     * Sets that this record belongs to.  Because of arXiv's OAI peculiarities, this may be an incomplete list if this
+     * header was retrieved with a request that restricted the results to a single set.
+     */
+    private Set<String> sets;
+
+    /**
+     * True if the record has been deleted from the repository.
+     */
+    private boolean deleted;
+
+}
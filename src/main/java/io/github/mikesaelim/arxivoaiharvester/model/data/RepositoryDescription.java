@@ -0,0 +1,56 @@
+package io.github.mikesaelim.arxivoaiharvester.model.data;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Description of a repository, as returned by an Identify request.  Immutable.
+ */
+@Value
+@Builder
+public class RepositoryDescription {
+
+    /**
+     * Human-readable name of the repository.
+     */
+    private String repositoryName;
+
+    /**
+     * Base URL of the repository, for example, "http://export.arxiv.org/oai2".
+     */
+    private String baseUrl;
+
+    /**
+     * Version of the OAI-PMH protocol supported by the repository, for example, "2.0".
+     */
+    private String protocolVersion;
+
+    /**
+     * Email addresses of the administrators of the repository.
+     */
+    private List<String> adminEmails;
+
+    /**
+     * The earliest datestamp of any record in the repository.  Selective harvesting before this date returns nothing.
+     */
+    private LocalDate earliestDatestamp;
+
+    /**
+     * How the repository keeps track of deleted records.
+     */
+    private DeletedRecordPolicy deletedRecord;
+
+    /**
+     * The finest granularity of the datestamps the repository supports.
+     */
+    private DatestampGranularity granularity;
+
+    /**
+     * Content encodings the repository supports for its responses, for example, "gzip".  It may be empty.
+     */
+    private List<String> compressions;
+
+}
@@ -0,0 +1,41 @@
+package io.github.mikesaelim.arxivoaiharvester.model.data;
+
+import com.google.common.collect.ImmutableList;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * What a harvest needs to know about a repository before it starts: its description and its set hierarchy, together
+ * with when they were retrieved.  These change very rarely, so a profile is meant to be cached, and only retrieved again
+ * once it is older than some time-to-live.  Immutable.
+ */
+@Value
+@Builder
+public class RepositoryProfile {
+
+    /**
+     * Description of the repository, from an Identify request.
+     */
+    private RepositoryDescription description;
+
+    /**
+     * All sets of the repository, from ListSets requests.  It is empty if the repository has no set hierarchy.
+     */
+    private ImmutableList<SetDescription> sets;
+
+    /**
+     * When the description and sets were retrieved from the repository.
+     */
+    private Instant retrievedAt;
+
+    /**
+     * @return whether this profile is older than timeToLive at the given instant
+     */
+    public boolean isExpired(Duration timeToLive, Instant now) {
+        return retrievedAt.plus(timeToLive).isBefore(now);
+    }
+
+}
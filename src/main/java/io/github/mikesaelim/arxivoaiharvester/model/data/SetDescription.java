@@ -0,0 +1,23 @@
+package io.github.mikesaelim.arxivoaiharvester.model.data;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * A set in the set hierarchy of a repository, as returned by a ListSets request.  Immutable.
+ */
+@Value
+@Builder
+public class SetDescription {
+
+    /**
+     * Unique identifier of the set, for example, "physics:hep-ph".  A colon separates the levels of the hierarchy.
+     */
+    private String setSpec;
+
+    /**
+     * Human-readable name of the set, for example, "High Energy Physics - Phenomenology".
+     */
+    private String setName;
+
+}
@@ -1,9 +1,11 @@
 package io.github.mikesaelim.arxivoaiharvester.model.request;
 
 import lombok.Data;
+import lombok.NonNull;
 import org.apache.http.client.utils.URIBuilder;
 
 import java.net.URI;
+import java.net.URISyntaxException;
 
 /**
  * Subclasses of this class represent a request to send to the arXiv OAI repository.
@@ -16,6 +18,11 @@ public abstract class ArxivRequest {
     protected static final String PATH = "/oai2";
     protected static final String METADATA_PREFIX = "arXivRaw";
 
+    /**
+     * Base URI of the public arXiv OAI repository, which every request is built against.
+     */
+    public static final URI DEFAULT_BASE_URI = URI.create(SCHEME + "://" + HOST + PATH);
+
     protected final Verb verb;
 
     /**
@@ -23,6 +30,31 @@ public abstract class ArxivRequest {
      */
     public abstract URI getUri();
 
+    /**
+     * Harvesters sending the request to another endpoint, such as a mirror of the repository, will use this to
+     * retrieve the URI with the same query against that endpoint's base URI.
+     *
+     * @param baseUri scheme, host, optional port, and path of the endpoint
+     * @throws IllegalArgumentException if baseUri does not create a valid URI
+     */
+    public URI getUri(@NonNull URI baseUri) {
+        URI uri = getUri();
+        if (baseUri.equals(DEFAULT_BASE_URI)) {
+            return uri;
+        }
+
+        try {
+            return new URIBuilder(uri)
+                    .setScheme(baseUri.getScheme())
+                    .setHost(baseUri.getHost())
+                    .setPort(baseUri.getPort())
+                    .setPath(baseUri.getPath())
+                    .build();
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid base URI " + baseUri, e);
+        }
+    }
+
     /**
      * Creates a URIBuilder with all the information for initial request URIs common to all arXiv requests supported by
      * this harvester.  Used in the specific implementations of getUri().
@@ -1,5 +1,7 @@
 package io.github.mikesaelim.arxivoaiharvester.model.request;
 
+import com.google.common.collect.Sets;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleField;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
@@ -7,6 +9,7 @@ import lombok.ToString;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Set;
 
 /**
  * A GetRecord request, used to retrieve a single record from the repository by its identifier.
@@ -25,19 +28,37 @@ public class GetRecordRequest extends ArxivRequest {
      */
     private final String identifier;
 
+    /**
+     * Optional article metadata fields to retrieve.  The fields that are left out are not parsed, and are null in the
+     * result.  If null, all fields are retrieved.
+     */
+    private final Set<ArticleField> fields;
+
     /**
      * The URI for the request to the repository, created from these settings.
      */
     private final URI uri;
 
     /**
-     * Constructs a GetRecordRequest object.
+     * Constructs a GetRecordRequest object that retrieves all fields.
      * @param identifier unique record identifier, with or without the "oai:arXiv.org:" prefix.
      * @throws URISyntaxException if the input did not create a valid URI
      */
     public GetRecordRequest(@NonNull String identifier) throws URISyntaxException {
+        this(identifier, null);
+    }
+
+    /**
+     * Constructs a GetRecordRequest object.
+     * @param identifier unique record identifier, with or without the "oai:arXiv.org:" prefix.
+     * @param fields article metadata fields to retrieve; if null, all fields are retrieved
+     * @throws URISyntaxException if the input did not create a valid URI
+     */
+    public GetRecordRequest(@NonNull String identifier, Set<ArticleField> fields) throws URISyntaxException {
         super(Verb.GET_RECORD);
 
+        this.fields = fields != null ? Sets.immutableEnumSet(fields) : null;
+
         if (identifier.startsWith("oai:arXiv.org:")) {
             this.identifier = identifier;
         } else {
@@ -0,0 +1,33 @@
+package io.github.mikesaelim.arxivoaiharvester.model.request;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * An Identify request, used to retrieve the description of the repository.
+ */
+@Getter
+@ToString(callSuper = true)
+@EqualsAndHashCode(callSuper = true)
+public class IdentifyRequest extends ArxivRequest {
+
+    /**
+     * The URI for the request to the repository.
+     */
+    private final URI uri;
+
+    /**
+     * Constructs an IdentifyRequest object.
+     * @throws URISyntaxException if the input did not create a valid URI
+     */
+    public IdentifyRequest() throws URISyntaxException {
+        super(Verb.IDENTIFY);
+
+        uri = getUriBuilder().build();
+    }
+
+}
@@ -0,0 +1,98 @@
+package io.github.mikesaelim.arxivoaiharvester.model.request;
+
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListIdentifiersResponse;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.apache.http.client.utils.URIBuilder;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.LocalDate;
+
+/**
+ * A ListIdentifiers request, used to retrieve the headers of a range of records between two datestamps, without their
+ * metadata.  This is a cheap way to find out which records have changed.
+ *
+ * Like ListRecords responses, ListIdentifiers responses may be paginated.  {@link ResumeListIdentifiersRequest} is a
+ * ListIdentifiersRequest that continues the original request by sending back the resumption token received from the
+ * last response.
+ */
+@Getter
+@ToString(callSuper = true)
+@EqualsAndHashCode(callSuper = true)
+public class ListIdentifiersRequest extends ArxivRequest {
+
+    /**
+     * Optional lower bound of the datestamp range.  If null, the range is unbounded from below.
+     */
+    private final LocalDate fromDate;
+
+    /**
+     * Optional upper bound of the datestamp range.  If null, the range is unbounded from above.
+     */
+    private final LocalDate untilDate;
+
+    /**
+     * Optional set to restrict the retrieval to.  If null, the retrieval is not restricted to any set.
+     */
+    private final String setSpec;
+
+    /**
+     * The URI for the initial request to the repository, created from these settings.
+     */
+    protected URI uri;
+
+    /**
+     * Constructs a ListIdentifiersRequest object.  All parameters are optional.
+     * @throws IllegalArgumentException if fromDate is after untilDate.
+     * @throws URISyntaxException if the input did not create a valid URI
+     */
+    public ListIdentifiersRequest(LocalDate fromDate, LocalDate untilDate, String setSpec)
+            throws IllegalArgumentException, URISyntaxException {
+        super(Verb.LIST_IDENTIFIERS);
+
+        this.fromDate = fromDate;
+        this.untilDate = untilDate;
+        this.setSpec = setSpec;
+
+        if (fromDate != null && untilDate != null && fromDate.isAfter(untilDate)) {
+            throw new IllegalArgumentException("tried to create ListIdentifiersRequest with invalid datestamp range");
+        }
+
+        uri = constructURI();
+    }
+
+    private URI constructURI() throws URISyntaxException {
+        URIBuilder uriBuilder = getUriBuilder()
+                .setParameter("metadataPrefix", METADATA_PREFIX);
+
+        if (fromDate != null) {
+            uriBuilder.setParameter("from", fromDate.toString());
+        }
+        if (untilDate != null) {
+            uriBuilder.setParameter("until", untilDate.toString());
+        }
+        if (setSpec != null) {
+            uriBuilder.setParameter("set", setSpec);
+        }
+
+        return uriBuilder.build();
+    }
+
+
+
+    /**
+     * Static dummy value that gets returned when a {@link ListIdentifiersResponse} has no resumption.
+     */
+    public static ListIdentifiersRequest NONE = createNone();
+
+    private static ListIdentifiersRequest createNone() {
+        try {
+            return new ListIdentifiersRequest(LocalDate.MAX, LocalDate.MAX, null);
+        } catch (URISyntaxException e) {
+            throw new Error("Error creating ListIdentifiersRequest.NONE");
+        }
+    }
+
+}
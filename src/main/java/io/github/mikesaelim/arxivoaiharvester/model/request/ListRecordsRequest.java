@@ -1,5 +1,7 @@
 package io.github.mikesaelim.arxivoaiharvester.model.request;
 
+import com.google.common.collect.Sets;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleField;
 import io.github.mikesaelim.arxivoaiharvester.model.response.ListRecordsResponse;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -9,6 +11,7 @@ import org.apache.http.client.utils.URIBuilder;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.LocalDate;
+import java.util.Set;
 
 /**
  * A ListRecords request, used to retrieve a range of records between two datestamps.
@@ -36,23 +39,41 @@ public class ListRecordsRequest extends ArxivRequest {
      */
     private final String setSpec;
 
+    /**
+     * Optional article metadata fields to retrieve.  The fields that are left out are not parsed, and are null in the
+     * results.  If null, all fields are retrieved.
+     */
+    private final Set<ArticleField> fields;
+
     /**
      * The URI for the initial request to the repository, created from these settings.
      */
     protected URI uri;
 
     /**
-     * Constructs a ListRecordsRequest object.  All parameters are optional.
+     * Constructs a ListRecordsRequest object that retrieves all fields.  All parameters are optional.
      * @throws IllegalArgumentException if fromDate is after untilDate.
      * @throws URISyntaxException if the input did not create a valid URI
      */
     public ListRecordsRequest(LocalDate fromDate, LocalDate untilDate, String setSpec)
             throws IllegalArgumentException, URISyntaxException {
+        this(fromDate, untilDate, setSpec, null);
+    }
+
+    /**
+     * Constructs a ListRecordsRequest object.  All parameters are optional.
+     * @param fields article metadata fields to retrieve; if null, all fields are retrieved
+     * @throws IllegalArgumentException if fromDate is after untilDate.
+     * @throws URISyntaxException if the input did not create a valid URI
+     */
+    public ListRecordsRequest(LocalDate fromDate, LocalDate untilDate, String setSpec, Set<ArticleField> fields)
+            throws IllegalArgumentException, URISyntaxException {
         super(Verb.LIST_RECORDS);
 
         this.fromDate = fromDate;
         this.untilDate = untilDate;
         this.setSpec = setSpec;
+        this.fields = fields != null ? Sets.immutableEnumSet(fields) : null;
 
         if (fromDate != null && untilDate != null && fromDate.isAfter(untilDate)) {
             throw new IllegalArgumentException("tried to create ListRecordsRequest with invalid datestamp range");
@@ -0,0 +1,53 @@
+package io.github.mikesaelim.arxivoaiharvester.model.request;
+
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListSetsResponse;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * A ListSets request, used to retrieve the set hierarchy of the repository.
+ *
+ * ListSets responses may be paginated, although arXiv's set hierarchy fits on one page.  {@link ResumeListSetsRequest}
+ * is a ListSetsRequest that continues the original request by sending back the resumption token received from the last
+ * response.
+ */
+@Getter
+@ToString(callSuper = true)
+@EqualsAndHashCode(callSuper = true)
+public class ListSetsRequest extends ArxivRequest {
+
+    /**
+     * The URI for the initial request to the repository.
+     */
+    protected URI uri;
+
+    /**
+     * Constructs a ListSetsRequest object.
+     * @throws URISyntaxException if the input did not create a valid URI
+     */
+    public ListSetsRequest() throws URISyntaxException {
+        super(Verb.LIST_SETS);
+
+        uri = getUriBuilder().build();
+    }
+
+
+
+    /**
+     * Static dummy value that gets returned when a {@link ListSetsResponse} has no resumption.
+     */
+    public static ListSetsRequest NONE = createNone();
+
+    private static ListSetsRequest createNone() {
+        try {
+            return new ListSetsRequest();
+        } catch (URISyntaxException e) {
+            throw new Error("Error creating ListSetsRequest.NONE");
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package io.github.mikesaelim.arxivoaiharvester.model.request;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * A request used to resume a paginated ListIdentifiers request.  Clients generally should not need to construct this
+ * directly.
+ *
+ * @see ListIdentifiersRequest
+ */
+@Getter
+@ToString(callSuper = true)
+@EqualsAndHashCode(callSuper = true)
+public class ResumeListIdentifiersRequest extends ListIdentifiersRequest {
+
+    /**
+     * Resumption token returned by the last ListIdentifiers response.
+     */
+    private final String resumptionToken;
+
+    /**
+     * The original request sent to the arXiv OAI repository.
+     */
+    private final ListIdentifiersRequest originalRequest;
+
+    /**
+     * Constructs a ResumeListIdentifiersRequest object.
+     * @throws NullPointerException if resumptionToken or originalRequest is null
+     * @throws URISyntaxException if the input did not create a valid URI
+     */
+    public ResumeListIdentifiersRequest(@NonNull String resumptionToken, @NonNull ListIdentifiersRequest originalRequest)
+            throws URISyntaxException {
+        super(null, null, null);
+
+        this.resumptionToken = resumptionToken;
+        this.originalRequest = originalRequest;
+
+        uri = constructResumptionURI();
+    }
+
+    private URI constructResumptionURI() throws URISyntaxException {
+        return getUriBuilder()
+                .setParameter("resumptionToken", resumptionToken)
+                .build();
+    }
+
+}
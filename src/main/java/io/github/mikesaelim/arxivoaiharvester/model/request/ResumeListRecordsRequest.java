@@ -30,13 +30,13 @@ public class ResumeListRecordsRequest extends ListRecordsRequest {
     private final ListRecordsRequest originalRequest;
 
     /**
-     * Constructs a ResumeListRecordsRequest object.
+     * Constructs a ResumeListRecordsRequest object.  It retrieves the same fields as the original request.
      * @throws NullPointerException if resumptionToken or originalRequest is null
      * @throws URISyntaxException if the input did not create a valid URI
      */
     public ResumeListRecordsRequest(@NonNull String resumptionToken, @NonNull ListRecordsRequest originalRequest)
             throws URISyntaxException {
-        super(null, null, null);
+        super(null, null, null, originalRequest != null ? originalRequest.getFields() : null);
 
         this.resumptionToken = resumptionToken;
         this.originalRequest = originalRequest;
@@ -0,0 +1,46 @@
+package io.github.mikesaelim.arxivoaiharvester.model.request;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+import java.net.URISyntaxException;
+
+/**
+ * A request used to resume a paginated ListSets request.  Clients generally should not need to construct this
+ * directly.
+ *
+ * @see ListSetsRequest
+ */
+@Getter
+@ToString(callSuper = true)
+@EqualsAndHashCode(callSuper = true)
+public class ResumeListSetsRequest extends ListSetsRequest {
+
+    /**
+     * Resumption token returned by the last ListSets response.
+     */
+    private final String resumptionToken;
+
+    /**
+     * The original request sent to the arXiv OAI repository.
+     */
+    private final ListSetsRequest originalRequest;
+
+    /**
+     * Constructs a ResumeListSetsRequest object.
+     * @throws NullPointerException if resumptionToken or originalRequest is null
+     * @throws URISyntaxException if the input did not create a valid URI
+     */
+    public ResumeListSetsRequest(@NonNull String resumptionToken, @NonNull ListSetsRequest originalRequest)
+            throws URISyntaxException {
+        this.resumptionToken = resumptionToken;
+        this.originalRequest = originalRequest;
+
+        uri = getUriBuilder()
+                .setParameter("resumptionToken", resumptionToken)
+                .build();
+    }
+
+}
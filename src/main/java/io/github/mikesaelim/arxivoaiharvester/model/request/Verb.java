@@ -5,7 +5,10 @@ package io.github.mikesaelim.arxivoaiharvester.model.request;
  */
 public enum Verb {
     GET_RECORD("GetRecord"),
-    LIST_RECORDS("ListRecords");
+    LIST_RECORDS("ListRecords"),
+    LIST_IDENTIFIERS("ListIdentifiers"),
+    IDENTIFY("Identify"),
+    LIST_SETS("ListSets");
 
     private final String uriFormat;
 
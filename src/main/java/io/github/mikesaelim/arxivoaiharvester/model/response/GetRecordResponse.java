@@ -26,4 +26,9 @@ public class GetRecordResponse implements ArxivResponse {
      */
     private ArticleMetadata record;
 
+    /**
+     * Byte counts for the body of the response.
+     */
+    private TransferStatistics transferStatistics;
+
 }
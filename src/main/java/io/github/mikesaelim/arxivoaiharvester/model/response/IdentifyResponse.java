@@ -0,0 +1,34 @@
+package io.github.mikesaelim.arxivoaiharvester.model.response;
+
+import io.github.mikesaelim.arxivoaiharvester.model.data.RepositoryDescription;
+import io.github.mikesaelim.arxivoaiharvester.model.request.IdentifyRequest;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.ZonedDateTime;
+
+@Value
+@Builder
+public class IdentifyResponse implements ArxivResponse {
+
+    /**
+     * Response datetime.
+     */
+    private ZonedDateTime responseDate;
+
+    /**
+     * The original request sent to the arXiv OAI repository.
+     */
+    private IdentifyRequest request;
+
+    /**
+     * Description of the repository.
+     */
+    private RepositoryDescription description;
+
+    /**
+     * Byte counts for the body of the response.
+     */
+    private TransferStatistics transferStatistics;
+
+}
@@ -0,0 +1,81 @@
+package io.github.mikesaelim.arxivoaiharvester.model.response;
+
+import com.google.common.collect.ImmutableList;
+import io.github.mikesaelim.arxivoaiharvester.exception.BadResumptionTokenException;
+import io.github.mikesaelim.arxivoaiharvester.model.data.RecordHeader;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListIdentifiersRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListIdentifiersRequest;
+import lombok.Builder;
+import lombok.Value;
+
+import java.math.BigInteger;
+import java.net.URISyntaxException;
+import java.time.ZonedDateTime;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+@Value
+@Builder
+public class ListIdentifiersResponse implements ArxivResponse {
+
+    /**
+     * Response datetime.
+     */
+    private ZonedDateTime responseDate;
+
+    /**
+     * The original request sent to the arXiv OAI repository.
+     */
+    private ListIdentifiersRequest request;
+
+    /**
+     * Immutable list of record headers returned by the repository.  It will be empty if no records were found.
+     */
+    private ImmutableList<RecordHeader> headers;
+
+    /**
+     * Resumption token, if there are more pages left in the response.  If there are no more pages left, this will be
+     * null.
+     */
+    private String resumptionToken;
+
+    /**
+     * Position information, if there are more pages left in the response.  If there are no more pages left, this will
+     * be null.
+     */
+    private BigInteger cursor;
+    private BigInteger completeListSize;
+
+    /**
+     * Time at which the resumption token expires, in UTC, if the repository gave one.  Otherwise, this will be null.
+     */
+    private ZonedDateTime expirationDate;
+
+    /**
+     * Byte counts for the body of the response.
+     */
+    private TransferStatistics transferStatistics;
+
+    /**
+     * @return whether or not there are more pages left in the response
+     */
+    public boolean hasResumption() {
+        return !isBlank(resumptionToken);
+    }
+
+    /**
+     * Create a {@link ListIdentifiersRequest} that resumes this request if there are more pages left in the response.
+     * If there are no more pages left, this will return {@link ListIdentifiersRequest#NONE}.
+     */
+    public ListIdentifiersRequest resumption() {
+        if (isBlank(resumptionToken)) {
+            return ListIdentifiersRequest.NONE;
+        }
+
+        try {
+            return new ResumeListIdentifiersRequest(resumptionToken, request);
+        } catch (URISyntaxException e) {
+            throw new BadResumptionTokenException(e);
+        }
+    }
+}
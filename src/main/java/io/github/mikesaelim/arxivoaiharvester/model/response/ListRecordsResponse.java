@@ -29,7 +29,8 @@ public class ListRecordsResponse implements ArxivResponse {
     private ListRecordsRequest request;
 
     /**
-     * Immutable list of records returned by the repository.  It will be empty if no records were found.
+     * Immutable list of records returned by the repository.  It will be empty if no records were found, or if the
+     * records were handed to a callback as they were parsed.
      */
     private ImmutableList<ArticleMetadata> records;
 
@@ -46,6 +47,16 @@ public class ListRecordsResponse implements ArxivResponse {
     private BigInteger cursor;
     private BigInteger completeListSize;
 
+    /**
+     * Time at which the resumption token expires, in UTC, if the repository gave one.  Otherwise, this will be null.
+     */
+    private ZonedDateTime expirationDate;
+
+    /**
+     * Byte counts for the body of the response.
+     */
+    private TransferStatistics transferStatistics;
+
     /**
      * @return whether or not there are more pages left in the response
      */
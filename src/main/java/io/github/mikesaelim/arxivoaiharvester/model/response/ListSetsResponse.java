@@ -0,0 +1,81 @@
+package io.github.mikesaelim.arxivoaiharvester.model.response;
+
+import com.google.common.collect.ImmutableList;
+import io.github.mikesaelim.arxivoaiharvester.exception.BadResumptionTokenException;
+import io.github.mikesaelim.arxivoaiharvester.model.data.SetDescription;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListSetsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListSetsRequest;
+import lombok.Builder;
+import lombok.Value;
+
+import java.math.BigInteger;
+import java.net.URISyntaxException;
+import java.time.ZonedDateTime;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+@Value
+@Builder
+public class ListSetsResponse implements ArxivResponse {
+
+    /**
+     * Response datetime.
+     */
+    private ZonedDateTime responseDate;
+
+    /**
+     * The original request sent to the arXiv OAI repository.
+     */
+    private ListSetsRequest request;
+
+    /**
+     * Immutable list of sets returned by the repository.
+     */
+    private ImmutableList<SetDescription> sets;
+
+    /**
+     * Resumption token, if there are more pages left in the response.  If there are no more pages left, this will be
+     * null.
+     */
+    private String resumptionToken;
+
+    /**
+     * Position information, if there are more pages left in the response.  If there are no more pages left, this will
+     * be null.
+     */
+    private BigInteger cursor;
+    private BigInteger completeListSize;
+
+    /**
+     * Time at which the resumption token expires, in UTC, if the repository gave one.  Otherwise, this will be null.
+     */
+    private ZonedDateTime expirationDate;
+
+    /**
+     * Byte counts for the body of the response.
+     */
+    private TransferStatistics transferStatistics;
+
+    /**
+     * @return whether or not there are more pages left in the response
+     */
+    public boolean hasResumption() {
+        return !isBlank(resumptionToken);
+    }
+
+    /**
+     * Create a {@link ListSetsRequest} that resumes this request if there are more pages left in the response.  If
+     * there are no more pages left, this will return {@link ListSetsRequest#NONE}.
+     */
+    public ListSetsRequest resumption() {
+        if (isBlank(resumptionToken)) {
+            return ListSetsRequest.NONE;
+        }
+
+        try {
+            return new ResumeListSetsRequest(resumptionToken, request);
+        } catch (URISyntaxException e) {
+            throw new BadResumptionTokenException(e);
+        }
+    }
+}
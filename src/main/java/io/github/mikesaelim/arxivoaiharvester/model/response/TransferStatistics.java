@@ -0,0 +1,40 @@
+package io.github.mikesaelim.arxivoaiharvester.model.response;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Byte counts for the body of a single response from the repository.  If the response was not compressed, the two
+ * counts are the same.  Immutable.
+ *
+ * The counts cover the part of the body that was actually read, which is normally all of it.  If the HTTP client
+ * decompresses responses itself, which clients built with {@code HttpClients.createDefault()} do, the harvester only
+ * ever sees the uncompressed body; build the client with {@code disableContentCompression()} to get meaningful counts.
+ */
+@Value
+@Builder
+public class TransferStatistics {
+
+    /**
+     * Content encoding of the response, such as "gzip" or "deflate", or null if it was not encoded.
+     */
+    private String contentEncoding;
+
+    /**
+     * Number of bytes of the body as transferred over the network.
+     */
+    private long compressedBytes;
+
+    /**
+     * Number of bytes of the body after decompression.
+     */
+    private long uncompressedBytes;
+
+    /**
+     * @return the ratio of uncompressed to compressed bytes, or 1 if nothing was transferred
+     */
+    public double getCompressionRatio() {
+        return compressedBytes > 0 ? (double) uncompressedBytes / compressedBytes : 1.0;
+    }
+
+}
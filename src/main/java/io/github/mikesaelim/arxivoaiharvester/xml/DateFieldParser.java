@@ -0,0 +1,197 @@
+package io.github.mikesaelim.arxivoaiharvester.xml;
+
+import io.github.mikesaelim.arxivoaiharvester.exception.ParseException;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Parsers for the dates in the records: the datestamps in the headers, which arXiv writes as "2013-02-08", and the
+ * submission times of the versions, which arXiv writes in RFC 1123 format as "Fri, 8 Feb 2013 21:00:01 GMT".
+ *
+ * Values in exactly these forms are parsed by hand, without going through a {@link DateTimeFormatter}.  Anything else
+ * falls back to the formatter, so the values that are accepted, the results, and the {@link ParseException}s thrown
+ * for malformed values are the same as with the formatter alone.
+ *
+ * A page of records usually covers only a handful of distinct days, so the parser also keeps a small cache of the
+ * datestamps it has seen recently.  It is thread-safe.
+ */
+class DateFieldParser {
+
+    private static final int DATESTAMP_CACHE_SIZE = 32;
+
+    private static final String[] MONTHS =
+            {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+    private static final String[] DAYS_OF_WEEK = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+
+    private final AtomicReferenceArray<CachedDatestamp> datestampCache =
+            new AtomicReferenceArray<>(DATESTAMP_CACHE_SIZE);
+
+    /**
+     * Parse the datestamp of a record.
+     * @throws ParseException if there is a parsing error
+     */
+    LocalDate parseDatestamp(String value) {
+        if (value == null) {
+            return parseDatestampWithFormatter(null);
+        }
+
+        int slot = value.hashCode() & (DATESTAMP_CACHE_SIZE - 1);
+        CachedDatestamp cached = datestampCache.get(slot);
+        if (cached != null && cached.value.equals(value)) {
+            return cached.datestamp;
+        }
+
+        LocalDate datestamp = parseIsoLocalDate(value);
+        if (datestamp == null) {
+            datestamp = parseDatestampWithFormatter(value);
+        }
+
+        datestampCache.set(slot, new CachedDatestamp(value, datestamp));
+        return datestamp;
+    }
+
+    /**
+     * Parse the date of an article version.
+     * @throws ParseException if there is a parsing error
+     */
+    ZonedDateTime parseSubmissionTime(String value) {
+        ZonedDateTime submissionTime = parseRfc1123(value);
+        if (submissionTime != null) {
+            return submissionTime;
+        }
+
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+        } catch (DateTimeParseException e) {
+            throw new ParseException("Could not parse version date '" + value + "' in RFC_1123_DATE_TIME format", e);
+        }
+    }
+
+    private static LocalDate parseDatestampWithFormatter(String value) {
+        try {
+            return LocalDate.parse(value);
+        } catch(DateTimeParseException e) {
+            throw new ParseException("Could not parse datestamp '" + value + "' in ISO_LOCAL_DATE format");
+        }
+    }
+
+    /**
+     * @return the date, if value is a valid date of the form "2013-02-08"; otherwise null
+     */
+    private static LocalDate parseIsoLocalDate(String value) {
+        if (value.length() != 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+            return null;
+        }
+
+        int year = parseDigits(value, 0, 4);
+        int month = parseDigits(value, 5, 7);
+        int day = parseDigits(value, 8, 10);
+        if (year < 0 || month < 0 || day < 0) {
+            return null;
+        }
+
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the time, in UTC, if value is a valid time of the form "Fri, 8 Feb 2013 21:00:01 GMT"; otherwise null
+     */
+    private static ZonedDateTime parseRfc1123(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        // "Fri, " and then a day of one or two digits
+        int length = value.length();
+        if (length < 28 || value.charAt(3) != ',' || value.charAt(4) != ' ') {
+            return null;
+        }
+        int dayEnd = value.charAt(6) == ' ' ? 6 : 7;
+        if (length != dayEnd + 22) {
+            return null;
+        }
+
+        // " Feb 2013 21:00:01 GMT"
+        int i = dayEnd;
+        if (value.charAt(i) != ' ' || value.charAt(i + 4) != ' ' || value.charAt(i + 9) != ' ' ||
+                value.charAt(i + 12) != ':' || value.charAt(i + 15) != ':' || value.charAt(i + 18) != ' ' ||
+                !value.regionMatches(i + 19, "GMT", 0, 3)) {
+            return null;
+        }
+
+        int day = parseDigits(value, 5, dayEnd);
+        int month = indexOf(MONTHS, value, i + 1) + 1;
+        int year = parseDigits(value, i + 5, i + 9);
+        int hour = parseDigits(value, i + 10, i + 12);
+        int minute = parseDigits(value, i + 13, i + 15);
+        int second = parseDigits(value, i + 16, i + 18);
+        if (day < 0 || month < 1 || year < 0 || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 ||
+                second > 59) {
+            return null;
+        }
+
+        LocalDate date;
+        try {
+            date = LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            return null;
+        }
+        if (indexOf(DAYS_OF_WEEK, value, 0) != date.getDayOfWeek().ordinal()) {
+            return null;
+        }
+
+        return ZonedDateTime.of(date.getYear(), date.getMonthValue(), date.getDayOfMonth(), hour, minute, second, 0,
+                ZoneOffset.UTC);
+    }
+
+    /**
+     * @return the non-negative number formed by the characters of value from start (inclusive) to end (exclusive), or
+     *         -1 if any of them is not an ASCII digit
+     */
+    private static int parseDigits(String value, int start, int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the index of the three-letter name in names that appears in value at offset, or -1 if there is none
+     */
+    private static int indexOf(String[] names, String value, int offset) {
+        for (int i = 0; i < names.length; i++) {
+            if (value.regionMatches(offset, names[i], 0, 3)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static class CachedDatestamp {
+        private final String value;
+        private final LocalDate datestamp;
+
+        private CachedDatestamp(String value, LocalDate datestamp) {
+            this.value = value;
+            this.datestamp = datestamp;
+        }
+    }
+
+}
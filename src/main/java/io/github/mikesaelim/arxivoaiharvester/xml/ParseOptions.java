@@ -0,0 +1,38 @@
+package io.github.mikesaelim.arxivoaiharvester.xml;
+
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleField;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.Set;
+
+/**
+ * Per-response information that the harvester passes along to the {@link XMLParser}.  Immutable.
+ */
+@Value
+@Builder
+public class ParseOptions {
+
+    /**
+     * Options for a response to an initial request, with nothing else specified.
+     */
+    public static final ParseOptions DEFAULT = ParseOptions.builder().build();
+
+    /**
+     * True if the response being parsed is to a resumption request, rather than to the first request of a harvest.
+     */
+    private boolean resumption;
+
+    /**
+     * Article metadata fields to parse.  The others are skipped, and left null.  If null, all fields are parsed.
+     */
+    private Set<ArticleField> fields;
+
+    /**
+     * @return true if the given article metadata field should be parsed
+     */
+    public boolean includes(ArticleField field) {
+        return fields == null || fields.contains(field);
+    }
+
+}
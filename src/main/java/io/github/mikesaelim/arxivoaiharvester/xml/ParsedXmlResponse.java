@@ -1,6 +1,9 @@
 package io.github.mikesaelim.arxivoaiharvester.xml;
 
 import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata;
+import io.github.mikesaelim.arxivoaiharvester.model.data.RecordHeader;
+import io.github.mikesaelim.arxivoaiharvester.model.data.RepositoryDescription;
+import io.github.mikesaelim.arxivoaiharvester.model.data.SetDescription;
 import lombok.Builder;
 import lombok.Value;
 
@@ -18,15 +21,33 @@ public class ParsedXmlResponse {
     private ZonedDateTime responseDate;
 
     /**
-     * List of records returned by the repository.  It may be empty.
+     * List of records returned by the repository.  It may be empty, and is always empty if the records were handed to
+     * a callback during parsing.
      */
     private List<ArticleMetadata> records;
 
+    /**
+     * List of record headers returned by the repository for a ListIdentifiers request.  It is null for any other kind
+     * of response.
+     */
+    private List<RecordHeader> headers;
+
+    /**
+     * Description of the repository returned for an Identify request.  It is null for any other kind of response.
+     */
+    private RepositoryDescription repositoryDescription;
+
+    /**
+     * List of sets returned by the repository for a ListSets request.  It is null for any other kind of response.
+     */
+    private List<SetDescription> sets;
+
     /**
      * Resumption token information.
      */
     private String resumptionToken;
     private BigInteger cursor;
     private BigInteger completeListSize;
+    private ZonedDateTime expirationDate;
 
 }
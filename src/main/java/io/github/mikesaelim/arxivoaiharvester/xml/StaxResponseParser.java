@@ -0,0 +1,565 @@
+package io.github.mikesaelim.arxivoaiharvester.xml;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import io.github.mikesaelim.arxivoaiharvester.exception.*;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleField;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleVersion;
+import io.github.mikesaelim.arxivoaiharvester.model.data.RecordHeader;
+import io.github.mikesaelim.arxivoaiharvester.model.data.RepositoryDescription;
+import io.github.mikesaelim.arxivoaiharvester.model.data.SetDescription;
+import org.openarchives.oai._2.OAIPMHerrorType;
+import org.openarchives.oai._2.OAIPMHerrorcodeType;
+import org.openarchives.oai._2.StatusType;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.time.ZonedDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static io.github.mikesaelim.arxivoaiharvester.xml.WhitespaceNormalizer.normalizeSpace;
+
+/**
+ * Streaming counterpart to the JAXB path in {@link XMLParser}.  Instead of unmarshalling the whole OAI-PMH document
+ * into a tree of autogenerated data objects, it walks the document with a StAX reader and builds each
+ * {@link ArticleMetadata} directly from the XML events, one record at a time.
+ *
+ * The results, and the exceptions thrown for repository errors, are the same as those of the JAXB path.  The document
+ * is not validated against the XML schemas, though: unexpected elements are skipped, and a missing or misplaced
+ * required element results in a {@link ParseException}.
+ *
+ * This class is stateless once constructed, and shares the field-level parsing methods of the {@link XMLParser} that
+ * owns it.
+ */
+class StaxResponseParser {
+
+    private static final String OAI_NAMESPACE = "http://www.openarchives.org/OAI/2.0/";
+    private static final String ARXIV_RAW_NAMESPACE = "http://arxiv.org/OAI/arXivRaw/";
+
+    /**
+     * The article metadata field that each element of the arXivRaw metadata is parsed into.
+     */
+    private static final Map<String, ArticleField> ARXIV_RAW_FIELDS = ImmutableMap.<String, ArticleField>builder()
+            .put("id", ArticleField.ID)
+            .put("submitter", ArticleField.SUBMITTER)
+            .put("version", ArticleField.VERSIONS)
+            .put("title", ArticleField.TITLE)
+            .put("authors", ArticleField.AUTHORS)
+            .put("categories", ArticleField.CATEGORIES)
+            .put("comments", ArticleField.COMMENTS)
+            .put("proxy", ArticleField.PROXY)
+            .put("report-no", ArticleField.REPORT_NO)
+            .put("acm-class", ArticleField.ACM_CLASS)
+            .put("msc-class", ArticleField.MSC_CLASS)
+            .put("journal-ref", ArticleField.JOURNAL_REF)
+            .put("doi", ArticleField.DOI)
+            .put("license", ArticleField.LICENSE)
+            .put("abstract", ArticleField.ABSTRACT)
+            .build();
+
+    private final XMLParser fieldParser;
+    private final XMLInputFactory xmlInputFactory;
+    private final DatatypeFactory datatypeFactory;
+
+    /**
+     * @throws HarvesterError if the StAX or datatype factories cannot be created
+     */
+    StaxResponseParser(XMLParser fieldParser) {
+        this.fieldParser = fieldParser;
+
+        xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        try {
+            datatypeFactory = DatatypeFactory.newInstance();
+        } catch (DatatypeConfigurationException e) {
+            throw new HarvesterError("Error creating datatype factory", e);
+        }
+    }
+
+    /**
+     * Parse the XML response from the arXiv OAI repository, handing each record to recordHandler as soon as it has been
+     * read.  Article metadata fields not included in options are skipped.  See
+     * {@link XMLParser#parse(InputStream, ParseOptions, Consumer)}.
+     */
+    ParsedXmlResponse parse(InputStream xmlResponse, ParseOptions options, Consumer<ArticleMetadata> recordHandler) {
+        XMLStreamReader reader = null;
+        try {
+            reader = xmlInputFactory.createXMLStreamReader(xmlResponse);
+            return parseDocument(reader, options, recordHandler);
+        } catch (XMLStreamException e) {
+            throw new ParseException("Error reading XML response from repository", e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // Nothing useful to do here; the underlying stream is owned by the caller
+                }
+            }
+        }
+    }
+
+    private ParsedXmlResponse parseDocument(XMLStreamReader reader, ParseOptions options,
+                                            Consumer<ArticleMetadata> recordHandler) throws XMLStreamException {
+        reader.nextTag();
+        requireElement(reader, OAI_NAMESPACE, "OAI-PMH");
+
+        reader.nextTag();
+        requireElement(reader, OAI_NAMESPACE, "responseDate");
+        ZonedDateTime responseDate = parseResponseDate(reader.getElementText());
+
+        reader.nextTag();
+        requireElement(reader, OAI_NAMESPACE, "request");
+        String verb = reader.getAttributeValue(null, "verb");
+        skipElement(reader);
+
+        // Per the OAI-PMH schema, the request is followed by either a list of errors or exactly one verb element
+        List<OAIPMHerrorType> errors = Lists.newArrayList();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT && isElement(reader, OAI_NAMESPACE, "error")) {
+            OAIPMHerrorType error = new OAIPMHerrorType();
+            error.setCode(parseEnumValue(reader.getAttributeValue(null, "code"), OAIPMHerrorcodeType::fromValue));
+            error.setValue(reader.getElementText());
+            errors.add(error);
+        }
+        if (!errors.isEmpty()) {
+            return fieldParser.handleErrors(errors, responseDate, verb);
+        }
+
+        if (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
+            if (isElement(reader, OAI_NAMESPACE, "GetRecord")) {
+                reader.nextTag();
+                requireElement(reader, OAI_NAMESPACE, "record");
+                recordHandler.accept(parseRecord(reader, responseDate, options));
+
+                return ParsedXmlResponse.builder()
+                        .responseDate(responseDate)
+                        .records(Lists.newArrayList())
+                        .build();
+            }
+
+            if (isElement(reader, OAI_NAMESPACE, "ListRecords")) {
+                return parseListRecords(reader, responseDate, options, recordHandler);
+            }
+
+            if (isElement(reader, OAI_NAMESPACE, "ListIdentifiers")) {
+                return parseListIdentifiers(reader, responseDate);
+            }
+
+            if (isElement(reader, OAI_NAMESPACE, "Identify")) {
+                return ParsedXmlResponse.builder()
+                        .responseDate(responseDate)
+                        .records(Lists.newArrayList())
+                        .repositoryDescription(parseIdentify(reader))
+                        .build();
+            }
+
+            if (isElement(reader, OAI_NAMESPACE, "ListSets")) {
+                return parseListSets(reader, responseDate);
+            }
+        }
+
+        // Handling of other response types is undefined
+        throw new RepositoryError(XMLParser.UNSUPPORTED_RESPONSE_MESSAGE);
+    }
+
+    private ParsedXmlResponse parseListRecords(XMLStreamReader reader, ZonedDateTime responseDate, ParseOptions options,
+                                               Consumer<ArticleMetadata> recordHandler) throws XMLStreamException {
+        ParsedXmlResponse.ParsedXmlResponseBuilder responseBuilder = ParsedXmlResponse.builder()
+                .responseDate(responseDate)
+                .records(Lists.newArrayList());
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (isElement(reader, OAI_NAMESPACE, "record")) {
+                recordHandler.accept(parseRecord(reader, responseDate, options));
+            } else if (isElement(reader, OAI_NAMESPACE, "resumptionToken")) {
+                parseResumptionToken(reader, responseBuilder);
+            } else {
+                skipElement(reader);
+            }
+        }
+
+        return responseBuilder.build();
+    }
+
+    private ParsedXmlResponse parseListIdentifiers(XMLStreamReader reader, ZonedDateTime responseDate)
+            throws XMLStreamException {
+        ParsedXmlResponse.ParsedXmlResponseBuilder responseBuilder = ParsedXmlResponse.builder()
+                .responseDate(responseDate)
+                .records(Lists.newArrayList());
+        List<RecordHeader> headers = Lists.newArrayList();
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (isElement(reader, OAI_NAMESPACE, "header")) {
+                headers.add(parseHeader(reader, responseDate));
+            } else if (isElement(reader, OAI_NAMESPACE, "resumptionToken")) {
+                parseResumptionToken(reader, responseBuilder);
+            } else {
+                skipElement(reader);
+            }
+        }
+
+        return responseBuilder.headers(headers).build();
+    }
+
+    private RepositoryDescription parseIdentify(XMLStreamReader reader) throws XMLStreamException {
+        RepositoryDescription.RepositoryDescriptionBuilder descriptionBuilder = RepositoryDescription.builder();
+        List<String> adminEmails = Lists.newArrayList();
+        List<String> compressions = Lists.newArrayList();
+
+        String earliestDatestamp = null;
+        String deletedRecord = null;
+        String granularity = null;
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "repositoryName":
+                    descriptionBuilder.repositoryName(normalizeSpace(reader.getElementText()));
+                    break;
+                case "baseURL":
+                    descriptionBuilder.baseUrl(normalizeSpace(reader.getElementText()));
+                    break;
+                case "protocolVersion":
+                    descriptionBuilder.protocolVersion(normalizeSpace(reader.getElementText()));
+                    break;
+                case "adminEmail":
+                    adminEmails.add(normalizeSpace(reader.getElementText()));
+                    break;
+                case "earliestDatestamp":
+                    earliestDatestamp = normalizeSpace(reader.getElementText());
+                    break;
+                case "deletedRecord":
+                    deletedRecord = normalizeSpace(reader.getElementText());
+                    break;
+                case "granularity":
+                    granularity = normalizeSpace(reader.getElementText());
+                    break;
+                case "compression":
+                    compressions.add(normalizeSpace(reader.getElementText()));
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+
+        if (earliestDatestamp == null || deletedRecord == null || granularity == null) {
+            throw new ParseException("Identify response from repository is missing a required element");
+        }
+
+        return descriptionBuilder.adminEmails(adminEmails)
+                .earliestDatestamp(fieldParser.parseEarliestDatestamp(earliestDatestamp))
+                .deletedRecord(fieldParser.parseDeletedRecordPolicy(deletedRecord))
+                .granularity(fieldParser.parseGranularity(granularity))
+                .compressions(compressions)
+                .build();
+    }
+
+    private ParsedXmlResponse parseListSets(XMLStreamReader reader, ZonedDateTime responseDate)
+            throws XMLStreamException {
+        ParsedXmlResponse.ParsedXmlResponseBuilder responseBuilder = ParsedXmlResponse.builder()
+                .responseDate(responseDate)
+                .records(Lists.newArrayList());
+        List<SetDescription> sets = Lists.newArrayList();
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (isElement(reader, OAI_NAMESPACE, "set")) {
+                sets.add(parseSet(reader));
+            } else if (isElement(reader, OAI_NAMESPACE, "resumptionToken")) {
+                parseResumptionToken(reader, responseBuilder);
+            } else {
+                skipElement(reader);
+            }
+        }
+
+        return responseBuilder.sets(sets).build();
+    }
+
+    private SetDescription parseSet(XMLStreamReader reader) throws XMLStreamException {
+        String setSpec = null;
+        String setName = null;
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "setSpec":
+                    setSpec = reader.getElementText();
+                    break;
+                case "setName":
+                    setName = reader.getElementText();
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+
+        if (setSpec == null) {
+            throw new ParseException("Set in response from repository is missing its setSpec");
+        }
+
+        return SetDescription.builder()
+                .setSpec(fieldParser.canonicalize(normalizeSpace(setSpec)))
+                .setName(normalizeSpace(setName))
+                .build();
+    }
+
+    private void parseResumptionToken(XMLStreamReader reader, ParsedXmlResponse.ParsedXmlResponseBuilder responseBuilder)
+            throws XMLStreamException {
+        String cursor = reader.getAttributeValue(null, "cursor");
+        String completeListSize = reader.getAttributeValue(null, "completeListSize");
+        String expirationDate = reader.getAttributeValue(null, "expirationDate");
+        responseBuilder.cursor(parseBigInteger(cursor))
+                .completeListSize(parseBigInteger(completeListSize))
+                .expirationDate(parseExpirationDate(expirationDate))
+                .resumptionToken(normalizeSpace(reader.getElementText()));
+    }
+
+    /**
+     * Parse a single record of article metadata.  The reader must be positioned at the start of a "record" element,
+     * and is left at its end.
+     * @throws ParseException if there is a parsing error
+     */
+    private ArticleMetadata parseRecord(XMLStreamReader reader, ZonedDateTime retrievalDateTime, ParseOptions options)
+            throws XMLStreamException {
+        ArticleMetadata.ArticleMetadataBuilder articleBuilder = ArticleMetadata.builder();
+        articleBuilder.retrievalDateTime(retrievalDateTime);
+
+        reader.nextTag();
+        requireElement(reader, OAI_NAMESPACE, "header");
+        XMLParser.copyHeader(parseHeader(reader, retrievalDateTime), articleBuilder);
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (isElement(reader, OAI_NAMESPACE, "metadata")) {
+                reader.nextTag();
+                requireElement(reader, ARXIV_RAW_NAMESPACE, "arXivRaw");
+                parseArXivRaw(reader, articleBuilder, options);
+                reader.nextTag();
+            } else {
+                skipElement(reader);
+            }
+        }
+
+        return articleBuilder.build();
+    }
+
+    /**
+     * Parse the header of a record.  The reader must be positioned at the start of a "header" element, and is left at
+     * its end.
+     * @throws ParseException if there is a parsing error
+     */
+    private RecordHeader parseHeader(XMLStreamReader reader, ZonedDateTime retrievalDateTime)
+            throws XMLStreamException {
+        String status = reader.getAttributeValue(null, "status");
+        boolean deleted = status != null && parseEnumValue(status.trim(), StatusType::fromValue) == StatusType.DELETED;
+
+        String identifier = null;
+        String datestamp = null;
+        Set<String> sets = new HashSet<>();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "identifier":
+                    identifier = reader.getElementText();
+                    break;
+                case "datestamp":
+                    datestamp = reader.getElementText();
+                    break;
+                case "setSpec":
+                    sets.add(fieldParser.canonicalize(normalizeSpace(reader.getElementText())));
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+
+        if (identifier == null || datestamp == null) {
+            throw new ParseException("Record header is missing its identifier or datestamp");
+        }
+
+        return RecordHeader.builder()
+                .retrievalDateTime(retrievalDateTime)
+                .identifier(normalizeSpace(identifier))
+                .datestamp(fieldParser.parseDatestamp(normalizeSpace(datestamp)))
+                .sets(sets)
+                .deleted(deleted)
+                .build();
+    }
+
+    private void parseArXivRaw(XMLStreamReader reader, ArticleMetadata.ArticleMetadataBuilder articleBuilder,
+                               ParseOptions options) throws XMLStreamException {
+        String categories = null;
+        Set<ArticleVersion> versions = new HashSet<>();
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            ArticleField field = ARXIV_RAW_FIELDS.get(reader.getLocalName());
+            if (field == null || !options.includes(field)) {
+                skipElement(reader);
+                continue;
+            }
+
+            switch (reader.getLocalName()) {
+                case "id":
+                    articleBuilder.id(normalizeSpace(reader.getElementText()));
+                    break;
+                case "submitter":
+                    articleBuilder.submitter(normalizeSpace(reader.getElementText()));
+                    break;
+                case "version":
+                    versions.add(parseVersion(reader));
+                    break;
+                case "title":
+                    articleBuilder.title(normalizeSpace(reader.getElementText()));
+                    break;
+                case "authors":
+                    articleBuilder.authors(fieldParser.largeText(reader.getElementText()));
+                    break;
+                case "categories":
+                    categories = normalizeSpace(reader.getElementText());
+                    break;
+                case "comments":
+                    articleBuilder.comments(fieldParser.largeText(reader.getElementText()));
+                    break;
+                case "proxy":
+                    articleBuilder.proxy(fieldParser.canonicalize(normalizeSpace(reader.getElementText())));
+                    break;
+                case "report-no":
+                    articleBuilder.reportNo(normalizeSpace(reader.getElementText()));
+                    break;
+                case "acm-class":
+                    articleBuilder.acmClass(fieldParser.canonicalize(normalizeSpace(reader.getElementText())));
+                    break;
+                case "msc-class":
+                    articleBuilder.mscClass(fieldParser.canonicalize(normalizeSpace(reader.getElementText())));
+                    break;
+                case "journal-ref":
+                    articleBuilder.journalRef(normalizeSpace(reader.getElementText()));
+                    break;
+                case "doi":
+                    articleBuilder.doi(normalizeSpace(reader.getElementText()));
+                    break;
+                case "license":
+                    articleBuilder.license(fieldParser.canonicalize(normalizeSpace(reader.getElementText())));
+                    break;
+                case "abstract":
+                    articleBuilder.articleAbstract(fieldParser.largeText(reader.getElementText()));
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+
+        if (options.includes(ArticleField.VERSIONS)) {
+            articleBuilder.versions(versions);
+        }
+        if (options.includes(ArticleField.CATEGORIES)) {
+            articleBuilder.categories(fieldParser.parseCategories(categories));
+        }
+        articleBuilder.textNormalizer(fieldParser.textNormalizer());
+    }
+
+    private ArticleVersion parseVersion(XMLStreamReader reader) throws XMLStreamException {
+        ArticleVersion.ArticleVersionBuilder versionBuilder = ArticleVersion.builder()
+                .versionNumber(fieldParser.parseVersionNumber(normalizeSpace(reader.getAttributeValue(null, "version"))));
+
+        String date = null;
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "date":
+                    date = reader.getElementText();
+                    break;
+                case "size":
+                    versionBuilder.size(normalizeSpace(reader.getElementText()));
+                    break;
+                case "source_type":
+                    versionBuilder.sourceType(fieldParser.canonicalize(normalizeSpace(reader.getElementText())));
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+
+        return versionBuilder.submissionTime(fieldParser.parseSubmissionTime(normalizeSpace(date))).build();
+    }
+
+
+
+    private ZonedDateTime parseResponseDate(String value) {
+        try {
+            return fieldParser.parseResponseDate(datatypeFactory.newXMLGregorianCalendar(value.trim()));
+        } catch (IllegalArgumentException e) {
+            throw new ParseException("Could not parse response date '" + value + "'", e);
+        }
+    }
+
+    private ZonedDateTime parseExpirationDate(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            return fieldParser.parseResponseDate(datatypeFactory.newXMLGregorianCalendar(value.trim()));
+        } catch (IllegalArgumentException e) {
+            throw new ParseException("Could not parse resumption token expiration date '" + value + "'", e);
+        }
+    }
+
+    private static BigInteger parseBigInteger(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            return new BigInteger(value.trim());
+        } catch (NumberFormatException e) {
+            throw new ParseException("Could not parse integer attribute '" + value + "'", e);
+        }
+    }
+
+    private static <T> T parseEnumValue(String value, Function<String, T> fromValue) {
+        try {
+            return fromValue.apply(value);
+        } catch (IllegalArgumentException e) {
+            throw new ParseException("Unexpected enumeration value '" + value + "'", e);
+        }
+    }
+
+    private static boolean isElement(XMLStreamReader reader, String namespace, String localName) {
+        return namespace.equals(reader.getNamespaceURI()) && localName.equals(reader.getLocalName());
+    }
+
+    /**
+     * @throws ParseException if the reader is not positioned at the start of the expected element
+     */
+    private static void requireElement(XMLStreamReader reader, String namespace, String localName) {
+        if (reader.getEventType() != XMLStreamConstants.START_ELEMENT || !isElement(reader, namespace, localName)) {
+            throw new ParseException("Expected element '" + localName + "' at " + reader.getLocation());
+        }
+    }
+
+    /**
+     * Skip past the element the reader is positioned at, including all of its children.  The reader is left at the end
+     * of the element.
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package io.github.mikesaelim.arxivoaiharvester.xml;
+
+import com.google.common.base.Functions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * A bounded, thread-safe pool of canonical string instances, used to deduplicate field values that come from a small
+ * vocabulary, such as categories and licenses, so that the records parsed from a long harvest share one copy of each
+ * value instead of holding their own.  Unlike {@link String#intern()}, the pool is private to its owner, and once it
+ * is full the least recently used values are evicted.
+ */
+class StringPool {
+
+    private final LoadingCache<String, String> canonicalInstances;
+
+    /**
+     * @throws IllegalArgumentException if maximumSize is negative
+     */
+    StringPool(long maximumSize) {
+        canonicalInstances = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build(CacheLoader.from(Functions.<String>identity()));
+    }
+
+    /**
+     * @return the canonical instance equal to value, which is value itself if there wasn't one yet; null if value is
+     *         null
+     */
+    String canonicalize(String value) {
+        return value != null ? canonicalInstances.getUnchecked(value) : null;
+    }
+
+    CacheStats stats() {
+        return canonicalInstances.stats();
+    }
+
+    long size() {
+        return canonicalInstances.size();
+    }
+
+}
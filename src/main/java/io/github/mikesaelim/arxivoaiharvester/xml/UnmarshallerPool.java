@@ -0,0 +1,53 @@
+package io.github.mikesaelim.arxivoaiharvester.xml;
+
+import io.github.mikesaelim.arxivoaiharvester.exception.HarvesterError;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A bounded pool of JAXB unmarshallers, which are not thread-safe.  A thread borrows an unmarshaller for the duration
+ * of one parse and then returns it.  Borrowing never blocks: if the pool is empty, a new unmarshaller is created.  At
+ * most capacity idle unmarshallers are kept, and any returned beyond that are discarded.
+ */
+class UnmarshallerPool {
+
+    private final JAXBContext jaxbContext;
+    private final BlockingQueue<Unmarshaller> idleUnmarshallers;
+
+    /**
+     * @throws IllegalArgumentException if capacity is less than 1
+     */
+    UnmarshallerPool(JAXBContext jaxbContext, int capacity) {
+        this.jaxbContext = jaxbContext;
+        this.idleUnmarshallers = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * @throws HarvesterError if a new unmarshaller is needed and cannot be created
+     */
+    Unmarshaller borrow() {
+        Unmarshaller unmarshaller = idleUnmarshallers.poll();
+        if (unmarshaller != null) {
+            return unmarshaller;
+        }
+
+        try {
+            return jaxbContext.createUnmarshaller();
+        } catch (JAXBException e) {
+            throw new HarvesterError("Error creating JAXB unmarshaller", e);
+        }
+    }
+
+    void giveBack(Unmarshaller unmarshaller) {
+        idleUnmarshallers.offer(unmarshaller);
+    }
+
+    int idleCount() {
+        return idleUnmarshallers.size();
+    }
+
+}
@@ -0,0 +1,56 @@
+package io.github.mikesaelim.arxivoaiharvester.xml;
+
+/**
+ * Decides which responses the {@link XMLParser} validates against the OAI-PMH and arXivRaw XML schemas.  Schema
+ * validation catches malformed responses early, but it is a large share of the parse time, so for bulk harvests it can
+ * make sense to validate only a sample of the pages.
+ *
+ * Pages that are not validated still go through a lightweight structural check, so a garbage response still results
+ * in a {@link io.github.mikesaelim.arxivoaiharvester.exception.ParseException}.
+ */
+public interface ValidationPolicy {
+
+    /**
+     * Decide whether to validate a page.
+     *
+     * @param pageNumber number of pages the parser has parsed before this one
+     * @param firstPageOfHarvest true if the page is the response to an initial request, and not to a resumption
+     * @return whether the page should be validated against the XML schemas
+     */
+    boolean shouldValidate(long pageNumber, boolean firstPageOfHarvest);
+
+    /**
+     * Validate every page.
+     */
+    static ValidationPolicy always() {
+        return (pageNumber, firstPageOfHarvest) -> true;
+    }
+
+    /**
+     * Never validate; rely on the structural check alone.
+     */
+    static ValidationPolicy never() {
+        return (pageNumber, firstPageOfHarvest) -> false;
+    }
+
+    /**
+     * Validate the first page the parser sees, and every nth page after that.
+     *
+     * @throws IllegalArgumentException if n is less than 1
+     */
+    static ValidationPolicy everyNthPage(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Validation interval must be 1 or greater");
+        }
+
+        return (pageNumber, firstPageOfHarvest) -> pageNumber % n == 0;
+    }
+
+    /**
+     * Validate only the first page of each harvest, that is, responses to requests other than resumptions.
+     */
+    static ValidationPolicy firstPageOfHarvest() {
+        return (pageNumber, firstPageOfHarvest) -> firstPageOfHarvest;
+    }
+
+}
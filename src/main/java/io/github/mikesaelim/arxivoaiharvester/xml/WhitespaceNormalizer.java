@@ -0,0 +1,84 @@
+package io.github.mikesaelim.arxivoaiharvester.xml;
+
+/**
+ * Whitespace normalization for the string values extracted from the XML, which may contain spurious line breaks.
+ * {@link #normalizeSpace(String)} gives exactly the same results as commons-lang's
+ * {@link org.apache.commons.lang3.StringUtils#normalizeSpace(String)}, but most values are already clean, and for
+ * those it returns the input itself without allocating anything.  Other values are normalized in a single pass over a
+ * per-thread buffer, so the only allocation is the resulting string.
+ */
+final class WhitespaceNormalizer {
+
+    private static final char SPACE = ' ';
+    private static final char NO_BREAK_SPACE = '\u00A0';
+
+    /** Buffers larger than this are not kept around after use. */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 16 * 1024;
+
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[1024]);
+
+    private WhitespaceNormalizer() {}
+
+    /**
+     * Trim leading and trailing whitespace, replace each run of whitespace in between with a single space, and replace
+     * each no-break space with a space.  Whitespace is as defined by {@link Character#isWhitespace(char)}.
+     *
+     * @return the normalized string, which is str itself if it was already normalized; null if str is null
+     */
+    static String normalizeSpace(String str) {
+        if (str == null || str.isEmpty() || isNormalized(str)) {
+            return str;
+        }
+
+        int size = str.length();
+        char[] buffer = BUFFER.get();
+        if (buffer.length < size) {
+            buffer = new char[size];
+            if (size <= MAX_RETAINED_BUFFER_SIZE) {
+                BUFFER.set(buffer);
+            }
+        }
+
+        int count = 0;
+        boolean pendingSpace = false;
+        for (int i = 0; i < size; i++) {
+            char c = str.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = count > 0;
+            } else {
+                if (pendingSpace) {
+                    buffer[count++] = SPACE;
+                    pendingSpace = false;
+                }
+                buffer[count++] = (c == NO_BREAK_SPACE) ? SPACE : c;
+            }
+        }
+
+        return new String(buffer, 0, count);
+    }
+
+    /**
+     * @return true if str has no leading or trailing whitespace, no whitespace other than single spaces, and no no-break
+     *         spaces
+     */
+    private static boolean isNormalized(String str) {
+        int last = str.length() - 1;
+        boolean previousWasSpace = true;
+        for (int i = 0; i <= last; i++) {
+            char c = str.charAt(i);
+            if (c == SPACE) {
+                if (previousWasSpace || i == last) {
+                    return false;
+                }
+                previousWasSpace = true;
+            } else if (c == NO_BREAK_SPACE || Character.isWhitespace(c)) {
+                return false;
+            } else {
+                previousWasSpace = false;
+            }
+        }
+
+        return true;
+    }
+
+}
@@ -1,42 +1,53 @@
 package io.github.mikesaelim.arxivoaiharvester.xml;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
 import io.github.mikesaelim.arxivoaiharvester.exception.*;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleField;
 import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata;
 import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleVersion;
+import io.github.mikesaelim.arxivoaiharvester.model.data.DatestampGranularity;
+import io.github.mikesaelim.arxivoaiharvester.model.data.DeletedRecordPolicy;
+import io.github.mikesaelim.arxivoaiharvester.model.data.RecordHeader;
+import io.github.mikesaelim.arxivoaiharvester.model.data.RepositoryDescription;
+import io.github.mikesaelim.arxivoaiharvester.model.data.SetDescription;
+import lombok.Builder;
 import lombok.NonNull;
-import org.apache.commons.lang3.StringUtils;
 import org.arxiv.oai.arxivraw.ArXivRawType;
 import org.openarchives.oai._2.*;
 import org.xml.sax.SAXException;
 
-import javax.xml.XMLConstants;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
-import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.datatype.XMLGregorianCalendar;
-import javax.xml.transform.Source;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
-import static org.apache.commons.lang3.StringUtils.normalizeSpace;
+import static io.github.mikesaelim.arxivoaiharvester.xml.WhitespaceNormalizer.normalizeSpace;
 
 /**
  * Parses the XML response from arXiv's OAI repository into a {@link ParsedXmlResponse}.  The XML response must
  * <ul>
  *     <li>satisfy the OAI-PMH v2.0 XML schema,</li>
- *     <li>be a response for either the verb "GetRecord" or the verb "ListRecords", and</li>
+ *     <li>be a response for the verb "GetRecord", "ListRecords", "ListIdentifiers", "Identify", or "ListSets",
+ *     and</li>
  *     <li>have metadata satisfying arXiv's XML schema for the "arXivRaw" metadata format (the current version of that
  *     is 2014-06-24).</li>
  * </ul>
@@ -49,38 +60,142 @@ import static org.apache.commons.lang3.StringUtils.normalizeSpace;
  * </ol>
  * Additionally, we have to deal with corrupted XML input that contains spurious line breaks in the middle of some of
  * the string values.  For this reason, we normalize the string values that we extract.
+ *
+ * Alternatively, the parser can be constructed in streaming mode, in which case the XML is read one record at a time
+ * by a StAX reader and the {@link ArticleMetadata} objects are built directly from it, without the intermediate JAXB
+ * data objects.  This avoids holding two copies of a large ListRecords page in memory at once.  The results are
+ * otherwise the same.
+ *
+ * Which responses are validated against the XML schemas is decided by a {@link ValidationPolicy}.  By default, the
+ * JAXB mode validates every response as it unmarshals it, and the streaming mode validates none.  A response that is
+ * not validated still has to pass a structural check.  In streaming mode, a response that is validated is read into
+ * memory and validated before it is streamed, so sampling a few pages is much cheaper than validating every one.
+ *
+ * The JAXB context and the compiled schemas are built once per JVM and shared by all parsers, so constructing a parser
+ * is cheap after the first time.  A parser is thread-safe: in JAXB mode, each parse borrows an unmarshaller from a
+ * small pool owned by the parser.
+ *
+ * Values that come from a small vocabulary (categories, sets, licenses, proxies, ACM and MSC classes, and source types)
+ * are deduplicated through a bounded pool, so that records parsed by the same parser share a single instance of each.
+ *
+ * Optionally, in JAXB mode, the unmarshalled records of large ListRecords pages can be converted to
+ * {@link ArticleMetadata} in parallel on an executor supplied by the caller.  They are still handed over in document
+ * order, on the thread that called {@code parse}.
+ *
+ * Also optionally, the large text fields of each record (authors, comments, and abstract) can be left as raw text, to
+ * be normalized only if and when they are accessed.  See {@link ArticleMetadata}.
+ *
+ * The {@link ParseOptions} of a response can restrict the article metadata fields to parse.  The other fields are left
+ * null.  In streaming mode, the reader still tokenizes their elements to get past them, but their text is never
+ * collected, normalized, or copied into strings; in JAXB mode, they are unmarshalled with the rest of the record and
+ * then dropped, so the saving there is only in the conversion.
+ *
+ * A ListIdentifiers response has no article metadata, so it is parsed into a list of {@link RecordHeader} objects
+ * instead, which are collected in the returned response rather than handed to the record handler.  Likewise, an
+ * Identify response is parsed into a {@link RepositoryDescription}, and a ListSets response into a list of
+ * {@link SetDescription} objects.
  */
 public class XMLParser {
 
-    private Unmarshaller unmarshaller;
+    private UnmarshallerPool unmarshallerPool;
+    private StaxResponseParser staxResponseParser;
+    private final Schema schema;
+    private final StringPool stringPool;
+    private final DateFieldParser dateFieldParser = new DateFieldParser();
+    private final Executor conversionExecutor;
+    private final int parallelConversionThreshold;
+    private final boolean lazyTextFields;
+
+    private final ValidationPolicy validationPolicy;
+    private final AtomicLong pageCount = new AtomicLong();
+    private final AtomicLong validatedPageCount = new AtomicLong();
+
+    private static final long DEFAULT_STRING_POOL_SIZE = 10_000;
+    private static final int DEFAULT_PARALLEL_CONVERSION_THRESHOLD = 64;
+    private static final int PARALLEL_CONVERSION_CHUNK_SIZE = 16;
+    private static final UnaryOperator<String> LAZY_TEXT_NORMALIZER = WhitespaceNormalizer::normalizeSpace;
+
+    static final String UNSUPPORTED_RESPONSE_MESSAGE =
+            "Response from repository was not an error, GetRecord, ListRecords, ListIdentifiers, Identify, or " +
+                    "ListSets response";
 
     private static final RepositoryErrorSeverityComparator repositoryErrorSeverityComparator =
             new RepositoryErrorSeverityComparator();
 
     /**
-     * Constructs a new XML parser by initializing the JAXB unmarshaller and setting up the XML validation.
+     * Constructs a new XML parser in JAXB mode, validating every response.
      *
      * @throws HarvesterError if there are any problems
      */
     public XMLParser() {
-        try {
-            unmarshaller = JAXBContext.newInstance("org.openarchives.oai._2:org.arxiv.oai.arxivraw")
-                    .createUnmarshaller();
-        } catch (JAXBException e) {
-            throw new HarvesterError("Error creating JAXB unmarshaller", e);
+        this(false, null, 0, 0, null, 0, false);
+    }
+
+    /**
+     * Constructs a new XML parser.  Use {@link #builder()} to set the options.
+     *
+     * @param streaming if true, responses are parsed record-by-record with a StAX reader instead of being unmarshalled
+     *                  by JAXB
+     * @param validationPolicy which responses to validate against the XML schemas; if null, every response is
+     *                         validated in JAXB mode, and none in streaming mode
+     * @param unmarshallerPoolSize in JAXB mode, the maximum number of idle unmarshallers to keep for reuse; if not
+     *                             positive, the number of available processors
+     * @param stringPoolSize the maximum number of distinct values to keep in the pool used to deduplicate categories,
+     *                       sets, licenses, and other values from a small vocabulary; if not positive, 10,000
+     * @param conversionExecutor in JAXB mode, if not null, the records of large ListRecords pages are converted in
+     *                           parallel on this executor, such as a {@link java.util.concurrent.ForkJoinPool}
+     * @param parallelConversionThreshold the smallest number of records in a page for which the records are converted
+     *                                    in parallel; if not positive, 64
+     * @param lazyTextFields if true, the authors, comments, and abstract of each record are kept as raw text, and only
+     *                       normalized when first accessed
+     * @throws HarvesterError if there are any problems
+     */
+    @Builder
+    private XMLParser(boolean streaming, ValidationPolicy validationPolicy, int unmarshallerPoolSize,
+                      long stringPoolSize, Executor conversionExecutor, int parallelConversionThreshold,
+                      boolean lazyTextFields) {
+        if (validationPolicy != null) {
+            this.validationPolicy = validationPolicy;
+        } else {
+            this.validationPolicy = streaming ? ValidationPolicy.never() : ValidationPolicy.always();
         }
 
-        ClassLoader classLoader = this.getClass().getClassLoader();
-        List<Source> schemaSources = Lists.newArrayList(
-                new StreamSource(classLoader.getResourceAsStream("OAI-PMH.xsd")),
-                new StreamSource(classLoader.getResourceAsStream("arXivRaw.xsd")));
-        try {
-            Schema schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI)
-                    .newSchema(schemaSources.toArray(new Source[schemaSources.size()]));
-            unmarshaller.setSchema(schema);
-        } catch (SAXException e) {
-            throw new HarvesterError("Error creating validation schema", e);
+        if (streaming) {
+            staxResponseParser = new StaxResponseParser(this);
+        } else {
+            unmarshallerPool = new UnmarshallerPool(XmlBindings.jaxbContext(),
+                    unmarshallerPoolSize > 0 ? unmarshallerPoolSize : Runtime.getRuntime().availableProcessors());
         }
+
+        schema = XmlBindings.schema();
+        stringPool = new StringPool(stringPoolSize > 0 ? stringPoolSize : DEFAULT_STRING_POOL_SIZE);
+
+        this.conversionExecutor = conversionExecutor;
+        this.parallelConversionThreshold = parallelConversionThreshold > 0 ?
+                parallelConversionThreshold : DEFAULT_PARALLEL_CONVERSION_THRESHOLD;
+        this.lazyTextFields = lazyTextFields;
+    }
+
+    /**
+     * @return the number of responses this parser has validated against the XML schemas
+     */
+    public long getValidatedPageCount() {
+        return validatedPageCount.get();
+    }
+
+    /**
+     * @return the number of responses this parser has parsed without validating them against the XML schemas
+     */
+    public long getUnvalidatedPageCount() {
+        return pageCount.get() - validatedPageCount.get();
+    }
+
+    /**
+     * @return hit and eviction statistics of the pool used to deduplicate categories, sets, licenses, and other values
+     *         from a small vocabulary
+     */
+    public CacheStats getStringPoolStats() {
+        return stringPool.stats();
     }
 
     /**
@@ -93,80 +208,199 @@ public class XMLParser {
      * @throws BadResumptionTokenException if the repository's response contains a BadResumptionToken error
      */
     public ParsedXmlResponse parse(@NonNull InputStream xmlResponse) {
+        return parse(xmlResponse, ParseOptions.DEFAULT);
+    }
+
+    /**
+     * Parse the XML response from the arXiv OAI repository.
+     *
+     * @throws NullPointerException if xmlResponse or options is null
+     * @throws ParseException if parsing fails
+     * @throws RepositoryError if the repository's response was parseable but invalid
+     * @throws BadArgumentException if the repository's response contains a BadArgument error
+     * @throws BadResumptionTokenException if the repository's response contains a BadResumptionToken error
+     */
+    public ParsedXmlResponse parse(@NonNull InputStream xmlResponse, @NonNull ParseOptions options) {
+        List<ArticleMetadata> records = Lists.newArrayList();
+        ParsedXmlResponse response = parse(xmlResponse, options, records::add);
+
+        return ParsedXmlResponse.builder()
+                .responseDate(response.getResponseDate())
+                .records(records)
+                .headers(response.getHeaders())
+                .repositoryDescription(response.getRepositoryDescription())
+                .sets(response.getSets())
+                .resumptionToken(response.getResumptionToken())
+                .cursor(response.getCursor())
+                .completeListSize(response.getCompleteListSize())
+                .expirationDate(response.getExpirationDate())
+                .build();
+    }
+
+    /**
+     * Parse the XML response from the arXiv OAI repository, handing each record to recordHandler, in document order, as
+     * soon as it has been parsed.  The records are not collected, so the list of records in the returned response is
+     * always empty.  In streaming mode, each record is handed over while the rest of the response is still being read,
+     * so the memory needed does not grow with the size of the page.
+     *
+     * Any exception thrown by recordHandler is propagated to the caller, and parsing stops.
+     *
+     * @throws NullPointerException if xmlResponse or recordHandler is null
+     * @throws ParseException if parsing fails
+     * @throws RepositoryError if the repository's response was parseable but invalid
+     * @throws BadArgumentException if the repository's response contains a BadArgument error
+     * @throws BadResumptionTokenException if the repository's response contains a BadResumptionToken error
+     */
+    public ParsedXmlResponse parse(@NonNull InputStream xmlResponse, @NonNull Consumer<ArticleMetadata> recordHandler) {
+        return parse(xmlResponse, ParseOptions.DEFAULT, recordHandler);
+    }
+
+    /**
+     * Parse the XML response from the arXiv OAI repository, handing each record to recordHandler as soon as it has been
+     * parsed.  See {@link #parse(InputStream, Consumer)}.
+     *
+     * @throws NullPointerException if xmlResponse, options, or recordHandler is null
+     * @throws ParseException if parsing fails
+     * @throws RepositoryError if the repository's response was parseable but invalid
+     * @throws BadArgumentException if the repository's response contains a BadArgument error
+     * @throws BadResumptionTokenException if the repository's response contains a BadResumptionToken error
+     */
+    public ParsedXmlResponse parse(@NonNull InputStream xmlResponse, @NonNull ParseOptions options,
+                                   @NonNull Consumer<ArticleMetadata> recordHandler) {
+        boolean validate = validationPolicy.shouldValidate(pageCount.getAndIncrement(), !options.isResumption());
+        if (validate) {
+            validatedPageCount.incrementAndGet();
+        }
+
+        if (staxResponseParser != null) {
+            return staxResponseParser.parse(validate ? validateFully(xmlResponse) : xmlResponse, options, recordHandler);
+        }
 
         OAIPMHtype unmarshalledResponse;
+        Unmarshaller unmarshaller = unmarshallerPool.borrow();
         try {
+            unmarshaller.setSchema(validate ? schema : null);
+
             @SuppressWarnings("unchecked")
             JAXBElement<OAIPMHtype> jaxbElement = (JAXBElement<OAIPMHtype>) unmarshaller.unmarshal(xmlResponse);
 
             unmarshalledResponse = jaxbElement.getValue();
         } catch (Exception e) {
             throw new ParseException("Error unmarshalling XML response from repository", e);
+        } finally {
+            unmarshallerPool.giveBack(unmarshaller);
+        }
+
+        if (!validate) {
+            checkStructure(unmarshalledResponse);
         }
 
         ZonedDateTime responseDate = parseResponseDate(unmarshalledResponse.getResponseDate());
 
 
         // Parse any errors returned by the repository
-        List<OAIPMHerrorType> errors = Lists.newArrayList(unmarshalledResponse.getError());
-        if (!errors.isEmpty()) {
-            errors.sort(repositoryErrorSeverityComparator);
-
-            // ID_DOES_NOT_EXIST and NO_RECORDS_MATCH are not considered errors, and simply result in an empty result set
-            if (errors.get(0).getCode() == OAIPMHerrorcodeType.ID_DOES_NOT_EXIST ||
-                    errors.get(0).getCode() == OAIPMHerrorcodeType.NO_RECORDS_MATCH) {
-                return ParsedXmlResponse.builder()
-                        .responseDate(responseDate)
-                        .records(Lists.newArrayList())
-                        .build();
-            }
-
-            // Produce error report
-            StringBuilder errorStringBuilder = new StringBuilder("Received error from repository: \n");
-            errors.stream().forEach(error -> errorStringBuilder.append(error.getCode().value()).append(" : ")
-                                                                .append(normalizeSpace(error.getValue())).append("\n"));
-            String errorString = errorStringBuilder.toString();
-
-            // Throw an exception corresponding to the most severe error
-            switch (errors.get(0).getCode()) {
-                case BAD_ARGUMENT:
-                    throw new BadArgumentException(errorString);
-                case BAD_RESUMPTION_TOKEN:
-                    throw new BadResumptionTokenException(errorString);
-                case BAD_VERB:
-                case CANNOT_DISSEMINATE_FORMAT:
-                case NO_METADATA_FORMATS:
-                case NO_SET_HIERARCHY:
-                default:
-                    throw new RepositoryError(errorString);
-            }
+        if (!unmarshalledResponse.getError().isEmpty()) {
+            RequestType request = unmarshalledResponse.getRequest();
+            return handleErrors(unmarshalledResponse.getError(), responseDate,
+                    request != null && request.getVerb() != null ? request.getVerb().value() : null);
         }
 
 
         // Handle the GetRecord response
         if (unmarshalledResponse.getGetRecord() != null) {
-            ArticleMetadata record = parseRecord(unmarshalledResponse.getGetRecord().getRecord(), responseDate);
+            recordHandler.accept(parseRecord(unmarshalledResponse.getGetRecord().getRecord(), responseDate, options));
 
             return ParsedXmlResponse.builder()
                     .responseDate(responseDate)
-                    .records(Lists.newArrayList(record))
+                    .records(Lists.newArrayList())
                     .build();
         }
 
 
         // Handle the ListRecords response
         if (unmarshalledResponse.getListRecords() != null) {
+            convertRecords(unmarshalledResponse.getListRecords().getRecord(), responseDate, options, recordHandler);
+
             ParsedXmlResponse.ParsedXmlResponseBuilder responseBuilder =  ParsedXmlResponse.builder()
                     .responseDate(responseDate)
-                    .records(unmarshalledResponse.getListRecords().getRecord().stream()
-                            .map(xmlRecord -> parseRecord(xmlRecord, responseDate))
-                            .collect(Collectors.toList()));
+                    .records(Lists.newArrayList());
 
             ResumptionTokenType resumptionToken = unmarshalledResponse.getListRecords().getResumptionToken();
             if (resumptionToken != null) {
                 responseBuilder.resumptionToken(normalizeSpace(resumptionToken.getValue()))
                         .cursor(resumptionToken.getCursor())
-                        .completeListSize(resumptionToken.getCompleteListSize());
+                        .completeListSize(resumptionToken.getCompleteListSize())
+                        .expirationDate(parseExpirationDate(resumptionToken.getExpirationDate()));
+            }
+
+            return responseBuilder.build();
+        }
+
+
+        // Handle the ListIdentifiers response
+        if (unmarshalledResponse.getListIdentifiers() != null) {
+            ParsedXmlResponse.ParsedXmlResponseBuilder responseBuilder =  ParsedXmlResponse.builder()
+                    .responseDate(responseDate)
+                    .records(Lists.newArrayList())
+                    .headers(unmarshalledResponse.getListIdentifiers().getHeader().stream()
+                            .map(header -> parseHeader(header, responseDate))
+                            .collect(Collectors.toList()));
+
+            ResumptionTokenType resumptionToken = unmarshalledResponse.getListIdentifiers().getResumptionToken();
+            if (resumptionToken != null) {
+                responseBuilder.resumptionToken(normalizeSpace(resumptionToken.getValue()))
+                        .cursor(resumptionToken.getCursor())
+                        .completeListSize(resumptionToken.getCompleteListSize())
+                        .expirationDate(parseExpirationDate(resumptionToken.getExpirationDate()));
+            }
+
+            return responseBuilder.build();
+        }
+
+
+        // Handle the Identify response
+        if (unmarshalledResponse.getIdentify() != null) {
+            IdentifyType identify = unmarshalledResponse.getIdentify();
+
+            return ParsedXmlResponse.builder()
+                    .responseDate(responseDate)
+                    .records(Lists.newArrayList())
+                    .repositoryDescription(RepositoryDescription.builder()
+                            .repositoryName(normalizeSpace(identify.getRepositoryName()))
+                            .baseUrl(normalizeSpace(identify.getBaseURL()))
+                            .protocolVersion(normalizeSpace(identify.getProtocolVersion()))
+                            .adminEmails(identify.getAdminEmail().stream()
+                                    .map(WhitespaceNormalizer::normalizeSpace)
+                                    .collect(Collectors.toList()))
+                            .earliestDatestamp(parseEarliestDatestamp(normalizeSpace(identify.getEarliestDatestamp())))
+                            .deletedRecord(parseDeletedRecordPolicy(identify.getDeletedRecord().value()))
+                            .granularity(parseGranularity(identify.getGranularity().value()))
+                            .compressions(identify.getCompression().stream()
+                                    .map(WhitespaceNormalizer::normalizeSpace)
+                                    .collect(Collectors.toList()))
+                            .build())
+                    .build();
+        }
+
+
+        // Handle the ListSets response
+        if (unmarshalledResponse.getListSets() != null) {
+            ParsedXmlResponse.ParsedXmlResponseBuilder responseBuilder =  ParsedXmlResponse.builder()
+                    .responseDate(responseDate)
+                    .records(Lists.newArrayList())
+                    .sets(unmarshalledResponse.getListSets().getSet().stream()
+                            .map(set -> SetDescription.builder()
+                                    .setSpec(canonicalize(normalizeSpace(set.getSetSpec())))
+                                    .setName(normalizeSpace(set.getSetName()))
+                                    .build())
+                            .collect(Collectors.toList()));
+
+            ResumptionTokenType resumptionToken = unmarshalledResponse.getListSets().getResumptionToken();
+            if (resumptionToken != null) {
+                responseBuilder.resumptionToken(normalizeSpace(resumptionToken.getValue()))
+                        .cursor(resumptionToken.getCursor())
+                        .completeListSize(resumptionToken.getCompleteListSize())
+                        .expirationDate(parseExpirationDate(resumptionToken.getExpirationDate()));
             }
 
             return responseBuilder.build();
@@ -174,7 +408,171 @@ public class XMLParser {
 
 
         // Handling of other response types is undefined
-        throw new RepositoryError("Response from repository was not an error, GetRecord, or ListRecords response");
+        throw new RepositoryError(UNSUPPORTED_RESPONSE_MESSAGE);
+    }
+
+    /**
+     * Convert the unmarshalled records of a ListRecords response and hand them to recordHandler, in document order, on
+     * the calling thread.  If a conversion executor was supplied and the page is large enough, the records are
+     * converted in chunks on that executor.
+     *
+     * @throws ParseException if any record cannot be parsed
+     */
+    @VisibleForTesting void convertRecords(List<RecordType> xmlRecords, ZonedDateTime responseDate,
+                                           ParseOptions options, Consumer<ArticleMetadata> recordHandler) {
+        if (conversionExecutor == null || xmlRecords.size() < parallelConversionThreshold) {
+            xmlRecords.forEach(xmlRecord -> recordHandler.accept(parseRecord(xmlRecord, responseDate, options)));
+            return;
+        }
+
+        List<CompletableFuture<List<ArticleMetadata>>> chunks = Lists.newArrayList();
+        for (List<RecordType> xmlChunk : Lists.partition(xmlRecords, PARALLEL_CONVERSION_CHUNK_SIZE)) {
+            chunks.add(CompletableFuture.supplyAsync(() -> xmlChunk.stream()
+                    .map(xmlRecord -> parseRecord(xmlRecord, responseDate, options))
+                    .collect(Collectors.toList()), conversionExecutor));
+        }
+
+        try {
+            for (CompletableFuture<List<ArticleMetadata>> chunk : chunks) {
+                chunk.join().forEach(recordHandler);
+            }
+        } catch (CompletionException e) {
+            Throwables.propagateIfPossible(e.getCause());
+            throw new ParseException("Error converting records in response from repository", e.getCause());
+        } finally {
+            chunks.forEach(chunk -> chunk.cancel(false));
+        }
+    }
+
+    /**
+     * Read the whole response into memory and validate it against the XML schemas, for the streaming mode.
+     *
+     * @return the response, ready to be read again
+     * @throws ParseException if the response cannot be read or is invalid
+     */
+    private InputStream validateFully(InputStream xmlResponse) {
+        byte[] content;
+        try {
+            content = ByteStreams.toByteArray(xmlResponse);
+            schema.newValidator().validate(new StreamSource(new ByteArrayInputStream(content)));
+        } catch (IOException | SAXException e) {
+            throw new ParseException("Error validating XML response from repository", e);
+        }
+
+        return new ByteArrayInputStream(content);
+    }
+
+    /**
+     * Lightweight check, for responses unmarshalled without schema validation, that the response has the shape that
+     * the rest of the parsing relies on.
+     *
+     * @throws ParseException if it doesn't
+     */
+    @VisibleForTesting void checkStructure(OAIPMHtype unmarshalledResponse) {
+        if (unmarshalledResponse == null || unmarshalledResponse.getResponseDate() == null) {
+            throw new ParseException("Response from repository is missing its response date");
+        }
+
+        for (OAIPMHerrorType error : unmarshalledResponse.getError()) {
+            if (error.getCode() == null) {
+                throw new ParseException("Error in response from repository has an unrecognized error code");
+            }
+        }
+
+        List<RecordType> xmlRecords = Lists.newArrayList();
+        if (unmarshalledResponse.getGetRecord() != null) {
+            xmlRecords.add(unmarshalledResponse.getGetRecord().getRecord());
+        }
+        if (unmarshalledResponse.getListRecords() != null) {
+            xmlRecords.addAll(unmarshalledResponse.getListRecords().getRecord());
+        }
+        IdentifyType identify = unmarshalledResponse.getIdentify();
+        if (identify != null && (identify.getEarliestDatestamp() == null || identify.getDeletedRecord() == null ||
+                identify.getGranularity() == null)) {
+            throw new ParseException("Identify response from repository is missing a required element");
+        }
+        if (unmarshalledResponse.getListSets() != null) {
+            for (SetType set : unmarshalledResponse.getListSets().getSet()) {
+                if (set == null || set.getSetSpec() == null) {
+                    throw new ParseException("Set in response from repository is missing its setSpec");
+                }
+            }
+        }
+        if (unmarshalledResponse.getListIdentifiers() != null) {
+            for (HeaderType header : unmarshalledResponse.getListIdentifiers().getHeader()) {
+                if (header == null || header.getIdentifier() == null || header.getDatestamp() == null) {
+                    throw new ParseException("Header in response from repository is missing its identifier or datestamp");
+                }
+            }
+        }
+
+        for (RecordType xmlRecord : xmlRecords) {
+            if (xmlRecord == null || xmlRecord.getHeader() == null || xmlRecord.getHeader().getIdentifier() == null ||
+                    xmlRecord.getHeader().getDatestamp() == null) {
+                throw new ParseException("Record in response from repository is missing its header");
+            }
+            if (xmlRecord.getMetadata() != null && !(xmlRecord.getMetadata().getAny() instanceof JAXBElement &&
+                    ((JAXBElement<?>) xmlRecord.getMetadata().getAny()).getValue() instanceof ArXivRawType)) {
+                throw new ParseException("Record " + xmlRecord.getHeader().getIdentifier() +
+                        " in response from repository does not contain arXivRaw metadata");
+            }
+        }
+    }
+
+    /**
+     * Handle the errors returned by the repository.  ID_DOES_NOT_EXIST and NO_RECORDS_MATCH are not considered errors,
+     * and simply result in an empty result set, and neither is NO_SET_HIERARCHY in response to a ListSets request,
+     * which results in an empty list of sets; anything else results in an exception corresponding to the most severe
+     * error.
+     *
+     * @param verb the verb of the request, as echoed by the repository, or null if it did not say
+     * @throws RequestRejectedError if the repository's response contains any other error about the request
+     * @throws RepositoryError if the repository's response was parseable but invalid
+     * @throws BadArgumentException if the repository's response contains a BadArgument error
+     * @throws BadResumptionTokenException if the repository's response contains a BadResumptionToken error
+     */
+    ParsedXmlResponse handleErrors(List<OAIPMHerrorType> repositoryErrors, ZonedDateTime responseDate, String verb) {
+        List<OAIPMHerrorType> errors = Lists.newArrayList(repositoryErrors);
+        errors.sort(repositoryErrorSeverityComparator);
+
+        // ID_DOES_NOT_EXIST and NO_RECORDS_MATCH are not considered errors, and simply result in an empty result set
+        if (errors.get(0).getCode() == OAIPMHerrorcodeType.ID_DOES_NOT_EXIST ||
+                errors.get(0).getCode() == OAIPMHerrorcodeType.NO_RECORDS_MATCH) {
+            return ParsedXmlResponse.builder()
+                    .responseDate(responseDate)
+                    .records(Lists.newArrayList())
+                    .build();
+        }
+
+        // A repository without a set hierarchy answers ListSets with NO_SET_HIERARCHY, meaning that there are no sets
+        if (errors.get(0).getCode() == OAIPMHerrorcodeType.NO_SET_HIERARCHY && VerbType.LIST_SETS.value().equals(verb)) {
+            return ParsedXmlResponse.builder()
+                    .responseDate(responseDate)
+                    .records(Lists.newArrayList())
+                    .sets(Lists.newArrayList())
+                    .build();
+        }
+
+        // Produce error report
+        StringBuilder errorStringBuilder = new StringBuilder("Received error from repository: \n");
+        errors.stream().forEach(error -> errorStringBuilder.append(error.getCode().value()).append(" : ")
+                                                            .append(normalizeSpace(error.getValue())).append("\n"));
+        String errorString = errorStringBuilder.toString();
+
+        // Throw an exception corresponding to the most severe error
+        switch (errors.get(0).getCode()) {
+            case BAD_ARGUMENT:
+                throw new BadArgumentException(errorString);
+            case BAD_RESUMPTION_TOKEN:
+                throw new BadResumptionTokenException(errorString);
+            case BAD_VERB:
+            case CANNOT_DISSEMINATE_FORMAT:
+            case NO_METADATA_FORMATS:
+            case NO_SET_HIERARCHY:
+                throw new RequestRejectedError(errorString);
+            default:
+                throw new RepositoryError(errorString);
+        }
     }
 
     /**
@@ -182,45 +580,110 @@ public class XMLParser {
      * @throws ParseException if there is a parsing error
      */
     @VisibleForTesting ArticleMetadata parseRecord(RecordType xmlRecord, ZonedDateTime retrievalDateTime) {
+        return parseRecord(xmlRecord, retrievalDateTime, ParseOptions.DEFAULT);
+    }
+
+    /**
+     * Parse a single record of article metadata, skipping the article metadata fields not included in options.
+     * @throws ParseException if there is a parsing error
+     */
+    private ArticleMetadata parseRecord(RecordType xmlRecord, ZonedDateTime retrievalDateTime, ParseOptions options) {
         ArticleMetadata.ArticleMetadataBuilder articleBuilder = ArticleMetadata.builder();
         articleBuilder.retrievalDateTime(retrievalDateTime);
+        copyHeader(parseHeader(xmlRecord.getHeader(), retrievalDateTime), articleBuilder);
 
-        HeaderType header = xmlRecord.getHeader();
-        articleBuilder.identifier(normalizeSpace(header.getIdentifier()))
-                .datestamp(parseDatestamp(normalizeSpace(header.getDatestamp())))
-                .sets(header.getSetSpec().stream().map(StringUtils::normalizeSpace).collect(Collectors.toSet()))
-                .deleted(header.getStatus() != null && header.getStatus() == StatusType.DELETED);
+        // Deleted records have no metadata beyond the header
+        if (xmlRecord.getMetadata() == null) {
+            return articleBuilder.build();
+        }
 
         @SuppressWarnings("unchecked")
         JAXBElement<ArXivRawType> jaxbElement = (JAXBElement<ArXivRawType>) xmlRecord.getMetadata().getAny();
 
         ArXivRawType metadata = jaxbElement.getValue();
-        articleBuilder.id(normalizeSpace(metadata.getId()))
-                .submitter(normalizeSpace(metadata.getSubmitter()))
-                .versions(metadata.getVersion().stream()
-                        .map(versionType -> ArticleVersion.builder()
-                                .versionNumber(parseVersionNumber(normalizeSpace(versionType.getVersion())))
-                                .submissionTime(parseSubmissionTime(normalizeSpace(versionType.getDate())))
-                                .size(normalizeSpace(versionType.getSize()))
-                                .sourceType(normalizeSpace(versionType.getSourceType()))
-                                .build())
-                        .collect(Collectors.toSet()))
-                .title(normalizeSpace(metadata.getTitle()))
-                .authors(normalizeSpace(metadata.getAuthors()))
-                .categories(parseCategories(normalizeSpace(metadata.getCategories())))
-                .comments(normalizeSpace(metadata.getComments()))
-                .proxy(normalizeSpace(metadata.getProxy()))
-                .reportNo(normalizeSpace(metadata.getReportNo()))
-                .acmClass(normalizeSpace(metadata.getAcmClass()))
-                .mscClass(normalizeSpace(metadata.getMscClass()))
-                .journalRef(normalizeSpace(metadata.getJournalRef()))
-                .doi(normalizeSpace(metadata.getDoi()))
-                .license(normalizeSpace(metadata.getLicense()))
-                .articleAbstract(normalizeSpace(metadata.getAbstract()));
+        if (options.includes(ArticleField.ID)) {
+            articleBuilder.id(normalizeSpace(metadata.getId()));
+        }
+        if (options.includes(ArticleField.SUBMITTER)) {
+            articleBuilder.submitter(normalizeSpace(metadata.getSubmitter()));
+        }
+        if (options.includes(ArticleField.VERSIONS)) {
+            articleBuilder.versions(metadata.getVersion().stream()
+                    .map(versionType -> ArticleVersion.builder()
+                            .versionNumber(parseVersionNumber(normalizeSpace(versionType.getVersion())))
+                            .submissionTime(parseSubmissionTime(normalizeSpace(versionType.getDate())))
+                            .size(normalizeSpace(versionType.getSize()))
+                            .sourceType(canonicalize(normalizeSpace(versionType.getSourceType())))
+                            .build())
+                    .collect(Collectors.toSet()));
+        }
+        if (options.includes(ArticleField.TITLE)) {
+            articleBuilder.title(normalizeSpace(metadata.getTitle()));
+        }
+        if (options.includes(ArticleField.AUTHORS)) {
+            articleBuilder.authors(largeText(metadata.getAuthors()));
+        }
+        if (options.includes(ArticleField.CATEGORIES)) {
+            articleBuilder.categories(parseCategories(normalizeSpace(metadata.getCategories())));
+        }
+        if (options.includes(ArticleField.COMMENTS)) {
+            articleBuilder.comments(largeText(metadata.getComments()));
+        }
+        if (options.includes(ArticleField.PROXY)) {
+            articleBuilder.proxy(canonicalize(normalizeSpace(metadata.getProxy())));
+        }
+        if (options.includes(ArticleField.REPORT_NO)) {
+            articleBuilder.reportNo(normalizeSpace(metadata.getReportNo()));
+        }
+        if (options.includes(ArticleField.ACM_CLASS)) {
+            articleBuilder.acmClass(canonicalize(normalizeSpace(metadata.getAcmClass())));
+        }
+        if (options.includes(ArticleField.MSC_CLASS)) {
+            articleBuilder.mscClass(canonicalize(normalizeSpace(metadata.getMscClass())));
+        }
+        if (options.includes(ArticleField.JOURNAL_REF)) {
+            articleBuilder.journalRef(normalizeSpace(metadata.getJournalRef()));
+        }
+        if (options.includes(ArticleField.DOI)) {
+            articleBuilder.doi(normalizeSpace(metadata.getDoi()));
+        }
+        if (options.includes(ArticleField.LICENSE)) {
+            articleBuilder.license(canonicalize(normalizeSpace(metadata.getLicense())));
+        }
+        if (options.includes(ArticleField.ABSTRACT)) {
+            articleBuilder.articleAbstract(largeText(metadata.getAbstract()));
+        }
+        articleBuilder.textNormalizer(textNormalizer());
 
         return articleBuilder.build();
     }
 
+    /**
+     * Parse the header of a record.
+     * @throws ParseException if there is a parsing error
+     */
+    private RecordHeader parseHeader(HeaderType header, ZonedDateTime retrievalDateTime) {
+        return RecordHeader.builder()
+                .retrievalDateTime(retrievalDateTime)
+                .identifier(normalizeSpace(header.getIdentifier()))
+                .datestamp(parseDatestamp(normalizeSpace(header.getDatestamp())))
+                .sets(header.getSetSpec().stream()
+                        .map(setSpec -> canonicalize(normalizeSpace(setSpec)))
+                        .collect(Collectors.toSet()))
+                .deleted(header.getStatus() != null && header.getStatus() == StatusType.DELETED)
+                .build();
+    }
+
+    /**
+     * Copy the header data of a record into the builder of its article metadata.
+     */
+    static void copyHeader(RecordHeader header, ArticleMetadata.ArticleMetadataBuilder articleBuilder) {
+        articleBuilder.identifier(header.getIdentifier())
+                .datestamp(header.getDatestamp())
+                .sets(header.getSets())
+                .deleted(header.isDeleted());
+    }
+
     /**
      * Parse the response date.  The result will be in UTC.
      */
@@ -228,20 +691,56 @@ public class XMLParser {
         return xmlGregorianCalendar.toGregorianCalendar().toZonedDateTime().withZoneSameInstant(ZoneOffset.UTC);
     }
 
+    /**
+     * Parse the expiration date of a resumption token, which is optional.  The result will be in UTC.
+     */
+    ZonedDateTime parseExpirationDate(XMLGregorianCalendar xmlGregorianCalendar) {
+        return xmlGregorianCalendar != null ? parseResponseDate(xmlGregorianCalendar) : null;
+    }
+
     /**
      * Parse the datestamp of a record.
      * @throws ParseException if there is a parsing error
      */
     @VisibleForTesting LocalDate parseDatestamp(String value) {
-        LocalDate datestamp;
+        return dateFieldParser.parseDatestamp(value);
+    }
 
+    /**
+     * Parse the earliest datestamp of an Identify response.  If the repository's granularity is seconds, only the date
+     * is kept.
+     * @throws ParseException if there is a parsing error
+     */
+    @VisibleForTesting LocalDate parseEarliestDatestamp(String value) {
+        if (value != null && value.length() > 10 && value.charAt(10) == 'T') {
+            return parseDatestamp(value.substring(0, 10));
+        }
+        return parseDatestamp(value);
+    }
+
+    /**
+     * Parse the deletedRecord value of an Identify response.
+     * @throws ParseException if it is not one of the values defined by the protocol
+     */
+    DeletedRecordPolicy parseDeletedRecordPolicy(String value) {
         try {
-            datestamp = LocalDate.parse(value);
-        } catch(DateTimeParseException e) {
-            throw new ParseException("Could not parse datestamp '" + value + "' in ISO_LOCAL_DATE format");
+            return DeletedRecordPolicy.valueOf(DeletedRecordType.fromValue(value).name());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new ParseException("Could not parse deleted record policy '" + value + "'", e);
         }
+    }
 
-        return datestamp;
+    /**
+     * Parse the granularity value of an Identify response.
+     * @throws ParseException if it is not one of the values defined by the protocol
+     */
+    DatestampGranularity parseGranularity(String value) {
+        try {
+            return GranularityType.fromValue(value) == GranularityType.YYYY_MM_DD ?
+                    DatestampGranularity.DAY : DatestampGranularity.SECOND;
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new ParseException("Could not parse granularity '" + value + "'", e);
+        }
     }
 
     /**
@@ -271,14 +770,7 @@ public class XMLParser {
      * @throws ParseException if there is a parsing error
      */
     @VisibleForTesting ZonedDateTime parseSubmissionTime(String value) {
-        ZonedDateTime submissionTime;
-        try {
-            submissionTime = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
-        } catch (DateTimeParseException e) {
-            throw new ParseException("Could not parse version date '" + value + "' in RFC_1123_DATE_TIME format", e);
-        }
-
-        return submissionTime;
+        return dateFieldParser.parseSubmissionTime(value);
     }
 
     /**
@@ -286,7 +778,38 @@ public class XMLParser {
      * @return List of separate categories, in the same order as they were in the string
      */
     @VisibleForTesting List<String> parseCategories(String value) {
-        return value != null ? Lists.newArrayList(value.split(" ")) : Lists.newArrayList();
+        List<String> categories = Lists.newArrayList();
+        if (value != null) {
+            for (String category : value.split(" ")) {
+                categories.add(canonicalize(category));
+            }
+        }
+
+        return categories;
+    }
+
+    /**
+     * Prepare one of the large text fields (authors, comments, and abstract) of a record: normalize it now, or, if those
+     * fields are materialized lazily, keep the raw text.
+     */
+    String largeText(String value) {
+        return lazyTextFields ? value : normalizeSpace(value);
+    }
+
+    /**
+     * @return the function that normalizes the large text fields of a record on first access, if they are materialized
+     *         lazily; otherwise null
+     */
+    UnaryOperator<String> textNormalizer() {
+        return lazyTextFields ? LAZY_TEXT_NORMALIZER : null;
+    }
+
+    /**
+     * Replace a value from a small vocabulary with its canonical instance, so that equal values are shared between
+     * records.
+     */
+    String canonicalize(String value) {
+        return stringPool.canonicalize(value);
     }
 
 
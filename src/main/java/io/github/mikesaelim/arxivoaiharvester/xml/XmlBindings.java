@@ -0,0 +1,68 @@
+package io.github.mikesaelim.arxivoaiharvester.xml;
+
+import com.google.common.collect.Lists;
+import io.github.mikesaelim.arxivoaiharvester.exception.HarvesterError;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.util.List;
+
+/**
+ * The JAXB context and the compiled XML schemas for OAI-PMH and arXivRaw.  Both are expensive to build and safe to
+ * share between threads, so each is built once per JVM, the first time it is needed, and shared by every
+ * {@link XMLParser}.
+ */
+final class XmlBindings {
+
+    private XmlBindings() {}
+
+    /**
+     * @throws HarvesterError if the JAXB context cannot be created
+     */
+    static JAXBContext jaxbContext() {
+        return JaxbContextHolder.JAXB_CONTEXT;
+    }
+
+    /**
+     * @throws HarvesterError if the schemas cannot be compiled
+     */
+    static Schema schema() {
+        return SchemaHolder.SCHEMA;
+    }
+
+    private static class JaxbContextHolder {
+        private static final JAXBContext JAXB_CONTEXT = createJaxbContext();
+    }
+
+    private static class SchemaHolder {
+        private static final Schema SCHEMA = createSchema();
+    }
+
+    private static JAXBContext createJaxbContext() {
+        try {
+            return JAXBContext.newInstance("org.openarchives.oai._2:org.arxiv.oai.arxivraw");
+        } catch (JAXBException e) {
+            throw new HarvesterError("Error creating JAXB context", e);
+        }
+    }
+
+    private static Schema createSchema() {
+        ClassLoader classLoader = XmlBindings.class.getClassLoader();
+        List<Source> schemaSources = Lists.newArrayList(
+                new StreamSource(classLoader.getResourceAsStream("OAI-PMH.xsd")),
+                new StreamSource(classLoader.getResourceAsStream("arXivRaw.xsd")));
+        try {
+            return SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI)
+                    .newSchema(schemaSources.toArray(new Source[schemaSources.size()]));
+        } catch (SAXException e) {
+            throw new HarvesterError("Error creating validation schema", e);
+        }
+    }
+
+}
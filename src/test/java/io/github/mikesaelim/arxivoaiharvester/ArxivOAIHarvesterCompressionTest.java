@@ -0,0 +1,108 @@
+package io.github.mikesaelim.arxivoaiharvester;
+
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListRecordsResponse;
+import io.github.mikesaelim.arxivoaiharvester.model.response.TransferStatistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the compressed transfer of responses against a local stand-in for the arXiv OAI repository.
+ */
+public class ArxivOAIHarvesterCompressionTest {
+
+    private StandInRepository repository;
+    private ArxivOAIHarvester harvester;
+
+    private byte[] listRecordsResponse;
+    private volatile String contentEncodingToSend;
+    private volatile String acceptEncodingReceived;
+
+    @Before
+    public void setUp() throws Exception {
+        listRecordsResponse = StandInRepository.resource("ListRecordsResponse.xml");
+
+        repository = new StandInRepository(exchange -> {
+            acceptEncodingReceived = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+
+            if (contentEncodingToSend != null) {
+                exchange.getResponseHeaders().add("Content-Encoding", contentEncodingToSend);
+            }
+            exchange.getResponseHeaders().add("Content-Type", "text/xml");
+            StandInRepository.respond(exchange, 200, encode(listRecordsResponse, contentEncodingToSend));
+        });
+
+        harvester = new ArxivOAIHarvester(repository.getHttpClient(), 0, Duration.ZERO, Duration.ofSeconds(1));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repository.close();
+    }
+
+    @Test
+    public void testGzipResponse() throws Exception {
+        contentEncodingToSend = "gzip";
+
+        ListRecordsResponse response = harvester.harvest(new ListRecordsRequest(null, null, null));
+
+        assertEquals(6, response.getRecords().size());
+        assertTrue(acceptEncodingReceived.contains("gzip"));
+
+        TransferStatistics statistics = response.getTransferStatistics();
+        assertEquals("gzip", statistics.getContentEncoding());
+        assertEquals(encode(listRecordsResponse, "gzip").length, statistics.getCompressedBytes());
+        assertEquals(listRecordsResponse.length, statistics.getUncompressedBytes());
+        assertTrue(statistics.getCompressionRatio() > 2);
+    }
+
+    @Test
+    public void testDeflateResponse() throws Exception {
+        contentEncodingToSend = "deflate";
+
+        ListRecordsResponse response = harvester.harvest(new ListRecordsRequest(null, null, null));
+
+        assertEquals(6, response.getRecords().size());
+        assertEquals("deflate", response.getTransferStatistics().getContentEncoding());
+        assertEquals(listRecordsResponse.length, response.getTransferStatistics().getUncompressedBytes());
+        assertTrue(response.getTransferStatistics().getCompressionRatio() > 2);
+    }
+
+    @Test
+    public void testUncompressedResponse() throws Exception {
+        contentEncodingToSend = null;
+        harvester.setCompressionEnabled(false);
+
+        ListRecordsResponse response = harvester.harvest(new ListRecordsRequest(null, null, null));
+
+        assertEquals(6, response.getRecords().size());
+        assertNull(acceptEncodingReceived);
+        assertNull(response.getTransferStatistics().getContentEncoding());
+        assertEquals(listRecordsResponse.length, response.getTransferStatistics().getCompressedBytes());
+        assertEquals(listRecordsResponse.length, response.getTransferStatistics().getUncompressedBytes());
+    }
+
+    private static byte[] encode(byte[] content, String contentEncoding) throws IOException {
+        if (contentEncoding == null) {
+            return content;
+        }
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        try (OutputStream outputStream = contentEncoding.equals("gzip") ?
+                new GZIPOutputStream(encoded) : new DeflaterOutputStream(encoded)) {
+            outputStream.write(content);
+        }
+        return encoded.toByteArray();
+    }
+
+}
@@ -2,12 +2,19 @@ package io.github.mikesaelim.arxivoaiharvester;
 
 import com.google.common.collect.Lists;
 import io.github.mikesaelim.arxivoaiharvester.exception.*;
+import io.github.mikesaelim.arxivoaiharvester.flowcontrol.PacingStatistics;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleField;
 import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata;
+import io.github.mikesaelim.arxivoaiharvester.model.data.RecordHeader;
 import io.github.mikesaelim.arxivoaiharvester.model.request.GetRecordRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListIdentifiersRequest;
 import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListIdentifiersRequest;
 import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListRecordsRequest;
 import io.github.mikesaelim.arxivoaiharvester.model.response.GetRecordResponse;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListIdentifiersResponse;
 import io.github.mikesaelim.arxivoaiharvester.model.response.ListRecordsResponse;
+import io.github.mikesaelim.arxivoaiharvester.xml.ParseOptions;
 import io.github.mikesaelim.arxivoaiharvester.xml.ParsedXmlResponse;
 import io.github.mikesaelim.arxivoaiharvester.xml.XMLParser;
 import org.apache.http.HttpEntity;
@@ -25,13 +32,19 @@ import org.mockito.*;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
+import java.net.URI;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.*;
 
@@ -96,6 +109,24 @@ public class ArxivOAIHarvesterTest {
 
     // Tests: Happy path - 200 OK with successful response
 
+    @Test
+    public void testHarvestFromMirror() throws Exception {
+        givenHttpResponseIsOK();
+        givenRepositoryResponseIsSuccessful();
+        URI mirror = URI.create("https://mirror.example.org/oai2");
+        harvester.setBaseUri(mirror);
+
+        harvester.harvest(getRecordRequest);
+
+        verify(httpClient).execute(getRequestCaptor.capture());
+        assertEquals(getRecordRequest.getUri(mirror), getRequestCaptor.getValue().getURI());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBaseUriMustBeHttp() throws Exception {
+        harvester.setBaseUri(URI.create("ftp://mirror.example.org/oai2"));
+    }
+
     @Test
     public void testHarvestGetRecord() throws Exception {
         givenHttpResponseIsOK();
@@ -147,6 +178,7 @@ public class ArxivOAIHarvesterTest {
         assertEquals(resumeListRecordsRequest.getUri(), getRequest.getURI());
         assertEquals(USER_AGENT_HEADER, getRequest.getFirstHeader(HttpHeaders.USER_AGENT).getValue());
         assertEquals(FROM_HEADER, getRequest.getFirstHeader(HttpHeaders.FROM).getValue());
+        verify(xmlParser).parse(any(InputStream.class), eq(ParseOptions.builder().resumption(true).build()));
 
         assertEquals(parsedXmlResponse.getResponseDate(), response.getResponseDate());
         assertEquals(resumeListRecordsRequest.getOriginalRequest(), response.getRequest());
@@ -158,6 +190,74 @@ public class ArxivOAIHarvesterTest {
 
 
 
+    @Test
+    public void testHarvestListIdentifiers() throws Exception {
+        ListIdentifiersRequest listIdentifiersRequest = new ListIdentifiersRequest(LocalDate.of(2015, 6, 27), null, null);
+        RecordHeader header = RecordHeader.builder().identifier("oai:arXiv.org:1302.2146").build();
+        givenHttpResponseIsOK();
+        when(xmlParser.parse(any(InputStream.class), any(ParseOptions.class))).thenReturn(ParsedXmlResponse.builder()
+                .responseDate(parsedXmlResponse.getResponseDate())
+                .records(Lists.newArrayList())
+                .headers(Lists.newArrayList(header))
+                .resumptionToken("resumptionToken")
+                .build());
+
+        ListIdentifiersResponse response = harvester.harvest(
+                new ResumeListIdentifiersRequest("870434|1001", listIdentifiersRequest));
+
+        verify(httpClient).execute(getRequestCaptor.capture());
+        assertEquals("http://export.arxiv.org/oai2?verb=ListIdentifiers&resumptionToken=870434%7C1001",
+                getRequestCaptor.getValue().getURI().toString());
+        verify(xmlParser).parse(any(InputStream.class), eq(ParseOptions.builder().resumption(true).build()));
+
+        assertEquals(listIdentifiersRequest, response.getRequest());
+        assertEquals(Lists.newArrayList(header), response.getHeaders());
+        assertEquals("resumptionToken", response.getResumptionToken());
+    }
+
+    @Test
+    public void testHarvestListIdentifiersWithNoRecordsMatch() throws Exception {
+        givenHttpResponseIsOK();
+        givenRepositoryResponseIsSuccessful();
+
+        ListIdentifiersResponse response = harvester.harvest(new ListIdentifiersRequest(null, null, null));
+
+        assertTrue(response.getHeaders().isEmpty());
+    }
+
+    @Test
+    public void testHarvestListRecordsWithFieldProjection() throws Exception {
+        givenHttpResponseIsOK();
+        givenRepositoryResponseIsSuccessful();
+        Set<ArticleField> fields = EnumSet.of(ArticleField.CATEGORIES, ArticleField.VERSIONS);
+
+        harvester.harvest(new ListRecordsRequest(null, null, null, fields));
+
+        verify(xmlParser).parse(any(InputStream.class), eq(ParseOptions.builder().fields(fields).build()));
+    }
+
+    @Test
+    public void testHarvestListRecordsWithRecordHandler() throws Exception {
+        givenHttpResponseIsOK();
+        givenRepositoryResponseIsSuccessfulWithRecordHandler();
+
+        List<ArticleMetadata> handledRecords = Lists.newArrayList();
+        ListRecordsResponse response = harvester.harvest(listRecordsRequest, handledRecords::add);
+
+        verify(httpClient).execute(getRequestCaptor.capture());
+        assertEquals(listRecordsRequest.getUri(), getRequestCaptor.getValue().getURI());
+
+        assertEquals(parsedXmlResponse.getRecords(), handledRecords);
+        assertTrue(response.getRecords().isEmpty());
+        assertEquals(parsedXmlResponse.getResponseDate(), response.getResponseDate());
+        assertEquals(listRecordsRequest, response.getRequest());
+        assertEquals(parsedXmlResponse.getResumptionToken(), response.getResumptionToken());
+        assertEquals(parsedXmlResponse.getCursor(), response.getCursor());
+        assertEquals(parsedXmlResponse.getCompleteListSize(), response.getCompleteListSize());
+    }
+
+
+
     // Tests: happy path with retries
 
     @Test
@@ -186,7 +286,7 @@ public class ArxivOAIHarvesterTest {
         long endTime = stopwatch.runtime(TimeUnit.NANOSECONDS);
 
         verify(httpClient, times(3)).execute(any(HttpGet.class));
-        verify(xmlParser, times(1)).parse(any(InputStream.class));
+        verify(xmlParser, times(1)).parse(any(InputStream.class), any(ParseOptions.class));
 
         Duration elapsedTime = Duration.ofNanos(endTime - startTime);
         assertTrue(elapsedTime.compareTo(Duration.ofSeconds(5)) > 0);
@@ -196,6 +296,34 @@ public class ArxivOAIHarvesterTest {
 
 
 
+    // Tests: pacing statistics
+
+    @Test
+    public void testPacingStatisticsCountOnlyParsedPagesAsServed() throws Exception {
+        givenHttpResponseIsOK();
+        when(xmlParser.parse(any(InputStream.class), any(ParseOptions.class)))
+                .thenThrow(new ParseException())
+                .thenReturn(parsedXmlResponse);
+
+        try {
+            harvester.harvest(getRecordRequest);
+            fail("Expected a ParseException");
+        } catch (ParseException e) {
+            // do nothing
+        }
+        assertEquals(1, harvester.getPacingStatistics().getRequests());
+        assertEquals(0, harvester.getPacingStatistics().getServedRequests());
+
+        harvester.harvest(getRecordRequest);
+
+        PacingStatistics statistics = harvester.getPacingStatistics();
+        assertEquals(2, statistics.getRequests());
+        assertEquals(0, statistics.getThrottledRequests());
+        assertEquals(1, statistics.getServedRequests());
+    }
+
+
+
     // Tests: initial wait caused by trying to send a new request too soon after the last one
 
     @Test
@@ -371,23 +499,41 @@ public class ArxivOAIHarvesterTest {
 
 
     private void givenRepositoryResponseIsSuccessful() throws Exception {
-        when(xmlParser.parse(any(InputStream.class))).thenReturn(parsedXmlResponse);
+        when(xmlParser.parse(any(InputStream.class), any(ParseOptions.class))).thenReturn(parsedXmlResponse);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenRepositoryResponseIsSuccessfulWithRecordHandler() throws Exception {
+        ParsedXmlResponse responseWithoutRecords = ParsedXmlResponse.builder()
+                .responseDate(parsedXmlResponse.getResponseDate())
+                .records(Lists.newArrayList())
+                .resumptionToken(parsedXmlResponse.getResumptionToken())
+                .cursor(parsedXmlResponse.getCursor())
+                .completeListSize(parsedXmlResponse.getCompleteListSize())
+                .build();
+
+        when(xmlParser.parse(any(InputStream.class), any(ParseOptions.class), any(Consumer.class)))
+                .thenAnswer(invocation -> {
+                    Consumer<ArticleMetadata> recordHandler = (Consumer<ArticleMetadata>) invocation.getArguments()[2];
+                    parsedXmlResponse.getRecords().forEach(recordHandler);
+                    return responseWithoutRecords;
+                });
     }
 
     private void givenRepositoryResponseCannotBeParsed() throws Exception {
-        when(xmlParser.parse(any(InputStream.class))).thenThrow(new ParseException());
+        when(xmlParser.parse(any(InputStream.class), any(ParseOptions.class))).thenThrow(new ParseException());
     }
 
     private void givenRepositoryResponseIsInvalid() throws Exception {
-        when(xmlParser.parse(any(InputStream.class))).thenThrow(new RepositoryError());
+        when(xmlParser.parse(any(InputStream.class), any(ParseOptions.class))).thenThrow(new RepositoryError());
     }
 
     private void givenRepositoryResponseIsBadArgument() throws Exception {
-        when(xmlParser.parse(any(InputStream.class))).thenThrow(new BadArgumentException());
+        when(xmlParser.parse(any(InputStream.class), any(ParseOptions.class))).thenThrow(new BadArgumentException());
     }
 
     private void givenRepositoryResponseIsBadResumptionToken() throws Exception {
-        when(xmlParser.parse(any(InputStream.class))).thenThrow(new BadResumptionTokenException());
+        when(xmlParser.parse(any(InputStream.class), any(ParseOptions.class))).thenThrow(new BadResumptionTokenException());
     }
 
 }
\ No newline at end of file
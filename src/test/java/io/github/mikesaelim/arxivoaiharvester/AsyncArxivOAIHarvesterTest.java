@@ -0,0 +1,236 @@
+package io.github.mikesaelim.arxivoaiharvester;
+
+import com.google.common.collect.Lists;
+import io.github.mikesaelim.arxivoaiharvester.exception.RepositoryError;
+import io.github.mikesaelim.arxivoaiharvester.exception.TimeoutException;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata;
+import io.github.mikesaelim.arxivoaiharvester.model.request.GetRecordRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.response.GetRecordResponse;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListRecordsResponse;
+import io.github.mikesaelim.arxivoaiharvester.xml.ParseOptions;
+import io.github.mikesaelim.arxivoaiharvester.xml.ParsedXmlResponse;
+import io.github.mikesaelim.arxivoaiharvester.xml.XMLParser;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class AsyncArxivOAIHarvesterTest {
+
+    private AsyncArxivOAIHarvester asyncHarvester;
+
+    @Mock
+    private CloseableHttpClient httpClient;
+    @Mock
+    private XMLParser xmlParser;
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private CloseableHttpResponse httpResponse;
+
+    // Short wait times for testing
+    private static final int MAX_NUM_RETRIES = 2;
+    private static final Duration MIN_WAIT_BETWEEN_REQUESTS = Duration.ofMillis(300);
+    private static final Duration MAX_WAIT_BETWEEN_REQUESTS = Duration.ofSeconds(2);
+
+    private GetRecordRequest getRecordRequest;
+    private ParsedXmlResponse parsedXmlResponse;
+
+    private final List<Long> requestTimes = Collections.synchronizedList(Lists.newArrayList());
+
+
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        ArxivOAIHarvester harvester = new ArxivOAIHarvester(httpClient, xmlParser,
+                MAX_NUM_RETRIES, MIN_WAIT_BETWEEN_REQUESTS, MAX_WAIT_BETWEEN_REQUESTS);
+        asyncHarvester = new AsyncArxivOAIHarvester(harvester);
+
+        getRecordRequest = new GetRecordRequest("oai:arXiv.org:1302.2146");
+        parsedXmlResponse = ParsedXmlResponse.builder()
+                .responseDate(ZonedDateTime.now())
+                .records(Lists.newArrayList(ArticleMetadata.builder().identifier("oai:arXiv.org:1302.2146").build()))
+                .build();
+
+        when(httpResponse.getStatusLine().getStatusCode()).thenReturn(HttpStatus.SC_OK);
+        when(httpResponse.getEntity().getContent()).thenReturn(mock(InputStream.class));
+        when(xmlParser.parse(any(InputStream.class), any(ParseOptions.class))).thenReturn(parsedXmlResponse);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        asyncHarvester.close();
+    }
+
+
+
+    @Test
+    public void testHarvestGetRecord() throws Exception {
+        givenRepositoryAnswers(httpResponse);
+
+        GetRecordResponse response = asyncHarvester.harvest(getRecordRequest).get(5, TimeUnit.SECONDS);
+
+        assertEquals(getRecordRequest, response.getRequest());
+        assertEquals(parsedXmlResponse.getRecords().get(0), response.getRecord());
+    }
+
+    @Test
+    public void testRequestsFromManyThreadsAreSpacedOut() throws Exception {
+        givenRepositoryAnswers(httpResponse);
+        ListRecordsRequest listRecordsRequest = new ListRecordsRequest(LocalDate.of(2015, 6, 27), null, null);
+
+        List<CompletableFuture<ListRecordsResponse>> futures = Collections.synchronizedList(Lists.newArrayList());
+        CountDownLatch submitted = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            new Thread(() -> {
+                futures.add(asyncHarvester.harvest(listRecordsRequest));
+                submitted.countDown();
+            }).start();
+        }
+        assertTrue(submitted.await(1, TimeUnit.SECONDS));
+
+        // None of the submitting threads had to wait for the requests to be sent
+        assertTrue(requestTimes.size() < 3);
+
+        for (CompletableFuture<ListRecordsResponse> future : futures) {
+            assertEquals(listRecordsRequest, future.get(5, TimeUnit.SECONDS).getRequest());
+        }
+        assertEquals(3, requestTimes.size());
+        for (int i = 1; i < 3; i++) {
+            long gapMillis = TimeUnit.NANOSECONDS.toMillis(requestTimes.get(i) - requestTimes.get(i - 1));
+            assertTrue("Requests were only " + gapMillis + " ms apart",
+                    gapMillis >= MIN_WAIT_BETWEEN_REQUESTS.toMillis());
+        }
+    }
+
+    @Test
+    public void testHarvestWithRetry() throws Exception {
+        givenRepositoryAnswers(retryAfter("0"), httpResponse);
+
+        GetRecordResponse response = asyncHarvester.harvest(getRecordRequest).get(5, TimeUnit.SECONDS);
+
+        assertEquals(parsedXmlResponse.getRecords().get(0), response.getRecord());
+        assertEquals(2, requestTimes.size());
+        assertTrue(requestTimes.get(1) - requestTimes.get(0) >= MIN_WAIT_BETWEEN_REQUESTS.toNanos());
+    }
+
+    @Test
+    public void tooManyRetriesShouldFail() throws Exception {
+        givenRepositoryAnswers(retryAfter("0"));
+
+        assertFailsWith(TimeoutException.class, asyncHarvester.harvest(getRecordRequest));
+        assertEquals(MAX_NUM_RETRIES + 1, requestTimes.size());
+    }
+
+    @Test
+    public void waitTooLongShouldFail() throws Exception {
+        givenRepositoryAnswers(retryAfter("3"));
+
+        assertFailsWith(TimeoutException.class, asyncHarvester.harvest(getRecordRequest));
+    }
+
+    @Test
+    public void failureShouldNotStopLaterRequests() throws Exception {
+        CloseableHttpResponse notFound = mock(CloseableHttpResponse.class, withSettings().defaultAnswer(RETURNS_DEEP_STUBS));
+        when(notFound.getStatusLine().getStatusCode()).thenReturn(HttpStatus.SC_NOT_FOUND);
+        givenRepositoryAnswers(notFound, httpResponse);
+
+        CompletableFuture<GetRecordResponse> failed = asyncHarvester.harvest(getRecordRequest);
+        CompletableFuture<GetRecordResponse> succeeded = asyncHarvester.harvest(getRecordRequest);
+
+        assertFailsWith(RepositoryError.class, failed);
+        assertNotNull(succeeded.get(5, TimeUnit.SECONDS).getRecord());
+    }
+
+    @Test
+    public void cancellingDuringRetryWaitShouldReleaseTheDispatcher() throws Exception {
+        givenRepositoryAnswers(retryAfter("2"), httpResponse);
+
+        CompletableFuture<GetRecordResponse> cancelled = asyncHarvester.harvest(getRecordRequest);
+        CompletableFuture<GetRecordResponse> next = asyncHarvester.harvest(getRecordRequest);
+        while (requestTimes.isEmpty()) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        cancelled.cancel(false);
+        long cancelledAt = System.nanoTime();
+
+        // The next request only waits out the minimum wait, not the 2 second Retry-After of the cancelled one
+        assertNotNull(next.get(5, TimeUnit.SECONDS).getRecord());
+        assertEquals(2, requestTimes.size());
+        assertTrue(requestTimes.get(1) - cancelledAt < Duration.ofSeconds(1).toNanos());
+        TimeUnit.SECONDS.sleep(2);
+        assertEquals(2, requestTimes.size());
+    }
+
+    @Test
+    public void closeShouldCancelWaitingRequests() throws Exception {
+        givenRepositoryAnswers(httpResponse);
+
+        asyncHarvester.harvest(getRecordRequest).get(5, TimeUnit.SECONDS);
+        CompletableFuture<GetRecordResponse> waiting = asyncHarvester.harvest(getRecordRequest);
+        asyncHarvester.close();
+
+        try {
+            waiting.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (CancellationException e) {
+            // expected
+        }
+        assertEquals(1, requestTimes.size());
+        assertTrue(asyncHarvester.harvest(getRecordRequest).isCompletedExceptionally());
+    }
+
+
+
+    private void givenRepositoryAnswers(CloseableHttpResponse first, CloseableHttpResponse... rest) throws Exception {
+        List<CloseableHttpResponse> answers = Lists.asList(first, rest);
+        when(httpClient.execute(any(HttpGet.class))).thenAnswer(invocation -> {
+            requestTimes.add(System.nanoTime());
+            return answers.get(Math.min(requestTimes.size(), answers.size()) - 1);
+        });
+    }
+
+    private static CloseableHttpResponse retryAfter(String seconds) {
+        CloseableHttpResponse waitHttpResponse = mock(CloseableHttpResponse.class,
+                withSettings().defaultAnswer(RETURNS_DEEP_STUBS));
+        when(waitHttpResponse.getStatusLine().getStatusCode()).thenReturn(HttpStatus.SC_SERVICE_UNAVAILABLE);
+        when(waitHttpResponse.getFirstHeader(HttpHeaders.RETRY_AFTER).getValue()).thenReturn(seconds);
+        return waitHttpResponse;
+    }
+
+    private static void assertFailsWith(Class<? extends Throwable> exceptionClass, CompletableFuture<?> future)
+            throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue("Unexpected exception " + e.getCause(), exceptionClass.isInstance(e.getCause()));
+        }
+    }
+
+}
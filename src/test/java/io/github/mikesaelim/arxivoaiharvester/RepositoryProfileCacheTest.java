@@ -0,0 +1,169 @@
+package io.github.mikesaelim.arxivoaiharvester;
+
+import com.google.common.collect.ImmutableList;
+import io.github.mikesaelim.arxivoaiharvester.model.data.DatestampGranularity;
+import io.github.mikesaelim.arxivoaiharvester.model.data.DeletedRecordPolicy;
+import io.github.mikesaelim.arxivoaiharvester.model.data.RepositoryDescription;
+import io.github.mikesaelim.arxivoaiharvester.model.data.RepositoryProfile;
+import io.github.mikesaelim.arxivoaiharvester.model.data.SetDescription;
+import io.github.mikesaelim.arxivoaiharvester.model.request.IdentifyRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListSetsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListSetsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.response.IdentifyResponse;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListSetsResponse;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class RepositoryProfileCacheTest {
+
+    @Mock
+    private ArxivOAIHarvester harvester;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static final Duration TIME_TO_LIVE = Duration.ofDays(1);
+    private static final Instant NOW = Instant.parse("2015-01-06T20:49:59Z");
+
+    private static final RepositoryDescription DESCRIPTION = RepositoryDescription.builder()
+            .repositoryName("arXiv")
+            .baseUrl("http://export.arxiv.org/oai2")
+            .protocolVersion("2.0")
+            .adminEmails(Collections.singletonList("help@arxiv.org"))
+            .earliestDatestamp(LocalDate.of(2007, 5, 23))
+            .deletedRecord(DeletedRecordPolicy.PERSISTENT)
+            .granularity(DatestampGranularity.DAY)
+            .compressions(Arrays.asList("gzip", "deflate"))
+            .build();
+    private static final SetDescription PHYSICS = SetDescription.builder().setSpec("physics").setName("Physics").build();
+    private static final SetDescription MATH = SetDescription.builder().setSpec("math").setName("Mathematics").build();
+
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        file = temporaryFolder.getRoot().toPath().resolve("profiles").resolve("arxiv.properties");
+
+        when(harvester.harvest(any(IdentifyRequest.class))).thenReturn(IdentifyResponse.builder()
+                .description(DESCRIPTION)
+                .build());
+        when(harvester.harvest(any(ListSetsRequest.class))).thenAnswer(invocation -> {
+            ListSetsRequest request = (ListSetsRequest) invocation.getArguments()[0];
+            if (request instanceof ResumeListSetsRequest) {
+                return ListSetsResponse.builder().sets(ImmutableList.of(MATH)).build();
+            }
+            return ListSetsResponse.builder()
+                    .request(request)
+                    .sets(ImmutableList.of(PHYSICS))
+                    .resumptionToken("resumptionToken")
+                    .build();
+        });
+    }
+
+    @Test
+    public void testGet_RetrievesAllPagesOfSets() throws Exception {
+        RepositoryProfile profile = cacheAt(NOW).get();
+
+        assertEquals(DESCRIPTION, profile.getDescription());
+        assertEquals(ImmutableList.of(PHYSICS, MATH), profile.getSets());
+        assertEquals(NOW, profile.getRetrievedAt());
+        verify(harvester, times(2)).harvest(any(ListSetsRequest.class));
+    }
+
+    @Test
+    public void testGet_ReusesProfileInMemoryUntilItExpires() throws Exception {
+        RepositoryProfileCache cache = new RepositoryProfileCache(harvester, TIME_TO_LIVE);
+
+        RepositoryProfile profile = cache.get();
+
+        assertSame(profile, cache.get());
+        verify(harvester, times(1)).harvest(any(IdentifyRequest.class));
+    }
+
+    @Test
+    public void testGet_ReadsProfileFromDiskAfterRestart() throws Exception {
+        RepositoryProfile profile = cacheAt(NOW).get();
+        assertTrue(Files.exists(file));
+
+        RepositoryProfile reloadedProfile = cacheAt(NOW.plus(Duration.ofHours(23))).get();
+
+        assertEquals(profile, reloadedProfile);
+        verify(harvester, times(1)).harvest(any(IdentifyRequest.class));
+    }
+
+    @Test
+    public void testGet_RetrievesAgainOnceExpired() throws Exception {
+        cacheAt(NOW).get();
+
+        RepositoryProfile profile = cacheAt(NOW.plus(Duration.ofHours(25))).get();
+
+        assertEquals(NOW.plus(Duration.ofHours(25)), profile.getRetrievedAt());
+        verify(harvester, times(2)).harvest(any(IdentifyRequest.class));
+        assertEquals(profile, cacheAt(NOW.plus(Duration.ofHours(26))).get());
+    }
+
+    @Test
+    public void testGet_IgnoresUnreadableFile() throws Exception {
+        Files.createDirectories(file.getParent());
+        Files.write(file, "formatVersion=1\nsets=pie\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        RepositoryProfile profile = cacheAt(NOW).get();
+
+        assertEquals(DESCRIPTION, profile.getDescription());
+        assertEquals(profile, RepositoryProfileCache.fromProperties(
+                RepositoryProfileCache.toProperties(cacheAt(NOW).get())));
+    }
+
+    @Test
+    public void testRefresh() throws Exception {
+        RepositoryProfileCache cache = cacheAt(NOW);
+        cache.get();
+
+        cache.refresh();
+
+        verify(harvester, times(2)).harvest(any(IdentifyRequest.class));
+    }
+
+    @Test
+    public void testPropertiesRoundTrip() throws Exception {
+        RepositoryProfile profile = RepositoryProfile.builder()
+                .description(RepositoryDescription.builder()
+                        .adminEmails(Collections.emptyList())
+                        .earliestDatestamp(LocalDate.of(2007, 5, 23))
+                        .deletedRecord(DeletedRecordPolicy.NO)
+                        .granularity(DatestampGranularity.SECOND)
+                        .compressions(Collections.emptyList())
+                        .build())
+                .sets(ImmutableList.of(SetDescription.builder().setSpec("cs").build()))
+                .retrievedAt(NOW)
+                .build();
+
+        assertEquals(profile, RepositoryProfileCache.fromProperties(RepositoryProfileCache.toProperties(profile)));
+    }
+
+    private RepositoryProfileCache cacheAt(Instant now) {
+        return new RepositoryProfileCache(harvester, file, TIME_TO_LIVE, Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+}
@@ -0,0 +1,69 @@
+package io.github.mikesaelim.arxivoaiharvester;
+
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+/**
+ * A local stand-in for the arXiv OAI repository, for tests that need real HTTP exchanges.  Requests for the real
+ * repository sent through {@link #getHttpClient()} go to the handler instead.  The client leaves compressed responses
+ * to the harvester, as the README recommends.
+ */
+public class StandInRepository implements Closeable {
+
+    private final HttpServer server;
+    private final CloseableHttpClient httpClient;
+
+    public StandInRepository(HttpHandler handler) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/oai2", handler);
+        server.start();
+
+        HttpHost standIn = new HttpHost("localhost", server.getAddress().getPort());
+        httpClient = HttpClients.custom()
+                .disableContentCompression()
+                .setRoutePlanner((target, request, context) -> new HttpRoute(standIn))
+                .build();
+    }
+
+    public CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+        server.stop(0);
+    }
+
+    /**
+     * Send a response with the given status and body, after any headers the handler has added.
+     */
+    public static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+
+    /**
+     * @return the contents of a test resource
+     */
+    public static byte[] resource(String name) throws IOException {
+        try (InputStream inputStream = StandInRepository.class.getClassLoader().getResourceAsStream(name)) {
+            return ByteStreams.toByteArray(inputStream);
+        }
+    }
+
+}
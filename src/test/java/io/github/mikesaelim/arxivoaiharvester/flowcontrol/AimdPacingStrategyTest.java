@@ -0,0 +1,189 @@
+package io.github.mikesaelim.arxivoaiharvester.flowcontrol;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+
+public class AimdPacingStrategyTest {
+
+    // The simulated repository throttles any request that comes in sooner than this after the last one it served
+    private static final Duration REPOSITORY_LIMIT = Duration.ofMillis(100);
+    private static final Duration ROUND_TRIP = Duration.ofMillis(5);
+    private static final int NUM_PAGES = 100;
+
+    private AimdPacingStrategy strategy;
+
+    @Before
+    public void setUp() throws Exception {
+        strategy = AimdPacingStrategy.builder()
+                .minInterval(Duration.ofSeconds(1))
+                .maxInterval(Duration.ofSeconds(60))
+                .initialInterval(Duration.ofSeconds(10))
+                .decreaseStep(Duration.ofSeconds(1))
+                .backoffFactor(2.0)
+                .safetyMargin(1.5)
+                .build();
+    }
+
+    @Test
+    public void testIntervalShrinksWhileServed() throws Exception {
+        strategy.onServed();
+        assertEquals(Duration.ofSeconds(9), strategy.interval());
+
+        for (int i = 0; i < 20; i++) {
+            strategy.onServed();
+        }
+        assertEquals(Duration.ofSeconds(1), strategy.interval());
+    }
+
+    @Test
+    public void testBackoffWhenThrottled() throws Exception {
+        strategy.onThrottled(Duration.ZERO);
+        assertEquals(Duration.ofSeconds(20), strategy.interval());
+        assertEquals(Duration.ofSeconds(10), strategy.getThrottledInterval());
+
+        strategy.onThrottled(Duration.ZERO);
+        strategy.onThrottled(Duration.ZERO);
+        assertEquals(Duration.ofSeconds(60), strategy.interval());
+    }
+
+    @Test
+    public void testBackoffToSuggestedWait() throws Exception {
+        strategy.onThrottled(Duration.ofSeconds(30));
+
+        assertEquals(Duration.ofSeconds(30), strategy.interval());
+        assertEquals(Duration.ofSeconds(45), strategy.retryWait(Duration.ofSeconds(30)));
+        assertEquals(Duration.ofSeconds(30), strategy.retryWait(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    public void testIntervalStaysAboveThrottledInterval() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            strategy.onServed();
+        }
+        assertEquals(Duration.ofSeconds(4), strategy.interval());
+
+        strategy.onThrottled(Duration.ZERO);
+        for (int i = 0; i < 20; i++) {
+            strategy.onServed();
+        }
+
+        assertEquals(Duration.ofSeconds(6), strategy.interval());
+    }
+
+    @Test
+    public void testThrottledIntervalIsForgottenSlowly() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            strategy.onServed();
+        }
+        strategy.onThrottled(Duration.ZERO);
+
+        for (int i = 0; i < 100; i++) {
+            strategy.onServed();
+        }
+
+        assertEquals(Duration.ofSeconds(3), strategy.getThrottledInterval());
+        assertEquals(Duration.ofSeconds(5), strategy.interval());
+
+        strategy.onServed();
+        assertEquals(Duration.ofMillis(4500), strategy.interval());
+    }
+
+    @Test
+    public void testAimdBeatsFixedPacing() throws Exception {
+        // Too fast: most requests are throttled
+        SimulatedHarvest aggressive = new SimulatedHarvest(new FixedPacingStrategy(Duration.ofMillis(10)));
+        // Too slow: never throttled, but leaves capacity unused
+        SimulatedHarvest conservative = new SimulatedHarvest(new FixedPacingStrategy(Duration.ofMillis(250)));
+        AimdPacingStrategy adaptiveStrategy = AimdPacingStrategy.builder()
+                .minInterval(Duration.ofMillis(10))
+                .maxInterval(Duration.ofSeconds(1))
+                .initialInterval(Duration.ofMillis(250))
+                .decreaseStep(Duration.ofMillis(25))
+                .build();
+        SimulatedHarvest adaptive = new SimulatedHarvest(adaptiveStrategy);
+
+        assertTrue("Adaptive pacing was throttled " + adaptive.throttledRequests + " times, fixed pacing " +
+                        aggressive.throttledRequests + " times",
+                adaptive.throttledRequests * 5 < aggressive.throttledRequests);
+        assertTrue("Adaptive pacing took " + adaptive.elapsed + ", fixed pacing " + conservative.elapsed,
+                adaptive.elapsed.multipliedBy(5).compareTo(conservative.elapsed.multipliedBy(4)) < 0);
+        assertTrue(adaptiveStrategy.interval().compareTo(REPOSITORY_LIMIT.multipliedBy(2)) < 0);
+    }
+
+    @Test
+    public void testDefaults() throws Exception {
+        AimdPacingStrategy defaultStrategy = new AimdPacingStrategy(Duration.ofSeconds(3));
+
+        assertEquals(Duration.ofSeconds(10), defaultStrategy.interval());
+        assertEquals(Duration.ofSeconds(3), defaultStrategy.getMinInterval());
+        assertEquals(Duration.ofMinutes(5), defaultStrategy.getMaxInterval());
+        assertNull(defaultStrategy.getThrottledInterval());
+    }
+
+    @Test
+    public void testDefaultInitialIntervalRespectsMinimum() throws Exception {
+        AimdPacingStrategy slowStrategy = new AimdPacingStrategy(Duration.ofSeconds(20));
+
+        assertEquals(Duration.ofSeconds(20), slowStrategy.interval());
+        slowStrategy.onServed();
+        assertEquals(Duration.ofSeconds(20), slowStrategy.interval());
+    }
+
+    @Test
+    public void testProbingStaysAboveMinimum() throws Exception {
+        strategy.onThrottled(Duration.ZERO);
+        for (int i = 0; i < 10 * 100; i++) {
+            strategy.onServed();
+        }
+
+        assertEquals(Duration.ZERO, strategy.getThrottledInterval());
+        assertEquals(Duration.ofSeconds(1), strategy.interval());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testMinIntervalIsRequired() throws Exception {
+        AimdPacingStrategy.builder()
+                .initialInterval(Duration.ofSeconds(1))
+                .build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInitialIntervalOutOfRange() throws Exception {
+        AimdPacingStrategy.builder()
+                .minInterval(Duration.ofSeconds(5))
+                .initialInterval(Duration.ofSeconds(1))
+                .build();
+    }
+
+    /**
+     * A harvest of NUM_PAGES pages from the simulated repository, on a simulated clock, paced the way the harvester
+     * paces its requests: the strategy's interval after each response, and its retry wait after each 503.
+     */
+    private static class SimulatedHarvest {
+        private int throttledRequests;
+        private Duration elapsed = Duration.ZERO;
+
+        SimulatedHarvest(PacingStrategy strategy) {
+            Duration lastServed = null;
+            for (int page = 0; page < NUM_PAGES; page++) {
+                if (page > 0) {
+                    elapsed = elapsed.plus(strategy.interval());
+                }
+
+                while (lastServed != null && elapsed.minus(lastServed).compareTo(REPOSITORY_LIMIT) < 0) {
+                    throttledRequests++;
+                    strategy.onThrottled(Duration.ZERO);
+                    elapsed = elapsed.plus(ROUND_TRIP).plus(strategy.retryWait(Duration.ZERO));
+                }
+                lastServed = elapsed;
+                strategy.onServed();
+                elapsed = elapsed.plus(ROUND_TRIP);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,17 @@
+package io.github.mikesaelim.arxivoaiharvester.flowcontrol;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Assertions on the waits that the rate limiters hand out, which shrink a little while a test runs.
+ */
+class DurationAssert {
+
+    static void assertBetween(Duration low, Duration high, Duration actual) {
+        assertTrue(actual + " is not between " + low + " and " + high,
+                actual.compareTo(low) >= 0 && actual.compareTo(high) <= 0);
+    }
+
+}
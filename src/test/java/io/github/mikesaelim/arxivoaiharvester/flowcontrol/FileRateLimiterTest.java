@@ -0,0 +1,130 @@
+package io.github.mikesaelim.arxivoaiharvester.flowcontrol;
+
+import io.github.mikesaelim.arxivoaiharvester.exception.InterruptedError;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.mikesaelim.arxivoaiharvester.flowcontrol.DurationAssert.assertBetween;
+import static org.junit.Assert.*;
+
+public class FileRateLimiterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testReservationsAreSpacedOut() throws Exception {
+        FileRateLimiter limiter = FileRateLimiter.forFile(newFile(), Duration.ofSeconds(10));
+
+        assertTrue(limiter.reserve(Duration.ZERO).compareTo(Duration.ofSeconds(1)) < 0);
+        assertBetween(Duration.ofSeconds(9), Duration.ofSeconds(10), limiter.reserve(Duration.ZERO));
+        assertBetween(Duration.ofSeconds(59), Duration.ofSeconds(60), limiter.reserve(Duration.ofSeconds(60)));
+        assertBetween(Duration.ofSeconds(69), Duration.ofSeconds(70), limiter.reserve(Duration.ZERO));
+    }
+
+    @Test
+    public void testTimeUntilFreeDoesNotReserve() throws Exception {
+        FileRateLimiter limiter = FileRateLimiter.forFile(newFile(), Duration.ofSeconds(10));
+        assertEquals(Duration.ZERO, limiter.timeUntilFree());
+
+        limiter.reserve(Duration.ZERO);
+        assertBetween(Duration.ofSeconds(9), Duration.ofSeconds(10), limiter.timeUntilFree());
+        assertBetween(Duration.ofSeconds(9), Duration.ofSeconds(10), limiter.timeUntilFree());
+    }
+
+    @Test
+    public void testPauseHoldsBackReservations() throws Exception {
+        FileRateLimiter limiter = FileRateLimiter.forFile(newFile(), Duration.ofSeconds(10));
+
+        limiter.pauseFor(Duration.ofSeconds(60));
+        limiter.pauseFor(Duration.ofSeconds(30));
+        assertBetween(Duration.ofSeconds(59), Duration.ofSeconds(60), limiter.reserve(Duration.ZERO));
+    }
+
+    @Test
+    public void testForFile() throws Exception {
+        Path file = newFile();
+        FileRateLimiter limiter = FileRateLimiter.forFile(file, Duration.ofSeconds(3));
+
+        assertSame(limiter, FileRateLimiter.forFile(file.getParent().resolve(".").resolve(file.getFileName()),
+                Duration.ofSeconds(5)));
+        assertEquals(Duration.ofSeconds(3), limiter.getMinInterval());
+    }
+
+    @Test
+    public void testRecoversFromInterruptedReservation() throws Exception {
+        Path file = newFile();
+        FileRateLimiter limiter = FileRateLimiter.forFile(file, Duration.ofSeconds(10));
+        limiter.reserve(Duration.ZERO);
+
+        Thread.currentThread().interrupt();
+        try {
+            limiter.reserve(Duration.ZERO);
+            fail();
+        } catch (InterruptedError e) {
+            assertTrue(Thread.interrupted());
+        }
+
+        // The same limiter carries on, with the state that is in the file
+        assertSame(limiter, FileRateLimiter.forFile(file, Duration.ofSeconds(10)));
+        assertBetween(Duration.ofSeconds(9), Duration.ofSeconds(10), limiter.timeUntilFree());
+        assertBetween(Duration.ofSeconds(9), Duration.ofSeconds(10), limiter.reserve(Duration.ZERO));
+    }
+
+    @Test
+    public void testStateIsSharedWithOtherProcesses() throws Exception {
+        Path file = newFile();
+
+        // Another process takes a slot and is told to wait
+        runInOtherProcess(file, "reserve");
+        runInOtherProcess(file, "pause");
+
+        FileRateLimiter limiter = FileRateLimiter.forFile(file, Duration.ofSeconds(10));
+        assertBetween(Duration.ofSeconds(50), Duration.ofSeconds(60), limiter.reserve(Duration.ZERO));
+        assertBetween(Duration.ofSeconds(60), Duration.ofSeconds(70), limiter.reserve(Duration.ZERO));
+    }
+
+    @Test
+    public void testSlotsAreSharedWithOtherProcesses() throws Exception {
+        Path file = newFile();
+
+        runInOtherProcess(file, "reserve");
+
+        FileRateLimiter limiter = FileRateLimiter.forFile(file, Duration.ofSeconds(10));
+        assertTrue(limiter.reserve(Duration.ZERO).compareTo(Duration.ofSeconds(5)) > 0);
+    }
+
+    /**
+     * Entry point for the other process: reserves a slot, or pauses for a minute, on the file.
+     */
+    public static void main(String[] args) {
+        FileRateLimiter limiter = FileRateLimiter.forFile(new File(args[0]).toPath(), Duration.ofSeconds(10));
+        if (args[1].equals("pause")) {
+            limiter.pauseFor(Duration.ofMinutes(1));
+        } else {
+            limiter.reserve(Duration.ZERO);
+        }
+    }
+
+    private void runInOtherProcess(Path file, String command) throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                FileRateLimiterTest.class.getName(), file.toString(), command)
+                .inheritIO()
+                .start();
+
+        assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+        assertEquals(0, process.exitValue());
+    }
+
+    private Path newFile() throws Exception {
+        return temporaryFolder.getRoot().toPath().resolve("rate-limiter");
+    }
+
+}
@@ -0,0 +1,39 @@
+package io.github.mikesaelim.arxivoaiharvester.flowcontrol;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+
+public class FixedPacingStrategyTest {
+
+    private final FixedPacingStrategy strategy = new FixedPacingStrategy(Duration.ofSeconds(10));
+
+    @Test
+    public void testInterval() throws Exception {
+        assertEquals(Duration.ofSeconds(10), strategy.interval());
+
+        strategy.onThrottled(Duration.ofSeconds(30));
+        assertEquals(Duration.ofSeconds(10), strategy.interval());
+
+        strategy.onServed();
+        assertEquals(Duration.ofSeconds(10), strategy.interval());
+    }
+
+    @Test
+    public void testRetryWaitShorterThanMinimum() throws Exception {
+        assertEquals(Duration.ofSeconds(10), strategy.retryWait(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    public void testRetryWaitIsPadded() throws Exception {
+        assertEquals(Duration.ofSeconds(33), strategy.retryWait(Duration.ofSeconds(30)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeMinimum() throws Exception {
+        new FixedPacingStrategy(Duration.ofSeconds(-1));
+    }
+
+}
@@ -0,0 +1,196 @@
+package io.github.mikesaelim.arxivoaiharvester.flowcontrol;
+
+import io.github.mikesaelim.arxivoaiharvester.ArxivOAIHarvester;
+import io.github.mikesaelim.arxivoaiharvester.StandInRepository;
+import io.github.mikesaelim.arxivoaiharvester.model.request.GetRecordRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static io.github.mikesaelim.arxivoaiharvester.flowcontrol.DurationAssert.assertBetween;
+import static org.junit.Assert.*;
+
+public class SharedRateLimiterTest {
+
+    private static final Duration INTERVAL = Duration.ofMillis(100);
+    private static final byte[] RETRY_LATER = "Retry later".getBytes(StandardCharsets.US_ASCII);
+
+    private StandInRepository repository;
+    private GetRecordRequest request;
+
+    private final List<Long> arrivals = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicBoolean throttleNext = new AtomicBoolean();
+    private final CountDownLatch throttled = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws Exception {
+        byte[] getRecordResponse = StandInRepository.resource("GetRecordResponse.xml");
+        repository = new StandInRepository(exchange -> {
+            arrivals.add(System.nanoTime());
+            if (throttleNext.compareAndSet(true, false)) {
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                StandInRepository.respond(exchange, 503, RETRY_LATER);
+                throttled.countDown();
+                return;
+            }
+
+            exchange.getResponseHeaders().add("Content-Type", "text/xml");
+            StandInRepository.respond(exchange, 200, getRecordResponse);
+        });
+
+        request = new GetRecordRequest("oai:arXiv.org:1302.2146");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repository.close();
+    }
+
+    @Test
+    public void testReservationsAreSpacedOut() throws Exception {
+        SharedRateLimiter limiter = new SharedRateLimiter(Duration.ofSeconds(10));
+
+        assertTrue(limiter.reserve(Duration.ZERO).compareTo(Duration.ofSeconds(1)) < 0);
+        assertBetween(Duration.ofSeconds(9), Duration.ofSeconds(10), limiter.reserve(Duration.ZERO));
+        assertBetween(Duration.ofSeconds(19), Duration.ofSeconds(20), limiter.reserve(Duration.ZERO));
+        assertBetween(Duration.ofSeconds(59), Duration.ofSeconds(60), limiter.reserve(Duration.ofSeconds(60)));
+        assertBetween(Duration.ofSeconds(69), Duration.ofSeconds(70), limiter.reserve(Duration.ZERO));
+    }
+
+    @Test
+    public void testTimeUntilFreeDoesNotReserve() throws Exception {
+        SharedRateLimiter limiter = new SharedRateLimiter(Duration.ofSeconds(10));
+        assertEquals(Duration.ZERO, limiter.timeUntilFree());
+
+        limiter.reserve(Duration.ZERO);
+        assertBetween(Duration.ofSeconds(9), Duration.ofSeconds(10), limiter.timeUntilFree());
+        assertBetween(Duration.ofSeconds(9), Duration.ofSeconds(10), limiter.timeUntilFree());
+    }
+
+    @Test
+    public void testPauseHoldsBackReservations() throws Exception {
+        SharedRateLimiter limiter = new SharedRateLimiter(Duration.ofSeconds(10));
+        limiter.reserve(Duration.ZERO);
+
+        limiter.pauseFor(Duration.ofSeconds(60));
+        assertBetween(Duration.ofSeconds(59), Duration.ofSeconds(60), limiter.reserve(Duration.ZERO));
+
+        // A shorter pause does not cut a longer one short
+        limiter.pauseFor(Duration.ofSeconds(30));
+        assertBetween(Duration.ofSeconds(69), Duration.ofSeconds(70), limiter.reserve(Duration.ZERO));
+    }
+
+    @Test
+    public void testConcurrentReservationsGetDistinctSlots() throws Exception {
+        SharedRateLimiter limiter = new SharedRateLimiter(Duration.ofSeconds(1));
+        int numThreads = 4;
+        int numReservations = 250;
+
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            futures.add(executor.submit(() -> {
+                List<Long> slots = new ArrayList<>();
+                for (int j = 0; j < numReservations; j++) {
+                    slots.add(System.nanoTime() + limiter.reserve(Duration.ZERO).toNanos());
+                }
+                return slots;
+            }));
+        }
+        List<Long> slots = new ArrayList<>();
+        for (Future<List<Long>> future : futures) {
+            slots.addAll(future.get());
+        }
+        executor.shutdown();
+
+        Collections.sort(slots);
+        assertEquals(numThreads * numReservations, slots.size());
+        for (int i = 1; i < slots.size(); i++) {
+            // Allow for the clock moving between the reservation and reading it back
+            assertTrue(slots.get(i) - slots.get(i - 1) > Duration.ofMillis(900).toNanos());
+        }
+    }
+
+    @Test
+    public void testForHost() throws Exception {
+        SharedRateLimiter limiter = SharedRateLimiter.forHost("Export.arXiv.org", Duration.ofSeconds(3));
+
+        assertSame(limiter, SharedRateLimiter.forHost("export.arxiv.org", Duration.ofSeconds(5)));
+        assertEquals(Duration.ofSeconds(3), limiter.getMinInterval());
+        assertNotSame(limiter, SharedRateLimiter.forHost("example.org", Duration.ofSeconds(3)));
+    }
+
+    @Test
+    public void testHarvestersShareTheLimit() throws Exception {
+        SharedRateLimiter limiter = new SharedRateLimiter(INTERVAL);
+        int numHarvesters = 3;
+        int numRequests = 5;
+
+        ExecutorService executor = Executors.newFixedThreadPool(numHarvesters);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < numHarvesters; i++) {
+            ArxivOAIHarvester harvester = harvester(limiter);
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < numRequests; j++) {
+                    assertNotNull(harvester.harvest(request).getRecord());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        List<Long> sortedArrivals = new ArrayList<>(arrivals);
+        Collections.sort(sortedArrivals);
+        assertEquals(numHarvesters * numRequests, sortedArrivals.size());
+        for (int i = 1; i < sortedArrivals.size(); i++) {
+            // Allow for some jitter between sending and arriving
+            assertTrue(sortedArrivals.get(i) - sortedArrivals.get(i - 1) > INTERVAL.toNanos() / 2);
+        }
+    }
+
+    @Test
+    public void testRetryAfterHoldsBackOtherHarvesters() throws Exception {
+        SharedRateLimiter limiter = new SharedRateLimiter(Duration.ZERO);
+        ArxivOAIHarvester throttledHarvester = harvester(limiter);
+        ArxivOAIHarvester otherHarvester = harvester(limiter);
+
+        throttleNext.set(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> throttledHarvest = executor.submit(() -> throttledHarvester.harvest(request));
+        assertTrue(throttled.await(5, TimeUnit.SECONDS));
+        long throttledAt = arrivals.get(0);
+        // Give the throttled harvester a moment to read the response
+        TimeUnit.MILLISECONDS.sleep(200);
+
+        assertNotNull(otherHarvester.harvest(request).getRecord());
+        throttledHarvest.get();
+        executor.shutdown();
+
+        assertEquals(3, arrivals.size());
+        for (long arrival : arrivals.subList(1, 3)) {
+            assertTrue(arrival - throttledAt >= Duration.ofSeconds(1).toNanos());
+        }
+    }
+
+    private ArxivOAIHarvester harvester(RateLimiter limiter) {
+        ArxivOAIHarvester harvester = new ArxivOAIHarvester(repository.getHttpClient(), 3, Duration.ZERO,
+                Duration.ofSeconds(5));
+        harvester.setRateLimiter(limiter);
+        return harvester;
+    }
+
+}
@@ -0,0 +1,307 @@
+package io.github.mikesaelim.arxivoaiharvester.harvest;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import io.github.mikesaelim.arxivoaiharvester.ArxivOAIHarvester;
+import io.github.mikesaelim.arxivoaiharvester.exception.BadResumptionTokenException;
+import io.github.mikesaelim.arxivoaiharvester.exception.HttpException;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListRecordsResponse;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigInteger;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class CheckpointedHarvestTest {
+
+    @Mock
+    private ArxivOAIHarvester harvester;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static final Instant NOW = Instant.parse("2015-01-06T20:49:59Z");
+    private static final Clock CLOCK = Clock.fixed(NOW, ZoneOffset.UTC);
+
+    private HarvestCheckpointStore store;
+    private ListRecordsRequest request;
+
+    private final List<String> identifiers = Lists.newArrayList();
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        store = new HarvestCheckpointStore(temporaryFolder.getRoot().toPath().resolve("checkpoint.properties"));
+        request = new ListRecordsRequest(LocalDate.of(2014, 10, 1), null, null);
+
+        // Three pages of two records each, numbered by their resumption tokens
+        when(harvester.harvest(any(ListRecordsRequest.class))).thenAnswer(invocation -> {
+            ListRecordsRequest pageRequest = (ListRecordsRequest) invocation.getArguments()[0];
+            int page = pageRequest instanceof ResumeListRecordsRequest ?
+                    Integer.parseInt(((ResumeListRecordsRequest) pageRequest).getResumptionToken()) : 0;
+            return ListRecordsResponse.builder()
+                    .request(pageRequest instanceof ResumeListRecordsRequest ?
+                            ((ResumeListRecordsRequest) pageRequest).getOriginalRequest() : pageRequest)
+                    .records(ImmutableList.of(record(page, 0), record(page, 1)))
+                    .resumptionToken(page < 2 ? String.valueOf(page + 1) : null)
+                    .cursor(page < 2 ? BigInteger.valueOf(2 * page) : null)
+                    .completeListSize(page < 2 ? BigInteger.valueOf(6) : null)
+                    .expirationDate(page < 2 ? ZonedDateTime.of(2015, 1, 6, 22, 49, 59, 0, ZoneOffset.UTC) : null)
+                    .build();
+        });
+    }
+
+    @Test
+    public void testRunToCompletion() throws Exception {
+        new CheckpointedHarvest(harvester, store, request, CLOCK).run(record -> identifiers.add(record.getIdentifier()));
+
+        assertEquals(Lists.newArrayList("0.0", "0.1", "1.0", "1.1", "2.0", "2.1"), identifiers);
+        assertNull(store.load());
+    }
+
+    @Test
+    public void testCheckpointIsSavedAfterEachPage() throws Exception {
+        try {
+            new CheckpointedHarvest(harvester, store, request, CLOCK).run(record -> {
+                if (record.getIdentifier().equals("1.0")) {
+                    throw new HttpException("Process died");
+                }
+            });
+            fail();
+        } catch (HttpException e) {
+            // expected
+        }
+
+        HarvestCheckpoint checkpoint = store.load();
+        assertEquals(request, checkpoint.getRequest());
+        assertEquals("1", checkpoint.getResumptionToken());
+        assertEquals(BigInteger.valueOf(0), checkpoint.getCursor());
+        assertEquals(BigInteger.valueOf(6), checkpoint.getCompleteListSize());
+        assertEquals(ZonedDateTime.of(2015, 1, 6, 22, 49, 59, 0, ZoneOffset.UTC), checkpoint.getExpirationDate());
+        assertEquals("0.1", checkpoint.getLastIdentifier());
+        assertEquals(NOW, checkpoint.getSavedAt());
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() throws Exception {
+        store.save(checkpoint(ZonedDateTime.of(2015, 1, 6, 22, 49, 59, 0, ZoneOffset.UTC)));
+
+        new CheckpointedHarvest(harvester, store, request, CLOCK).run(record -> identifiers.add(record.getIdentifier()));
+
+        assertEquals(Lists.newArrayList("2.0", "2.1"), identifiers);
+        verify(harvester, times(1)).harvest(any(ListRecordsRequest.class));
+        assertNull(store.load());
+    }
+
+    @Test
+    public void testExpiredCheckpointStartsOver() throws Exception {
+        store.save(checkpoint(ZonedDateTime.of(2015, 1, 6, 20, 0, 0, 0, ZoneOffset.UTC)));
+
+        new CheckpointedHarvest(harvester, store, request, CLOCK).run(record -> identifiers.add(record.getIdentifier()));
+
+        assertEquals(6, identifiers.size());
+        verify(harvester, times(3)).harvest(any(ListRecordsRequest.class));
+    }
+
+    @Test
+    public void testRejectedTokenIsReplannedFromHighestDatestamp() throws Exception {
+        List<ListRecordsRequest> requests = Lists.newArrayList();
+        doAnswer(invocation -> {
+            ListRecordsRequest pageRequest = (ListRecordsRequest) invocation.getArguments()[0];
+            requests.add(pageRequest);
+            if (pageRequest instanceof ResumeListRecordsRequest) {
+                throw new BadResumptionTokenException("expired");
+            }
+            if (pageRequest.getFromDate().equals(request.getFromDate())) {
+                return page(pageRequest, "1", record("A", 1), record("B", 2));
+            }
+            return page(pageRequest, null, record("B", 2), record("C", 2), record("D", 3));
+        }).when(harvester).harvest(any(ListRecordsRequest.class));
+
+        new CheckpointedHarvest(harvester, store, request, CLOCK).run(record -> identifiers.add(record.getIdentifier()));
+
+        assertEquals(Lists.newArrayList("A", "B", "C", "D"), identifiers);
+        assertEquals(3, requests.size());
+        assertEquals(LocalDate.of(2014, 10, 2), requests.get(2).getFromDate());
+        assertNull(store.load());
+    }
+
+    @Test
+    public void testRejectedTokenIsReplannedFromStartIfDatestampsWereOutOfOrder() throws Exception {
+        List<ListRecordsRequest> requests = Lists.newArrayList();
+        doAnswer(invocation -> {
+            ListRecordsRequest pageRequest = (ListRecordsRequest) invocation.getArguments()[0];
+            requests.add(pageRequest);
+            if (pageRequest instanceof ResumeListRecordsRequest) {
+                throw new BadResumptionTokenException("expired");
+            }
+            if (requests.size() == 1) {
+                return page(pageRequest, "1", record("A", 3), record("B", 1));
+            }
+            return page(pageRequest, null, record("A", 3), record("B", 1), record("C", 2));
+        }).when(harvester).harvest(any(ListRecordsRequest.class));
+
+        new CheckpointedHarvest(harvester, store, request, CLOCK).run(record -> identifiers.add(record.getIdentifier()));
+
+        assertEquals(Lists.newArrayList("A", "B", "C"), identifiers);
+        assertEquals(request, requests.get(2));
+    }
+
+    @Test
+    public void testReplanDoesNotDropRecordsItCannotBeSureOf() throws Exception {
+        doAnswer(invocation -> {
+            ListRecordsRequest pageRequest = (ListRecordsRequest) invocation.getArguments()[0];
+            if (pageRequest instanceof ResumeListRecordsRequest) {
+                throw new BadResumptionTokenException("expired");
+            }
+            if (identifiers.isEmpty()) {
+                return page(pageRequest, "1", record("A", 1), record("B", 2), record("C", 1));
+            }
+            return page(pageRequest, null, record("A", 1), record("B", 2), record("C", 1), record("D", 3));
+        }).when(harvester).harvest(any(ListRecordsRequest.class));
+
+        new CheckpointedHarvest(harvester, store, request, CLOCK).run(record -> identifiers.add(record.getIdentifier()));
+
+        // A was handed over while the datestamps were still in order, so it is no longer known, and comes again
+        assertEquals(Lists.newArrayList("A", "B", "C", "A", "D"), identifiers);
+    }
+
+    @Test
+    public void testExpiredTokenIsReplannedWithoutBeingSent() throws Exception {
+        List<ListRecordsRequest> requests = Lists.newArrayList();
+        doAnswer(invocation -> {
+            ListRecordsRequest pageRequest = (ListRecordsRequest) invocation.getArguments()[0];
+            requests.add(pageRequest);
+            if (requests.size() == 1) {
+                return ListRecordsResponse.builder()
+                        .request(pageRequest)
+                        .records(ImmutableList.of(record("A", 1)))
+                        .resumptionToken("1")
+                        .expirationDate(ZonedDateTime.of(2015, 1, 6, 20, 0, 0, 0, ZoneOffset.UTC))
+                        .build();
+            }
+            return page(pageRequest, null, record("A", 1), record("B", 1));
+        }).when(harvester).harvest(any(ListRecordsRequest.class));
+
+        new CheckpointedHarvest(harvester, store, request, CLOCK).run(record -> identifiers.add(record.getIdentifier()));
+
+        assertEquals(Lists.newArrayList("A", "B"), identifiers);
+        assertEquals(2, requests.size());
+        assertFalse(requests.get(1) instanceof ResumeListRecordsRequest);
+    }
+
+    @Test
+    public void testExpiredCheckpointIsReplannedFromHighestDatestamp() throws Exception {
+        store.save(HarvestCheckpoint.builder()
+                .request(request)
+                .resumptionToken("2")
+                .expirationDate(ZonedDateTime.of(2015, 1, 6, 20, 0, 0, 0, ZoneOffset.UTC))
+                .highestDatestamp(LocalDate.of(2014, 12, 1))
+                .datestampsAscending(true)
+                .savedAt(NOW.minusSeconds(3600))
+                .build());
+        List<ListRecordsRequest> requests = Lists.newArrayList();
+        doAnswer(invocation -> {
+            ListRecordsRequest pageRequest = (ListRecordsRequest) invocation.getArguments()[0];
+            requests.add(pageRequest);
+            return page(pageRequest, null, record("X", 61));
+        }).when(harvester).harvest(any(ListRecordsRequest.class));
+
+        new CheckpointedHarvest(harvester, store, request, CLOCK).run(record -> identifiers.add(record.getIdentifier()));
+
+        assertEquals(1, requests.size());
+        assertEquals(LocalDate.of(2014, 12, 1), requests.get(0).getFromDate());
+        assertEquals(Lists.newArrayList("X"), identifiers);
+    }
+
+    @Test
+    public void testRepeatedRejectionWithoutNewRecordsFails() throws Exception {
+        BadResumptionTokenException exception = new BadResumptionTokenException("expired");
+        doAnswer(invocation -> {
+            ListRecordsRequest pageRequest = (ListRecordsRequest) invocation.getArguments()[0];
+            if (pageRequest instanceof ResumeListRecordsRequest) {
+                throw exception;
+            }
+            return page(pageRequest, "1", record("A", 1));
+        }).when(harvester).harvest(any(ListRecordsRequest.class));
+
+        try {
+            new CheckpointedHarvest(harvester, store, request, CLOCK)
+                    .run(record -> identifiers.add(record.getIdentifier()));
+            fail();
+        } catch (BadResumptionTokenException e) {
+            assertSame(exception, e);
+        }
+
+        assertEquals(Lists.newArrayList("A"), identifiers);
+        verify(harvester, times(4)).harvest(any(ListRecordsRequest.class));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCheckpointForDifferentRequest() throws Exception {
+        store.save(checkpoint(null));
+
+        new CheckpointedHarvest(harvester, store, new ListRecordsRequest(LocalDate.of(2014, 11, 1), null, null), CLOCK)
+                .run(record -> identifiers.add(record.getIdentifier()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testResumptionRequestIsRejected() throws Exception {
+        new CheckpointedHarvest(harvester, store, new ResumeListRecordsRequest("1", request), CLOCK);
+    }
+
+
+
+    private HarvestCheckpoint checkpoint(ZonedDateTime expirationDate) {
+        return HarvestCheckpoint.builder()
+                .request(request)
+                .resumptionToken("2")
+                .cursor(BigInteger.valueOf(2))
+                .completeListSize(BigInteger.valueOf(6))
+                .expirationDate(expirationDate)
+                .lastIdentifier("1.1")
+                .savedAt(NOW.minusSeconds(60))
+                .build();
+    }
+
+    private static ListRecordsResponse page(ListRecordsRequest pageRequest, String resumptionToken,
+                                            ArticleMetadata... records) {
+        return ListRecordsResponse.builder()
+                .request(pageRequest)
+                .records(ImmutableList.copyOf(records))
+                .resumptionToken(resumptionToken)
+                .build();
+    }
+
+    /**
+     * @param day datestamp, as days since the start of the original request's range
+     */
+    private static ArticleMetadata record(String identifier, int day) {
+        return ArticleMetadata.builder()
+                .identifier(identifier)
+                .datestamp(LocalDate.of(2014, 9, 30).plusDays(day))
+                .build();
+    }
+
+    private static ArticleMetadata record(int page, int index) {
+        return ArticleMetadata.builder().identifier(page + "." + index).build();
+    }
+
+}
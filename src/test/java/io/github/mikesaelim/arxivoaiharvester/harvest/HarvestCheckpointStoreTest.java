@@ -0,0 +1,121 @@
+package io.github.mikesaelim.arxivoaiharvester.harvest;
+
+import io.github.mikesaelim.arxivoaiharvester.exception.HarvesterError;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleField;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.EnumSet;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class HarvestCheckpointStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path file;
+    private HarvestCheckpointStore store;
+    private HarvestCheckpoint checkpoint;
+
+    @Before
+    public void setUp() throws Exception {
+        file = temporaryFolder.getRoot().toPath().resolve("checkpoints").resolve("hep-ph.properties");
+        store = new HarvestCheckpointStore(file);
+
+        checkpoint = HarvestCheckpoint.builder()
+                .request(new ListRecordsRequest(LocalDate.of(2014, 10, 1), LocalDate.of(2014, 12, 31),
+                        "physics:hep-ph", EnumSet.of(ArticleField.TITLE, ArticleField.CATEGORIES)))
+                .resumptionToken("726959|1001")
+                .cursor(BigInteger.valueOf(1000))
+                .completeListSize(BigInteger.valueOf(58011))
+                .expirationDate(ZonedDateTime.of(2015, 1, 6, 22, 49, 59, 0, ZoneOffset.UTC))
+                .lastIdentifier("oai:arXiv.org:1410.1000")
+                .savedAt(Instant.parse("2015-01-06T20:49:59Z"))
+                .build();
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        store.save(checkpoint);
+
+        assertEquals(checkpoint, store.load());
+        assertEquals(checkpoint, new HarvestCheckpointStore(file).load());
+    }
+
+    @Test
+    public void testSaveAndLoadWithoutOptionalValues() throws Exception {
+        HarvestCheckpoint minimalCheckpoint = HarvestCheckpoint.builder()
+                .request(new ListRecordsRequest(null, null, null))
+                .resumptionToken("726959|1001")
+                .savedAt(Instant.parse("2015-01-06T20:49:59Z"))
+                .build();
+
+        store.save(minimalCheckpoint);
+
+        assertEquals(minimalCheckpoint, store.load());
+    }
+
+    @Test
+    public void testSaveReplacesLastCheckpoint() throws Exception {
+        store.save(checkpoint);
+        HarvestCheckpoint nextCheckpoint = HarvestCheckpoint.builder()
+                .request(checkpoint.getRequest())
+                .resumptionToken("726959|2001")
+                .cursor(BigInteger.valueOf(2000))
+                .savedAt(Instant.parse("2015-01-06T20:50:20Z"))
+                .build();
+
+        store.save(nextCheckpoint);
+
+        assertEquals(nextCheckpoint, store.load());
+        try (Stream<Path> files = Files.list(file.getParent())) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testLoadWithoutCheckpoint() throws Exception {
+        assertNull(store.load());
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        store.save(checkpoint);
+
+        store.clear();
+
+        assertNull(store.load());
+        store.clear();
+    }
+
+    @Test(expected = HarvesterError.class)
+    public void testLoadUnreadableCheckpoint() throws Exception {
+        Files.createDirectories(file.getParent());
+        Files.write(file, "formatVersion=1\nrequest.from=yesterday\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        store.load();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedFormat() throws Exception {
+        Properties properties = HarvestCheckpointStore.toProperties(checkpoint);
+        properties.setProperty("formatVersion", "0");
+
+        HarvestCheckpointStore.fromProperties(properties);
+    }
+
+}
@@ -0,0 +1,92 @@
+package io.github.mikesaelim.arxivoaiharvester.harvest;
+
+import io.github.mikesaelim.arxivoaiharvester.exception.HarvesterError;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static org.junit.Assert.*;
+
+public class HighWaterMarkStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path file;
+    private HighWaterMarkStore store;
+    private HighWaterMark mark;
+
+    @Before
+    public void setUp() throws Exception {
+        file = temporaryFolder.getRoot().toPath().resolve("marks").resolve("arxiv.properties");
+        store = new HighWaterMarkStore(file);
+
+        mark = HighWaterMark.builder()
+                .datestamp(LocalDate.of(2015, 1, 5))
+                .lastRunAt(Instant.parse("2015-01-06T02:00:00Z"))
+                .build();
+    }
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        store.put("physics:hep-ph", mark);
+
+        assertEquals(mark, store.get("physics:hep-ph"));
+        assertEquals(mark, new HighWaterMarkStore(file).get("physics:hep-ph"));
+    }
+
+    @Test
+    public void testSetsHaveTheirOwnMarks() throws Exception {
+        HighWaterMark otherMark = HighWaterMark.builder()
+                .datestamp(LocalDate.of(2015, 1, 2))
+                .lastRunAt(Instant.parse("2015-01-06T03:00:00Z"))
+                .build();
+
+        store.put("cs", mark);
+        store.put(null, otherMark);
+
+        assertEquals(mark, store.get("cs"));
+        assertEquals(otherMark, store.get(null));
+        assertNull(store.get("math"));
+    }
+
+    @Test
+    public void testPutReplacesMark() throws Exception {
+        store.put("cs", mark);
+        HighWaterMark emptyMark = HighWaterMark.builder()
+                .lastRunAt(Instant.parse("2015-01-07T02:00:00Z"))
+                .build();
+        store.put("cs", emptyMark);
+
+        assertEquals(emptyMark, store.get("cs"));
+    }
+
+    @Test
+    public void testGetWithoutFile() throws Exception {
+        assertNull(store.get("cs"));
+    }
+
+    @Test(expected = HarvesterError.class)
+    public void testGetWithUnsupportedFormat() throws Exception {
+        Files.createDirectories(file.getParent());
+        Files.write(file, "formatVersion=0\nmark.cs.lastRunAt=2015-01-06T02:00:00Z\n".getBytes(StandardCharsets.UTF_8));
+
+        store.get("cs");
+    }
+
+    @Test(expected = HarvesterError.class)
+    public void testGetWithUnreadableMark() throws Exception {
+        Files.createDirectories(file.getParent());
+        Files.write(file, "formatVersion=1\nmark.cs.lastRunAt=yesterday\n".getBytes(StandardCharsets.UTF_8));
+
+        store.get("cs");
+    }
+
+}
@@ -0,0 +1,242 @@
+package io.github.mikesaelim.arxivoaiharvester.harvest;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import io.github.mikesaelim.arxivoaiharvester.ArxivOAIHarvester;
+import io.github.mikesaelim.arxivoaiharvester.exception.HttpException;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListRecordsResponse;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class IncrementalHarvestSchedulerTest {
+
+    @Mock
+    private ArxivOAIHarvester harvester;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static final Instant FIRST_RUN = Instant.parse("2015-01-06T02:00:00Z");
+    private static final LocalDate INITIAL_FROM_DATE = LocalDate.of(2015, 1, 1);
+
+    private HighWaterMarkStore store;
+
+    // Records in the stand-in repository, and the requests sent to it
+    private final List<ArticleMetadata> repository = new CopyOnWriteArrayList<>();
+    private final List<ListRecordsRequest> requests = new CopyOnWriteArrayList<>();
+    private final List<String> identifiers = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        store = new HighWaterMarkStore(temporaryFolder.getRoot().toPath().resolve("marks.properties"));
+
+        // A single page of the records of the set from the fromDate onwards
+        when(harvester.harvest(any(ListRecordsRequest.class))).thenAnswer(invocation -> {
+            ListRecordsRequest request = (ListRecordsRequest) invocation.getArguments()[0];
+            requests.add(request);
+            return ListRecordsResponse.builder()
+                    .request(request)
+                    .records(ImmutableList.copyOf(repository.stream()
+                            .filter(record -> request.getSetSpec() == null ||
+                                    record.getSets().contains(request.getSetSpec()))
+                            .filter(record -> request.getFromDate() == null ||
+                                    !record.getDatestamp().isBefore(request.getFromDate()))
+                            .collect(Collectors.toList())))
+                    .build();
+        });
+
+        addRecord("1501.0001", LocalDate.of(2015, 1, 2), "cs");
+        addRecord("1501.0002", LocalDate.of(2015, 1, 5), "cs", "math");
+    }
+
+    @Test
+    public void testEachRunStartsFromTheHighWaterMark() throws Exception {
+        assertEquals(1, scheduler(FIRST_RUN, "cs").runDue());
+        assertEquals(LocalDate.of(2015, 1, 1), requests.get(0).getFromDate());
+        assertEquals("cs", requests.get(0).getSetSpec());
+        assertNull(requests.get(0).getUntilDate());
+        assertEquals(HighWaterMark.builder().datestamp(LocalDate.of(2015, 1, 5)).lastRunAt(FIRST_RUN).build(),
+                store.get("cs"));
+
+        // Another record turns up on the day of the mark, and one on the next day
+        addRecord("1501.0003", LocalDate.of(2015, 1, 5), "cs");
+        addRecord("1501.0004", LocalDate.of(2015, 1, 6), "cs");
+        Instant secondRun = FIRST_RUN.plus(Duration.ofDays(1));
+        assertEquals(1, scheduler(secondRun, "cs").runDue());
+
+        // Only the day of the mark is harvested again
+        assertEquals(LocalDate.of(2015, 1, 5), requests.get(1).getFromDate());
+        assertEquals(Lists.newArrayList("1501.0001", "1501.0002", "1501.0002", "1501.0003", "1501.0004"),
+                identifiers);
+        assertEquals(HighWaterMark.builder().datestamp(LocalDate.of(2015, 1, 6)).lastRunAt(secondRun).build(),
+                store.get("cs"));
+    }
+
+    @Test
+    public void testSkipsRunsThatAreNotDue() throws Exception {
+        IncrementalHarvestScheduler scheduler = scheduler(FIRST_RUN, "cs");
+        scheduler.runDue();
+        assertEquals(0, scheduler.runDue());
+
+        // Also after a restart
+        IncrementalHarvestScheduler restarted = scheduler(FIRST_RUN.plus(Duration.ofHours(23)), "cs");
+        assertEquals(0, restarted.runDue());
+        assertEquals(Duration.ofHours(1), restarted.getTimeUntilDue());
+
+        verify(harvester, times(1)).harvest(any(ListRecordsRequest.class));
+    }
+
+    @Test
+    public void testSetsHaveTheirOwnMarks() throws Exception {
+        assertEquals(2, scheduler(FIRST_RUN, "cs", "math").runDue());
+
+        assertEquals(ImmutableSet.of("cs", "math"),
+                requests.stream().map(ListRecordsRequest::getSetSpec).collect(Collectors.toSet()));
+        assertEquals(LocalDate.of(2015, 1, 5), store.get("cs").getDatestamp());
+        assertEquals(LocalDate.of(2015, 1, 5), store.get("math").getDatestamp());
+        assertNull(store.get(null));
+    }
+
+    @Test
+    public void testFailedRunDoesNotMoveTheMark() throws Exception {
+        scheduler(FIRST_RUN, "cs").runDue();
+        HighWaterMark mark = store.get("cs");
+
+        addRecord("1501.0003", LocalDate.of(2015, 1, 6), "cs");
+        doThrow(new HttpException("down")).when(harvester).harvest(any(ListRecordsRequest.class));
+        IncrementalHarvestScheduler scheduler = scheduler(FIRST_RUN.plus(Duration.ofDays(1)), "cs");
+        try {
+            scheduler.runDue();
+            fail();
+        } catch (HttpException e) {
+            assertEquals(mark, store.get("cs"));
+        }
+
+        // Not tried again until the retry backoff has passed
+        assertEquals(0, scheduler.runDue());
+        assertEquals(Duration.ofMinutes(5), scheduler.getTimeUntilDue());
+    }
+
+    @Test
+    public void testFailedRunIsRetriedWithBackoff() throws Exception {
+        Clock clock = mock(Clock.class);
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(clock.instant()).thenReturn(FIRST_RUN);
+        IncrementalHarvestScheduler scheduler = new IncrementalHarvestScheduler(harvester, store,
+                record -> identifiers.add(record.getIdentifier()), ImmutableList.of("cs"), INITIAL_FROM_DATE, null,
+                Duration.ofHours(2), Duration.ofMinutes(20), clock);
+
+        doThrow(new HttpException("down")).when(harvester).harvest(any(ListRecordsRequest.class));
+        Instant now = FIRST_RUN;
+        for (Duration expectedBackoff : ImmutableList.of(Duration.ofMinutes(20), Duration.ofMinutes(40),
+                Duration.ofHours(1), Duration.ofHours(1))) {
+            try {
+                scheduler.runDue();
+                fail();
+            } catch (HttpException e) {
+                // expected
+            }
+            assertEquals(expectedBackoff, scheduler.getTimeUntilDue());
+            now = now.plus(expectedBackoff);
+            when(clock.instant()).thenReturn(now);
+        }
+
+        // Once a run completes, the set is due again after the whole interval
+        doAnswer(invocation -> ListRecordsResponse.builder()
+                .request((ListRecordsRequest) invocation.getArguments()[0])
+                .records(ImmutableList.of())
+                .build()).when(harvester).harvest(any(ListRecordsRequest.class));
+        assertEquals(1, scheduler.runDue());
+        assertEquals(Duration.ofHours(2), scheduler.getTimeUntilDue());
+    }
+
+    @Test
+    public void testRunsDoNotOverlap() throws Exception {
+        CountDownLatch handling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IncrementalHarvestScheduler scheduler = new IncrementalHarvestScheduler(harvester, store, record -> {
+            handling.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }, ImmutableList.of("cs"), INITIAL_FROM_DATE, null, null, null, Clock.fixed(FIRST_RUN, ZoneOffset.UTC));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<Integer> first = executor.submit(scheduler::runDue);
+        assertTrue(handling.await(10, TimeUnit.SECONDS));
+        Future<Integer> second = executor.submit(scheduler::runDue);
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertFalse(second.isDone());
+
+        release.countDown();
+        assertEquals(1, (int) first.get(10, TimeUnit.SECONDS));
+        // By the time the second call gets to run, the set is no longer due
+        assertEquals(0, (int) second.get(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        verify(harvester, times(1)).harvest(any(ListRecordsRequest.class));
+    }
+
+    @Test
+    public void testStartRunsInTheBackground() throws Exception {
+        CountDownLatch harvested = new CountDownLatch(2);
+        IncrementalHarvestScheduler scheduler = IncrementalHarvestScheduler.builder()
+                .harvester(harvester)
+                .store(store)
+                .recordHandler(record -> harvested.countDown())
+                .setSpecs(ImmutableList.of("cs"))
+                .interval(Duration.ofHours(6))
+                .build();
+
+        scheduler.start();
+        try {
+            assertTrue(harvested.await(10, TimeUnit.SECONDS));
+        } finally {
+            scheduler.stop();
+        }
+        assertNull(requests.get(0).getFromDate());
+    }
+
+    private IncrementalHarvestScheduler scheduler(Instant now, String... setSpecs) {
+        return new IncrementalHarvestScheduler(harvester, store, record -> identifiers.add(record.getIdentifier()),
+                ImmutableList.copyOf(setSpecs), INITIAL_FROM_DATE, null, Duration.ofDays(1), null,
+                Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private void addRecord(String identifier, LocalDate datestamp, String... sets) {
+        repository.add(ArticleMetadata.builder()
+                .identifier(identifier)
+                .datestamp(datestamp)
+                .sets(ImmutableSet.copyOf(sets))
+                .build());
+    }
+
+}
@@ -0,0 +1,205 @@
+package io.github.mikesaelim.arxivoaiharvester.harvest;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import io.github.mikesaelim.arxivoaiharvester.ArxivOAIHarvester;
+import io.github.mikesaelim.arxivoaiharvester.exception.BadResumptionTokenException;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListRecordsResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.*;
+
+public class ListRecordsPublisherTest {
+
+    @Mock
+    private ArxivOAIHarvester harvester;
+
+    private ListRecordsRequest request;
+    private RecordingSubscriber subscriber;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        request = new ListRecordsRequest(LocalDate.of(2015, 6, 27), null, null);
+        subscriber = new RecordingSubscriber();
+
+        // Three pages, of 3, 3, and 2 records
+        when(harvester.harvest(any(ListRecordsRequest.class))).thenAnswer(invocation -> {
+            ListRecordsRequest pageRequest = (ListRecordsRequest) invocation.getArguments()[0];
+            int page = pageRequest instanceof ResumeListRecordsRequest ?
+                    Integer.parseInt(((ResumeListRecordsRequest) pageRequest).getResumptionToken()) : 0;
+            return page(pageRequest, page, page < 2 ? 3 : 2, page < 2 ? String.valueOf(page + 1) : null);
+        });
+    }
+
+    @Test
+    public void testPublishesAllPagesInOrder() throws Exception {
+        new ListRecordsPublisher(harvester, request, Runnable::run).subscribe(subscriber);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertEquals(Lists.newArrayList("0.0", "0.1", "0.2", "1.0", "1.1", "1.2", "2.0", "2.1"), subscriber.identifiers);
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.error);
+        verify(harvester, times(3)).harvest(any(ListRecordsRequest.class));
+    }
+
+    @Test
+    public void testNextPageIsOnlyRequestedOnDemand() throws Exception {
+        new ListRecordsPublisher(harvester, request, Runnable::run).subscribe(subscriber);
+        verify(harvester, never()).harvest(any(ListRecordsRequest.class));
+
+        subscriber.subscription.request(3);
+        assertEquals(3, subscriber.identifiers.size());
+        verify(harvester, times(1)).harvest(any(ListRecordsRequest.class));
+
+        subscriber.subscription.request(1);
+        assertEquals(4, subscriber.identifiers.size());
+        verify(harvester, times(2)).harvest(any(ListRecordsRequest.class));
+
+        subscriber.subscription.request(2);
+        assertEquals(6, subscriber.identifiers.size());
+        verify(harvester, times(2)).harvest(any(ListRecordsRequest.class));
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    public void testCompletesWithoutDemandOnceLastPageIsDrained() throws Exception {
+        new ListRecordsPublisher(harvester, request, Runnable::run).subscribe(subscriber);
+
+        subscriber.subscription.request(8);
+
+        assertEquals(8, subscriber.identifiers.size());
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void testFailedRequestIsPassedToOnError() throws Exception {
+        BadResumptionTokenException exception = new BadResumptionTokenException("expired");
+        when(harvester.harvest(isA(ResumeListRecordsRequest.class))).thenThrow(exception);
+        new ListRecordsPublisher(harvester, request, Runnable::run).subscribe(subscriber);
+
+        subscriber.subscription.request(10);
+
+        assertEquals(3, subscriber.identifiers.size());
+        assertSame(exception, subscriber.error);
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    public void testCancelStopsHarvest() throws Exception {
+        new ListRecordsPublisher(harvester, request, Runnable::run).subscribe(subscriber);
+
+        subscriber.subscription.request(2);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(10);
+
+        assertEquals(2, subscriber.identifiers.size());
+        assertFalse(subscriber.completed);
+        verify(harvester, times(1)).harvest(any(ListRecordsRequest.class));
+    }
+
+    @Test
+    public void testNonPositiveRequestIsAnError() throws Exception {
+        new ListRecordsPublisher(harvester, request, Runnable::run).subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        verify(harvester, never()).harvest(any(ListRecordsRequest.class));
+    }
+
+    @Test
+    public void testSignalsHappenOnExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch done = new CountDownLatch(1);
+        List<String> threadNames = Lists.newArrayList();
+        try {
+            new ListRecordsPublisher(harvester, request, executor).subscribe(new RecordingSubscriber() {
+                @Override
+                public void onSubscribe(Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(ArticleMetadata record) {
+                    threadNames.add(Thread.currentThread().getName());
+                }
+
+                @Override
+                public void onComplete() {
+                    done.countDown();
+                }
+            });
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(8, threadNames.size());
+        assertNotEquals(Thread.currentThread().getName(), threadNames.get(0));
+    }
+
+
+
+    private static ListRecordsResponse page(ListRecordsRequest request, int page, int numRecords, String resumptionToken) {
+        ImmutableList.Builder<ArticleMetadata> records = ImmutableList.builder();
+        for (int i = 0; i < numRecords; i++) {
+            records.add(ArticleMetadata.builder().identifier(page + "." + i).build());
+        }
+
+        return ListRecordsResponse.builder()
+                .request(request)
+                .records(records.build())
+                .resumptionToken(resumptionToken)
+                .build();
+    }
+
+    private static class RecordingSubscriber implements Subscriber<ArticleMetadata> {
+        Subscription subscription;
+        final List<String> identifiers = Lists.newArrayList();
+        boolean completed;
+        Throwable error;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(ArticleMetadata record) {
+            identifiers.add(record.getIdentifier());
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+}
@@ -0,0 +1,199 @@
+package io.github.mikesaelim.arxivoaiharvester.harvest;
+
+import com.google.common.collect.ImmutableList;
+import io.github.mikesaelim.arxivoaiharvester.ArxivOAIHarvester;
+import io.github.mikesaelim.arxivoaiharvester.exception.BadArgumentException;
+import io.github.mikesaelim.arxivoaiharvester.exception.HttpException;
+import io.github.mikesaelim.arxivoaiharvester.exception.RepositoryError;
+import io.github.mikesaelim.arxivoaiharvester.exception.RequestRejectedError;
+import io.github.mikesaelim.arxivoaiharvester.exception.TimeoutException;
+import io.github.mikesaelim.arxivoaiharvester.model.request.GetRecordRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.response.GetRecordResponse;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListRecordsResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class MultiEndpointHarvesterTest {
+
+    private ArxivOAIHarvester publicEndpoint;
+    private ArxivOAIHarvester mirror;
+    private MultiEndpointHarvester multiEndpointHarvester;
+
+    private GetRecordRequest getRecordRequest;
+    private GetRecordResponse getRecordResponse;
+    private ListRecordsRequest listRecordsRequest;
+
+    @Before
+    public void setUp() throws Exception {
+        publicEndpoint = endpoint("http://export.arxiv.org/oai2", Duration.ofSeconds(5));
+        mirror = endpoint("https://mirror.example.org/oai2", Duration.ZERO);
+        multiEndpointHarvester = new MultiEndpointHarvester(ImmutableList.of(publicEndpoint, mirror));
+
+        getRecordRequest = new GetRecordRequest("1302.2146");
+        getRecordResponse = GetRecordResponse.builder().request(getRecordRequest).build();
+        listRecordsRequest = new ListRecordsRequest(LocalDate.of(2015, 1, 1), null, null);
+    }
+
+    @Test
+    public void testRoutesToReadiestEndpoint() throws Exception {
+        when(mirror.harvest(getRecordRequest)).thenReturn(getRecordResponse);
+
+        assertSame(getRecordResponse, multiEndpointHarvester.harvest(getRecordRequest));
+        verify(publicEndpoint, never()).harvest(any(GetRecordRequest.class));
+    }
+
+    @Test
+    public void testFailsOverAndCoolsDown() throws Exception {
+        when(mirror.harvest(getRecordRequest)).thenThrow(new HttpException("down"));
+        when(publicEndpoint.harvest(getRecordRequest)).thenReturn(getRecordResponse);
+
+        assertSame(getRecordResponse, multiEndpointHarvester.harvest(getRecordRequest));
+        assertSame(getRecordResponse, multiEndpointHarvester.harvest(getRecordRequest));
+
+        // The mirror is readier, but cooling down after failing
+        verify(mirror, times(1)).harvest(getRecordRequest);
+        verify(publicEndpoint, times(2)).harvest(getRecordRequest);
+    }
+
+    @Test
+    public void testTriesFailedEndpointsAfterCooldown() throws Exception {
+        multiEndpointHarvester = new MultiEndpointHarvester(ImmutableList.of(publicEndpoint, mirror), Duration.ZERO);
+        when(mirror.harvest(getRecordRequest)).thenThrow(new HttpException("down")).thenReturn(getRecordResponse);
+        when(publicEndpoint.harvest(getRecordRequest)).thenReturn(getRecordResponse);
+
+        multiEndpointHarvester.harvest(getRecordRequest);
+        multiEndpointHarvester.harvest(getRecordRequest);
+
+        verify(mirror, times(2)).harvest(getRecordRequest);
+        verify(publicEndpoint, times(1)).harvest(getRecordRequest);
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void testThrowsLastFailureWhenAllEndpointsFail() throws Exception {
+        when(mirror.harvest(getRecordRequest)).thenThrow(new HttpException("down"));
+        when(publicEndpoint.harvest(getRecordRequest)).thenThrow(new TimeoutException("throttled"));
+
+        multiEndpointHarvester.harvest(getRecordRequest);
+    }
+
+    @Test
+    public void testDoesNotFailOverBadRequests() throws Exception {
+        when(mirror.harvest(getRecordRequest)).thenThrow(new BadArgumentException("bad"));
+
+        try {
+            multiEndpointHarvester.harvest(getRecordRequest);
+            fail();
+        } catch (BadArgumentException e) {
+            verify(publicEndpoint, never()).harvest(any(GetRecordRequest.class));
+        }
+    }
+
+    @Test
+    public void testDoesNotFailOverRejectedRequests() throws Exception {
+        when(mirror.harvest(getRecordRequest)).thenThrow(new RequestRejectedError("cannotDisseminateFormat"));
+
+        try {
+            multiEndpointHarvester.harvest(getRecordRequest);
+            fail();
+        } catch (RequestRejectedError e) {
+            verify(publicEndpoint, never()).harvest(any(GetRecordRequest.class));
+        }
+    }
+
+    @Test
+    public void testFailsOverUnexpectedResponses() throws Exception {
+        when(mirror.harvest(getRecordRequest)).thenThrow(new RepositoryError("Received 404"));
+        when(publicEndpoint.harvest(getRecordRequest)).thenReturn(getRecordResponse);
+
+        assertSame(getRecordResponse, multiEndpointHarvester.harvest(getRecordRequest));
+    }
+
+    @Test
+    public void testResumptionGoesToIssuingEndpoint() throws Exception {
+        ListRecordsResponse firstPage = ListRecordsResponse.builder()
+                .request(listRecordsRequest)
+                .records(ImmutableList.of())
+                .resumptionToken("mirror-token")
+                .build();
+        ResumeListRecordsRequest resumption = (ResumeListRecordsRequest) firstPage.resumption();
+        ListRecordsResponse lastPage = ListRecordsResponse.builder()
+                .request(listRecordsRequest)
+                .records(ImmutableList.of())
+                .build();
+        when(mirror.harvest(listRecordsRequest)).thenReturn(firstPage);
+        when(mirror.harvest(resumption)).thenReturn(lastPage);
+
+        assertSame(firstPage, multiEndpointHarvester.harvest(listRecordsRequest));
+        // Now the public endpoint is readier
+        when(mirror.getTimeUntilReady()).thenReturn(Duration.ofSeconds(10));
+        assertSame(lastPage, multiEndpointHarvester.harvest(resumption));
+
+        verify(publicEndpoint, never()).harvest(any(ListRecordsRequest.class));
+    }
+
+    @Test(expected = HttpException.class)
+    public void testResumptionDoesNotFailOver() throws Exception {
+        ListRecordsResponse firstPage = ListRecordsResponse.builder()
+                .request(listRecordsRequest)
+                .records(ImmutableList.of())
+                .resumptionToken("mirror-token")
+                .build();
+        ResumeListRecordsRequest resumption = (ResumeListRecordsRequest) firstPage.resumption();
+        when(mirror.harvest(listRecordsRequest)).thenReturn(firstPage);
+        when(mirror.harvest(resumption)).thenThrow(new HttpException("down"));
+
+        multiEndpointHarvester.harvest(listRecordsRequest);
+        multiEndpointHarvester.harvest(resumption);
+    }
+
+    @Test
+    public void testFailedResumptionCanBeRetriedAtIssuingEndpoint() throws Exception {
+        ListRecordsResponse firstPage = ListRecordsResponse.builder()
+                .request(listRecordsRequest)
+                .records(ImmutableList.of())
+                .resumptionToken("mirror-token")
+                .build();
+        ResumeListRecordsRequest resumption = (ResumeListRecordsRequest) firstPage.resumption();
+        ListRecordsResponse lastPage = ListRecordsResponse.builder()
+                .request(listRecordsRequest)
+                .records(ImmutableList.of())
+                .build();
+        when(mirror.harvest(listRecordsRequest)).thenReturn(firstPage);
+        when(mirror.harvest(resumption)).thenThrow(new HttpException("down")).thenReturn(lastPage);
+
+        multiEndpointHarvester.harvest(listRecordsRequest);
+        try {
+            multiEndpointHarvester.harvest(resumption);
+            fail();
+        } catch (HttpException e) {
+            // The caller tries again
+        }
+        when(mirror.getTimeUntilReady()).thenReturn(Duration.ofSeconds(10));
+        assertSame(lastPage, multiEndpointHarvester.harvest(resumption));
+
+        verify(publicEndpoint, never()).harvest(any(ListRecordsRequest.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNeedsAnEndpoint() throws Exception {
+        new MultiEndpointHarvester(Collections.emptyList());
+    }
+
+    private static ArxivOAIHarvester endpoint(String baseUri, Duration timeUntilReady) {
+        ArxivOAIHarvester harvester = mock(ArxivOAIHarvester.class);
+        when(harvester.getBaseUri()).thenReturn(URI.create(baseUri));
+        when(harvester.getTimeUntilReady()).thenReturn(timeUntilReady);
+        return harvester;
+    }
+
+}
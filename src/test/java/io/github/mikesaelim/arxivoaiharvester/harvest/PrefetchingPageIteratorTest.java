@@ -0,0 +1,159 @@
+package io.github.mikesaelim.arxivoaiharvester.harvest;
+
+import com.google.common.collect.ImmutableList;
+import io.github.mikesaelim.arxivoaiharvester.ArxivOAIHarvester;
+import io.github.mikesaelim.arxivoaiharvester.exception.BadResumptionTokenException;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListRecordsResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDate;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Mockito.*;
+
+public class PrefetchingPageIteratorTest {
+
+    @Mock
+    private ArxivOAIHarvester harvester;
+
+    private ListRecordsRequest request;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        request = new ListRecordsRequest(LocalDate.of(2015, 6, 27), null, null);
+
+        // Four pages, numbered by their resumption tokens
+        when(harvester.harvest(any(ListRecordsRequest.class))).thenAnswer(invocation -> {
+            ListRecordsRequest pageRequest = (ListRecordsRequest) invocation.getArguments()[0];
+            int page = pageNumber(pageRequest);
+            return ListRecordsResponse.builder()
+                    .request(pageRequest)
+                    .records(ImmutableList.of(ArticleMetadata.builder().identifier(String.valueOf(page)).build()))
+                    .resumptionToken(page < 3 ? String.valueOf(page + 1) : null)
+                    .build();
+        });
+    }
+
+    @Test
+    public void testIteratesOverAllPagesInOrder() throws Exception {
+        try (PrefetchingPageIterator pages = new PrefetchingPageIterator(harvester, request)) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(pages.hasNext());
+                assertEquals(String.valueOf(i), pages.next().getRecords().get(0).getIdentifier());
+            }
+            assertFalse(pages.hasNext());
+        }
+
+        verify(harvester, times(4)).harvest(any(ListRecordsRequest.class));
+    }
+
+    @Test
+    public void testNextPageIsFetchedWhileConsumerProcessesCurrentOne() throws Exception {
+        try (PrefetchingPageIterator pages = new PrefetchingPageIterator(harvester, request)) {
+            pages.next();
+
+            // Page 1 is fetched without being asked for...
+            verify(harvester, timeout(1000).times(2)).harvest(any(ListRecordsRequest.class));
+
+            // ...but page 2 is not, until page 1 has been taken
+            Thread.sleep(200);
+            verify(harvester, times(2)).harvest(any(ListRecordsRequest.class));
+
+            pages.next();
+            verify(harvester, timeout(1000).times(3)).harvest(any(ListRecordsRequest.class));
+        }
+    }
+
+    @Test
+    public void testBufferedPagesAreFetchedAhead() throws Exception {
+        try (PrefetchingPageIterator pages = new PrefetchingPageIterator(harvester, request, 2)) {
+            verify(harvester, timeout(1000).times(2)).harvest(any(ListRecordsRequest.class));
+            Thread.sleep(200);
+            verify(harvester, times(2)).harvest(any(ListRecordsRequest.class));
+
+            pages.next();
+            verify(harvester, timeout(1000).times(3)).harvest(any(ListRecordsRequest.class));
+        }
+    }
+
+    @Test
+    public void testFailureIsRethrownInPlaceOfPage() throws Exception {
+        BadResumptionTokenException exception = new BadResumptionTokenException("expired");
+        when(harvester.harvest(argThat(hasPageNumber(2)))).thenThrow(exception);
+
+        try (PrefetchingPageIterator pages = new PrefetchingPageIterator(harvester, request)) {
+            pages.next();
+            pages.next();
+
+            assertTrue(pages.hasNext());
+            try {
+                pages.next();
+                fail();
+            } catch (BadResumptionTokenException e) {
+                assertSame(exception, e);
+            }
+            assertFalse(pages.hasNext());
+        }
+
+        verify(harvester, times(3)).harvest(any(ListRecordsRequest.class));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testNextAfterLastPage() throws Exception {
+        try (PrefetchingPageIterator pages = new PrefetchingPageIterator(harvester, request)) {
+            for (int i = 0; i < 5; i++) {
+                pages.next();
+            }
+        }
+    }
+
+    @Test
+    public void testCloseStopsFetching() throws Exception {
+        PrefetchingPageIterator pages = new PrefetchingPageIterator(harvester, request);
+        pages.next();
+        verify(harvester, timeout(1000).times(2)).harvest(any(ListRecordsRequest.class));
+
+        pages.close();
+        assertFalse(pages.hasNext());
+        Thread.sleep(200);
+        verify(harvester, times(2)).harvest(any(ListRecordsRequest.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoBufferedPages() throws Exception {
+        new PrefetchingPageIterator(harvester, request, 0);
+    }
+
+
+
+    private static int pageNumber(ListRecordsRequest pageRequest) {
+        return pageRequest instanceof ResumeListRecordsRequest ?
+                Integer.parseInt(((ResumeListRecordsRequest) pageRequest).getResumptionToken()) : 0;
+    }
+
+    private static org.hamcrest.Matcher<ListRecordsRequest> hasPageNumber(int page) {
+        return new org.hamcrest.BaseMatcher<ListRecordsRequest>() {
+            @Override
+            public boolean matches(Object item) {
+                return item instanceof ListRecordsRequest && pageNumber((ListRecordsRequest) item) == page;
+            }
+
+            @Override
+            public void describeTo(org.hamcrest.Description description) {
+                description.appendText("page " + page);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,194 @@
+package io.github.mikesaelim.arxivoaiharvester.harvest;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.github.mikesaelim.arxivoaiharvester.ArxivOAIHarvester;
+import io.github.mikesaelim.arxivoaiharvester.exception.HttpException;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListRecordsResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class SetPartitionedHarvestTest {
+
+    private static final LocalDate FROM = LocalDate.of(2015, 1, 1);
+    private static final LocalDate UNTIL = LocalDate.of(2015, 1, 20);
+    private static final int PAGE_SIZE = 3;
+    // Sets of the records of each day, in order
+    private static final List<Set<String>> SETS_BY_RECORD = ImmutableList.of(
+            ImmutableSet.of("cs"),
+            ImmutableSet.of("math"),
+            ImmutableSet.of("cs", "math"),
+            ImmutableSet.of("physics"),
+            ImmutableSet.of("math", "physics"));
+
+    private MultiEndpointHarvester harvester;
+    private ListRecordsRequest request;
+
+    // New datestamp of the record that is updated during the harvest, from day 2
+    private volatile LocalDate movedRecordDatestamp;
+
+    @Before
+    public void setUp() throws Exception {
+        harvester = new MultiEndpointHarvester(ImmutableList.of(endpoint(), endpoint()));
+        request = new ListRecordsRequest(FROM, UNTIL, null);
+    }
+
+    @Test
+    public void testMergesTheHarvestedSets() throws Exception {
+        List<ArticleMetadata> records = new ArrayList<>();
+        SetPartitionedHarvest.builder()
+                .harvester(harvester)
+                .request(request)
+                .setSpecs(ImmutableList.of("cs", "math"))
+                .windowDays(7)
+                .build()
+                .run(records::add);
+
+        // Within a day, the records of the first set come first
+        List<String> expectedIdentifiers = new ArrayList<>();
+        for (LocalDate date = FROM; !date.isAfter(UNTIL); date = date.plusDays(1)) {
+            expectedIdentifiers.addAll(ImmutableList.of(date + "/0", date + "/2", date + "/1", date + "/4"));
+        }
+        assertEquals(expectedIdentifiers, records.stream().map(ArticleMetadata::getIdentifier)
+                .collect(Collectors.toList()));
+
+        for (ArticleMetadata record : records) {
+            int index = Integer.parseInt(record.getIdentifier().substring(record.getIdentifier().indexOf('/') + 1));
+            // Sets that were not harvested are still missing, just as they are from each restricted harvest
+            Set<String> expectedSets = SETS_BY_RECORD.get(index).stream()
+                    .filter(set -> !set.equals("physics"))
+                    .collect(Collectors.toSet());
+            assertEquals(record.getIdentifier(), expectedSets, record.getSets());
+        }
+    }
+
+    @Test
+    public void testHandsOverRecordsUpdatedIntoALaterWindowAgain() throws Exception {
+        movedRecordDatestamp = LocalDate.of(2015, 1, 9);
+
+        List<ArticleMetadata> records = new ArrayList<>();
+        SetPartitionedHarvest.builder()
+                .harvester(harvester)
+                .request(request)
+                .setSpecs(ImmutableList.of("cs"))
+                .windowDays(7)
+                .build()
+                .run(records::add);
+
+        // Day 2's record is updated in the middle of the harvest: first seen on day 2, then again on day 9
+        assertEquals(ImmutableList.of(FROM.plusDays(1), movedRecordDatestamp), records.stream()
+                .filter(record -> record.getIdentifier().equals("moved"))
+                .map(ArticleMetadata::getDatestamp)
+                .collect(Collectors.toList()));
+        assertEquals(2 * 20 + 2, records.size());
+    }
+
+    @Test
+    public void testKeepsTheNewestCopyWithinAWindow() throws Exception {
+        movedRecordDatestamp = LocalDate.of(2015, 1, 5);
+
+        List<ArticleMetadata> records = new ArrayList<>();
+        SetPartitionedHarvest.builder()
+                .harvester(harvester)
+                .request(request)
+                .setSpecs(ImmutableList.of("cs", "math"))
+                .windowDays(7)
+                .build()
+                .run(records::add);
+
+        List<ArticleMetadata> moved = records.stream()
+                .filter(record -> record.getIdentifier().equals("moved"))
+                .collect(Collectors.toList());
+        assertEquals(1, moved.size());
+        assertEquals(movedRecordDatestamp, moved.get(0).getDatestamp());
+        assertEquals(ImmutableSet.of("cs", "math"), moved.get(0).getSets());
+    }
+
+    @Test(expected = HttpException.class)
+    public void testRethrowsFailures() throws Exception {
+        ArxivOAIHarvester badEndpoint = endpoint();
+        doThrow(new HttpException("down")).when(badEndpoint).harvest(any(ListRecordsRequest.class));
+        harvester = new MultiEndpointHarvester(ImmutableList.of(badEndpoint));
+
+        new SetPartitionedHarvest(harvester, request, ImmutableList.of("cs", "math")).run(record -> {});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetsAreGivenSeparately() throws Exception {
+        new SetPartitionedHarvest(harvester, new ListRecordsRequest(FROM, UNTIL, "cs"), ImmutableList.of("math"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNeedsASet() throws Exception {
+        new SetPartitionedHarvest(harvester, request, ImmutableList.of());
+    }
+
+    /**
+     * A harvester backed by a stand-in repository with a record a day for each entry of SETS_BY_RECORD, which lists
+     * only the requested set in the records of a set-restricted request.
+     */
+    private ArxivOAIHarvester endpoint() {
+        ArxivOAIHarvester endpoint = mock(ArxivOAIHarvester.class);
+        when(endpoint.getBaseUri()).thenReturn(URI.create("http://export.arxiv.org/oai2"));
+        when(endpoint.getTimeUntilReady()).thenReturn(Duration.ZERO);
+        when(endpoint.harvest(any(ListRecordsRequest.class))).thenAnswer(invocation -> {
+            ListRecordsRequest pageRequest = (ListRecordsRequest) invocation.getArguments()[0];
+            ListRecordsRequest window = pageRequest;
+            int offset = 0;
+            if (pageRequest instanceof ResumeListRecordsRequest) {
+                window = ((ResumeListRecordsRequest) pageRequest).getOriginalRequest();
+                offset = Integer.parseInt(((ResumeListRecordsRequest) pageRequest).getResumptionToken());
+            }
+            String setSpec = window.getSetSpec();
+
+            List<ArticleMetadata> records = new ArrayList<>();
+            for (LocalDate date = window.getFromDate(); !date.isAfter(window.getUntilDate()); date = date.plusDays(1)) {
+                for (int i = 0; i < SETS_BY_RECORD.size(); i++) {
+                    if (SETS_BY_RECORD.get(i).contains(setSpec)) {
+                        records.add(ArticleMetadata.builder()
+                                .identifier(date + "/" + i)
+                                .datestamp(date)
+                                .sets(ImmutableSet.of(setSpec))
+                                .build());
+                    }
+                }
+                // The cs harvest sees the record on both its old and its new datestamp, the others only on its new one
+                if (movedRecordDatestamp != null && (date.equals(movedRecordDatestamp) ||
+                        "cs".equals(setSpec) && date.equals(FROM.plusDays(1)))) {
+                    records.add(ArticleMetadata.builder()
+                            .identifier("moved")
+                            .datestamp(date)
+                            .sets(ImmutableSet.of(setSpec))
+                            .build());
+                }
+            }
+
+            int end = Math.min(offset + PAGE_SIZE, records.size());
+            return ListRecordsResponse.builder()
+                    .request(window)
+                    .records(ImmutableList.copyOf(records.subList(offset, end)))
+                    .resumptionToken(end < records.size() ? String.valueOf(end) : null)
+                    .cursor(BigInteger.valueOf(offset))
+                    .completeListSize(BigInteger.valueOf(records.size()))
+                    .build();
+        });
+        return endpoint;
+    }
+
+}
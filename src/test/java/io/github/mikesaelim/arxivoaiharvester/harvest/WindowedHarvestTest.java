@@ -0,0 +1,236 @@
+package io.github.mikesaelim.arxivoaiharvester.harvest;
+
+import com.google.common.collect.ImmutableList;
+import io.github.mikesaelim.arxivoaiharvester.ArxivOAIHarvester;
+import io.github.mikesaelim.arxivoaiharvester.RepositoryProfileCache;
+import io.github.mikesaelim.arxivoaiharvester.exception.BadArgumentException;
+import io.github.mikesaelim.arxivoaiharvester.exception.BadResumptionTokenException;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata;
+import io.github.mikesaelim.arxivoaiharvester.model.data.DatestampGranularity;
+import io.github.mikesaelim.arxivoaiharvester.model.data.RepositoryDescription;
+import io.github.mikesaelim.arxivoaiharvester.model.data.RepositoryProfile;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListRecordsRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.response.ListRecordsResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatcher;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Mockito.*;
+
+public class WindowedHarvestTest {
+
+    private static final LocalDate FROM = LocalDate.of(2015, 1, 1);
+    private static final LocalDate UNTIL = LocalDate.of(2015, 3, 1);
+    private static final int RECORDS_PER_DAY = 5;
+    private static final int PAGE_SIZE = 10;
+
+    private MultiEndpointHarvester harvester;
+    private ListRecordsRequest request;
+
+    // Windows that were harvested to the end
+    private final List<ListRecordsRequest> completedWindows = new CopyOnWriteArrayList<>();
+    // Windows longer than this many days lose their resumption tokens
+    private volatile long tokensExpireAfterDays = Long.MAX_VALUE;
+
+    @Before
+    public void setUp() throws Exception {
+        harvester = new MultiEndpointHarvester(ImmutableList.of(endpoint(), endpoint()));
+        request = new ListRecordsRequest(FROM, UNTIL, "physics");
+    }
+
+    @Test
+    public void testHandsOverAllRecordsInOrder() throws Exception {
+        List<ArticleMetadata> records = new ArrayList<>();
+        WindowedHarvest.builder()
+                .harvester(harvester)
+                .request(request)
+                .initialWindowDays(10)
+                .build()
+                .run(records::add);
+
+        assertEquals(expectedIdentifiers(), identifiers(records));
+    }
+
+    @Test
+    public void testSplitsWindowsThatAreTooLarge() throws Exception {
+        List<ArticleMetadata> records = new ArrayList<>();
+        WindowedHarvest.builder()
+                .harvester(harvester)
+                .request(request)
+                .initialWindowDays(12)
+                .maxRecordsPerWindow(40)
+                .build()
+                .run(records::add);
+
+        assertEquals(expectedIdentifiers(), identifiers(records));
+        for (ListRecordsRequest window : completedWindows) {
+            assertTrue(window + " is too large", days(window) * RECORDS_PER_DAY <= 40);
+        }
+        // After the first windows, the windows are sized to hold about half of the maximum
+        assertTrue(completedWindows.stream().anyMatch(window -> days(window) == 4));
+    }
+
+    @Test
+    public void testSplitsWindowsWhoseTokensExpire() throws Exception {
+        tokensExpireAfterDays = 3;
+
+        List<ArticleMetadata> records = new ArrayList<>();
+        WindowedHarvest.builder()
+                .harvester(harvester)
+                .request(request)
+                .initialWindowDays(20)
+                .build()
+                .run(records::add);
+
+        assertEquals(expectedIdentifiers(), identifiers(records));
+        for (ListRecordsRequest window : completedWindows) {
+            assertTrue(window + " is too large", days(window) <= 3);
+        }
+    }
+
+    @Test
+    public void testRethrowsFailures() throws Exception {
+        // The second window fails
+        ArgumentMatcher<ListRecordsRequest> secondWindow = new ArgumentMatcher<ListRecordsRequest>() {
+            @Override
+            public boolean matches(Object argument) {
+                return LocalDate.of(2015, 1, 8).equals(((ListRecordsRequest) argument).getFromDate());
+            }
+        };
+        ArxivOAIHarvester badEndpoint = endpoint();
+        doThrow(new BadArgumentException("bad")).when(badEndpoint).harvest(argThat(secondWindow));
+        harvester = new MultiEndpointHarvester(ImmutableList.of(badEndpoint));
+
+        List<ArticleMetadata> records = new ArrayList<>();
+        try {
+            new WindowedHarvest(harvester, request).run(records::add);
+            fail();
+        } catch (BadArgumentException e) {
+            // Only the window before the failed one has been handed over
+            assertEquals(7 * RECORDS_PER_DAY, records.size());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNeedsFromDate() throws Exception {
+        new WindowedHarvest(harvester, new ListRecordsRequest(null, UNTIL, null));
+    }
+
+    @Test
+    public void testStartsAtEarliestDatestampWithoutFromDate() throws Exception {
+        List<ArticleMetadata> records = new ArrayList<>();
+        WindowedHarvest.builder()
+                .harvester(harvester)
+                .request(new ListRecordsRequest(null, UNTIL, "physics"))
+                .profileCache(profileCache(FROM))
+                .build()
+                .run(records::add);
+
+        assertEquals(expectedIdentifiers(), identifiers(records));
+    }
+
+    @Test
+    public void testSkipsDaysBeforeEarliestDatestamp() throws Exception {
+        List<ArticleMetadata> records = new ArrayList<>();
+        WindowedHarvest.builder()
+                .harvester(harvester)
+                .request(new ListRecordsRequest(FROM.minusDays(30), UNTIL, "physics"))
+                .profileCache(profileCache(FROM))
+                .build()
+                .run(records::add);
+
+        assertEquals(expectedIdentifiers(), identifiers(records));
+        for (ListRecordsRequest window : completedWindows) {
+            assertFalse(window.getFromDate().isBefore(FROM));
+        }
+    }
+
+    private static RepositoryProfileCache profileCache(LocalDate earliestDatestamp) {
+        RepositoryProfileCache profileCache = mock(RepositoryProfileCache.class);
+        when(profileCache.get()).thenReturn(RepositoryProfile.builder()
+                .description(RepositoryDescription.builder()
+                        .earliestDatestamp(earliestDatestamp)
+                        .granularity(DatestampGranularity.DAY)
+                        .build())
+                .sets(ImmutableList.of())
+                .build());
+        return profileCache;
+    }
+
+    /**
+     * A harvester backed by a stand-in repository with RECORDS_PER_DAY records a day, which returns each page in
+     * reverse order of datestamp.
+     */
+    private ArxivOAIHarvester endpoint() {
+        ArxivOAIHarvester endpoint = mock(ArxivOAIHarvester.class);
+        when(endpoint.getBaseUri()).thenReturn(URI.create("http://export.arxiv.org/oai2"));
+        when(endpoint.getTimeUntilReady()).thenReturn(Duration.ZERO);
+        when(endpoint.harvest(any(ListRecordsRequest.class))).thenAnswer(invocation -> {
+            ListRecordsRequest pageRequest = (ListRecordsRequest) invocation.getArguments()[0];
+            ListRecordsRequest window = pageRequest;
+            int offset = 0;
+            if (pageRequest instanceof ResumeListRecordsRequest) {
+                window = ((ResumeListRecordsRequest) pageRequest).getOriginalRequest();
+                offset = Integer.parseInt(((ResumeListRecordsRequest) pageRequest).getResumptionToken());
+                if (days(window) > tokensExpireAfterDays) {
+                    throw new BadResumptionTokenException("expired");
+                }
+            }
+
+            List<ArticleMetadata> records = new ArrayList<>();
+            for (LocalDate date = window.getFromDate(); !date.isAfter(window.getUntilDate()); date = date.plusDays(1)) {
+                for (int i = 0; i < RECORDS_PER_DAY; i++) {
+                    records.add(ArticleMetadata.builder().identifier(date + "/" + i).datestamp(date).build());
+                }
+            }
+            Collections.reverse(records);
+
+            int end = Math.min(offset + PAGE_SIZE, records.size());
+            if (end == records.size()) {
+                completedWindows.add(window);
+            }
+            return ListRecordsResponse.builder()
+                    .request(window)
+                    .records(ImmutableList.copyOf(records.subList(offset, end)))
+                    .resumptionToken(end < records.size() ? String.valueOf(end) : null)
+                    .cursor(BigInteger.valueOf(offset))
+                    .completeListSize(BigInteger.valueOf(records.size()))
+                    .build();
+        });
+        return endpoint;
+    }
+
+    private static List<String> expectedIdentifiers() {
+        List<String> identifiers = new ArrayList<>();
+        for (LocalDate date = FROM; !date.isAfter(UNTIL); date = date.plusDays(1)) {
+            for (int i = RECORDS_PER_DAY - 1; i >= 0; i--) {
+                identifiers.add(date + "/" + i);
+            }
+        }
+        return identifiers;
+    }
+
+    private static List<String> identifiers(List<ArticleMetadata> records) {
+        return records.stream().map(ArticleMetadata::getIdentifier).collect(Collectors.toList());
+    }
+
+    private static long days(ListRecordsRequest window) {
+        return ChronoUnit.DAYS.between(window.getFromDate(), window.getUntilDate()) + 1;
+    }
+
+}
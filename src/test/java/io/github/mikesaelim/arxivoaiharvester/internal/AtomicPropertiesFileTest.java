@@ -0,0 +1,68 @@
+package io.github.mikesaelim.arxivoaiharvester.internal;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class AtomicPropertiesFileTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path file;
+    private AtomicPropertiesFile propertiesFile;
+
+    @Before
+    public void setUp() throws Exception {
+        file = temporaryFolder.getRoot().toPath().resolve("state").resolve("state.properties");
+        propertiesFile = new AtomicPropertiesFile(file, "test state");
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("key", "value");
+        propertiesFile.save(properties);
+
+        assertEquals(properties, propertiesFile.load());
+    }
+
+    @Test
+    public void testSaveReplacesFileWithoutLeavingTemporaryFiles() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("key", "value");
+        propertiesFile.save(properties);
+        properties.remove("key");
+        properties.setProperty("other", "value");
+        propertiesFile.save(properties);
+
+        assertEquals(properties, propertiesFile.load());
+        try (Stream<Path> files = Files.list(file.getParent())) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testLoadAndDeleteWithoutFile() throws Exception {
+        assertNull(propertiesFile.load());
+        propertiesFile.delete();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCheckFormatVersion() throws Exception {
+        Properties properties = new Properties();
+        AtomicPropertiesFile.setFormatVersion(properties, "1");
+        AtomicPropertiesFile.checkFormatVersion(properties, "1");
+
+        AtomicPropertiesFile.checkFormatVersion(properties, "2");
+    }
+
+}
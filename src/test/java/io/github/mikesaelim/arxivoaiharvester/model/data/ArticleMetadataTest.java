@@ -0,0 +1,64 @@
+package io.github.mikesaelim.arxivoaiharvester.model.data;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ArticleMetadataTest {
+
+    private static final String RAW_ABSTRACT = "  We discuss the asymptotic behaviour of models of lattice polygons,\n" +
+            "mainly on the square lattice.  \n";
+
+    @Test
+    public void testLazyTextIsNormalizedOnFirstAccessAndCached() throws Exception {
+        AtomicInteger normalizations = new AtomicInteger();
+        ArticleMetadata lazy = ArticleMetadata.builder()
+                .identifier("oai:arXiv.org:0704.0001")
+                .articleAbstract(RAW_ABSTRACT)
+                .textNormalizer(value -> {
+                    normalizations.incrementAndGet();
+                    return StringUtils.normalizeSpace(value);
+                })
+                .build();
+
+        assertEquals(0, normalizations.get());
+
+        String articleAbstract = lazy.getArticleAbstract();
+        assertEquals(StringUtils.normalizeSpace(RAW_ABSTRACT), articleAbstract);
+        assertSame(articleAbstract, lazy.getArticleAbstract());
+        assertEquals(1, normalizations.get());
+
+        assertNull(lazy.getAuthors());
+        assertNull(lazy.getComments());
+        assertEquals(1, normalizations.get());
+    }
+
+    @Test
+    public void testLazyAndEagerAreEqual() throws Exception {
+        ArticleMetadata eager = ArticleMetadata.builder()
+                .identifier("oai:arXiv.org:0704.0001")
+                .datestamp(LocalDate.of(2014, 11, 18))
+                .authors("A. Author and B. Author")
+                .comments("10 pages")
+                .articleAbstract(StringUtils.normalizeSpace(RAW_ABSTRACT))
+                .build();
+        ArticleMetadata lazy = ArticleMetadata.builder()
+                .identifier("oai:arXiv.org:0704.0001")
+                .datestamp(LocalDate.of(2014, 11, 18))
+                .authors("A. Author\n and B. Author")
+                .comments(" 10 pages ")
+                .articleAbstract(RAW_ABSTRACT)
+                .textNormalizer(StringUtils::normalizeSpace)
+                .build();
+
+        assertEquals(eager, lazy);
+        assertEquals(lazy, eager);
+        assertEquals(eager.hashCode(), lazy.hashCode());
+        assertEquals(eager.toString(), lazy.toString());
+    }
+
+}
@@ -2,6 +2,8 @@ package io.github.mikesaelim.arxivoaiharvester.model.request;
 
 import org.junit.Test;
 
+import java.net.URI;
+
 import static org.junit.Assert.assertEquals;
 
 public class GetRecordRequestTest {
@@ -32,4 +34,13 @@ public class GetRecordRequestTest {
                 request.getUri().toString());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testGetUriWithBaseUri() throws Exception {
+        GetRecordRequest request = new GetRecordRequest("1302.2146");
+
+        assertEquals("https://mirror.example.org:8443/arxiv/oai?verb=GetRecord&metadataPrefix=arXivRaw&identifier=oai%3AarXiv.org%3A1302.2146",
+                request.getUri(URI.create("https://mirror.example.org:8443/arxiv/oai")).toString());
+        assertEquals(request.getUri(), request.getUri(ArxivRequest.DEFAULT_BASE_URI));
+    }
+
+}
@@ -0,0 +1,14 @@
+package io.github.mikesaelim.arxivoaiharvester.model.request;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class IdentifyRequestTest {
+
+    @Test
+    public void testGetUri() throws Exception {
+        assertEquals("http://export.arxiv.org/oai2?verb=Identify", new IdentifyRequest().getUri().toString());
+    }
+
+}
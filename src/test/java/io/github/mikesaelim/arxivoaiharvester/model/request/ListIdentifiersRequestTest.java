@@ -0,0 +1,46 @@
+package io.github.mikesaelim.arxivoaiharvester.model.request;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.assertEquals;
+
+public class ListIdentifiersRequestTest {
+
+    @Test
+    public void testGetUri_FullySpecified() throws Exception {
+        LocalDate fromDate = LocalDate.of(2014, 11, 25);
+        LocalDate untilDate = LocalDate.of(2015, 1, 5);
+        String setSpec = "physics";
+
+        ListIdentifiersRequest request = new ListIdentifiersRequest(fromDate, untilDate, setSpec);
+
+        assertEquals("http://export.arxiv.org/oai2?verb=ListIdentifiers&metadataPrefix=arXivRaw&from=2014-11-25&until=2015-01-05&set=physics",
+                request.getUri().toString());
+    }
+
+    @Test
+    public void testGetUri_Unspecified() throws Exception {
+        ListIdentifiersRequest request = new ListIdentifiersRequest(null, null, null);
+
+        assertEquals("http://export.arxiv.org/oai2?verb=ListIdentifiers&metadataPrefix=arXivRaw",
+                request.getUri().toString());
+    }
+
+    @Test
+    public void testGetUri_Resumption() throws Exception {
+        ListIdentifiersRequest request = new ResumeListIdentifiersRequest("pie", new ListIdentifiersRequest(null, null, null));
+
+        assertEquals("http://export.arxiv.org/oai2?verb=ListIdentifiers&resumptionToken=pie", request.getUri().toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidDatestampRangeShouldThrowException() throws Exception {
+        LocalDate fromDate = LocalDate.of(2014, 11, 25);
+        LocalDate untilDate = LocalDate.of(2014, 11, 24);
+
+        new ListIdentifiersRequest(fromDate, untilDate, null);
+    }
+
+}
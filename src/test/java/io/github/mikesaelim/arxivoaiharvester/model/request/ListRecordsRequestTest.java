@@ -1,10 +1,13 @@
 package io.github.mikesaelim.arxivoaiharvester.model.request;
 
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleField;
 import org.junit.Test;
 
 import java.time.LocalDate;
+import java.util.EnumSet;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 public class ListRecordsRequestTest {
 
@@ -31,6 +34,18 @@ public class ListRecordsRequestTest {
                 request.getUri().toString());
     }
 
+    @Test
+    public void testFields() throws Exception {
+        EnumSet<ArticleField> fields = EnumSet.of(ArticleField.CATEGORIES);
+
+        ListRecordsRequest request = new ListRecordsRequest(null, null, null, fields);
+        fields.add(ArticleField.ABSTRACT);
+
+        assertEquals(EnumSet.of(ArticleField.CATEGORIES), request.getFields());
+        assertEquals("http://export.arxiv.org/oai2?verb=ListRecords&metadataPrefix=arXivRaw", request.getUri().toString());
+        assertNull(new ListRecordsRequest(null, null, null).getFields());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void invalidDatestampRangeShouldThrowException() throws Exception {
         LocalDate fromDate = LocalDate.of(2014, 11, 25);
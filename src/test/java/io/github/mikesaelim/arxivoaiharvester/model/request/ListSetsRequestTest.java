@@ -0,0 +1,21 @@
+package io.github.mikesaelim.arxivoaiharvester.model.request;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ListSetsRequestTest {
+
+    @Test
+    public void testGetUri() throws Exception {
+        assertEquals("http://export.arxiv.org/oai2?verb=ListSets", new ListSetsRequest().getUri().toString());
+    }
+
+    @Test
+    public void testGetUri_Resumption() throws Exception {
+        ListSetsRequest request = new ResumeListSetsRequest("pie", new ListSetsRequest());
+
+        assertEquals("http://export.arxiv.org/oai2?verb=ListSets&resumptionToken=pie", request.getUri().toString());
+    }
+
+}
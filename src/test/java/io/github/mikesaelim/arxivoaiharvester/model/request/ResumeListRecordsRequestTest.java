@@ -1,7 +1,10 @@
 package io.github.mikesaelim.arxivoaiharvester.model.request;
 
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleField;
 import org.junit.Test;
 
+import java.util.EnumSet;
+
 import static org.junit.Assert.assertEquals;
 
 public class ResumeListRecordsRequestTest {
@@ -24,4 +27,14 @@ public class ResumeListRecordsRequestTest {
 
         assertEquals("http://export.arxiv.org/oai2?verb=ListRecords&resumptionToken=pie", request.getUri().toString());
     }
+
+    @Test
+    public void testFieldsAreCarriedOver() throws Exception {
+        ListRecordsRequest originalRequest = new ListRecordsRequest(null, null, null,
+                EnumSet.of(ArticleField.CATEGORIES, ArticleField.VERSIONS));
+
+        ResumeListRecordsRequest request = new ResumeListRecordsRequest("pie", originalRequest);
+
+        assertEquals(EnumSet.of(ArticleField.CATEGORIES, ArticleField.VERSIONS), request.getFields());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package io.github.mikesaelim.arxivoaiharvester.model.response;
+
+import io.github.mikesaelim.arxivoaiharvester.model.request.ListIdentifiersRequest;
+import io.github.mikesaelim.arxivoaiharvester.model.request.ResumeListIdentifiersRequest;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ListIdentifiersResponseTest {
+
+    @Test
+    public void testResumption() throws Exception {
+        ListIdentifiersResponse response = ListIdentifiersResponse.builder()
+                .request(new ListIdentifiersRequest(null, null, null))
+                .resumptionToken("resumptionToken")
+                .build();
+
+        ListIdentifiersRequest resumption = response.resumption();
+
+        assertTrue(response.hasResumption());
+        assertTrue(resumption instanceof ResumeListIdentifiersRequest);
+        assertEquals("resumptionToken", ((ResumeListIdentifiersRequest) resumption).getResumptionToken());
+        assertEquals(response.getRequest(), ((ResumeListIdentifiersRequest) resumption).getOriginalRequest());
+    }
+
+    @Test
+    public void testNoResumption() throws Exception {
+        ListIdentifiersResponse response = ListIdentifiersResponse.builder()
+                .resumptionToken("")
+                .build();
+
+        assertFalse(response.hasResumption());
+        assertEquals(ListIdentifiersRequest.NONE, response.resumption());
+    }
+
+}
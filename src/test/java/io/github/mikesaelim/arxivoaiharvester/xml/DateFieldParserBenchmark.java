@@ -0,0 +1,55 @@
+package io.github.mikesaelim.arxivoaiharvester.xml;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Function;
+
+/**
+ * Measures the time taken, and the bytes allocated, to parse submission times and datestamps with
+ * {@link DateFieldParser} and with the java.time formatters.
+ */
+public class DateFieldParserBenchmark {
+
+    private static final int ITERATIONS = 2_000_000;
+
+    public static void main(String[] args) throws Exception {
+        String[] submissionTimes = new String[1024];
+        String[] datestamps = new String[1024];
+        ZonedDateTime time = ZonedDateTime.of(2013, 2, 8, 21, 0, 1, 0, ZoneOffset.UTC);
+        for (int i = 0; i < submissionTimes.length; i++) {
+            submissionTimes[i] = DateTimeFormatter.RFC_1123_DATE_TIME.format(time.plusMinutes(977L * i));
+            // a page covers only a handful of distinct days
+            datestamps[i] = LocalDate.of(2014, 11, 18).plusDays(i % 5).toString();
+        }
+
+        DateFieldParser dateFieldParser = new DateFieldParser();
+        for (int round = 0; round < 3; round++) {
+            run("submission time, formatter",
+                    value -> ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME), submissionTimes);
+            run("submission time, DateFieldParser", dateFieldParser::parseSubmissionTime, submissionTimes);
+            run("datestamp, LocalDate.parse", LocalDate::parse, datestamps);
+            run("datestamp, DateFieldParser", dateFieldParser::parseDatestamp, datestamps);
+        }
+    }
+
+    private static void run(String name, Function<String, Object> parser, String[] values) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long sink = 0;
+        long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += parser.apply(values[i & (values.length - 1)]).hashCode();
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+        System.out.printf("%-34s %7.1f ns/op %7.1f bytes/op (%d)%n",
+                name, (double) nanos / ITERATIONS, (double) bytes / ITERATIONS, sink);
+    }
+
+}
@@ -0,0 +1,96 @@
+package io.github.mikesaelim.arxivoaiharvester.xml;
+
+import io.github.mikesaelim.arxivoaiharvester.exception.ParseException;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DateFieldParserTest {
+
+    private DateFieldParser dateFieldParser = new DateFieldParser();
+
+    @Test
+    public void testParseSubmissionTime_MatchesFormatter() throws Exception {
+        Random random = new Random(20161017L);
+        for (int i = 0; i < 5000; i++) {
+            ZonedDateTime time = ZonedDateTime.of(1991, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC)
+                    .plusSeconds((long) (random.nextDouble() * 40 * 365 * 24 * 3600));
+            String value = DateTimeFormatter.RFC_1123_DATE_TIME.format(time);
+
+            assertEquals(value, ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME),
+                    dateFieldParser.parseSubmissionTime(value));
+        }
+    }
+
+    @Test
+    public void testParseSubmissionTime_OtherFormsFallBackToFormatter() throws Exception {
+        String[] values = {
+                "Fri, 08 Feb 2013 21:00:01 GMT", "8 Feb 2013 21:00:01 GMT", "Fri, 8 Feb 2013 21:00 GMT",
+                "Fri, 8 Feb 2013 21:00:01 +0100", "FRI, 8 FEB 2013 21:00:01 GMT"
+        };
+
+        for (String value : values) {
+            assertEquals(value, ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME),
+                    dateFieldParser.parseSubmissionTime(value));
+        }
+    }
+
+    @Test
+    public void testParseSubmissionTime_MalformedValuesThrowSameMessage() throws Exception {
+        String[] values = {
+                "Fri, 8 Feb 2013 21:00:01 GM", "Sat, 8 Feb 2013 21:00:01 GMT", "Fri, 30 Feb 2013 21:00:01 GMT",
+                "Fri, 8 Feb 2013 24:00:01 GMT", "Fri, 8 Fob 2013 21:00:01 GMT", "Fri, 8 Feb 2O13 21:00:01 GMT", ""
+        };
+
+        for (String value : values) {
+            try {
+                dateFieldParser.parseSubmissionTime(value);
+                fail("Expected ParseException for '" + value + "'");
+            } catch (ParseException e) {
+                assertEquals("Could not parse version date '" + value + "' in RFC_1123_DATE_TIME format",
+                        e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testParseDatestamp_MatchesFormatter() throws Exception {
+        LocalDate date = LocalDate.of(1991, 1, 1);
+        for (int i = 0; i < 20000; i++) {
+            String value = date.plusDays(i).toString();
+
+            assertEquals(LocalDate.parse(value), dateFieldParser.parseDatestamp(value));
+        }
+    }
+
+    @Test
+    public void testParseDatestamp_MalformedValuesThrowSameMessage() throws Exception {
+        // The last is 2015-06-01 with fullwidth digits for the year
+        String[] values = {"2015-06-", "2015-02-29", "2015-13-01", "2015/06/01", "2015-6-01",
+                "\uFF12\uFF10\uFF11\uFF15-06-01"};
+
+        for (String value : values) {
+            try {
+                dateFieldParser.parseDatestamp(value);
+                fail("Expected ParseException for '" + value + "'");
+            } catch (ParseException e) {
+                assertEquals("Could not parse datestamp '" + value + "' in ISO_LOCAL_DATE format", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testParseDatestamp_RepeatedValueIsCached() throws Exception {
+        LocalDate first = dateFieldParser.parseDatestamp("2014-11-18");
+
+        assertSame(first, dateFieldParser.parseDatestamp(new String("2014-11-18")));
+        assertEquals(LocalDate.of(2014, 11, 18), first);
+    }
+
+}
@@ -0,0 +1,69 @@
+package io.github.mikesaelim.arxivoaiharvester.xml;
+
+import com.google.common.collect.Lists;
+import org.openarchives.oai._2.OAIPMHtype;
+import org.openarchives.oai._2.RecordType;
+
+import javax.xml.bind.JAXBElement;
+import java.io.InputStream;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures the time taken to convert ListRecords pages of various sizes to {@link io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata},
+ * sequentially and in parallel on the common ForkJoinPool, to find the page size at which parallel conversion starts to
+ * pay off on the current machine.
+ */
+public class ParallelConversionBenchmark {
+
+    private static final int[] PAGE_SIZES = {8, 16, 32, 64, 128, 256, 512, 1000};
+    private static final int RECORDS_PER_RUN = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        List<RecordType> fixtureRecords = loadFixtureRecords();
+        ZonedDateTime responseDate = ZonedDateTime.now(ZoneOffset.UTC);
+
+        XMLParser sequentialParser = new XMLParser();
+        XMLParser parallelParser = XMLParser.builder()
+                .conversionExecutor(ForkJoinPool.commonPool())
+                .parallelConversionThreshold(1)
+                .build();
+
+        System.out.printf("parallelism of the common pool: %d%n", ForkJoinPool.commonPool().getParallelism());
+        for (int round = 0; round < 2; round++) {
+            for (int pageSize : PAGE_SIZES) {
+                List<RecordType> page = Lists.newArrayList();
+                for (int i = 0; i < pageSize; i++) {
+                    page.add(fixtureRecords.get(i % fixtureRecords.size()));
+                }
+
+                double sequentialMicros = time(sequentialParser, page, responseDate);
+                double parallelMicros = time(parallelParser, page, responseDate);
+                System.out.printf("%5d records/page: sequential %9.1f us/page, parallel %9.1f us/page, speedup %.2f%n",
+                        pageSize, sequentialMicros, parallelMicros, sequentialMicros / parallelMicros);
+            }
+        }
+    }
+
+    private static double time(XMLParser parser, List<RecordType> page, ZonedDateTime responseDate) {
+        int pages = Math.max(1, RECORDS_PER_RUN / page.size());
+        long start = System.nanoTime();
+        for (int i = 0; i < pages; i++) {
+            parser.convertRecords(page, responseDate, ParseOptions.DEFAULT, record -> {});
+        }
+        return (System.nanoTime() - start) / 1e3 / pages;
+    }
+
+    private static List<RecordType> loadFixtureRecords() throws Exception {
+        try (InputStream inputStream =
+                     ParallelConversionBenchmark.class.getClassLoader().getResourceAsStream("ListRecordsResponse.xml")) {
+            @SuppressWarnings("unchecked")
+            JAXBElement<OAIPMHtype> jaxbElement = (JAXBElement<OAIPMHtype>)
+                    XmlBindings.jaxbContext().createUnmarshaller().unmarshal(inputStream);
+            return jaxbElement.getValue().getListRecords().getRecord();
+        }
+    }
+
+}
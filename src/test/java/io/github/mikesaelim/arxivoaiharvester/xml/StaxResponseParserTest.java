@@ -0,0 +1,208 @@
+package io.github.mikesaelim.arxivoaiharvester.xml;
+
+import io.github.mikesaelim.arxivoaiharvester.exception.BadArgumentException;
+import io.github.mikesaelim.arxivoaiharvester.exception.BadResumptionTokenException;
+import io.github.mikesaelim.arxivoaiharvester.exception.ParseException;
+import io.github.mikesaelim.arxivoaiharvester.exception.RequestRejectedError;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata;
+import io.github.mikesaelim.arxivoaiharvester.model.data.DatestampGranularity;
+import io.github.mikesaelim.arxivoaiharvester.model.data.DeletedRecordPolicy;
+import io.github.mikesaelim.arxivoaiharvester.model.data.RepositoryDescription;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class StaxResponseParserTest {
+
+    private XMLParser jaxbParser = new XMLParser();
+    private XMLParser streamingParser = XMLParser.builder().streaming(true).build();
+
+
+
+
+    // Tests of error cases
+
+    @Test(expected = RequestRejectedError.class)
+    public void testParse_ErrorBadVerb() throws Exception {
+        parseResource(streamingParser, "ErrorResponseBadVerb.xml");
+    }
+
+    @Test(expected = BadArgumentException.class)
+    public void testParse_ErrorBadArgument() throws Exception {
+        parseResource(streamingParser, "ErrorResponseBadArgument.xml");
+    }
+
+    @Test(expected = BadResumptionTokenException.class)
+    public void testParse_ErrorBadResumptionToken() throws Exception {
+        parseResource(streamingParser, "ErrorResponseBadResumptionToken.xml");
+    }
+
+    @Test
+    public void testParse_ErrorIdDoesNotExist() throws Exception {
+        assertSameAsJaxb("ErrorResponseIdDoesNotExist.xml");
+    }
+
+    @Test
+    public void testParse_ErrorNoRecordsMatch() throws Exception {
+        assertSameAsJaxb("ErrorResponseNoRecordsMatch.xml");
+    }
+
+    @Test
+    public void testParse_ErrorNoSetHierarchy() throws Exception {
+        assertTrue(assertSameAsJaxb("ErrorResponseNoSetHierarchy.xml").getSets().isEmpty());
+    }
+
+    @Test
+    public void testParse_ErrorMessageMatchesJaxb() throws Exception {
+        String jaxbMessage = null;
+        String streamingMessage = null;
+        try {
+            parseResource(jaxbParser, "ErrorResponseBadArgument.xml");
+        } catch (BadArgumentException e) {
+            jaxbMessage = e.getMessage();
+        }
+        try {
+            parseResource(streamingParser, "ErrorResponseBadArgument.xml");
+        } catch (BadArgumentException e) {
+            streamingMessage = e.getMessage();
+        }
+
+        assertNotNull(jaxbMessage);
+        assertEquals(jaxbMessage, streamingMessage);
+    }
+
+    @Test(expected = ParseException.class)
+    public void testParse_NotXmlShouldThrow() throws Exception {
+        streamingParser.parse(XMLParserTest.toStream("this is not XML"));
+    }
+
+    @Test(expected = ParseException.class)
+    public void testParse_WrongRootElementShouldThrow() throws Exception {
+        streamingParser.parse(XMLParserTest.toStream("<?xml version=\"1.0\" encoding=\"UTF-8\"?><html><body/></html>"));
+    }
+
+
+
+
+    @Test(expected = ParseException.class)
+    public void testParse_ValidationCatchesSchemaViolations() throws Exception {
+        XMLParser validatingStreamingParser = XMLParser.builder()
+                .streaming(true)
+                .validationPolicy(ValidationPolicy.always())
+                .build();
+
+        validatingStreamingParser.parse(XMLParserTest.toStream(XMLParserTest.GET_RECORD_WITH_UNKNOWN_ELEMENT));
+    }
+
+    @Test
+    public void testParse_ValidatedResponseMatchesJaxb() throws Exception {
+        streamingParser = XMLParser.builder().streaming(true).validationPolicy(ValidationPolicy.always()).build();
+
+        assertSameAsJaxb("ListRecordsResponse.xml");
+        assertEquals(1, streamingParser.getValidatedPageCount());
+    }
+
+
+
+
+    // Tests of good responses
+
+    @Test
+    public void testParse_GetRecord() throws Exception {
+        assertSameAsJaxb("GetRecordResponse.xml");
+    }
+
+    @Test
+    public void testParse_ListRecords() throws Exception {
+        ParsedXmlResponse response = assertSameAsJaxb("ListRecordsResponse.xml");
+
+        assertEquals(6, response.getRecords().size());
+        assertEquals("726959|1001", response.getResumptionToken());
+        assertEquals(0, response.getCursor().intValue());
+        assertEquals(58011, response.getCompleteListSize().intValue());
+        assertEquals(ZonedDateTime.of(2015, 1, 6, 22, 49, 59, 0, ZoneOffset.UTC), response.getExpirationDate());
+    }
+
+    @Test
+    public void testParse_ListIdentifiers() throws Exception {
+        ParsedXmlResponse response = assertSameAsJaxb("ListIdentifiersResponse.xml");
+
+        assertEquals(6, response.getHeaders().size());
+        assertTrue(response.getHeaders().get(1).isDeleted());
+        assertEquals("726959|1001", response.getResumptionToken());
+    }
+
+    @Test
+    public void testParse_Identify() throws Exception {
+        ParsedXmlResponse response = assertSameAsJaxb("IdentifyResponse.xml");
+
+        RepositoryDescription description = response.getRepositoryDescription();
+        assertEquals("http://export.arxiv.org/oai2", description.getBaseUrl());
+        assertEquals(LocalDate.of(2007, 5, 23), description.getEarliestDatestamp());
+        assertEquals(DeletedRecordPolicy.PERSISTENT, description.getDeletedRecord());
+        assertEquals(DatestampGranularity.DAY, description.getGranularity());
+        assertEquals(Arrays.asList("gzip", "deflate"), description.getCompressions());
+    }
+
+    @Test
+    public void testParse_ListSets() throws Exception {
+        ParsedXmlResponse response = assertSameAsJaxb("ListSetsResponse.xml");
+
+        assertEquals(7, response.getSets().size());
+        assertEquals("physics:hep-ph", response.getSets().get(4).getSetSpec());
+        assertEquals("High Energy Physics - Phenomenology", response.getSets().get(4).getSetName());
+        assertNull(response.getResumptionToken());
+    }
+
+    @Test
+    public void testParse_DeletedRecord() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<OAI-PMH xmlns=\"http://www.openarchives.org/OAI/2.0/\">\n" +
+                "<responseDate>2015-01-06T20:49:59Z</responseDate>\n" +
+                "<request verb=\"ListRecords\" metadataPrefix=\"arXivRaw\">http://export.arxiv.org/oai2</request>\n" +
+                "<ListRecords>\n" +
+                "<record><header status=\"deleted\">\n" +
+                " <identifier>oai:arXiv.org:0704.0001</identifier>\n" +
+                " <datestamp>2014-11-18</datestamp>\n" +
+                " <setSpec>physics:hep-ph</setSpec>\n" +
+                "</header></record>\n" +
+                "<resumptionToken cursor=\"1000\" completeListSize=\"1001\"/>\n" +
+                "</ListRecords>\n" +
+                "</OAI-PMH>";
+
+        ParsedXmlResponse jaxbResponse = jaxbParser.parse(XMLParserTest.toStream(xml));
+        ParsedXmlResponse streamingResponse = streamingParser.parse(XMLParserTest.toStream(xml));
+        assertEquals(jaxbResponse, streamingResponse);
+
+        ArticleMetadata record = streamingResponse.getRecords().get(0);
+        assertTrue(record.isDeleted());
+        assertEquals("oai:arXiv.org:0704.0001", record.getIdentifier());
+        assertEquals(LocalDate.of(2014, 11, 18), record.getDatestamp());
+        assertNull(record.getId());
+        assertFalse(streamingResponse.getResumptionToken() != null && !streamingResponse.getResumptionToken().isEmpty());
+    }
+
+
+
+
+    private ParsedXmlResponse assertSameAsJaxb(String resourceName) throws Exception {
+        ParsedXmlResponse jaxbResponse = parseResource(jaxbParser, resourceName);
+        ParsedXmlResponse streamingResponse = parseResource(streamingParser, resourceName);
+
+        assertEquals(jaxbResponse, streamingResponse);
+        return streamingResponse;
+    }
+
+    private ParsedXmlResponse parseResource(XMLParser parser, String resourceName) throws Exception {
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream(resourceName)) {
+            return parser.parse(inputStream);
+        }
+    }
+
+}
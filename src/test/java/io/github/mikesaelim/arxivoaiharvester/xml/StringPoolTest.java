@@ -0,0 +1,38 @@
+package io.github.mikesaelim.arxivoaiharvester.xml;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StringPoolTest {
+
+    private StringPool stringPool = new StringPool(2);
+
+    @Test
+    public void testCanonicalize_ReturnsFirstInstance() throws Exception {
+        String first = new String("hep-th");
+        String second = new String("hep-th");
+
+        assertSame(first, stringPool.canonicalize(first));
+        assertSame(first, stringPool.canonicalize(second));
+        assertEquals(1, stringPool.stats().hitCount());
+        assertEquals(1, stringPool.stats().missCount());
+    }
+
+    @Test
+    public void testCanonicalize_Null() throws Exception {
+        assertNull(stringPool.canonicalize(null));
+    }
+
+    @Test
+    public void testCanonicalize_BoundedSize() throws Exception {
+        stringPool.canonicalize("hep-th");
+        stringPool.canonicalize("hep-ph");
+        stringPool.canonicalize("astro-ph");
+        stringPool.canonicalize("math.CO");
+
+        assertEquals(2, stringPool.size());
+        assertEquals(2, stringPool.stats().evictionCount());
+    }
+
+}
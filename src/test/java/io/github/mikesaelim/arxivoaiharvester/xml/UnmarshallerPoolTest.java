@@ -0,0 +1,52 @@
+package io.github.mikesaelim.arxivoaiharvester.xml;
+
+import org.junit.Test;
+
+import javax.xml.bind.Unmarshaller;
+
+import static org.junit.Assert.*;
+
+public class UnmarshallerPoolTest {
+
+    private UnmarshallerPool pool = new UnmarshallerPool(XmlBindings.jaxbContext(), 2);
+
+    @Test
+    public void testBorrow_ReusesReturnedUnmarshaller() throws Exception {
+        Unmarshaller unmarshaller = pool.borrow();
+        pool.giveBack(unmarshaller);
+
+        assertSame(unmarshaller, pool.borrow());
+        assertEquals(0, pool.idleCount());
+    }
+
+    @Test
+    public void testBorrow_CreatesNewUnmarshallerWhenEmpty() throws Exception {
+        Unmarshaller first = pool.borrow();
+        Unmarshaller second = pool.borrow();
+
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void testGiveBack_DiscardsBeyondCapacity() throws Exception {
+        pool.giveBack(pool.borrow());
+        Unmarshaller first = pool.borrow();
+        Unmarshaller second = pool.borrow();
+        Unmarshaller third = pool.borrow();
+
+        pool.giveBack(first);
+        pool.giveBack(second);
+        pool.giveBack(third);
+
+        assertEquals(2, pool.idleCount());
+    }
+
+    @Test
+    public void testXmlBindings_SharedAcrossCalls() throws Exception {
+        assertSame(XmlBindings.jaxbContext(), XmlBindings.jaxbContext());
+        assertSame(XmlBindings.schema(), XmlBindings.schema());
+    }
+
+}
@@ -0,0 +1,86 @@
+package io.github.mikesaelim.arxivoaiharvester.xml;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.lang3.StringUtils;
+import org.arxiv.oai.arxivraw.ArXivRawType;
+import org.arxiv.oai.arxivraw.VersionType;
+import org.openarchives.oai._2.OAIPMHtype;
+import org.openarchives.oai._2.RecordType;
+
+import javax.xml.bind.JAXBElement;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Measures the bytes allocated, and the time taken, per record to normalize the string values of the records in
+ * ListRecordsResponse.xml, with commons-lang's normalizeSpace and with {@link WhitespaceNormalizer}.
+ */
+public class WhitespaceNormalizerBenchmark {
+
+    private static final int ITERATIONS = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        List<List<String>> records = loadRecordValues();
+
+        for (int round = 0; round < 3; round++) {
+            run("commons-lang", StringUtils::normalizeSpace, records);
+            run("WhitespaceNormalizer", WhitespaceNormalizer::normalizeSpace, records);
+        }
+    }
+
+    private static void run(String name, UnaryOperator<String> normalizer, List<List<String>> records) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long sink = 0;
+        long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (String value : records.get(i % records.size())) {
+                sink += normalizer.apply(value).length();
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+        System.out.printf("%-22s %8.1f bytes/record %8.1f ns/record (%d)%n",
+                name, (double) bytes / ITERATIONS, (double) nanos / ITERATIONS, sink);
+    }
+
+    private static List<List<String>> loadRecordValues() throws Exception {
+        OAIPMHtype response;
+        try (InputStream inputStream =
+                     WhitespaceNormalizerBenchmark.class.getClassLoader().getResourceAsStream("ListRecordsResponse.xml")) {
+            @SuppressWarnings("unchecked")
+            JAXBElement<OAIPMHtype> jaxbElement = (JAXBElement<OAIPMHtype>)
+                    XmlBindings.jaxbContext().createUnmarshaller().unmarshal(inputStream);
+            response = jaxbElement.getValue();
+        }
+
+        List<List<String>> records = Lists.newArrayList();
+        for (RecordType xmlRecord : response.getListRecords().getRecord()) {
+            List<String> values = Lists.newArrayList(xmlRecord.getHeader().getIdentifier(),
+                    xmlRecord.getHeader().getDatestamp());
+            values.addAll(xmlRecord.getHeader().getSetSpec());
+
+            @SuppressWarnings("unchecked")
+            ArXivRawType metadata = ((JAXBElement<ArXivRawType>) xmlRecord.getMetadata().getAny()).getValue();
+            values.addAll(Lists.newArrayList(metadata.getId(), metadata.getSubmitter(), metadata.getTitle(),
+                    metadata.getAuthors(), metadata.getCategories(), metadata.getComments(), metadata.getProxy(),
+                    metadata.getReportNo(), metadata.getAcmClass(), metadata.getMscClass(), metadata.getJournalRef(),
+                    metadata.getDoi(), metadata.getLicense(), metadata.getAbstract()));
+            for (VersionType version : metadata.getVersion()) {
+                values.addAll(Lists.newArrayList(version.getVersion(), version.getDate(), version.getSize(),
+                        version.getSourceType()));
+            }
+
+            values.removeIf(value -> value == null);
+            records.add(values);
+        }
+
+        return records;
+    }
+
+}
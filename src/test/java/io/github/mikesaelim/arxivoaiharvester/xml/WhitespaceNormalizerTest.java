@@ -0,0 +1,62 @@
+package io.github.mikesaelim.arxivoaiharvester.xml;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class WhitespaceNormalizerTest {
+
+    @Test
+    public void testNormalizeSpace_ReturnsCleanInputItself() throws Exception {
+        String clean = "Astrophysics of the cosmic web";
+
+        assertSame(clean, WhitespaceNormalizer.normalizeSpace(clean));
+    }
+
+    @Test
+    public void testNormalizeSpace_NullAndEmpty() throws Exception {
+        assertNull(WhitespaceNormalizer.normalizeSpace(null));
+        assertEquals("", WhitespaceNormalizer.normalizeSpace(""));
+    }
+
+    @Test
+    public void testNormalizeSpace_MatchesCommonsLang() throws Exception {
+        String[] values = {
+                " ", "\n", "  \t ", "a", " a", "a ", "a  b", "a\nb", "a \n  b", "  The title\n  of the  paper \n",
+                "a\u00A0b", "a\u00A0 b", "\u00A0a\u00A0", "a\u2003b", "a\u001Cb", "line one\r\nline two", "x\t"
+        };
+
+        for (String value : values) {
+            assertEquals("'" + value + "'", StringUtils.normalizeSpace(value),
+                    WhitespaceNormalizer.normalizeSpace(value));
+        }
+    }
+
+    @Test
+    public void testNormalizeSpace_MatchesCommonsLangOnRandomInput() throws Exception {
+        char[] alphabet = {'a', 'Z', '1', ' ', ' ', '\n', '\r', '\t', '\u00A0', '\u2003', '\u001F', '\u00E9'};
+        Random random = new Random(20161017L);
+
+        for (int i = 0; i < 10000; i++) {
+            char[] chars = new char[random.nextInt(40)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = alphabet[random.nextInt(alphabet.length)];
+            }
+            String value = new String(chars);
+
+            assertEquals("'" + value + "'", StringUtils.normalizeSpace(value),
+                    WhitespaceNormalizer.normalizeSpace(value));
+        }
+    }
+
+    @Test
+    public void testNormalizeSpace_LongValue() throws Exception {
+        String value = StringUtils.repeat("word \n ", 10000);
+
+        assertEquals(StringUtils.normalizeSpace(value), WhitespaceNormalizer.normalizeSpace(value));
+    }
+
+}
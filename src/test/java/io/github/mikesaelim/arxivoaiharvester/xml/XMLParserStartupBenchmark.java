@@ -0,0 +1,57 @@
+package io.github.mikesaelim.arxivoaiharvester.xml;
+
+import com.google.common.collect.Lists;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.SchemaFactory;
+import java.util.List;
+
+/**
+ * Compares the cost of constructing XMLParsers that share the JAXB context and schemas against the cost of building a
+ * private context and schema for each parser, which is what every parser used to do.
+ */
+public class XMLParserStartupBenchmark {
+
+    private static final int PARSERS = 20;
+
+    public static void main(String[] args) throws Exception {
+        long start = System.nanoTime();
+        new XMLParser();
+        long firstSharedNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < PARSERS; i++) {
+            new XMLParser();
+        }
+        long sharedNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < PARSERS; i++) {
+            buildPrivateContextAndSchema();
+        }
+        long privateNanos = System.nanoTime() - start;
+
+        System.out.printf("first parser (builds shared context and schemas): %.1f ms%n", firstSharedNanos / 1e6);
+        System.out.printf("%d more parsers, shared context and schemas: %.2f ms per parser%n",
+                PARSERS, sharedNanos / 1e6 / PARSERS);
+        System.out.printf("%d parsers, private context and schemas: %.1f ms per parser%n",
+                PARSERS, privateNanos / 1e6 / PARSERS);
+    }
+
+    private static void buildPrivateContextAndSchema() throws JAXBException, SAXException {
+        JAXBContext.newInstance("org.openarchives.oai._2:org.arxiv.oai.arxivraw").createUnmarshaller();
+
+        ClassLoader classLoader = XMLParserStartupBenchmark.class.getClassLoader();
+        List<Source> schemaSources = Lists.newArrayList(
+                new StreamSource(classLoader.getResourceAsStream("OAI-PMH.xsd")),
+                new StreamSource(classLoader.getResourceAsStream("arXivRaw.xsd")));
+        SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI)
+                .newSchema(schemaSources.toArray(new Source[schemaSources.size()]));
+    }
+
+}
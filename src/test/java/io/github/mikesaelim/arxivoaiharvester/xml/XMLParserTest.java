@@ -1,23 +1,37 @@
 package io.github.mikesaelim.arxivoaiharvester.xml;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import io.github.mikesaelim.arxivoaiharvester.exception.BadArgumentException;
 import io.github.mikesaelim.arxivoaiharvester.exception.BadResumptionTokenException;
 import io.github.mikesaelim.arxivoaiharvester.exception.ParseException;
-import io.github.mikesaelim.arxivoaiharvester.exception.RepositoryError;
+import io.github.mikesaelim.arxivoaiharvester.exception.RequestRejectedError;
+import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleField;
 import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleMetadata;
 import io.github.mikesaelim.arxivoaiharvester.model.data.ArticleVersion;
+import io.github.mikesaelim.arxivoaiharvester.model.data.RecordHeader;
 import org.junit.Test;
+import org.openarchives.oai._2.ListRecordsType;
+import org.openarchives.oai._2.OAIPMHtype;
+import org.openarchives.oai._2.RecordType;
 
+import javax.xml.bind.JAXBElement;
 import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.EnumSet;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.*;
 
@@ -30,7 +44,7 @@ public class XMLParserTest {
 
     // Tests of error cases
 
-    @Test(expected = RepositoryError.class)
+    @Test(expected = RequestRejectedError.class)
     public void testParse_ErrorBadVerb() throws Exception {
         try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("ErrorResponseBadVerb.xml")) {
             xmlParser.parse(inputStream);
@@ -81,6 +95,24 @@ public class XMLParserTest {
         assertNull(response.getCompleteListSize());
     }
 
+    @Test
+    public void testParse_ErrorNoSetHierarchy() throws Exception {
+        ParsedXmlResponse response;
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("ErrorResponseNoSetHierarchy.xml")) {
+            response = xmlParser.parse(inputStream);
+        }
+
+        assertEquals(ZonedDateTime.of(2015, 6, 23, 13, 31, 12, 0, ZoneOffset.UTC), response.getResponseDate());
+        assertNotNull(response.getSets());
+        assertTrue(response.getSets().isEmpty());
+        assertNull(response.getResumptionToken());
+    }
+
+    @Test(expected = RequestRejectedError.class)
+    public void testParse_ErrorNoSetHierarchyForListRecords() throws Exception {
+        xmlParser.parse(toStream(LIST_RECORDS_WITH_NO_SET_HIERARCHY));
+    }
+
 
 
 
@@ -97,6 +129,7 @@ public class XMLParserTest {
         assertNull(response.getResumptionToken());
         assertNull(response.getCursor());
         assertNull(response.getCompleteListSize());
+        assertNull(response.getExpirationDate());
 
         List<ArticleMetadata> records = response.getRecords();
         assertEquals(1, records.size());
@@ -157,6 +190,7 @@ public class XMLParserTest {
         assertEquals("726959|1001", response.getResumptionToken());
         assertEquals(0, response.getCursor().intValue());
         assertEquals(58011, response.getCompleteListSize().intValue());
+        assertEquals(ZonedDateTime.of(2015, 1, 6, 22, 49, 59, 0, ZoneOffset.UTC), response.getExpirationDate());
 
         List<ArticleMetadata> records = response.getRecords();
         assertEquals(6, records.size());
@@ -187,6 +221,294 @@ public class XMLParserTest {
                 records.get(5).getArticleAbstract());
     }
 
+    @Test
+    public void testParse_ListIdentifiers() throws Exception {
+        ParsedXmlResponse response;
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("ListIdentifiersResponse.xml")) {
+            response = xmlParser.parse(inputStream);
+        }
+
+        assertEquals(ZonedDateTime.of(2015, 1, 6, 20, 49, 59, 0, ZoneOffset.UTC), response.getResponseDate());
+        assertEquals("726959|1001", response.getResumptionToken());
+        assertEquals(58011, response.getCompleteListSize().intValue());
+        assertTrue(response.getRecords().isEmpty());
+
+        List<RecordHeader> headers = response.getHeaders();
+        assertEquals(6, headers.size());
+        assertEquals("oai:arXiv.org:0704.0716", headers.get(1).getIdentifier());
+        assertTrue(headers.get(1).isDeleted());
+        assertFalse(headers.get(0).isDeleted());
+        assertEquals(response.getResponseDate(), headers.get(0).getRetrievalDateTime());
+    }
+
+    @Test
+    public void testParse_ListRecordsWithRecordHandler() throws Exception {
+        ParsedXmlResponse collectedResponse;
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("ListRecordsResponse.xml")) {
+            collectedResponse = xmlParser.parse(inputStream);
+        }
+
+        List<ArticleMetadata> handledRecords = Lists.newArrayList();
+        ParsedXmlResponse response;
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("ListRecordsResponse.xml")) {
+            response = xmlParser.parse(inputStream, handledRecords::add);
+        }
+
+        assertEquals(collectedResponse.getRecords(), handledRecords);
+        assertTrue(response.getRecords().isEmpty());
+        assertEquals(collectedResponse.getResponseDate(), response.getResponseDate());
+        assertEquals(collectedResponse.getResumptionToken(), response.getResumptionToken());
+        assertEquals(collectedResponse.getCursor(), response.getCursor());
+        assertEquals(collectedResponse.getCompleteListSize(), response.getCompleteListSize());
+    }
+
+    // Tests of value deduplication
+
+    @Test
+    public void testParse_DeduplicatesVocabularyValues() throws Exception {
+        List<ArticleMetadata> firstRecords;
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("ListRecordsResponse.xml")) {
+            firstRecords = xmlParser.parse(inputStream).getRecords();
+        }
+        List<ArticleMetadata> secondRecords;
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("ListRecordsResponse.xml")) {
+            secondRecords = xmlParser.parse(inputStream).getRecords();
+        }
+
+        assertSame(firstRecords.get(0).getCategories().get(0), secondRecords.get(0).getCategories().get(0));
+        assertSame(firstRecords.get(0).getSets().iterator().next(), secondRecords.get(0).getSets().iterator().next());
+        assertSame(firstRecords.get(0).getLicense(), secondRecords.get(0).getLicense());
+        assertTrue(xmlParser.getStringPoolStats().hitCount() > 0);
+    }
+
+
+
+
+    // Tests of lazy text fields
+
+    @Test
+    public void testParse_LazyTextFieldsMatchEager() throws Exception {
+        List<XMLParser> lazyParsers = Lists.newArrayList(
+                XMLParser.builder().lazyTextFields(true).build(),
+                XMLParser.builder().streaming(true).lazyTextFields(true).build());
+        List<ArticleMetadata> eagerRecords;
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("ListRecordsResponse.xml")) {
+            eagerRecords = xmlParser.parse(inputStream).getRecords();
+        }
+
+        for (XMLParser lazyParser : lazyParsers) {
+            List<ArticleMetadata> lazyRecords;
+            try (InputStream inputStream =
+                         this.getClass().getClassLoader().getResourceAsStream("ListRecordsResponse.xml")) {
+                lazyRecords = lazyParser.parse(inputStream).getRecords();
+            }
+
+            assertEquals(eagerRecords, lazyRecords);
+            assertEquals(eagerRecords.get(0).getArticleAbstract(), lazyRecords.get(0).getArticleAbstract());
+        }
+    }
+
+
+
+
+    // Tests of field projection
+
+    @Test
+    public void testParse_FieldProjection() throws Exception {
+        ParseOptions options = ParseOptions.builder()
+                .fields(EnumSet.of(ArticleField.CATEGORIES, ArticleField.VERSIONS))
+                .build();
+        List<ArticleMetadata> fullRecords;
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("ListRecordsResponse.xml")) {
+            fullRecords = xmlParser.parse(inputStream).getRecords();
+        }
+
+        for (XMLParser parser : Lists.newArrayList(xmlParser, XMLParser.builder().streaming(true).build())) {
+            List<ArticleMetadata> projectedRecords;
+            try (InputStream inputStream =
+                         this.getClass().getClassLoader().getResourceAsStream("ListRecordsResponse.xml")) {
+                projectedRecords = parser.parse(inputStream, options).getRecords();
+            }
+
+            assertEquals(fullRecords.size(), projectedRecords.size());
+            for (int i = 0; i < fullRecords.size(); i++) {
+                ArticleMetadata full = fullRecords.get(i);
+                ArticleMetadata projected = projectedRecords.get(i);
+
+                assertEquals(full.getIdentifier(), projected.getIdentifier());
+                assertEquals(full.getDatestamp(), projected.getDatestamp());
+                assertEquals(full.getSets(), projected.getSets());
+                assertEquals(full.getCategories(), projected.getCategories());
+                assertEquals(full.getVersions(), projected.getVersions());
+                assertNull(projected.getId());
+                assertNull(projected.getTitle());
+                assertNull(projected.getAuthors());
+                assertNull(projected.getArticleAbstract());
+                assertNull(projected.getLicense());
+            }
+        }
+    }
+
+
+
+
+    // Tests of parallel conversion
+
+    @Test
+    public void testConvertRecords_ParallelKeepsOrder() throws Exception {
+        List<RecordType> xmlRecords = Lists.newArrayList();
+        for (int i = 0; i < 10; i++) {
+            xmlRecords.addAll(unmarshalListRecords().getRecord());
+        }
+        ZonedDateTime responseDate = ZonedDateTime.of(2015, 1, 6, 20, 48, 16, 0, ZoneOffset.UTC);
+
+        List<ArticleMetadata> sequentialRecords = Lists.newArrayList();
+        xmlParser.convertRecords(xmlRecords, responseDate, ParseOptions.DEFAULT, sequentialRecords::add);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            XMLParser parallelParser = XMLParser.builder()
+                    .conversionExecutor(executor)
+                    .parallelConversionThreshold(2)
+                    .build();
+            List<ArticleMetadata> parallelRecords = Lists.newArrayList();
+            parallelParser.convertRecords(xmlRecords, responseDate, ParseOptions.DEFAULT, parallelRecords::add);
+
+            assertEquals(60, parallelRecords.size());
+            assertEquals(sequentialRecords, parallelRecords);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = ParseException.class)
+    public void testConvertRecords_ParallelPropagatesParseException() throws Exception {
+        List<RecordType> xmlRecords = Lists.newArrayList();
+        for (int i = 0; i < 10; i++) {
+            xmlRecords.addAll(unmarshalListRecords().getRecord());
+        }
+        xmlRecords.get(37).getHeader().setDatestamp("not a datestamp");
+
+        XMLParser parallelParser = XMLParser.builder()
+                .conversionExecutor(ForkJoinPool.commonPool())
+                .parallelConversionThreshold(2)
+                .build();
+        parallelParser.convertRecords(xmlRecords, ZonedDateTime.now(ZoneOffset.UTC), ParseOptions.DEFAULT,
+                record -> {});
+    }
+
+    private ListRecordsType unmarshalListRecords() throws Exception {
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("ListRecordsResponse.xml")) {
+            @SuppressWarnings("unchecked")
+            JAXBElement<OAIPMHtype> jaxbElement = (JAXBElement<OAIPMHtype>)
+                    XmlBindings.jaxbContext().createUnmarshaller().unmarshal(inputStream);
+            return jaxbElement.getValue().getListRecords();
+        }
+    }
+
+
+
+
+    // Tests of thread safety
+
+    @Test
+    public void testParse_ConcurrentParsesWithOneParser() throws Exception {
+        XMLParser sharedParser = XMLParser.builder().unmarshallerPoolSize(2).build();
+        ParsedXmlResponse expected;
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("ListRecordsResponse.xml")) {
+            expected = sharedParser.parse(inputStream);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<ParsedXmlResponse>> futures = Lists.newArrayList();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> {
+                    try (InputStream inputStream =
+                                 this.getClass().getClassLoader().getResourceAsStream("ListRecordsResponse.xml")) {
+                        return sharedParser.parse(inputStream);
+                    }
+                }));
+            }
+
+            for (Future<ParsedXmlResponse> future : futures) {
+                assertEquals(expected, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(17, sharedParser.getValidatedPageCount());
+    }
+
+
+
+
+    // Tests of validation policies
+
+    @Test
+    public void testValidationPolicy_EveryNthPage() throws Exception {
+        XMLParser sampledParser = XMLParser.builder().validationPolicy(ValidationPolicy.everyNthPage(2)).build();
+
+        for (int i = 0; i < 3; i++) {
+            try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("ListRecordsResponse.xml")) {
+                assertEquals(6, sampledParser.parse(inputStream).getRecords().size());
+            }
+        }
+
+        assertEquals(2, sampledParser.getValidatedPageCount());
+        assertEquals(1, sampledParser.getUnvalidatedPageCount());
+    }
+
+    @Test
+    public void testValidationPolicy_FirstPageOfHarvest() throws Exception {
+        XMLParser firstPageParser = XMLParser.builder().validationPolicy(ValidationPolicy.firstPageOfHarvest()).build();
+
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("ListRecordsResponse.xml")) {
+            firstPageParser.parse(inputStream);
+        }
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("ListRecordsResponse.xml")) {
+            firstPageParser.parse(inputStream, ParseOptions.builder().resumption(true).build());
+        }
+
+        assertEquals(1, firstPageParser.getValidatedPageCount());
+        assertEquals(1, firstPageParser.getUnvalidatedPageCount());
+    }
+
+    @Test
+    public void testValidationPolicy_SkippedValidationIgnoresSchemaViolations() throws Exception {
+        XMLParser unvalidatedParser = XMLParser.builder().validationPolicy(ValidationPolicy.never()).build();
+
+        ParsedXmlResponse response = unvalidatedParser.parse(toStream(GET_RECORD_WITH_UNKNOWN_ELEMENT));
+
+        assertEquals("oai:arXiv.org:1302.2146", response.getRecords().get(0).getIdentifier());
+        assertEquals(0, unvalidatedParser.getValidatedPageCount());
+        assertEquals(1, unvalidatedParser.getUnvalidatedPageCount());
+    }
+
+    @Test(expected = ParseException.class)
+    public void testValidationPolicy_ValidationCatchesSchemaViolations() throws Exception {
+        xmlParser.parse(toStream(GET_RECORD_WITH_UNKNOWN_ELEMENT));
+    }
+
+    @Test(expected = ParseException.class)
+    public void testValidationPolicy_SkippedValidationStillCatchesGarbage() throws Exception {
+        XMLParser unvalidatedParser = XMLParser.builder().validationPolicy(ValidationPolicy.never()).build();
+
+        unvalidatedParser.parse(toStream("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<OAI-PMH xmlns=\"http://www.openarchives.org/OAI/2.0/\">\n" +
+                "<request verb=\"GetRecord\">http://export.arxiv.org/oai2</request>\n" +
+                "</OAI-PMH>"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testValidationPolicy_EveryZerothPageShouldThrow() throws Exception {
+        ValidationPolicy.everyNthPage(0);
+    }
+
+
+
+
     @Test
     public void testParseResponseDate() throws Exception {
         ZonedDateTime answer = ZonedDateTime.of(2015, 6, 23, 5, 14, 59, 0, ZoneOffset.UTC);
@@ -269,4 +591,29 @@ public class XMLParserTest {
         assertTrue(categories.isEmpty());
     }
 
-}
\ No newline at end of file
+
+
+
+    static final String GET_RECORD_WITH_UNKNOWN_ELEMENT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<OAI-PMH xmlns=\"http://www.openarchives.org/OAI/2.0/\">\n" +
+            "<responseDate>2015-01-06T20:48:16Z</responseDate>\n" +
+            "<request verb=\"GetRecord\">http://export.arxiv.org/oai2</request>\n" +
+            "<GetRecord><record><header>\n" +
+            " <identifier>oai:arXiv.org:1302.2146</identifier>\n" +
+            " <datestamp>2013-04-03</datestamp>\n" +
+            " <unknownElement>surprise</unknownElement>\n" +
+            "</header></record></GetRecord>\n" +
+            "</OAI-PMH>";
+
+    static final String LIST_RECORDS_WITH_NO_SET_HIERARCHY = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<OAI-PMH xmlns=\"http://www.openarchives.org/OAI/2.0/\">\n" +
+            "<responseDate>2015-06-23T13:31:12Z</responseDate>\n" +
+            "<request verb=\"ListRecords\" metadataPrefix=\"arXivRaw\" set=\"physics\">http://export.arxiv.org/oai2</request>\n" +
+            "<error code=\"noSetHierarchy\">This repository does not support sets</error>\n" +
+            "</OAI-PMH>";
+
+    static InputStream toStream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+}